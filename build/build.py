@@ -124,6 +124,8 @@ script = None
 serviceName = 'MapML Document Validator'
 resultsTitle = 'Validation results'
 messagesLimit = 1000
+testThreads = None
+testShard = None
 maxFileSize = 11264
 disablePromiscuousSsl = 0
 genericHost = ''
@@ -758,6 +760,29 @@ def buildValidator():
         jingJarPath())
     buildEmitters()
     buildModule(buildRoot, "validator", classPath)
+    buildHtml5SpecSnapshot()
+
+
+def buildHtml5SpecSnapshot():
+    # Extracts the element descriptions from the local copy of the spec into
+    # a snapshot that the validator reads instead of parsing the whole spec.
+    # Without a snapshot, the validator falls back to parsing the spec.
+    spec = os.path.join(filesDir, "html5spec")
+    if not os.path.exists(spec):
+        return
+    snapshot = os.path.join(filesDir, "html5spec-snapshot")
+    removeIfExists(snapshot)
+    classPath = os.pathsep.join(
+        dependencyJarPaths() +
+        jarNamesToPaths(["galimatias", "htmlparser", "validator"]) +
+        jingJarPath())
+    if runCmd([javaCmd, '-classpath', classPath,
+               'nu.validator.spec.html5.Html5SpecBuilder', spec, snapshot]):
+        sys.exit(1)
+    if os.path.exists(snapshot):
+        runCmd([jarCmd, 'uf', os.path.join(jarsDir, "validator.jar"), '-C',
+                os.path.join(buildRoot, "src"),
+                'nu/validator/localentities/files/html5spec-snapshot'])
 
 
 def ownJarList():
@@ -1202,6 +1227,62 @@ class Release():
         os.remove(minDocPath)
 
 
+def createCdsArchive():
+    # Records the classes loaded while checking a minimal document into a
+    # dynamic AppCDS archive (JDK 13+), which later runs map instead of
+    # loading and verifying those classes again. The archive only works
+    # with the JVM that created it, so it is not part of the distribution.
+    vnu = os.path.join(distDir, "vnu.jar")
+    if not os.path.exists(vnu):
+        print("%s not found; run the jar task first." % vnu)
+        sys.exit(1)
+    archive = os.path.join(distDir, "vnu.jsa")
+    removeIfExists(archive)
+    minDocPath = os.path.join(buildRoot, 'minDoc.html')
+    with open(minDocPath, 'w') as f:
+        f.write(miniDoc)
+    if runCmd([javaCmd, '-XX:ArchiveClassesAtExit=%s' % archive, '-jar',
+               vnu, '--exit-zero-always', minDocPath]):
+        sys.exit(1)
+    os.remove(minDocPath)
+    print("Run with: %s -XX:SharedArchiveFile=%s -jar %s FILE..." %
+          (javaCmd, archive, vnu))
+
+
+def runStartupBenchmark():
+    vnu = os.path.join(distDir, "vnu.jar")
+    archive = os.path.join(distDir, "vnu.jsa")
+    minDocPath = os.path.join(buildRoot, 'minDoc.html')
+    with open(minDocPath, 'w') as f:
+        f.write(miniDoc)
+    className = "nu.validator.client.test.StartupBenchmark"
+    classPath = os.pathsep.join(jarNamesToPaths(["validator"]))
+    args = [vnu, minDocPath]
+    if os.path.exists(archive):
+        args.append(archive)
+    if runCmd([javaCmd, '-classpath', classPath, className] + args):
+        sys.exit(1)
+    os.remove(minDocPath)
+
+
+def runSpecLoadBenchmark():
+    spec = os.path.join(filesDir, "html5spec")
+    if not os.path.exists(spec):
+        print("%s not found; run the dldeps task first." % spec)
+        sys.exit(1)
+    className = "nu.validator.spec.test.SpecLoadBenchmark"
+    classPath = os.pathsep.join(
+        dependencyJarPaths() +
+        jarNamesToPaths(["galimatias", "htmlparser", "validator"]) +
+        jingJarPath())
+    args = [spec]
+    snapshot = os.path.join(filesDir, "html5spec-snapshot")
+    if os.path.exists(snapshot):
+        args.append(snapshot)
+    if runCmd([javaCmd, '-classpath', classPath, className] + args):
+        sys.exit(1)
+
+
 def createTarball():
     args = [
         tarCmd,
@@ -1422,6 +1503,10 @@ def buildAll():
 
 def runTests():
     args = ["tests/messages.json"]
+    if testThreads:
+        args.insert(0, "--threads=" + testThreads)
+    if testShard:
+        args.insert(0, "--shard=" + testShard)
     className = "nu.validator.client.TestRunner"
     classPath = os.pathsep.join(
         buildRunJarPathList() +
@@ -1475,6 +1560,8 @@ def printHelp():
     print("                                Defaults to just script.js relative")
     print("                                to the validator URL")
     print("  --stacksize=NN             -- Sets Java thread stack size in KB")
+    print("  --test-shard=I/N           -- Runs only the Ith of N parts of the tests")
+    print("  --test-threads=N           -- Runs the tests on N threads")
     print("  --stylesheet=style.css")
     print("                                Sets URL for the style sheet")
     print("                                Defaults to just style.css relative")
@@ -1491,6 +1578,9 @@ def printHelp():
     print("  all      -- update dldeps build test run")
     print("  bundle   -- Create a Maven release bundle")
     print("  jar      -- Create a JAR file containing a release distribution")
+    print("  cds      -- Create an AppCDS archive for faster vnu.jar startup")
+    print("  startup-bench -- Time vnu.jar startup with and without the archive")
+    print("  spec-bench -- Compare parsing the HTML spec with reading its snapshot")
     print("  war      -- Create a WAR file containing a release distribution")
     print("  script   -- Make run-validator.sh script for running the system")
 
@@ -1527,6 +1617,10 @@ else:
             heapSize = arg[7:]
         elif arg.startswith("--stacksize="):
             stackSize = arg[12:]
+        elif arg.startswith("--test-threads="):
+            testThreads = arg[15:]
+        elif arg.startswith("--test-shard="):
+            testShard = arg[13:]
         elif arg.startswith("--javaversion="):
             javaVersion = arg[14:]
         elif arg.startswith("--html5link="):
@@ -1689,6 +1783,12 @@ else:
         elif arg == 'jar':
             release = Release()
             release.createExecutable("jar")
+        elif arg == 'cds':
+            createCdsArchive()
+        elif arg == 'startup-bench':
+            runStartupBenchmark()
+        elif arg == 'spec-bench':
+            runSpecLoadBenchmark()
         elif arg == 'war':
             release = Release()
             release.createExecutable("war")
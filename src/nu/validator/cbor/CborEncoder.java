@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2026 Mozilla Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package nu.validator.cbor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Minimal streaming CBOR (RFC 7049) encoder. Integers use the shortest CBOR
+ * encoding, so small line and column numbers take a single byte. Strings
+ * written with {@link #stringRef(String)} are interned per the CBOR
+ * stringref extension (tags 256 and 25): once a string has been written, later
+ * occurrences are written as a small index into the table of strings seen so
+ * far. Strings written with {@link #string(CharSequence)} aren't looked up
+ * or remembered, but still take up a table slot when long enough, as a
+ * stringref decoder gives one to every text string in the namespace.
+ */
+public class CborEncoder {
+
+    private static final int MAJOR_UNSIGNED = 0;
+
+    private static final int MAJOR_NEGATIVE = 1;
+
+    private static final int MAJOR_TEXT = 3;
+
+    private static final int MAJOR_ARRAY = 4;
+
+    private static final int MAJOR_TAG = 6;
+
+    private static final int TAG_STRINGREF = 25;
+
+    private static final int TAG_STRINGREF_NAMESPACE = 256;
+
+    private static final int NULL = 0xF6;
+
+    private static final int TRUE = 0xF5;
+
+    private static final int FALSE = 0xF4;
+
+    private static final int INDEFINITE_ARRAY = 0x9F;
+
+    private static final int BREAK = 0xFF;
+
+    /**
+     * Strings past this many table slots are no longer remembered, so a long
+     * batch run doesn't keep every distinct string it has written.
+     */
+    private static final int MAX_STRING_REFS = 4096;
+
+    private final OutputStream out;
+
+    private final byte[] buffer = new byte[8192];
+
+    private int pos = 0;
+
+    private final Map<String, Integer> stringRefs = new HashMap<>();
+
+    /**
+     * The number of table slots the decoder has allocated so far, which
+     * counts strings that were not remembered too.
+     */
+    private int nextStringRef = 0;
+
+    public CborEncoder(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Starts a stringref namespace wrapping an indefinite-length array, so
+     * that items can be streamed out one by one.
+     */
+    public void startStream() throws SAXException {
+        head(MAJOR_TAG, TAG_STRINGREF_NAMESPACE);
+        write(INDEFINITE_ARRAY);
+        stringRefs.clear();
+        nextStringRef = 0;
+    }
+
+    public void endStream() throws SAXException {
+        write(BREAK);
+        flush();
+    }
+
+    public void startArray(int length) throws SAXException {
+        head(MAJOR_ARRAY, length);
+    }
+
+    public void number(long number) throws SAXException {
+        if (number < 0) {
+            head(MAJOR_NEGATIVE, -1 - number);
+        } else {
+            head(MAJOR_UNSIGNED, number);
+        }
+    }
+
+    public void bool(boolean bool) throws SAXException {
+        write(bool ? TRUE : FALSE);
+    }
+
+    public void nullValue() throws SAXException {
+        write(NULL);
+    }
+
+    /**
+     * Writes a string without looking it up or remembering it.
+     */
+    public void string(CharSequence string) throws SAXException {
+        if (string == null) {
+            nullValue();
+            return;
+        }
+        byte[] bytes = string.toString().getBytes(StandardCharsets.UTF_8);
+        head(MAJOR_TEXT, bytes.length);
+        write(bytes);
+        allocateStringRef(bytes.length);
+    }
+
+    /**
+     * Writes a string, or a reference to it if it has been written before in
+     * the current namespace.
+     */
+    public void stringRef(String string) throws SAXException {
+        if (string == null) {
+            nullValue();
+            return;
+        }
+        Integer index = stringRefs.get(string);
+        if (index != null) {
+            head(MAJOR_TAG, TAG_STRINGREF);
+            head(MAJOR_UNSIGNED, index.intValue());
+            return;
+        }
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        head(MAJOR_TEXT, bytes.length);
+        write(bytes);
+        int slot = allocateStringRef(bytes.length);
+        if (slot != -1 && slot < MAX_STRING_REFS) {
+            stringRefs.put(string, Integer.valueOf(slot));
+        }
+    }
+
+    public void flush() throws SAXException {
+        try {
+            drain();
+            out.flush();
+        } catch (IOException e) {
+            throw new SAXException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Mirrors the decoder's table: returns the slot that a text string of the
+     * given UTF-8 length gets, or -1 if it is too short to get one.
+     */
+    private int allocateStringRef(int length) {
+        if (length < minimumRefLength(nextStringRef)) {
+            return -1;
+        }
+        return nextStringRef++;
+    }
+
+    /**
+     * The stringref rule for which strings get a table slot: only those
+     * longer than a reference to the next index would be.
+     */
+    private static int minimumRefLength(int nextIndex) {
+        if (nextIndex < 24) {
+            return 3;
+        } else if (nextIndex < 256) {
+            return 4;
+        } else if (nextIndex < 65536) {
+            return 5;
+        } else {
+            return 7;
+        }
+    }
+
+    private void head(int major, long value) throws SAXException {
+        int type = major << 5;
+        if (value < 24) {
+            write(type | (int) value);
+        } else if (value < 0x100) {
+            write(type | 24);
+            write((int) value);
+        } else if (value < 0x10000) {
+            write(type | 25);
+            write((int) (value >> 8));
+            write((int) value);
+        } else if (value < 0x100000000L) {
+            write(type | 26);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                write((int) (value >> shift));
+            }
+        } else {
+            write(type | 27);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                write((int) (value >> shift));
+            }
+        }
+    }
+
+    private void write(int b) throws SAXException {
+        if (pos == buffer.length) {
+            try {
+                drain();
+            } catch (IOException e) {
+                throw new SAXException(e.getMessage(), e);
+            }
+        }
+        buffer[pos++] = (byte) b;
+    }
+
+    private void write(byte[] bytes) throws SAXException {
+        try {
+            if (bytes.length > buffer.length - pos) {
+                drain();
+                if (bytes.length > buffer.length) {
+                    out.write(bytes);
+                    return;
+                }
+            }
+            System.arraycopy(bytes, 0, buffer, pos, bytes.length);
+            pos += bytes.length;
+        } catch (IOException e) {
+            throw new SAXException(e.getMessage(), e);
+        }
+    }
+
+    private void drain() throws IOException {
+        if (pos > 0) {
+            out.write(buffer, 0, pos);
+            pos = 0;
+        }
+    }
+}
@@ -120,6 +120,55 @@ public abstract class Checker implements ContentHandler {
         return this.request;
     }
 
+    private MemoryBudget memoryBudget;
+
+    public void setMemoryBudget(MemoryBudget memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    public MemoryBudget getMemoryBudget() {
+        return this.memoryBudget;
+    }
+
+    private LinkCollector linkCollector;
+
+    public void setLinkCollector(LinkCollector linkCollector) {
+        this.linkCollector = linkCollector;
+    }
+
+    /**
+     * Returns the collector for links to other documents, or
+     * <code>null</code> if nobody is interested in them.
+     *
+     * @return the link collector or <code>null</code>
+     */
+    public LinkCollector getLinkCollector() {
+        return this.linkCollector;
+    }
+
+    /**
+     * Reports bytes this checker is about to retain until the end of the
+     * document.
+     *
+     * @param bytes the approximate number of bytes
+     * @return <code>false</code> if the memory budget has been exceeded and
+     * the data should not be retained
+     */
+    public boolean retain(long bytes) {
+        return memoryBudget == null || memoryBudget.charge(bytes);
+    }
+
+    /**
+     * Returns <code>true</code> if the memory budget has been exceeded, in
+     * which case checks that depend on data retained across the document
+     * must be skipped.
+     *
+     * @return <code>true</code> if cross-reference checks are disabled
+     */
+    public boolean isCrossReferenceCheckingDisabled() {
+        return memoryBudget != null && memoryBudget.isExceeded();
+    }
+
     /**
      * Does nothing. Subclasses are expected to override this method with 
      * an implementation that clears the state of the checker and releases 
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2026 Mozilla Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package nu.validator.checker;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.cybozu.labs.langdetect.Detector;
+import com.cybozu.labs.langdetect.DetectorFactory;
+import com.cybozu.labs.langdetect.LangDetectException;
+import com.cybozu.labs.langdetect.Language;
+
+/**
+ * A <code>LanguageDetector</code> backed by the langdetect library, which
+ * averages several randomized trials over the collected text.
+ */
+public final class LangdetectLanguageDetector implements LanguageDetector {
+
+    /**
+     * Loads the language profiles into langdetect the first time a
+     * detector needs them.
+     */
+    private static final class Profiles {
+
+        static {
+            try {
+                DetectorFactory.clear();
+                DetectorFactory.loadProfile(
+                        LanguageDetectingChecker.readProfiles());
+            } catch (LangDetectException e) {
+            }
+        }
+
+        static void ensureLoaded() {
+        }
+    }
+
+    private final StringBuilder text = new StringBuilder();
+
+    /**
+     * @see nu.validator.checker.LanguageDetector#load()
+     */
+    @Override
+    public void load() {
+        Profiles.ensureLoaded();
+    }
+
+    /**
+     * @see nu.validator.checker.LanguageDetector#reset()
+     */
+    @Override
+    public void reset() {
+        text.setLength(0);
+    }
+
+    /**
+     * @see nu.validator.checker.LanguageDetector#append(java.lang.CharSequence)
+     */
+    @Override
+    public void append(CharSequence text) {
+        this.text.append(text);
+    }
+
+    /**
+     * @see nu.validator.checker.LanguageDetector#isDecided()
+     */
+    @Override
+    public boolean isDecided() {
+        return false;
+    }
+
+    /**
+     * @see nu.validator.checker.LanguageDetector#getProbabilities()
+     */
+    @Override
+    public List<Language> getProbabilities() {
+        Profiles.ensureLoaded();
+        try {
+            Detector detector = DetectorFactory.create();
+            detector.append(text.toString().replaceAll("\\s+", " "));
+            return detector.getProbabilities();
+        } catch (LangDetectException e) {
+            return Collections.emptyList();
+        }
+    }
+}
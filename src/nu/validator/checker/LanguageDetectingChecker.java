@@ -22,9 +22,6 @@
 
 package nu.validator.checker;
 
-import com.cybozu.labs.langdetect.Detector;
-import com.cybozu.labs.langdetect.DetectorFactory;
-import com.cybozu.labs.langdetect.LangDetectException;
 import com.cybozu.labs.langdetect.Language;
 import com.ibm.icu.util.ULocale;
 
@@ -35,6 +32,7 @@ import io.mola.galimatias.URL;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -69,7 +67,9 @@ public class LanguageDetectingChecker extends Checker {
 
     private StringBuilder elementContent;
 
-    private StringBuilder documentContent;
+    private final LanguageDetector detector = newLanguageDetector();
+
+    private boolean detectionEnabled;
 
     private String httpContentLangHeader;
 
@@ -197,10 +197,18 @@ public class LanguageDetectingChecker extends Checker {
         LANG_TAGS_BY_TLD.put("ve", new String[] { "es" });
         LANG_TAGS_BY_TLD.put("vn", new String[] { "vi" });
         LANG_TAGS_BY_TLD.put("za", new String[] { "af" });
+    }
+
+    /**
+     * Reads the language profiles that both built-in detectors use.
+     *
+     * @return the profiles as JSON, one per language
+     */
+    static List<String> readProfiles() {
         try {
             BufferedReader br = new BufferedReader(new InputStreamReader(
                     LanguageDetectingChecker.class.getClassLoader().getResourceAsStream(
-                            languageList)));
+                            languageList), StandardCharsets.UTF_8));
             List<String> languageTags = new ArrayList<>();
             String languageTagAndName = br.readLine();
             while (languageTagAndName != null) {
@@ -211,16 +219,40 @@ public class LanguageDetectingChecker extends Checker {
             for (String languageTag : languageTags) {
                 profiles.add((new BufferedReader(new InputStreamReader(
                         LanguageDetectingChecker.class.getClassLoader().getResourceAsStream(
-                                profilesDir + languageTag)))).readLine());
+                                profilesDir + languageTag),
+                        StandardCharsets.UTF_8))).readLine());
             }
-            DetectorFactory.clear();
-            DetectorFactory.loadProfile(profiles);
+            return profiles;
         } catch (IOException e) {
             throw new RuntimeException(e);
-        } catch (LangDetectException e) {
         }
     }
 
+    private static LanguageDetector newLanguageDetector() {
+        String name = System.getProperty(
+                "nu.validator.checker.languageDetector", "langdetect");
+        if ("langdetect".equals(name)) {
+            return new LangdetectLanguageDetector();
+        } else if ("ngram".equals(name)) {
+            return new NgramLanguageDetector();
+        }
+        try {
+            return Class.forName(name).asSubclass(
+                    LanguageDetector.class).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new RuntimeException("Cannot create the language detector "
+                    + name + ".", e);
+        }
+    }
+
+    /**
+     * Loads the language profiles now. Long-running processes call this at
+     * startup so that the first document doesn't pay for it.
+     */
+    public static void loadProfiles() {
+        newLanguageDetector().load();
+    }
+
     private boolean shouldAppendToLangdetectContent() {
         return (inBody && currentOpenElementsWithSkipName < 1
                 && currentOpenElementsInDifferentLang < 1
@@ -596,8 +628,7 @@ public class LanguageDetectingChecker extends Checker {
      */
     @Override
     public void endDocument() throws SAXException {
-        if (!"0".equals(System.getProperty(
-                "nu.validator.checker.enableLangDetection"))) {
+        if (detectionEnabled) {
             detectLanguageAndCheckAgainstDeclaredLanguage();
         }
     }
@@ -630,99 +661,94 @@ public class LanguageDetectingChecker extends Checker {
                         declaredLangCode) >= 0) {
             return;
         }
-        try {
-            String textContent = documentContent.toString() //
-                    .replaceAll("\\s+", " ");
-            String detectedLanguage = "";
-            Detector detector = DetectorFactory.create();
-            detector.append(textContent);
-            detector.getProbabilities();
-            ArrayList<String> possibileLanguages = new ArrayList<>();
-            ArrayList<Language> possibilities = detector.getProbabilities();
-            for (Language possibility : possibilities) {
-                possibileLanguages.add(possibility.lang);
-                if (possibility.prob > MIN_PROBABILITY) {
-                    detectedLanguage = possibility.lang;
+        List<Language> possibilities = detector.getProbabilities();
+        if (possibilities.isEmpty()) {
+            return;
+        }
+        String detectedLanguage = "";
+        ArrayList<String> possibileLanguages = new ArrayList<>();
+        for (Language possibility : possibilities) {
+            possibileLanguages.add(possibility.lang);
+            if (possibility.prob > MIN_PROBABILITY) {
+                detectedLanguage = possibility.lang;
+                setDocumentLanguage(detectedLanguage);
+            } else if ((possibileLanguages.contains("hr")
+                    && (possibileLanguages.contains("sr-latn")
+                            || possibileLanguages.contains("bs")))
+                    || (possibileLanguages.contains("sr-latn")
+                            && (possibileLanguages.contains("hr")
+                                    || possibileLanguages.contains("bs")))
+                    || (possibileLanguages.contains("bs")
+                            && (possibileLanguages.contains("hr")
+                                    || possibileLanguages.contains(
+                                            "sr-latn")))) {
+                if (htmlElementHasLang || systemId != null) {
+                    detectedLanguage = getDetectedLanguageSerboCroatian();
                     setDocumentLanguage(detectedLanguage);
-                } else if ((possibileLanguages.contains("hr")
-                        && (possibileLanguages.contains("sr-latn")
-                                || possibileLanguages.contains("bs")))
-                        || (possibileLanguages.contains("sr-latn")
-                                && (possibileLanguages.contains("hr")
-                                        || possibileLanguages.contains("bs")))
-                        || (possibileLanguages.contains("bs")
-                                && (possibileLanguages.contains("hr")
-                                        || possibileLanguages.contains(
-                                                "sr-latn")))) {
-                    if (htmlElementHasLang || systemId != null) {
-                        detectedLanguage = getDetectedLanguageSerboCroatian();
-                        setDocumentLanguage(detectedLanguage);
-                    }
-                    if ("sh".equals(detectedLanguage)) {
-                        checkLangAttributeSerboCroatian();
-                        return;
-                    }
+                }
+                if ("sh".equals(detectedLanguage)) {
+                    checkLangAttributeSerboCroatian();
+                    return;
                 }
             }
-            if ("".equals(detectedLanguage)) {
-                warnIfMissingLang();
-                return;
-            }
-            String detectedLanguageName = "";
-            String preferredLanguageCode = "";
-            ULocale locale = new ULocale(detectedLanguage);
-            String detectedLanguageCode = locale.getLanguage();
-            if ("no".equals(detectedLanguage)) {
-                checkLangAttributeNorwegian();
-                checkContentLanguageHeaderNorwegian(detectedLanguage,
-                        detectedLanguageName, detectedLanguageCode);
-                return;
-            }
-            if ("zh-hans".equals(detectedLanguage)) {
-                detectedLanguageName = "Simplified Chinese";
-                preferredLanguageCode = "zh-hans";
-            } else if ("zh-hant".equals(detectedLanguage)) {
-                detectedLanguageName = "Traditional Chinese";
-                preferredLanguageCode = "zh-hant";
-            } else if ("mhr".equals(detectedLanguage)) {
-                detectedLanguageName = "Meadow Mari";
-                preferredLanguageCode = "mhr";
-            } else if ("mrj".equals(detectedLanguage)) {
-                detectedLanguageName = "Hill Mari";
-                preferredLanguageCode = "mrj";
-            } else if ("nah".equals(detectedLanguage)) {
-                detectedLanguageName = "Nahuatl";
-                preferredLanguageCode = "nah";
-            } else if ("pnb".equals(detectedLanguage)) {
-                detectedLanguageName = "Western Panjabi";
-                preferredLanguageCode = "pnb";
-            } else if ("sr-cyrl".equals(detectedLanguage)) {
-                detectedLanguageName = "Serbian";
-                preferredLanguageCode = "sr";
-            } else if ("sr-latn".equals(detectedLanguage)) {
-                detectedLanguageName = "Serbian";
-                preferredLanguageCode = "sr";
-            } else if ("uz-cyrl".equals(detectedLanguage)) {
-                detectedLanguageName = "Uzbek";
-                preferredLanguageCode = "uz";
-            } else if ("uz-latn".equals(detectedLanguage)) {
-                detectedLanguageName = "Uzbek";
-                preferredLanguageCode = "uz";
-            } else if ("zxx".equals(detectedLanguage)) {
-                detectedLanguageName = "Lorem ipsum text";
-                preferredLanguageCode = "zxx";
-            } else {
-                detectedLanguageName = locale.getDisplayName();
-                preferredLanguageCode = detectedLanguageCode;
-            }
-            checkLangAttribute(detectedLanguage, detectedLanguageName,
-                    detectedLanguageCode, preferredLanguageCode);
-            checkDirAttribute(detectedLanguage, detectedLanguageName,
-                    detectedLanguageCode, preferredLanguageCode);
-            checkContentLanguageHeader(detectedLanguage, detectedLanguageName,
-                    detectedLanguageCode, preferredLanguageCode);
-        } catch (LangDetectException e) {
         }
+        if ("".equals(detectedLanguage)) {
+            warnIfMissingLang();
+            return;
+        }
+        String detectedLanguageName = "";
+        String preferredLanguageCode = "";
+        ULocale locale = new ULocale(detectedLanguage);
+        String detectedLanguageCode = locale.getLanguage();
+        if ("no".equals(detectedLanguage)) {
+            checkLangAttributeNorwegian();
+            checkContentLanguageHeaderNorwegian(detectedLanguage,
+                    detectedLanguageName, detectedLanguageCode);
+            return;
+        }
+        if ("zh-hans".equals(detectedLanguage)) {
+            detectedLanguageName = "Simplified Chinese";
+            preferredLanguageCode = "zh-hans";
+        } else if ("zh-hant".equals(detectedLanguage)) {
+            detectedLanguageName = "Traditional Chinese";
+            preferredLanguageCode = "zh-hant";
+        } else if ("mhr".equals(detectedLanguage)) {
+            detectedLanguageName = "Meadow Mari";
+            preferredLanguageCode = "mhr";
+        } else if ("mrj".equals(detectedLanguage)) {
+            detectedLanguageName = "Hill Mari";
+            preferredLanguageCode = "mrj";
+        } else if ("nah".equals(detectedLanguage)) {
+            detectedLanguageName = "Nahuatl";
+            preferredLanguageCode = "nah";
+        } else if ("pnb".equals(detectedLanguage)) {
+            detectedLanguageName = "Western Panjabi";
+            preferredLanguageCode = "pnb";
+        } else if ("sr-cyrl".equals(detectedLanguage)) {
+            detectedLanguageName = "Serbian";
+            preferredLanguageCode = "sr";
+        } else if ("sr-latn".equals(detectedLanguage)) {
+            detectedLanguageName = "Serbian";
+            preferredLanguageCode = "sr";
+        } else if ("uz-cyrl".equals(detectedLanguage)) {
+            detectedLanguageName = "Uzbek";
+            preferredLanguageCode = "uz";
+        } else if ("uz-latn".equals(detectedLanguage)) {
+            detectedLanguageName = "Uzbek";
+            preferredLanguageCode = "uz";
+        } else if ("zxx".equals(detectedLanguage)) {
+            detectedLanguageName = "Lorem ipsum text";
+            preferredLanguageCode = "zxx";
+        } else {
+            detectedLanguageName = locale.getDisplayName();
+            preferredLanguageCode = detectedLanguageCode;
+        }
+        checkLangAttribute(detectedLanguage, detectedLanguageName,
+                detectedLanguageCode, preferredLanguageCode);
+        checkDirAttribute(detectedLanguage, detectedLanguageName,
+                detectedLanguageCode, preferredLanguageCode);
+        checkContentLanguageHeader(detectedLanguage, detectedLanguageName,
+                detectedLanguageCode, preferredLanguageCode);
     }
 
     /**
@@ -733,7 +759,7 @@ public class LanguageDetectingChecker extends Checker {
     public void endElement(String uri, String localName, String name)
             throws SAXException {
         if (nonWhitespaceCharacterCount < MAX_CHARS) {
-            documentContent.append(elementContent);
+            detector.append(elementContent);
             elementContent.setLength(0);
         }
         if ("body".equals(localName)) {
@@ -769,14 +795,15 @@ public class LanguageDetectingChecker extends Checker {
         currentOpenElementsWithSkipName = 0;
         nonWhitespaceCharacterCount = 0;
         elementContent = new StringBuilder();
-        documentContent = new StringBuilder();
+        detectionEnabled = !"0".equals(System.getProperty(
+                "nu.validator.checker.enableLangDetection"));
+        detector.reset();
         htmlElementHasLang = false;
         isMapmlDoc = false;
         htmlElementLangAttrValue = "";
         declaredLangCode = "";
         hasDir = false;
         dirAttrValue = "";
-        documentContent.setLength(0);
         currentOpenElementsWithSkipName = 0;
         try {
             systemId = getDocumentLocator().getSystemId();
@@ -846,7 +873,8 @@ public class LanguageDetectingChecker extends Checker {
     @Override
     public void characters(char[] ch, int start, int length)
             throws SAXException {
-        if (shouldAppendToLangdetectContent()) {
+        if (detectionEnabled && shouldAppendToLangdetectContent()
+                && !detector.isDecided()) {
             elementContent.append(ch, start, length);
         }
         for (int i = start; i < start + length; i++) {
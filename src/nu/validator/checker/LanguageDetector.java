@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2026 Mozilla Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package nu.validator.checker;
+
+import java.util.List;
+
+import com.cybozu.labs.langdetect.Language;
+
+/**
+ * Guesses the language of the text of a document for
+ * <code>LanguageDetectingChecker</code>.
+ *
+ * <p>The checker creates one detector per instance and calls
+ * <code>reset()</code> at the start of each document. Implementations
+ * are named by the <code>nu.validator.checker.languageDetector</code>
+ * system property: <code>langdetect</code> (the default),
+ * <code>ngram</code>, or the name of a class with a public no-argument
+ * constructor.
+ */
+public interface LanguageDetector {
+
+    /**
+     * Loads the data the detector needs, if it hasn't been loaded yet.
+     */
+    void load();
+
+    /**
+     * Forgets the text of the previous document.
+     */
+    void reset();
+
+    /**
+     * Adds text from the document.
+     *
+     * @param text
+     *            the text
+     */
+    void append(CharSequence text);
+
+    /**
+     * Tells whether more text can no longer change the result, so the
+     * caller may stop appending.
+     *
+     * @return <code>true</code> if the result is settled
+     */
+    boolean isDecided();
+
+    /**
+     * Returns the likely languages of the text appended so far, most
+     * probable first. Languages that are unlikely are left out.
+     *
+     * @return the languages with their probabilities, possibly empty
+     */
+    List<Language> getProbabilities();
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2026 Mozilla Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package nu.validator.checker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.thaiopensource.util.PropertyId;
+
+/**
+ * Collects the links to other documents that checkers come across, for a
+ * caller that wants to go on to check those documents too. Links are kept
+ * as written in the document; resolving them is up to the caller.
+ *
+ * <p>Instances are not thread-safe; use one per validator, and call
+ * {@link #reset()} before each document.
+ */
+public final class LinkCollector {
+
+    /**
+     * The Jing property through which the collector reaches the checkers.
+     */
+    public static final PropertyId PROPERTY = new PropertyId("LINK_COLLECTOR",
+            LinkCollector.class);
+
+    /**
+     * A link found in a document.
+     */
+    public static final class Link {
+
+        private final String rel;
+
+        private final String href;
+
+        private final Map<String, String[]> variables;
+
+        Link(String rel, String href, Map<String, String[]> variables) {
+            this.rel = rel;
+            this.href = href;
+            this.variables = variables;
+        }
+
+        /**
+         * @return the link relation that made the link worth following
+         */
+        public String getRel() {
+            return rel;
+        }
+
+        /**
+         * @return the URL, or the URL template, as written
+         */
+        public String getHref() {
+            return href;
+        }
+
+        /**
+         * @return <code>null</code> for a plain link; for a template, the
+         *         <code>min</code> and <code>max</code> attributes (either
+         *         may be <code>null</code>) and the <code>value</code>
+         *         attribute of the input that names each variable
+         */
+        public Map<String, String[]> getVariables() {
+            return variables;
+        }
+    }
+
+    private final List<Link> links = new ArrayList<>();
+
+    private String base;
+
+    /**
+     * Forgets the links of the previous document.
+     */
+    public void reset() {
+        links.clear();
+        base = null;
+    }
+
+    /**
+     * Records a link.
+     */
+    public void addLink(String rel, String href) {
+        links.add(new Link(rel, href, null));
+    }
+
+    /**
+     * Records a URL template together with the inputs its variables refer
+     * to.
+     */
+    public void addTemplate(String rel, String template,
+            Map<String, String[]> variables) {
+        links.add(new Link(rel, template, variables));
+    }
+
+    /**
+     * Records the <code>href</code> of a <code>base</code> element.
+     */
+    public void setBase(String base) {
+        if (this.base == null) {
+            this.base = base;
+        }
+    }
+
+    /**
+     * @return the <code>href</code> of the first <code>base</code>
+     *         element, or <code>null</code>
+     */
+    public String getBase() {
+        return base;
+    }
+
+    /**
+     * @return the links of the current document in document order
+     */
+    public List<Link> getLinks() {
+        return Collections.unmodifiableList(links);
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2026 Mozilla Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package nu.validator.checker;
+
+import com.thaiopensource.util.PropertyId;
+
+/**
+ * Approximate accounting of the memory that checking a single document
+ * retains. Checkers charge the bytes they hold on to until the end of the
+ * document; once the limit has been exceeded, every further charge is
+ * refused and the charging parties are expected to release what they hold
+ * and skip the checks that depend on it.
+ *
+ * <p>The source code recorder charges its bytes as a reserve instead. The
+ * reserve is only kept for extracts, so it is dropped first: a charge that
+ * does not fit makes the reserve give up what it holds, and the budget is
+ * only exceeded if the charge still does not fit after that.
+ *
+ * <p>A limit of zero or less means that nothing is ever refused. Instances
+ * are not thread-safe; use one per transaction.
+ */
+public final class MemoryBudget {
+
+    /**
+     * The Jing property through which the budget reaches the checkers.
+     */
+    public static final PropertyId PROPERTY = new PropertyId("MEMORY_BUDGET",
+            MemoryBudget.class);
+
+    /**
+     * The per-document limit in bytes, 0 for no limit.
+     */
+    public static final long DEFAULT_LIMIT = Long.parseLong(System.getProperty(
+            "nu.validator.checker.memory-budget", "0"));
+
+    /**
+     * Rough size of a retained object header plus a reference to it.
+     */
+    public static final int OBJECT_OVERHEAD = 24;
+
+    /**
+     * Rough size of a retained <code>LocatorImpl</code>.
+     */
+    public static final int LOCATOR_SIZE = 48;
+
+    /**
+     * Retained memory that can be given up without skipping checks.
+     */
+    public interface Reserve {
+
+        /**
+         * Releases everything charged through
+         * {@link MemoryBudget#chargeReserve(Reserve, long)}.
+         */
+        void drop();
+    }
+
+    private final long limit;
+
+    private long retained;
+
+    private boolean exceeded;
+
+    private Reserve reserve;
+
+    private long reserved;
+
+    private boolean reserveDropped;
+
+    /**
+     * Constructor.
+     *
+     * @param limit
+     *            the limit in bytes, 0 or less for no limit
+     */
+    public MemoryBudget(long limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Returns the approximate size of a retained string.
+     *
+     * @param str
+     *            the string
+     * @return the approximate size in bytes
+     */
+    public static long sizeOf(String str) {
+        return str == null ? 0 : OBJECT_OVERHEAD + 16 + 2L * str.length();
+    }
+
+    /**
+     * Charges retained bytes against the budget.
+     *
+     * @param bytes
+     *            the approximate number of bytes about to be retained
+     * @return <code>true</code> if the caller may retain the bytes,
+     *         <code>false</code> if the budget has been exceeded
+     */
+    public boolean charge(long bytes) {
+        if (limit <= 0) {
+            return true;
+        }
+        if (exceeded) {
+            return false;
+        }
+        retained += bytes;
+        if (retained > limit) {
+            dropReserve();
+        }
+        if (retained > limit) {
+            exceeded = true;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Charges bytes retained by the reserve. If they do not fit, nothing is
+     * charged, what the reserve charged before is released and the caller
+     * is expected to drop it; the budget is not exceeded by this.
+     *
+     * @param reserve
+     *            the party retaining the bytes
+     * @param bytes
+     *            the approximate number of bytes about to be retained
+     * @return <code>true</code> if the reserve may retain the bytes
+     */
+    public boolean chargeReserve(Reserve reserve, long bytes) {
+        if (limit <= 0) {
+            return true;
+        }
+        if (reserveDropped || exceeded || retained + bytes > limit) {
+            release(reserved);
+            this.reserve = null;
+            reserved = 0;
+            reserveDropped = true;
+            return false;
+        }
+        this.reserve = reserve;
+        retained += bytes;
+        reserved += bytes;
+        return true;
+    }
+
+    /**
+     * Gives back bytes that were charged but are no longer retained. This
+     * does not undo an exceeded budget, since the checks skipped so far
+     * cannot be resumed.
+     *
+     * @param bytes
+     *            the approximate number of bytes released
+     */
+    public void release(long bytes) {
+        retained = Math.max(0, retained - bytes);
+    }
+
+    private void dropReserve() {
+        if (reserve == null) {
+            return;
+        }
+        Reserve dropped = reserve;
+        release(reserved);
+        reserve = null;
+        reserved = 0;
+        reserveDropped = true;
+        dropped.drop();
+    }
+
+    /**
+     * Returns <code>true</code> if the budget has been exceeded during the
+     * current document.
+     *
+     * @return the exceeded flag
+     */
+    public boolean isExceeded() {
+        return exceeded;
+    }
+
+    /**
+     * Returns <code>true</code> if the reserve was dropped during the
+     * current document, whether or not the budget was then exceeded.
+     *
+     * @return the reserve dropped flag
+     */
+    public boolean isReserveDropped() {
+        return reserveDropped;
+    }
+
+    /**
+     * Returns the approximate number of bytes charged so far.
+     *
+     * @return the retained byte count
+     */
+    public long getRetained() {
+        return retained;
+    }
+
+    /**
+     * Returns the limit.
+     *
+     * @return the limit in bytes
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * Starts accounting for a new document.
+     */
+    public void reset() {
+        retained = 0;
+        exceeded = false;
+        reserve = null;
+        reserved = 0;
+        reserveDropped = false;
+    }
+}
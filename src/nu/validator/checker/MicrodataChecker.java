@@ -193,6 +193,13 @@ public class MicrodataChecker extends Checker {
         }
 
         if (id != null || itemProp != null || itemScope) {
+            if (!retain(elementSize(id, itemProp, itemRef))) {
+                items.clear();
+                properties.clear();
+                idmap.clear();
+                builder = null;
+                return;
+            }
             Element elm = new Element(new LocatorImpl(locator), itemProp,
                     itemRef, itemScope);
 
@@ -212,6 +219,23 @@ public class MicrodataChecker extends Checker {
         }
     }
 
+    private static long elementSize(String id, String[] itemProp,
+            String[] itemRef) {
+        long size = MemoryBudget.OBJECT_OVERHEAD * 3 + MemoryBudget.LOCATOR_SIZE
+                + MemoryBudget.sizeOf(id);
+        if (itemProp != null) {
+            for (String token : itemProp) {
+                size += MemoryBudget.sizeOf(token);
+            }
+        }
+        if (itemRef != null) {
+            for (String token : itemRef) {
+                size += MemoryBudget.sizeOf(token);
+            }
+        }
+        return size;
+    }
+
     /**
      * @see nu.validator.checker.Checker#endElement(java.lang.String,
      *      java.lang.String, java.lang.String)
@@ -230,6 +254,9 @@ public class MicrodataChecker extends Checker {
      */
     @Override
     public void endDocument() throws SAXException {
+        if (isCrossReferenceCheckingDisabled()) {
+            return;
+        }
         // check all top-level items
         for (Element item : items) {
             checkItem(item, new ArrayDeque<Element>());
@@ -0,0 +1,408 @@
+/*
+ * Copyright (c) 2026 Mozilla Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package nu.validator.checker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import net.arnx.jsonic.JSON;
+
+import com.cybozu.labs.langdetect.Language;
+import com.cybozu.labs.langdetect.util.LangProfile;
+import com.cybozu.labs.langdetect.util.NGram;
+
+/**
+ * A deterministic <code>LanguageDetector</code> that uses the same
+ * profiles as langdetect but scores every character n-gram once, as the
+ * text is appended, instead of sampling n-grams in randomized trials.
+ *
+ * <p>The profiles are turned into one open-addressing hash table of
+ * n-grams. Each n-gram points at a run of (language, weight) pairs in
+ * primitive arrays, so scoring an n-gram only touches the languages that
+ * have it. The weights are the log-likelihood ratios langdetect would
+ * multiply in, relative to a language lacking the n-gram. Characters are
+ * normalized and windowed exactly as langdetect does.
+ *
+ * <p>Once enough n-grams have been scored and one language leads the next
+ * by a decisive margin, <code>isDecided()</code> returns
+ * <code>true</code> and further text is ignored.
+ */
+public final class NgramLanguageDetector implements LanguageDetector {
+
+    /**
+     * The smoothing langdetect applies to the n-gram probabilities, as
+     * its alpha divided by its base frequency.
+     */
+    private static final double SMOOTHING = 0.5 / 10000;
+
+    /**
+     * The number of n-grams the scores are scaled down to when turning
+     * them into probabilities. langdetect stops each trial once one
+     * language dominates, after a few hundred n-grams at most, so scaling
+     * to a sample of that size keeps close languages (for example,
+     * Croatian and Bosnian) from looking more certain than langdetect
+     * would report them.
+     */
+    private static final int EFFECTIVE_NGRAMS = 300;
+
+    private static final int MIN_NGRAMS_TO_DECIDE = 3000;
+
+    private static final int DECIDE_INTERVAL = 256;
+
+    /**
+     * How far, after scaling, the leading score must be ahead of the
+     * next one for the result to be settled: a probability ratio of
+     * about 10^9.
+     */
+    private static final double DECISIVE_MARGIN = 21;
+
+    private static final double PROB_THRESHOLD = 0.1;
+
+    private static final int NGRAM_LENGTH = 3;
+
+    /**
+     * The n-gram tables, built the first time a detector needs them.
+     */
+    private static final class Tables {
+
+        static final String[] LANGUAGES;
+
+        static final long[] KEYS;
+
+        static final int MASK;
+
+        /**
+         * For the n-gram in slot <code>i</code>, its languages and weights
+         * are at <code>STARTS[i]</code> up to <code>STARTS[i + 1]</code>.
+         */
+        static final int[] STARTS;
+
+        static final short[] LANGUAGE_INDEXES;
+
+        static final float[] WEIGHTS;
+
+        static {
+            List<String> jsons = LanguageDetectingChecker.readProfiles();
+            LangProfile[] profiles = new LangProfile[jsons.size()];
+            LANGUAGES = new String[profiles.length];
+            int entries = 0;
+            for (int i = 0; i < profiles.length; i++) {
+                profiles[i] = JSON.decode(jsons.get(i), LangProfile.class);
+                LANGUAGES[i] = profiles[i].name;
+                entries += profiles[i].freq.size();
+            }
+            int capacity = Integer.highestOneBit(entries) * 2;
+            MASK = capacity - 1;
+            KEYS = new long[capacity];
+            int[] counts = new int[capacity + 1];
+            for (LangProfile profile : profiles) {
+                for (String gram : profile.freq.keySet()) {
+                    if (gram.length() >= 1 && gram.length() <= NGRAM_LENGTH) {
+                        counts[insert(key(gram))]++;
+                    }
+                }
+            }
+            STARTS = new int[capacity + 1];
+            for (int i = 0; i < capacity; i++) {
+                STARTS[i + 1] = STARTS[i] + counts[i];
+            }
+            LANGUAGE_INDEXES = new short[STARTS[capacity]];
+            WEIGHTS = new float[STARTS[capacity]];
+            int[] next = Arrays.copyOf(STARTS, capacity);
+            for (int lang = 0; lang < profiles.length; lang++) {
+                LangProfile profile = profiles[lang];
+                for (Map.Entry<String, Integer> entry : profile.freq.entrySet()) {
+                    String gram = entry.getKey();
+                    if (gram.length() < 1 || gram.length() > NGRAM_LENGTH) {
+                        continue;
+                    }
+                    double prob = entry.getValue().doubleValue()
+                            / profile.n_words[gram.length() - 1];
+                    int at = next[find(key(gram))]++;
+                    LANGUAGE_INDEXES[at] = (short) lang;
+                    WEIGHTS[at] = (float) Math.log1p(prob / SMOOTHING);
+                }
+            }
+        }
+
+        private static int slot(long key) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & MASK;
+        }
+
+        private static int insert(long key) {
+            int i = slot(key);
+            while (KEYS[i] != 0 && KEYS[i] != key) {
+                i = (i + 1) & MASK;
+            }
+            KEYS[i] = key;
+            return i;
+        }
+
+        /**
+         * Returns the slot of an n-gram, or -1 if no profile has it.
+         */
+        static int find(long key) {
+            int i = slot(key);
+            for (;;) {
+                long k = KEYS[i];
+                if (k == key) {
+                    return i;
+                }
+                if (k == 0) {
+                    return -1;
+                }
+                i = (i + 1) & MASK;
+            }
+        }
+
+        private static long key(String gram) {
+            long key = 0;
+            for (int i = 0; i < gram.length(); i++) {
+                key = (key << 16) | gram.charAt(i);
+            }
+            return key;
+        }
+    }
+
+    /**
+     * Scores of all n-grams, by language.
+     */
+    private double[] scores;
+
+    /**
+     * Scores of n-grams without Basic Latin letters, used instead of
+     * <code>scores</code> when the text is mostly in another script, the
+     * way langdetect drops Latin letters from such text.
+     */
+    private double[] nonLatinScores;
+
+    private int ngrams;
+
+    private int nonLatinNgrams;
+
+    private int latinCount;
+
+    private int nonLatinCount;
+
+    /**
+     * The last up to three normalized characters, one per 16 bits, with
+     * the latest in the low bits.
+     */
+    private long window;
+
+    private int windowLength;
+
+    /**
+     * Bits set for the positions in <code>window</code> that hold Basic
+     * Latin letters.
+     */
+    private int latinBits;
+
+    private boolean capitalWord;
+
+    private boolean decided;
+
+    public NgramLanguageDetector() {
+        reset();
+    }
+
+    /**
+     * @see nu.validator.checker.LanguageDetector#load()
+     */
+    @Override
+    public void load() {
+        if (scores != null) {
+            return;
+        }
+        scores = new double[Tables.LANGUAGES.length];
+        nonLatinScores = new double[Tables.LANGUAGES.length];
+    }
+
+    /**
+     * @see nu.validator.checker.LanguageDetector#reset()
+     */
+    @Override
+    public void reset() {
+        if (scores != null) {
+            Arrays.fill(scores, 0);
+            Arrays.fill(nonLatinScores, 0);
+        }
+        ngrams = 0;
+        nonLatinNgrams = 0;
+        latinCount = 0;
+        nonLatinCount = 0;
+        window = ' ';
+        windowLength = 1;
+        latinBits = 0;
+        capitalWord = false;
+        decided = false;
+    }
+
+    /**
+     * @see nu.validator.checker.LanguageDetector#append(java.lang.CharSequence)
+     */
+    @Override
+    public void append(CharSequence text) {
+        if (scores == null) {
+            load();
+        }
+        for (int i = 0; i < text.length() && !decided; i++) {
+            addChar(text.charAt(i));
+        }
+    }
+
+    private void addChar(char c) {
+        if (c >= 'A' && c <= 'z') {
+            latinCount++;
+        } else if (c >= '\u0300' && Character.UnicodeBlock.of(
+                c) != Character.UnicodeBlock.LATIN_EXTENDED_ADDITIONAL) {
+            nonLatinCount++;
+        }
+        char ch = NGram.normalize(c);
+        char last = (char) window;
+        if (last == ' ') {
+            window = ' ';
+            windowLength = 1;
+            latinBits = 0;
+            capitalWord = false;
+            if (ch == ' ') {
+                return;
+            }
+        } else if (windowLength == NGRAM_LENGTH) {
+            windowLength--;
+        }
+        window = (window << 16) | ch;
+        windowLength++;
+        latinBits = (latinBits << 1)
+                | ((ch >= 'A' && ch <= 'Z') || (ch >= 'a' && ch <= 'z') ? 1 : 0);
+        if (Character.isUpperCase(ch)) {
+            if (Character.isUpperCase(last)) {
+                capitalWord = true;
+            }
+        } else {
+            capitalWord = false;
+        }
+        if (capitalWord) {
+            return;
+        }
+        for (int n = 1; n <= windowLength; n++) {
+            if (n == 1 && ch == ' ') {
+                continue;
+            }
+            long key = window & ((1L << (16 * n)) - 1);
+            int slot = Tables.find(key);
+            if (slot >= 0) {
+                score(slot, (latinBits & ((1 << n) - 1)) == 0);
+            }
+        }
+    }
+
+    private void score(int slot, boolean nonLatin) {
+        int end = Tables.STARTS[slot + 1];
+        for (int i = Tables.STARTS[slot]; i < end; i++) {
+            scores[Tables.LANGUAGE_INDEXES[i]] += Tables.WEIGHTS[i];
+        }
+        ngrams++;
+        if (nonLatin) {
+            for (int i = Tables.STARTS[slot]; i < end; i++) {
+                nonLatinScores[Tables.LANGUAGE_INDEXES[i]] += Tables.WEIGHTS[i];
+            }
+            nonLatinNgrams++;
+        }
+        if (ngrams >= MIN_NGRAMS_TO_DECIDE && ngrams % DECIDE_INTERVAL == 0) {
+            decided = margin() >= DECISIVE_MARGIN;
+        }
+    }
+
+    private boolean isMostlyNonLatin() {
+        return latinCount * 2 < nonLatinCount;
+    }
+
+    private double scale(int count) {
+        return count <= EFFECTIVE_NGRAMS ? 1
+                : (double) EFFECTIVE_NGRAMS / count;
+    }
+
+    private double margin() {
+        double[] s = isMostlyNonLatin() ? nonLatinScores : scores;
+        double first = Double.NEGATIVE_INFINITY;
+        double second = Double.NEGATIVE_INFINITY;
+        for (double score : s) {
+            if (score > first) {
+                second = first;
+                first = score;
+            } else if (score > second) {
+                second = score;
+            }
+        }
+        return (first - second) * scale(
+                isMostlyNonLatin() ? nonLatinNgrams : ngrams);
+    }
+
+    /**
+     * @see nu.validator.checker.LanguageDetector#isDecided()
+     */
+    @Override
+    public boolean isDecided() {
+        return decided;
+    }
+
+    /**
+     * @see nu.validator.checker.LanguageDetector#getProbabilities()
+     */
+    @Override
+    public List<Language> getProbabilities() {
+        List<Language> languages = new ArrayList<>();
+        boolean nonLatin = scores != null && isMostlyNonLatin();
+        int count = nonLatin ? nonLatinNgrams : ngrams;
+        if (count == 0) {
+            return languages;
+        }
+        double[] s = nonLatin ? nonLatinScores : scores;
+        double scale = scale(count);
+        double max = Double.NEGATIVE_INFINITY;
+        for (double score : s) {
+            max = Math.max(max, score);
+        }
+        double[] probs = new double[s.length];
+        double sum = 0;
+        for (int i = 0; i < s.length; i++) {
+            probs[i] = Math.exp((s[i] - max) * scale);
+            sum += probs[i];
+        }
+        for (int i = 0; i < s.length; i++) {
+            double prob = probs[i] / sum;
+            if (prob > PROB_THRESHOLD) {
+                int at = 0;
+                while (at < languages.size()
+                        && languages.get(at).prob >= prob) {
+                    at++;
+                }
+                languages.add(at, new Language(Tables.LANGUAGES[i], prob));
+            }
+        }
+        return languages;
+    }
+}
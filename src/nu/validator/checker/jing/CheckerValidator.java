@@ -23,6 +23,8 @@
 package nu.validator.checker.jing;
 
 import nu.validator.checker.Checker;
+import nu.validator.checker.LinkCollector;
+import nu.validator.checker.MemoryBudget;
 import org.xml.sax.ContentHandler;
 import org.xml.sax.DTDHandler;
 import org.xml.sax.ErrorHandler;
@@ -50,12 +52,16 @@ public final class CheckerValidator implements Validator {
      * 
      * @param checker the <code>Checker</code> to wrap
      * @param propertyMap a property map containing a mapping for 
-     * <code>ValidateProperty.ERROR_HANDLER</code>
+     * <code>ValidateProperty.ERROR_HANDLER</code> and optionally for
+     * <code>MemoryBudget.PROPERTY</code> and
+     * <code>LinkCollector.PROPERTY</code>
      */
     public CheckerValidator(Checker checker, PropertyMap propertyMap) {
         super();
         this.checker = checker;
         this.checker.setErrorHandler((ErrorHandler) propertyMap.get(ValidateProperty.ERROR_HANDLER));
+        this.checker.setMemoryBudget((MemoryBudget) propertyMap.get(MemoryBudget.PROPERTY));
+        this.checker.setLinkCollector((LinkCollector) propertyMap.get(LinkCollector.PROPERTY));
     }
 
     /**
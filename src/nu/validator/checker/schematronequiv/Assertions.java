@@ -41,6 +41,7 @@ import javax.servlet.http.HttpServletRequest;
 import nu.validator.checker.AttributeUtil;
 import nu.validator.checker.Checker;
 import nu.validator.checker.LocatorImpl;
+import nu.validator.checker.MemoryBudget;
 import nu.validator.checker.TaintableLocatorImpl;
 import nu.validator.checker.VnuBadAttrValueException;
 import nu.validator.checker.VnuBadElementNameException;
@@ -62,6 +63,7 @@ import nu.validator.datatype.ImageCandidateStrings;
 import nu.validator.datatype.ImageCandidateURL;
 import nu.validator.htmlparser.impl.NCName;
 import nu.validator.messages.MessageEmitterAdapter;
+import nu.validator.xml.IdRegistry;
 
 import org.relaxng.datatype.DatatypeException;
 
@@ -1161,17 +1163,47 @@ public class Assertions extends Checker {
 
     private LinkedHashSet<IdrefLocator> needsAriaOwner = new LinkedHashSet<>();
 
-    private Set<String> formControlIds = new HashSet<>();
+    private LinkedHashSet<IdrefLocator> listReferences = new LinkedHashSet<>();
 
-    private Set<String> formElementIds = new HashSet<>();
+    private LinkedHashSet<IdrefLocator> ariaReferences = new LinkedHashSet<>();
 
-    private LinkedHashSet<IdrefLocator> listReferences = new LinkedHashSet<>();
+    private static final int ANY_ID = 1;
 
-    private Set<String> listIds = new HashSet<>();
+    private static final int FORM_CONTROL_ID = 2;
 
-    private LinkedHashSet<IdrefLocator> ariaReferences = new LinkedHashSet<>();
+    private static final int FORM_ELEMENT_ID = 4;
+
+    private static final int LIST_ID = 8;
+
+    private final IdRegistry idRegistry = new IdRegistry();
+
+    private boolean retainIdref(String idref) {
+        if (retain(MemoryBudget.OBJECT_OVERHEAD + MemoryBudget.LOCATOR_SIZE
+                + MemoryBudget.sizeOf(idref))) {
+            return true;
+        }
+        releaseCrossReferences();
+        return false;
+    }
 
-    private Set<String> allIds = new HashSet<>();
+    private void registerIds(Set<String> ids, int kind) {
+        for (String id : ids) {
+            if (idRegistry.addKind(id, kind)
+                    && !retain(IdRegistry.ENTRY_SIZE
+                            + MemoryBudget.sizeOf(id))) {
+                releaseCrossReferences();
+                return;
+            }
+        }
+    }
+
+    private void releaseCrossReferences() {
+        formControlReferences.clear();
+        formElementReferences.clear();
+        listReferences.clear();
+        ariaReferences.clear();
+        idRegistry.clear();
+    }
 
     private int currentFigurePtr;
 
@@ -1256,38 +1288,40 @@ public class Assertions extends Checker {
      */
     @Override
     public void endDocument() throws SAXException {
-        // label for
-        for (IdrefLocator idrefLocator : formControlReferences) {
-            if (!formControlIds.contains(idrefLocator.getIdref())) {
-                err("The value of the \u201Cfor\u201D attribute of the"
-                        + " \u201Clabel\u201D element must be the ID of a"
-                        + " non-hidden form control.",
-                        idrefLocator.getLocator());
+        if (!isCrossReferenceCheckingDisabled()) {
+            // label for
+            for (IdrefLocator idrefLocator : formControlReferences) {
+                if (!idRegistry.hasKind(idrefLocator.getIdref(), FORM_CONTROL_ID)) {
+                    err("The value of the \u201Cfor\u201D attribute of the"
+                            + " \u201Clabel\u201D element must be the ID of a"
+                            + " non-hidden form control.",
+                            idrefLocator.getLocator());
+                }
             }
-        }
 
-        // references to IDs from form attributes
-        for (IdrefLocator idrefLocator : formElementReferences) {
-            if (!formElementIds.contains(idrefLocator.getIdref())) {
-                err("The \u201Cform\u201D attribute must refer to a form element.",
-                        idrefLocator.getLocator());
+            // references to IDs from form attributes
+            for (IdrefLocator idrefLocator : formElementReferences) {
+                if (!idRegistry.hasKind(idrefLocator.getIdref(), FORM_ELEMENT_ID)) {
+                    err("The \u201Cform\u201D attribute must refer to a form element.",
+                            idrefLocator.getLocator());
+                }
             }
-        }
 
-        // input list
-        for (IdrefLocator idrefLocator : listReferences) {
-            if (!listIds.contains(idrefLocator.getIdref())) {
-                err("The \u201Clist\u201D attribute of the \u201Cinput\u201D element must refer to a \u201Cdatalist\u201D element.",
-                        idrefLocator.getLocator());
+            // input list
+            for (IdrefLocator idrefLocator : listReferences) {
+                if (!idRegistry.hasKind(idrefLocator.getIdref(), LIST_ID)) {
+                    err("The \u201Clist\u201D attribute of the \u201Cinput\u201D element must refer to a \u201Cdatalist\u201D element.",
+                            idrefLocator.getLocator());
+                }
             }
-        }
 
-        // ARIA idrefs
-        for (IdrefLocator idrefLocator : ariaReferences) {
-            if (!allIds.contains(idrefLocator.getIdref())) {
-                err("The \u201C" + idrefLocator.getAdditional()
-                        + "\u201D attribute must point to an element in the same document.",
-                        idrefLocator.getLocator());
+            // ARIA idrefs
+            for (IdrefLocator idrefLocator : ariaReferences) {
+                if (!idRegistry.hasKind(idrefLocator.getIdref(), ANY_ID)) {
+                    err("The \u201C" + idrefLocator.getAdditional()
+                            + "\u201D attribute must point to an element in the same document.",
+                            idrefLocator.getLocator());
+                }
             }
         }
 
@@ -1546,12 +1580,9 @@ public class Assertions extends Checker {
         needsAriaOwner.clear();
         formControlReferences.clear();
         formElementReferences.clear();
-        formControlIds.clear();
-        formElementIds.clear();
         listReferences.clear();
-        listIds.clear();
         ariaReferences.clear();
-        allIds.clear();
+        idRegistry.clear();
         siblingSources.clear();
         secondLevelH1s.clear();
     }
@@ -2500,30 +2531,30 @@ public class Assertions extends Checker {
                 }
             }
             if ("datalist" == localName) {
-                listIds.addAll(ids);
+                registerIds(ids, LIST_ID);
             }
 
             // label for
             if ("label" == localName) {
                 String forVal = atts.getValue("", "for");
-                if (forVal != null) {
+                if (forVal != null && retainIdref(forVal)) {
                     formControlReferences.add(new IdrefLocator(
                             new LocatorImpl(getDocumentLocator()), forVal));
                 }
             }
 
             if ("form" == localName) {
-                formElementIds.addAll(ids);
+                registerIds(ids, FORM_ELEMENT_ID);
             }
 
-            if (("button" == localName //
+            if ((("button" == localName //
                     || "input" == localName && !hidden) //
                     || "meter" == localName //
                     || "output" == localName //
                     || "progress" == localName //
                     || "select" == localName //
-                    || "textarea" == localName) {
-                formControlIds.addAll(ids);
+                    || "textarea" == localName)) {
+                registerIds(ids, FORM_CONTROL_ID);
             }
 
             if ("button" == localName || "fieldset" == localName
@@ -2531,14 +2562,14 @@ public class Assertions extends Checker {
                     || "object" == localName || "output" == localName
                     || "select" == localName || "textarea" == localName) {
                 String formVal = atts.getValue("", "form");
-                if (formVal != null) {
+                if (formVal != null && retainIdref(formVal)) {
                     formElementReferences.add(new IdrefLocator(
                             new LocatorImpl(getDocumentLocator()), formVal));
                 }
             }
 
             // input list
-            if ("input" == localName && list != null) {
+            if ("input" == localName && list != null && retainIdref(list)) {
                 listReferences.add(new IdrefLocator(
                         new LocatorImpl(getDocumentLocator()), list));
             }
@@ -2889,7 +2920,7 @@ public class Assertions extends Checker {
                 }
             }
 
-            allIds.addAll(ids);
+            registerIds(ids, ANY_ID);
         }
 
         // ARIA required owner/ancestors
@@ -2916,12 +2947,14 @@ public class Assertions extends Checker {
             if (attVal != null) {
                 String[] tokens = AttributeUtil.split(attVal);
                 for (String token : tokens) {
-                    ariaReferences.add(
-                            new IdrefLocator(getDocumentLocator(), token, att));
+                    if (retainIdref(token)) {
+                        ariaReferences.add(new IdrefLocator(
+                                getDocumentLocator(), token, att));
+                    }
                 }
             }
         }
-        allIds.addAll(ids);
+        registerIds(ids, ANY_ID);
 
         // aria-activedescendant accompanied by aria-owns
         if (activeDescendant != null && !"".equals(activeDescendant)) {
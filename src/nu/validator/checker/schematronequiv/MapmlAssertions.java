@@ -40,10 +40,13 @@ import java.util.regex.Pattern;
 import javax.servlet.http.HttpServletRequest;
 
 import nu.validator.checker.Checker;
+import nu.validator.checker.LinkCollector;
 import nu.validator.checker.LocatorImpl;
+import nu.validator.checker.MemoryBudget;
 import nu.validator.checker.TaintableLocatorImpl;
 import nu.validator.client.TestRunner;
 import nu.validator.messages.MessageEmitterAdapter;
+import nu.validator.xml.IdRegistry;
 
 
 import org.w3c.css.css.StyleSheetParser;
@@ -313,6 +316,19 @@ public class MapmlAssertions extends Checker {
     
     private static final Pattern VARIABLE_NAME_PATTERN = Pattern.compile("\\{([^/]+?)\\}");
 
+    /**
+     * Link relations whose <code>href</code> points at another MapML
+     * document of the same service.
+     */
+    private static final String[] FOLLOWED_LINK_RELS = { "zoomin", "zoomout",
+            "next" };
+
+    /**
+     * Link relations whose <code>tref</code> expands to MapML documents.
+     */
+    private static final String[] FOLLOWED_TEMPLATE_RELS = { "features",
+            "query" };
+
 
     private class IdrefLocator {
         private final Locator locator;
@@ -874,21 +890,61 @@ public class MapmlAssertions extends Checker {
 
     private LinkedHashSet<IdrefLocator> needsAriaOwner = new LinkedHashSet<>();
 
-    private Set<String> formControlIds = new HashSet<>();
-
-    private Set<String> formElementIds = new HashSet<>();
-
     private LinkedHashSet<IdrefLocator> listReferences = new LinkedHashSet<>();
 
     private Set<String> templateVariableNames = new HashSet<>();
     
     private LinkedHashSet<IdrefLocator> templateVariableReferences = new LinkedHashSet<>();
 
-    private Set<String> listIds = new HashSet<>();
+    /**
+     * The <code>rel</code> and <code>tref</code> of the followed templates
+     * of the current <code>extent</code>, for the link collector.
+     */
+    private List<String[]> extentTemplates = new ArrayList<>();
+
+    /**
+     * The <code>min</code>, <code>max</code> and <code>value</code> of the
+     * inputs of the current <code>extent</code> by name, for the link
+     * collector.
+     */
+    private Map<String, String[]> extentInputs = new HashMap<>();
+
+    private static final int FORM_CONTROL_ID = 1;
+
+    private static final int LIST_ID = 2;
+
+    private final IdRegistry idRegistry = new IdRegistry();
 
     private Set<Locator> selfStyles = new HashSet<>();
 
     private Map<Locator, Map<String, String>> siblingSources = new ConcurrentHashMap<>();
+
+    private boolean retainIdref(String idref) {
+        if (retain(MemoryBudget.OBJECT_OVERHEAD + MemoryBudget.LOCATOR_SIZE
+                + MemoryBudget.sizeOf(idref))) {
+            return true;
+        }
+        releaseCrossReferences();
+        return false;
+    }
+
+    private void registerIds(Set<String> ids, int kind) {
+        for (String id : ids) {
+            if (idRegistry.addKind(id, kind)
+                    && !retain(IdRegistry.ENTRY_SIZE
+                            + MemoryBudget.sizeOf(id))) {
+                releaseCrossReferences();
+                return;
+            }
+        }
+    }
+
+    private void releaseCrossReferences() {
+        formControlReferences.clear();
+        listReferences.clear();
+        idRegistry.clear();
+        templateVariableReferences.clear();
+    }
     
     /**
      * @see nu.validator.checker.Checker#endDocument()
@@ -903,22 +959,24 @@ public class MapmlAssertions extends Checker {
                         selfStyleLocator);
           }
         }
-        // label for
-        for (IdrefLocator idrefLocator : formControlReferences) {
-            if (!formControlIds.contains(idrefLocator.getIdref())) {
-                err("The value of the \u201Cfor\u201D attribute of the"
-                        + " \u201Clabel\u201D element must be the ID of a"
-                        + " non-hidden form control.",
-                        idrefLocator.getLocator());
+        if (!isCrossReferenceCheckingDisabled()) {
+            // label for
+            for (IdrefLocator idrefLocator : formControlReferences) {
+                if (!idRegistry.hasKind(idrefLocator.getIdref(), FORM_CONTROL_ID)) {
+                    err("The value of the \u201Cfor\u201D attribute of the"
+                            + " \u201Clabel\u201D element must be the ID of a"
+                            + " non-hidden form control.",
+                            idrefLocator.getLocator());
+                }
             }
-        }
 
-        // input list
-        for (IdrefLocator idrefLocator : listReferences) {
-            if (!listIds.contains(idrefLocator.getIdref())) {
-                err("The \u201Clist\u201D attribute of the \u201Cinput\u201D "
-                    + "element must refer to a \u201Cdatalist\u201D element.",
-                        idrefLocator.getLocator());
+            // input list
+            for (IdrefLocator idrefLocator : listReferences) {
+                if (!idRegistry.hasKind(idrefLocator.getIdref(), LIST_ID)) {
+                    err("The \u201Clist\u201D attribute of the \u201Cinput\u201D "
+                        + "element must refer to a \u201Cdatalist\u201D element.",
+                            idrefLocator.getLocator());
+                }
             }
         }
 
@@ -1112,17 +1170,20 @@ public class MapmlAssertions extends Checker {
                 }
                 // URL template variables reference input variables via the 
                 // input@name attribute
-                for (IdrefLocator idrefLocator : templateVariableReferences) {
-                    if (!templateVariableNames.contains(idrefLocator.getIdref())) {
-                        err("\u201Clink\u201D element \u201Ctref\u201D attribute "
-                            + " template variables must each be associated to"
-                            + " a unique \u201Cinput\u201D element "
-                            + "\u201Cname\u201D attribute. "
-                            + idrefLocator.getAdditional(),idrefLocator.getLocator());
+                if (!isCrossReferenceCheckingDisabled()) {
+                    for (IdrefLocator idrefLocator : templateVariableReferences) {
+                        if (!templateVariableNames.contains(idrefLocator.getIdref())) {
+                            err("\u201Clink\u201D element \u201Ctref\u201D attribute "
+                                + " template variables must each be associated to"
+                                + " a unique \u201Cinput\u201D element "
+                                + "\u201Cname\u201D attribute. "
+                                + idrefLocator.getAdditional(),idrefLocator.getLocator());
+                        }
                     }
                 }
                 templateVariableReferences.clear();
                 templateVariableNames.clear();
+                collectTemplates();
             }
         }
         if ((locator = openActiveDescendants.remove(node)) != null) {
@@ -1146,10 +1207,47 @@ public class MapmlAssertions extends Checker {
 
     @Override
     public void reset() {
+        formControlReferences.clear();
         listReferences.clear();
-        listIds.clear();
+        idRegistry.clear();
         templateVariableNames.clear();
         templateVariableReferences.clear();
+        extentTemplates.clear();
+        extentInputs.clear();
+    }
+
+    /**
+     * Hands the followed templates of the <code>extent</code> that just
+     * ended, with the inputs their variables name, to the link collector.
+     */
+    private void collectTemplates() {
+        LinkCollector collector = getLinkCollector();
+        if (collector != null) {
+            for (String[] template : extentTemplates) {
+                Map<String, String[]> variables = new HashMap<>();
+                Matcher m = VARIABLE_NAME_PATTERN.matcher(template[1]);
+                while (m.find()) {
+                    variables.put(m.group(1), extentInputs.get(m.group(1)));
+                }
+                collector.addTemplate(template[0], template[1], variables);
+            }
+        }
+        extentTemplates.clear();
+        extentInputs.clear();
+    }
+
+    /**
+     * Returns the first of <code>followed</code> found in
+     * <code>relList</code>, or <code>null</code>.
+     */
+    private static String followedRel(List<String> relList,
+            String[] followed) {
+        for (String rel : followed) {
+            if (relList.contains(rel)) {
+                return rel;
+            }
+        }
+        return null;
     }
 
     /**
@@ -1425,7 +1523,7 @@ public class MapmlAssertions extends Checker {
                             err("An \u201Cinput\u201D element with a "
                             + "\u201Cshard\u201D attribute must have "
                             + "\u201Clist\u201D attribute.");
-                        } else {
+                        } else if (retainIdref(list)) {
                             listReferences.add(new IdrefLocator(
                                 new LocatorImpl(getDocumentLocator()), list));
                         }
@@ -1446,22 +1544,32 @@ public class MapmlAssertions extends Checker {
                         warn("Duplicate input control name found: "
                                 + inputName);
                     }
+                    if (getLinkCollector() != null) {
+                        extentInputs.put(inputName, new String[] {
+                                atts.getValue("", "min"),
+                                atts.getValue("", "max"),
+                                atts.getValue("", "value") });
+                    }
                 }
             }
+            if ("base" == localName && getLinkCollector() != null
+                    && atts.getIndex("", "href") > -1) {
+                getLinkCollector().setBase(atts.getValue("", "href"));
+            }
             if ("datalist" == localName) {
-                listIds.addAll(ids);
+                registerIds(ids, LIST_ID);
             }
             // label for
             if ("label" == localName) {
                 String forVal = atts.getValue("", "for");
-                if (forVal != null) {
+                if (forVal != null && retainIdref(forVal)) {
                     formControlReferences.add(new IdrefLocator(
                             new LocatorImpl(getDocumentLocator()), forVal));
                 }
             }
-            if (("input" == localName && !hidden) //
-                    || "select" == localName) {
-                formControlIds.addAll(ids);
+            if ((("input" == localName && !hidden) //
+                    || "select" == localName)) {
+                registerIds(ids, FORM_CONTROL_ID);
             }
             if ("link" == localName) {
                 boolean hasRel = false;
@@ -1502,10 +1610,41 @@ public class MapmlAssertions extends Checker {
                     Matcher m = VARIABLE_NAME_PATTERN.matcher(tref);
                     while (m.find()) {
                       String varName = tref.substring(m.start(1), m.end(1));
+                      if (!retainIdref(varName)) {
+                          break;
+                      }
                       templateVariableReferences.add(new IdrefLocator(
                         new LocatorImpl(getDocumentLocator()), varName, "{"+varName+"} has no associated \u201Cinput\u201D element."));
                     }
                 }
+                LinkCollector collector = getLinkCollector();
+                if (collector != null) {
+                    String type = atts.getValue("", "type");
+                    boolean mapmlType = type != null
+                            && type.toLowerCase().startsWith("text/mapml");
+                    if (tref != null && parentName != null
+                            && "extent".equals(parentName)) {
+                        String rel = followedRel(relList,
+                                FOLLOWED_TEMPLATE_RELS);
+                        if (rel == null && mapmlType && !relList.isEmpty()) {
+                            rel = relList.get(0);
+                        }
+                        if (rel != null) {
+                            extentTemplates.add(new String[] { rel, tref });
+                        }
+                    } else if (tref == null
+                            && atts.getIndex("", "href") >= 0) {
+                        String rel = followedRel(relList, FOLLOWED_LINK_RELS);
+                        if (rel == null && relList.contains("alternate")
+                                && atts.getIndex("", "projection") >= 0) {
+                            rel = "alternate";
+                        }
+                        if (rel != null) {
+                            collector.addLink(rel,
+                                    atts.getValue("", "href"));
+                        }
+                    }
+                }
                 if (atts.getIndex("", "href") >= 0 && parent.name == "extent") {
                     err("A \u201Clink\u201D element in the \u201Cextent\u201D element"
                             + " must not have an \u201Chref\u201D attribute.");
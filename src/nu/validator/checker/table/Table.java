@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.Set;
 
 import nu.validator.checker.AttributeUtil;
+import nu.validator.checker.MemoryBudget;
 import org.xml.sax.Attributes;
 import org.xml.sax.Locator;
 import org.xml.sax.SAXException;
@@ -198,6 +199,19 @@ final class Table {
         this.owner = owner;
     }
 
+    /**
+     * Charges retained bytes to the owner's memory budget, releasing the 
+     * header bookkeeping if the budget has been exceeded.
+     */
+    private boolean retain(long bytes) {
+        if (owner.retain(bytes)) {
+            return true;
+        }
+        headerIds.clear();
+        cellsReferringToHeaders.clear();
+        return false;
+    }
+
     private boolean needSuppressStart() {
         if (suppressedStarts > 0) {
             suppressedStarts++;
@@ -313,7 +327,8 @@ final class Table {
             for (int i = 0; i < len; i++) {
                 if ("ID".equals(attributes.getType(i))) {
                     String val = attributes.getValue(i);
-                    if (!"".equals(val)) {
+                    if (!"".equals(val) && retain(MemoryBudget.OBJECT_OVERHEAD
+                            + MemoryBudget.sizeOf(val))) {
                         headerIds.add(val);
                     }
                 }
@@ -327,7 +342,8 @@ final class Table {
                 Math.abs(AttributeUtil.parseNonNegativeInteger(attributes.getValue(
                         "", "rowspan"))), headers, header,
                 owner.getDocumentLocator(), owner.getErrorHandler());
-        if (headers.length > 0) {
+        if (headers.length > 0 && retain(MemoryBudget.OBJECT_OVERHEAD
+                + MemoryBudget.LOCATOR_SIZE)) {
             cellsReferringToHeaders.add(cell);
         }
         current.cell(cell);
@@ -479,14 +495,16 @@ final class Table {
         }
 
         // Check referential integrity
-        for (Cell cell : cellsReferringToHeaders) {
-            for (String heading : cell.getHeadings()) {
-                if (!headerIds.contains(heading)) {
-                    cell.err("The \u201Cheaders\u201D attribute on the element \u201C"
-                            + cell.elementName()
-                            + "\u201D refers to the ID \u201C"
-                            + heading
-                            + "\u201D, but there is no \u201Cth\u201D element with that ID in the same table.");
+        if (!owner.isCrossReferenceCheckingDisabled()) {
+            for (Cell cell : cellsReferringToHeaders) {
+                for (String heading : cell.getHeadings()) {
+                    if (!headerIds.contains(heading)) {
+                        cell.err("The \u201Cheaders\u201D attribute on the element \u201C"
+                                + cell.elementName()
+                                + "\u201D refers to the ID \u201C"
+                                + heading
+                                + "\u201D, but there is no \u201Cth\u201D element with that ID in the same table.");
+                    }
                 }
             }
         }
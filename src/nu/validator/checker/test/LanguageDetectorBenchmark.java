@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2026 Mozilla Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package nu.validator.checker.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import nu.validator.checker.LangdetectLanguageDetector;
+import nu.validator.checker.LanguageDetector;
+import nu.validator.checker.NgramLanguageDetector;
+
+import com.cybozu.labs.langdetect.Language;
+
+/**
+ * Compares the langdetect and n-gram language detectors on a corpus laid
+ * out as one directory per language tag, each holding plain-text files in
+ * that language. Reports how often each detector names the expected
+ * language with the probability the checker requires, how often the two
+ * agree, how often repeated runs disagree, and the time per document.
+ *
+ * <p>Usage: <code>LanguageDetectorBenchmark CORPUS_DIR</code>
+ */
+public class LanguageDetectorBenchmark {
+
+    private static final int MAX_CHARS = 30720;
+
+    private static final double MIN_PROBABILITY = .90;
+
+    private static final int RUNS = 5;
+
+    /**
+     * @param args
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: LanguageDetectorBenchmark CORPUS_DIR");
+            System.exit(1);
+        }
+        List<String> expected = new ArrayList<>();
+        List<String> texts = new ArrayList<>();
+        File[] dirs = new File(args[0]).listFiles();
+        if (dirs == null) {
+            System.err.println("error: Not a directory: " + args[0]);
+            System.exit(1);
+        }
+        for (File dir : dirs) {
+            File[] files = dir.listFiles();
+            if (files == null) {
+                continue;
+            }
+            for (File file : files) {
+                String text = new String(Files.readAllBytes(file.toPath()),
+                        StandardCharsets.UTF_8);
+                expected.add(dir.getName());
+                texts.add(text.substring(0,
+                        Math.min(text.length(), MAX_CHARS)));
+            }
+        }
+        LanguageDetector langdetect = new LangdetectLanguageDetector();
+        LanguageDetector ngram = new NgramLanguageDetector();
+        String[] langdetectResults = run("langdetect", langdetect, expected,
+                texts);
+        String[] ngramResults = run("ngram", ngram, expected, texts);
+        int agreed = 0;
+        for (int i = 0; i < texts.size(); i++) {
+            if (langdetectResults[i].equals(ngramResults[i])) {
+                agreed++;
+            }
+        }
+        System.out.printf("agreement: %d/%d%n", agreed, texts.size());
+    }
+
+    private static String[] run(String name, LanguageDetector detector,
+            List<String> expected, List<String> texts) {
+        long start = System.nanoTime();
+        detector.load();
+        long loaded = System.nanoTime() - start;
+        String[] first = detect(detector, texts);
+        int correct = 0;
+        for (int i = 0; i < texts.size(); i++) {
+            if (first[i].equals(expected.get(i))) {
+                correct++;
+            }
+        }
+        int unstable = 0;
+        long[] sorted = new long[RUNS];
+        for (int run = 0; run < RUNS; run++) {
+            long runStart = System.nanoTime();
+            String[] again = detect(detector, texts);
+            sorted[run] = System.nanoTime() - runStart;
+            for (int i = 0; i < texts.size(); i++) {
+                if (!again[i].equals(first[i])) {
+                    unstable++;
+                }
+            }
+        }
+        Arrays.sort(sorted);
+        System.out.printf(
+                "%s: load %.0f ms, correct %d/%d, unstable %d,"
+                        + " median %.3f ms per document%n",
+                name, loaded / 1e6, correct, texts.size(), unstable,
+                sorted[RUNS / 2] / 1e6 / texts.size());
+        return first;
+    }
+
+    private static String[] detect(LanguageDetector detector,
+            List<String> texts) {
+        String[] results = new String[texts.size()];
+        for (int i = 0; i < texts.size(); i++) {
+            detector.reset();
+            detector.append(texts.get(i));
+            results[i] = "";
+            for (Language language : detector.getProbabilities()) {
+                if (language.prob > MIN_PROBABILITY) {
+                    results[i] = language.lang;
+                }
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 2026 Mozilla Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package nu.validator.client;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Keeps the command-line validator running in the background so that
+ * repeated invocations skip JVM startup and schema compilation.
+ *
+ * <p><code>--daemon [--port N]</code> listens on the loopback interface and
+ * runs each command line it receives with validators kept warm between
+ * runs. <code>--client [--port N] ARGS</code> sends <code>ARGS</code> to the
+ * daemon and writes the results, in whatever <code>--format</code> was
+ * asked for, to its own standard output and standard error.
+ *
+ * <p>Since the daemon reads files with the rights of the user who started
+ * it, it only serves clients that can read its token: a random string
+ * written, readable by its owner only, to <code>.vnu-daemon-PORT</code> in
+ * the home directory when the daemon starts.
+ *
+ * <p>A request is a magic number, the token, an argument count and the
+ * arguments. The reply is a series of frames, each a stream number (1 for
+ * standard output, 2 for standard error), a length and that many bytes,
+ * ended by a frame with stream number 0 and followed by the exit status.
+ */
+final class CommandLineDaemon {
+
+    static final int DEFAULT_PORT = 8889;
+
+    private static final int STDOUT = 1;
+
+    private static final int STDERR = 2;
+
+    private static final int END = 0;
+
+    private static final int MAGIC = 0x766e7544; // "vnuD"
+
+    private static final int MAX_ARGUMENTS = 4096;
+
+    /**
+     * How long a client may take to send its request.
+     */
+    private static final int REQUEST_TIMEOUT = 10000;
+
+    private static final Set<String> OPTIONS_WITH_VALUES = new HashSet<>(
+            Arrays.asList("--filterfile", "--filterpattern", "--format",
+                    "--error-budget", "--aggregate", "--user-agent",
+                    "--schema", "--urls-from", "--concurrency", "--per-host",
+                    "--host-delay", "--max-size", "--crawl", "--crawl-depth",
+                    "--crawl-limit", "--crawl-samples"));
+
+    private CommandLineDaemon() {
+    }
+
+    static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        int start = 1;
+        if (args.length > 2 && "--port".equals(args[1])) {
+            try {
+                port = Integer.parseInt(args[2]);
+            } catch (NumberFormatException e) {
+                System.err.println("error: The \"--port\" option requires a"
+                        + " number.");
+                System.exit(1);
+            }
+            start = 3;
+        }
+        String[] rest = Arrays.copyOfRange(args, start, args.length);
+        if ("--daemon".equals(args[0])) {
+            serve(port);
+        } else {
+            System.exit(forward(port, rest));
+        }
+    }
+
+    /**
+     * Serves command lines one at a time, since the command-line validator
+     * keeps its state in static fields.
+     */
+    private static void serve(int port) throws IOException {
+        SimpleCommandLineValidator.keepValidatorsWarm();
+        try (ServerSocket server = new ServerSocket(port, 50,
+                InetAddress.getLoopbackAddress())) {
+            byte[] token = writeToken(port);
+            System.err.println("Listening on "
+                    + server.getLocalSocketAddress() + ".");
+            for (;;) {
+                try (Socket socket = server.accept()) {
+                    socket.setSoTimeout(REQUEST_TIMEOUT);
+                    handle(socket, token);
+                } catch (IOException | RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private static Path tokenFile(int port) {
+        return Paths.get(System.getProperty("user.home"),
+                ".vnu-daemon-" + port);
+    }
+
+    /**
+     * Writes a new random token to a file only the owner can read.
+     */
+    private static byte[] writeToken(int port) throws IOException {
+        byte[] random = new byte[32];
+        new SecureRandom().nextBytes(random);
+        StringBuilder sb = new StringBuilder();
+        for (byte b : random) {
+            sb.append(String.format("%02x", b & 0xFF));
+        }
+        byte[] token = sb.toString().getBytes(StandardCharsets.US_ASCII);
+        Path file = tokenFile(port);
+        Files.deleteIfExists(file);
+        try {
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(
+                    PosixFilePermissions.fromString("rw-------")));
+        } catch (UnsupportedOperationException e) {
+            Files.createFile(file);
+            File f = file.toFile();
+            if (!(f.setReadable(false, false) && f.setReadable(true, true)
+                    && f.setWritable(false, false)
+                    && f.setWritable(true, true))) {
+                Files.delete(file);
+                throw new IOException("Could not restrict access to " + file
+                        + ".");
+            }
+        } catch (FileAlreadyExistsException e) {
+            throw new IOException("Another daemon created " + file + ".");
+        }
+        Files.write(file, token);
+        file.toFile().deleteOnExit();
+        return token;
+    }
+
+    private static void handle(Socket socket, byte[] token)
+            throws IOException {
+        DataInputStream in = new DataInputStream(
+                new BufferedInputStream(socket.getInputStream()));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a client request from "
+                    + socket.getRemoteSocketAddress() + ".");
+        }
+        if (!MessageDigest.isEqual(token,
+                in.readUTF().getBytes(StandardCharsets.US_ASCII))) {
+            throw new IOException("Wrong token from "
+                    + socket.getRemoteSocketAddress() + ".");
+        }
+        int count = in.readInt();
+        if (count < 0 || count > MAX_ARGUMENTS) {
+            throw new IOException("Bad argument count " + count + ".");
+        }
+        String[] args = new String[count];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = in.readUTF();
+        }
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(socket.getOutputStream()));
+        int status = SimpleCommandLineValidator.runInDaemon(args,
+                framed(out, STDOUT), framed(out, STDERR));
+        out.writeByte(END);
+        out.writeInt(status);
+        out.flush();
+    }
+
+    private static PrintStream framed(final DataOutputStream out,
+            final int stream) throws UnsupportedEncodingException {
+        return new PrintStream(new BufferedOutputStream(new OutputStream() {
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] { (byte) b }, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len)
+                    throws IOException {
+                if (len == 0) {
+                    return;
+                }
+                out.writeByte(stream);
+                out.writeInt(len);
+                out.write(b, off, len);
+            }
+        }), false, "UTF-8");
+    }
+
+    private static int forward(int port, String[] args) throws IOException {
+        String[] absolute = absolutePaths(args);
+        String token;
+        try {
+            token = new String(Files.readAllBytes(tokenFile(port)),
+                    StandardCharsets.US_ASCII);
+        } catch (IOException e) {
+            System.err.println("error: Could not read the daemon token from "
+                    + tokenFile(port) + ": " + e.getMessage());
+            return 1;
+        }
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(),
+                port)) {
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(socket.getOutputStream()));
+            out.writeInt(MAGIC);
+            out.writeUTF(token);
+            out.writeInt(absolute.length);
+            for (String arg : absolute) {
+                out.writeUTF(arg);
+            }
+            out.flush();
+            DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(socket.getInputStream()));
+            byte[] buffer = new byte[8192];
+            for (;;) {
+                int stream = in.read();
+                if (stream == -1) {
+                    throw new EOFException();
+                }
+                if (stream == END) {
+                    System.out.flush();
+                    System.err.flush();
+                    return in.readInt();
+                }
+                PrintStream target = stream == STDOUT ? System.out
+                        : System.err;
+                int len = in.readInt();
+                while (len > 0) {
+                    int n = Math.min(len, buffer.length);
+                    in.readFully(buffer, 0, n);
+                    target.write(buffer, 0, n);
+                    len -= n;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("error: Could not reach the daemon on port "
+                    + port + ": " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Resolves file arguments against the client's working directory, which
+     * the daemon does not share.
+     */
+    private static String[] absolutePaths(String[] args) {
+        String[] absolute = args.clone();
+        boolean inFiles = false;
+        for (int i = 0; i < absolute.length; i++) {
+            String arg = absolute[i];
+            if (!inFiles && OPTIONS_WITH_VALUES.contains(arg)) {
+                i++;
+                if (("--filterfile".equals(arg) || "--urls-from".equals(arg))
+                        && i < absolute.length) {
+                    absolute[i] = new File(absolute[i]).getAbsolutePath();
+                }
+            } else if (inFiles || !arg.startsWith("--")) {
+                inFiles = true;
+                if (!"-".equals(arg) && !arg.startsWith("http:")
+                        && !arg.startsWith("https:")) {
+                    absolute[i] = new File(arg).getAbsolutePath();
+                }
+            }
+        }
+        return absolute;
+    }
+}
@@ -21,11 +21,11 @@
  */
 package nu.validator.client;
 
-import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -41,6 +41,7 @@ import nu.validator.messages.GnuMessageEmitter;
 import nu.validator.messages.JsonMessageEmitter;
 import nu.validator.messages.MessageEmitter;
 import nu.validator.messages.MessageEmitterAdapter;
+import nu.validator.messages.NdjsonMessageEmitter;
 import nu.validator.messages.TextMessageEmitter;
 import nu.validator.messages.XmlMessageEmitter;
 import nu.validator.servlet.imagereview.ImageCollector;
@@ -56,13 +57,14 @@ public class EmbeddedValidator {
     public static final String SCHEMA_URL = "http://s.validator.nu/html5-all.rnc";
 
     public static enum OutputFormat {
-        TEXT, XML, JSON, GNU
+        TEXT, XML, JSON, NDJSON, GNU
     }
 
     private boolean asciiQuotes = false;
     private boolean detectLanguages = false;
     private boolean forceHTML = false;
     private int lineOffset = 0;
+    private int errorBudget = 0;
     private boolean loadEntities = false;
     private boolean noStream = false;
     private OutputFormat outputFormat = OutputFormat.JSON;
@@ -79,8 +81,27 @@ public class EmbeddedValidator {
      * @throws SAXException
      */
     public String validate(Path path) throws IOException, SAXException {
-        try (OneOffValidator validator = new OneOffValidator(asciiQuotes, detectLanguages, forceHTML, lineOffset, loadEntities, noStream, outputFormat, schemaUrl)) {
-            return validator.validate(path);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        validate(path, out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Validate the file at the given path, writing the validation output to
+     * the given stream as it is produced instead of accumulating it. Use
+     * {@link OutputFormat#NDJSON} to get one flushed line per message.
+     * 
+     * @param path
+     *            a valid {@link Path} to a readable file
+     * @param out
+     *            the {@link OutputStream} to write validation output to
+     * @throws IllegalStateException
+     * @throws IOException
+     * @throws SAXException
+     */
+    public void validate(Path path, OutputStream out) throws IOException, SAXException {
+        try (OneOffValidator validator = new OneOffValidator(out, asciiQuotes, detectLanguages, forceHTML, lineOffset, errorBudget, loadEntities, noStream, outputFormat, schemaUrl)) {
+            validator.validate(path);
         }
     }
 
@@ -95,8 +116,27 @@ public class EmbeddedValidator {
      * @throws SAXException
      */
     public String validate(InputStream in) throws IOException, SAXException {
-        try (OneOffValidator validator = new OneOffValidator(asciiQuotes, detectLanguages, forceHTML, lineOffset, loadEntities, noStream, outputFormat, schemaUrl)) {
-            return validator.validate(in);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        validate(in, out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Validate the input source, writing the validation output to the given
+     * stream as it is produced instead of accumulating it. Use
+     * {@link OutputFormat#NDJSON} to get one flushed line per message.
+     * 
+     * @param in
+     *            a valid {@link InputStream} to a readable file
+     * @param out
+     *            the {@link OutputStream} to write validation output to
+     * @throws IllegalStateException
+     * @throws IOException
+     * @throws SAXException
+     */
+    public void validate(InputStream in, OutputStream out) throws IOException, SAXException {
+        try (OneOffValidator validator = new OneOffValidator(out, asciiQuotes, detectLanguages, forceHTML, lineOffset, errorBudget, loadEntities, noStream, outputFormat, schemaUrl)) {
+            validator.validate(in);
         }
     }
 
@@ -196,6 +236,22 @@ public class EmbeddedValidator {
         this.lineOffset = lineOffset;
     }
 
+    public int getErrorBudget() {
+        return errorBudget;
+    }
+
+    /**
+     * @param errorBudget
+     *            number of errors after which checking stops ({@code 1} for
+     *            a fail-fast pass/fail check), or {@code 0} for no limit
+     */
+    public void setErrorBudget(int errorBudget) {
+        if (errorBudget < 0) {
+            throw new IllegalArgumentException("errorBudget can not be negative");
+        }
+        this.errorBudget = errorBudget;
+    }
+
     public String getSchemaUrl() {
         return schemaUrl;
     }
@@ -224,17 +280,18 @@ public class EmbeddedValidator {
         private static final String EXTENSION_ERROR = "File was not checked. Files must have .html, .xhtml, .htm, or .xht extensions.";
 
         private final AtomicBoolean used = new AtomicBoolean(false);
-        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
-        private final BufferedOutputStream bufOut = new BufferedOutputStream(out);
+        private final OutputStream out;
 
         private final SimpleDocumentValidator validator;
         private final MessageEmitterAdapter errorHandler;
         private final boolean forceHtml;
 
-        private OneOffValidator(boolean asciiQuotes, boolean detectLanguages, boolean forceHtml, int lineOffset, boolean loadEntities,
+        private OneOffValidator(OutputStream out, boolean asciiQuotes, boolean detectLanguages, boolean forceHtml, int lineOffset, int errorBudget, boolean loadEntities,
                 boolean noStream, OutputFormat outputFormat, String schemaUrl) throws SAXException {
+            this.out = out;
             this.validator = new SimpleDocumentValidator(true, false, !detectLanguages);
             this.errorHandler = newErrorHandler(lineOffset, asciiQuotes, outputFormat);
+            this.errorHandler.setErrorBudget(errorBudget);
             this.forceHtml = forceHtml;
             try {
                 this.validator.setUpMainSchema(schemaUrl == null ? SCHEMA_URL : schemaUrl, new SystemErrErrorHandler());
@@ -263,6 +320,8 @@ public class EmbeddedValidator {
                 return new GnuMessageEmitter(this.out, asciiQuotes);
             case JSON:
                 return new JsonMessageEmitter(new Serializer(this.out), null);
+            case NDJSON:
+                return new NdjsonMessageEmitter(new Serializer(this.out, false));
             case XML:
                 return new XmlMessageEmitter(new XmlSerializer(this.out));
             default:
@@ -270,7 +329,7 @@ public class EmbeddedValidator {
             }
         }
 
-        private String validate(Path path) throws IOException, SAXException {
+        private void validate(Path path) throws IOException, SAXException {
             if (!used.compareAndSet(false, true)) {
                 throw new IllegalStateException("OneOffValidator instances are not reusable");
             }
@@ -284,8 +343,10 @@ public class EmbeddedValidator {
                     } else {
                         validator.checkXmlFile(path.toFile());
                     }
+                    endFile(path.toUri().toURL().toString());
                 } else if (isHtml(path.toFile())) {
                     validator.checkHtmlFile(path.toFile(), true);
+                    endFile(path.toUri().toURL().toString());
                 } else {
                     errorHandler.warning(new SAXParseException(EXTENSION_ERROR, null, path.toString(), -1, -1));
                 }
@@ -294,7 +355,11 @@ public class EmbeddedValidator {
             }
 
             errorHandler.end(MSG_SUCCESS, MSG_FAIL, "");
-            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+
+        private void endFile(String systemId) throws SAXException {
+            errorHandler.reportMemoryBudget(validator.getMemoryBudget());
+            errorHandler.endFile(systemId);
         }
 
         private boolean isXhtml(File file) {
@@ -307,23 +372,19 @@ public class EmbeddedValidator {
             return name.endsWith(".html") || name.endsWith(".htm");
         }
 
-        private String validate(InputStream in) throws IOException, SAXException {
+        private void validate(InputStream in) throws IOException, SAXException {
             if (!used.compareAndSet(false, true)) {
                 throw new IllegalStateException("OneOffValidator instances are not reusable");
             }
             validator.checkHtmlInputSource(new InputSource(in));
+            endFile(null);
             errorHandler.end(MSG_SUCCESS, MSG_FAIL, "");
-            return new String(out.toByteArray(), StandardCharsets.UTF_8);
         }
 
         @Override
         public void close() {
             try {
-                bufOut.close();
-            } catch (IOException e) {
-            }
-            try {
-                out.close();
+                out.flush();
             } catch (IOException e) {
             }
         }
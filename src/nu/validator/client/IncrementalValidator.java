@@ -0,0 +1,655 @@
+/*
+ * Copyright (c) 2026 Mozilla Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package nu.validator.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+import nu.validator.validation.SimpleDocumentValidator;
+import nu.validator.xml.SystemErrErrorHandler;
+
+/**
+ * Revalidates a document after edits, for editor integrations that check
+ * on every pause in typing.
+ *
+ * <p>The schema and the parsers are set up once per instance instead of
+ * once per check. <code>validate()</code> checks the whole document and
+ * remembers the source ranges of its MapML <code>feature</code> elements,
+ * the messages inside each of them and the IDs each of them declares, as
+ * found by <code>MarkupScanner</code>. An edit that stays inside one
+ * feature is checked incrementally if the feature remains a single
+ * well-delimited <code>feature</code>, the start tags in it that declare
+ * IDs are unchanged (so references from elsewhere still resolve the same
+ * way), none of those IDs is declared elsewhere in the document, and it
+ * holds no element that is checked across the document.
+ *
+ * <p>Only that feature is then checked again. It is parsed together with
+ * the text before the first feature and after the last one, so that it
+ * sees its real ancestors, and with the other features that declare the
+ * IDs it refers to, so that its references resolve as in the whole
+ * document; its messages are mapped back into the document. The messages
+ * of the other features and the document-level messages (those outside any
+ * feature) are reused with their positions shifted, but only if the
+ * messages outside the feature in that check are the same as before the
+ * edit; otherwise the edit changed something document-wide and the whole
+ * document is checked. Any other edit also falls back to checking the
+ * whole document.
+ *
+ * <p>Instances are not thread-safe.
+ */
+public class IncrementalValidator {
+
+    /**
+     * A message with its one-based position in the current document.
+     */
+    public static final class Message {
+
+        private final String type;
+
+        private final int line;
+
+        private final int column;
+
+        private final String message;
+
+        Message(String type, int line, int column, String message) {
+            this.type = type;
+            this.line = line;
+            this.column = column;
+            this.message = message;
+        }
+
+        /**
+         * Returns "error", "warning" or "fatal".
+         *
+         * @return the type
+         */
+        public String getType() {
+            return type;
+        }
+
+        /**
+         * Returns the line, or -1 if the message has no location.
+         *
+         * @return the one-based line
+         */
+        public int getLine() {
+            return line;
+        }
+
+        /**
+         * Returns the column, or -1 if the message has no location.
+         *
+         * @return the one-based column
+         */
+        public int getColumn() {
+            return column;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return type + ": " + line + ":" + column + ": " + message;
+        }
+    }
+
+    /**
+     * A message located by offset into the document text, which is what
+     * has to be shifted when text is inserted or removed before it.
+     */
+    static final class Located {
+
+        static final Comparator<Located> BY_OFFSET = new Comparator<Located>() {
+            @Override
+            public int compare(Located a, Located b) {
+                return Integer.compare(a.offset, b.offset);
+            }
+        };
+
+        final String type;
+
+        final int offset;
+
+        final String message;
+
+        Located(String type, int offset, String message) {
+            this.type = type;
+            this.offset = offset;
+            this.message = message;
+        }
+    }
+
+    /**
+     * The cached state of one <code>feature</code> element.
+     */
+    private static final class Feature {
+
+        int start;
+
+        int end;
+
+        List<Located> messages = new ArrayList<>();
+
+        List<String> ids;
+
+        /**
+         * The start tags that declare IDs, as written.
+         */
+        List<String> idTags;
+
+        boolean documentWide;
+
+        /**
+         * The messages outside the feature when it was last checked on its
+         * own, or <code>null</code> if it has not been.
+         */
+        List<String> context;
+    }
+
+    /**
+     * Elements that <code>MapmlAssertions</code> checks across the
+     * document, such as the <code>link</code> elements of the self style
+     * check.
+     */
+    private static final Set<String> DOCUMENT_WIDE_ELEMENTS = Collections.singleton(
+            "link");
+
+    private final SimpleDocumentValidator validator;
+
+    private final boolean asXml;
+
+    private final CollectingErrorHandler collector = new CollectingErrorHandler();
+
+    private String text = "";
+
+    private int[] lineStarts = new int[] { 0 };
+
+    private List<Feature> features = new ArrayList<>();
+
+    private List<Located> documentMessages = new ArrayList<>();
+
+    private Set<String> duplicateIds = new HashSet<>();
+
+    private boolean lastWasPartial;
+
+    /**
+     * Constructor.
+     *
+     * @param schemaUrl
+     *            the main schema, for example
+     *            {@value EmbeddedValidator#SCHEMA_URL}
+     * @param asXml
+     *            <code>true</code> to parse documents as XML,
+     *            <code>false</code> to parse them as HTML
+     * @param loadEntities
+     *            <code>true</code> to have the XML parser load external
+     *            entities
+     * @throws SAXException
+     *             if the schema cannot be set up
+     */
+    public IncrementalValidator(String schemaUrl, boolean asXml,
+            boolean loadEntities) throws SAXException {
+        this.asXml = asXml;
+        this.validator = new SimpleDocumentValidator(true, false, false);
+        try {
+            this.validator.setUpMainSchema(schemaUrl,
+                    new SystemErrErrorHandler());
+        } catch (SAXException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SAXException(e);
+        }
+        this.validator.setUpValidatorAndParsers(collector,
+                true, loadEntities);
+    }
+
+    /**
+     * Checks a whole document and makes it the current document.
+     *
+     * @param document
+     *            the document text
+     * @return the messages in document order
+     * @throws IOException
+     * @throws SAXException
+     */
+    public List<Message> validate(String document) throws IOException,
+            SAXException {
+        text = document;
+        lineStarts = lineStarts(text);
+        List<MarkupScanner.Tag> tags = MarkupScanner.tags(text);
+        features = findFeatures(text, tags);
+        duplicateIds = new HashSet<>();
+        Set<String> seen = new HashSet<>();
+        for (String id : MarkupScanner.ids(tags)) {
+            if (!seen.add(id)) {
+                duplicateIds.add(id);
+            }
+        }
+        documentMessages = new ArrayList<>();
+        for (Located located : check(text)) {
+            Feature feature = featureAt(located.offset);
+            if (feature == null) {
+                documentMessages.add(located);
+            } else {
+                feature.messages.add(located);
+            }
+        }
+        lastWasPartial = false;
+        return messages();
+    }
+
+    /**
+     * Replaces a range of the current document and checks the result.
+     *
+     * @param start
+     *            the offset of the first replaced character
+     * @param end
+     *            the offset after the last replaced character
+     * @param replacement
+     *            the replacement text
+     * @return the messages for the edited document in document order
+     * @throws IOException
+     * @throws SAXException
+     */
+    public List<Message> edit(int start, int end, String replacement)
+            throws IOException, SAXException {
+        if (start < 0 || end < start || end > text.length()) {
+            throw new IndexOutOfBoundsException(start + ", " + end);
+        }
+        String edited = text.substring(0, start) + replacement
+                + text.substring(end);
+        int delta = replacement.length() - (end - start);
+        Feature feature = null;
+        for (Feature f : features) {
+            if (start > f.start && end < f.end) {
+                feature = f;
+                break;
+            }
+        }
+        if (feature == null) {
+            return validate(edited);
+        }
+        int featureEnd = feature.end + delta;
+        String element = edited.substring(feature.start, featureEnd);
+        List<MarkupScanner.Tag> tags = MarkupScanner.tags(element);
+        if (!isolatable(element, tags, feature)) {
+            return validate(edited);
+        }
+
+        int last = features.get(features.size() - 1).end;
+        if (feature.context == null) {
+            feature.context = new ArrayList<>();
+            checkInContext(text, feature.start, feature.end, last,
+                    targets(feature, MarkupScanner.references(
+                            MarkupScanner.tags(text.substring(feature.start,
+                                    feature.end))), 0), feature.context);
+        }
+        List<String> context = new ArrayList<>();
+        List<Located> messages = checkInContext(edited, feature.start,
+                featureEnd, last + delta, targets(feature,
+                        MarkupScanner.references(tags), delta), context);
+        if (!context.equals(feature.context)) {
+            return validate(edited);
+        }
+        feature.messages = messages;
+        feature.end = featureEnd;
+        for (Feature f : features) {
+            if (f.start > feature.start) {
+                f.start += delta;
+                f.end += delta;
+                f.messages = shift(f.messages, delta);
+            }
+        }
+        List<Located> shifted = new ArrayList<>(documentMessages.size());
+        for (Located located : documentMessages) {
+            shifted.add(located.offset >= featureEnd - delta
+                    ? new Located(located.type, located.offset + delta,
+                            located.message)
+                    : located);
+        }
+        documentMessages = shifted;
+        text = edited;
+        lineStarts = lineStarts(text);
+        lastWasPartial = true;
+        return messages();
+    }
+
+    /**
+     * Returns <code>true</code> if the last call only checked the edited
+     * feature.
+     *
+     * @return <code>true</code> if the last check was partial
+     */
+    public boolean wasLastCheckPartial() {
+        return lastWasPartial;
+    }
+
+    /**
+     * Returns the current document.
+     *
+     * @return the document text
+     */
+    public String getDocument() {
+        return text;
+    }
+
+    private boolean isolatable(String element, List<MarkupScanner.Tag> tags,
+            Feature feature) {
+        if (feature.documentWide || tags.isEmpty()) {
+            return false;
+        }
+        MarkupScanner.Tag first = tags.get(0);
+        MarkupScanner.Tag last = tags.get(tags.size() - 1);
+        if (first.start != 0 || first.isEnd || !"feature".equals(first.name)
+                || !last.isEnd || !"feature".equals(last.name)
+                || last.end != element.length()) {
+            return false;
+        }
+        for (MarkupScanner.Tag tag : tags.subList(1, tags.size() - 1)) {
+            if ("feature".equals(tag.name)
+                    || DOCUMENT_WIDE_ELEMENTS.contains(tag.name)) {
+                return false;
+            }
+        }
+        return idTags(element, tags).equals(feature.idTags)
+                && Collections.disjoint(feature.ids, duplicateIds);
+    }
+
+    /**
+     * Returns the ranges, in document order, of the other features that
+     * declare the IDs in <code>references</code>. The ranges of features
+     * after <code>feature</code> are shifted by <code>delta</code>.
+     */
+    private List<int[]> targets(Feature feature, Set<String> references,
+            int delta) {
+        references.removeAll(feature.ids);
+        List<int[]> rv = new ArrayList<>();
+        if (references.isEmpty()) {
+            return rv;
+        }
+        for (Feature f : features) {
+            if (f != feature && !Collections.disjoint(f.ids, references)) {
+                rv.add(f.start < feature.start ? new int[] { f.start, f.end }
+                        : new int[] { f.start + delta, f.end + delta });
+            }
+        }
+        return rv;
+    }
+
+    /**
+     * Checks the feature at <code>start</code> to <code>end</code> of the
+     * document together with the text before the first feature, the text
+     * from <code>last</code>, the end of the last feature, and the features
+     * at <code>targets</code>.
+     * Adds the messages outside the features to <code>context</code>, with
+     * their positions relative to the start or the end of the document,
+     * and returns the messages inside the feature.
+     */
+    private List<Located> checkInContext(String document, int start,
+            int end, int last, List<int[]> targets, List<String> context)
+            throws IOException, SAXException {
+        int first = features.get(0).start;
+        StringBuilder sb = new StringBuilder(document.length());
+        sb.append(document, 0, first);
+        int prefixLength = sb.length();
+        int featureStart = -1;
+        for (int[] target : targets) {
+            if (featureStart < 0 && target[0] > start) {
+                featureStart = sb.length();
+                sb.append(document, start, end);
+            }
+            sb.append(document, target[0], target[1]);
+        }
+        if (featureStart < 0) {
+            featureStart = sb.length();
+            sb.append(document, start, end);
+        }
+        int suffixStart = sb.length();
+        sb.append(document, last, document.length());
+        String snippet = sb.toString();
+        List<Located> messages = new ArrayList<>();
+        for (Located located : check(snippet)) {
+            if (located.offset >= featureStart
+                    && located.offset < featureStart + end - start) {
+                messages.add(new Located(located.type, located.offset
+                        - featureStart + start, located.message));
+            } else if (located.offset < 0) {
+                context.add(located.type + "\u0000\u0000" + located.message);
+            } else if (located.offset < prefixLength) {
+                context.add(located.type + "\u0000" + located.offset
+                        + "\u0000" + located.message);
+            } else if (located.offset >= suffixStart) {
+                context.add(located.type + "\u0000"
+                        + (located.offset - snippet.length()) + "\u0000"
+                        + located.message);
+            }
+        }
+        return messages;
+    }
+
+    private List<Located> check(String document) throws IOException,
+            SAXException {
+        return check(validator, collector, document, asXml);
+    }
+
+    /**
+     * Checks a document with a validator whose error handler is
+     * <code>collector</code> and returns the messages located by offset.
+     */
+    static List<Located> check(SimpleDocumentValidator validator,
+            CollectingErrorHandler collector, String document, boolean asXml)
+            throws IOException, SAXException {
+        collector.begin(document);
+        InputSource is = new InputSource(new ByteArrayInputStream(
+                document.getBytes(StandardCharsets.UTF_8)));
+        if (asXml) {
+            is.setEncoding("UTF-8");
+            validator.checkXmlInputSource(is);
+        } else {
+            validator.checkHtmlInputSource(is);
+        }
+        return collector.end();
+    }
+
+    private List<Message> messages() {
+        List<Located> all = new ArrayList<>(documentMessages);
+        for (Feature feature : features) {
+            all.addAll(feature.messages);
+        }
+        Collections.sort(all, Located.BY_OFFSET);
+        return toMessages(all, lineStarts);
+    }
+
+    /**
+     * Turns offsets into lines and columns.
+     */
+    static List<Message> toMessages(List<Located> all, int[] lineStarts) {
+        List<Message> rv = new ArrayList<>(all.size());
+        for (Located located : all) {
+            if (located.offset < 0) {
+                rv.add(new Message(located.type, -1, -1, located.message));
+            } else {
+                int line = lineOf(lineStarts, located.offset);
+                rv.add(new Message(located.type, line + 1, located.offset
+                        - lineStarts[line] + 1, located.message));
+            }
+        }
+        return rv;
+    }
+
+    private Feature featureAt(int offset) {
+        for (Feature feature : features) {
+            if (offset >= feature.start && offset < feature.end) {
+                return feature;
+            }
+        }
+        return null;
+    }
+
+    private static List<Feature> findFeatures(String document,
+            List<MarkupScanner.Tag> tags) {
+        List<Feature> rv = new ArrayList<>();
+        int open = -1;
+        for (int i = 0; i < tags.size(); i++) {
+            MarkupScanner.Tag tag = tags.get(i);
+            if (!"feature".equals(tag.name)) {
+                continue;
+            }
+            if (!tag.isEnd) {
+                if (open < 0) {
+                    open = i;
+                }
+            } else if (open >= 0) {
+                List<MarkupScanner.Tag> featureTags = tags.subList(open, i + 1);
+                Feature feature = new Feature();
+                feature.start = tags.get(open).start;
+                feature.end = tag.end;
+                feature.ids = MarkupScanner.ids(featureTags);
+                feature.idTags = idTags(document, featureTags);
+                for (MarkupScanner.Tag t : featureTags) {
+                    if (DOCUMENT_WIDE_ELEMENTS.contains(t.name)) {
+                        feature.documentWide = true;
+                    }
+                }
+                rv.add(feature);
+                open = -1;
+            }
+        }
+        return rv;
+    }
+
+    private static List<String> idTags(String text,
+            List<MarkupScanner.Tag> tags) {
+        List<String> rv = new ArrayList<>();
+        for (MarkupScanner.Tag tag : tags) {
+            if (!tag.isEnd && tag.getId() != null) {
+                rv.add(text.substring(tag.start, tag.end));
+            }
+        }
+        return rv;
+    }
+
+    private static List<Located> shift(List<Located> messages, int delta) {
+        List<Located> rv = new ArrayList<>(messages.size());
+        for (Located located : messages) {
+            rv.add(new Located(located.type, located.offset + delta,
+                    located.message));
+        }
+        return rv;
+    }
+
+    /**
+     * Returns the offsets at which lines start, treating CRLF, CR and LF
+     * as line breaks like the parsers do.
+     */
+    static int[] lineStarts(String document) {
+        int[] starts = new int[64];
+        int n = 1;
+        int len = document.length();
+        for (int i = 0; i < len; i++) {
+            char c = document.charAt(i);
+            if (c == '\n' || (c == '\r'
+                    && (i + 1 == len || document.charAt(i + 1) != '\n'))) {
+                if (n == starts.length) {
+                    starts = Arrays.copyOf(starts, n << 1);
+                }
+                starts[n++] = i + 1;
+            }
+        }
+        return Arrays.copyOf(starts, n);
+    }
+
+    private static int lineOf(int[] starts, int offset) {
+        int i = Arrays.binarySearch(starts, offset);
+        return i >= 0 ? i : -i - 2;
+    }
+
+    /**
+     * Turns a one-based line and column into an offset, or -1 if the
+     * message has no usable location.
+     */
+    static int toOffset(int[] starts, int line, int column) {
+        if (line < 1 || line > starts.length) {
+            return -1;
+        }
+        return starts[line - 1] + Math.max(column, 1) - 1;
+    }
+
+    /**
+     * Collects the messages for one document, located by offset.
+     */
+    static final class CollectingErrorHandler implements ErrorHandler {
+
+        private final List<Located> collected = new ArrayList<>();
+
+        private int[] lineStarts;
+
+        void begin(String document) {
+            collected.clear();
+            lineStarts = lineStarts(document);
+        }
+
+        List<Located> end() {
+            List<Located> rv = new ArrayList<>(collected);
+            collected.clear();
+            lineStarts = null;
+            return rv;
+        }
+
+        private void add(String type, SAXParseException e) {
+            collected.add(new Located(type, toOffset(lineStarts,
+                    e.getLineNumber(), e.getColumnNumber()), e.getMessage()));
+        }
+
+        @Override
+        public void warning(SAXParseException e) throws SAXException {
+            add("warning", e);
+        }
+
+        @Override
+        public void error(SAXParseException e) throws SAXException {
+            add("error", e);
+        }
+
+        @Override
+        public void fatalError(SAXParseException e) throws SAXException {
+            add("fatal", e);
+        }
+    }
+}
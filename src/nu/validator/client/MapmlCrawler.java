@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2026 Mozilla Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package nu.validator.client;
+
+import io.mola.galimatias.GalimatiasParseException;
+import io.mola.galimatias.URL;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import nu.validator.checker.LinkCollector;
+import nu.validator.checker.LinkCollector.Link;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Checks a MapML service by starting from one document and following the
+ * links to other MapML documents that <code>MapmlAssertions</code> reports
+ * to each worker's <code>LinkCollector</code>: <code>zoomin</code>,
+ * <code>zoomout</code>, <code>next</code> and <code>alternate</code> links
+ * with a <code>projection</code>, and, if template sampling is on,
+ * <code>extent</code> link templates for MapML resources.
+ *
+ * <p>URLs are resolved, stripped of their fragment and normalized before
+ * being compared, so each document is checked once. Documents more than
+ * <code>maxDepth</code> links away from the start are not fetched, and no
+ * more than <code>maxDocuments</code> are checked in all. Fetching and
+ * politeness are those of <code>UrlListChecker</code>.
+ *
+ * <p>A template is expanded <code>samples</code> times. Sample
+ * <i>i</i> sets every variable to the point <i>(i + 1/2) / samples</i> of
+ * the way from the <code>min</code> to the <code>max</code> of its input,
+ * rounded if both bounds are integers; variables whose input has no
+ * numeric bounds take the input's <code>value</code>. Templates with other
+ * variables are skipped.
+ */
+public class MapmlCrawler extends UrlListChecker {
+
+    /**
+     * The main schema for crawls, since only it runs
+     * <code>MapmlAssertions</code>.
+     */
+    public static final String SCHEMA = "http://s.validator.nu/html5/mapml.rnc";
+
+    private static final Pattern VARIABLE = Pattern.compile("\\{([^/]+?)\\}");
+
+    /**
+     * The most significant digits, and the largest exponent, accepted in an
+     * input's <code>min</code> or <code>max</code>.
+     */
+    private static final int MAX_DIGITS = 50;
+
+    private final int maxDepth;
+
+    private final int maxDocuments;
+
+    private final int samples;
+
+    /**
+     * The depth of every URL queued so far, by normalized URL.
+     */
+    private final Map<String, Integer> depths = new HashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param maxDepth
+     *            how many links away from the start to go at most
+     * @param maxDocuments
+     *            how many documents to check at most
+     * @param samples
+     *            how many URLs to expand each template to, 0 not to follow
+     *            templates
+     * @see UrlListChecker#UrlListChecker(String, boolean, int, int, long,
+     *      OutputStream, PrintStream)
+     */
+    public MapmlCrawler(String userAgent, int concurrency, int perHost,
+            long hostDelay, int maxDepth, int maxDocuments, int samples,
+            OutputStream out, PrintStream names) {
+        super(userAgent, false, concurrency, perHost, hostDelay, out, names);
+        if (maxDepth < 0 || maxDocuments < 1 || samples < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.maxDepth = maxDepth;
+        this.maxDocuments = maxDocuments;
+        this.samples = samples;
+    }
+
+    /**
+     * Checks the document at <code>start</code> and the documents it leads
+     * to. The validators of the workers must have a
+     * <code>LinkCollector</code> and the <code>MapmlCrawler.SCHEMA</code>
+     * main schema.
+     *
+     * @throws IllegalArgumentException
+     *             if <code>start</code> is not an http/https URL
+     */
+    public void crawl(String start, List<Worker> workers) throws IOException,
+            SAXException {
+        String url = normalize(null, start);
+        if (url == null) {
+            throw new IllegalArgumentException(
+                    "Not an http or https URL: " + start);
+        }
+        synchronized (this) {
+            depths.put(url, 0);
+        }
+        check(Collections.singletonList(url), workers);
+    }
+
+    /**
+     * @return the number of documents queued so far
+     */
+    public synchronized int getDocumentCount() {
+        return depths.size();
+    }
+
+    /**
+     * Queues the links the worker's collector found in the document.
+     *
+     * @see nu.validator.client.UrlListChecker#checked(Worker, String)
+     */
+    @Override
+    protected void checked(Worker worker, String url) {
+        LinkCollector links = worker.validator.getLinkCollector();
+        int depth;
+        synchronized (this) {
+            depth = depths.get(url);
+        }
+        if (depth < maxDepth) {
+            String base = url;
+            if (links.getBase() != null) {
+                base = normalize(parse(url), links.getBase());
+            }
+            if (base != null) {
+                URL baseUrl = parse(base);
+                for (Link link : links.getLinks()) {
+                    if (link.getVariables() == null) {
+                        discover(baseUrl, link.getHref(), depth + 1);
+                    } else {
+                        for (String href : expand(link.getHref(),
+                                link.getVariables(), samples)) {
+                            discover(baseUrl, href, depth + 1);
+                        }
+                    }
+                }
+            }
+        }
+        links.reset();
+    }
+
+    private synchronized void discover(URL base, String href, int depth) {
+        if (depths.size() >= maxDocuments) {
+            return;
+        }
+        String url = normalize(base, href);
+        if (url != null && !depths.containsKey(url)) {
+            depths.put(url, depth);
+            add(url);
+        }
+    }
+
+    private static URL parse(String url) {
+        try {
+            return URL.parse(url);
+        } catch (GalimatiasParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Resolves <code>href</code> and returns it without its fragment, or
+     * <code>null</code> if it is not an http/https URL.
+     */
+    public static String normalize(URL base, String href) {
+        try {
+            URL url = base == null ? URL.parse(href) : URL.parse(base, href);
+            if (!"http".equals(url.scheme()) && !"https".equals(url.scheme())) {
+                return null;
+            }
+            return url.withFragment(null).toString();
+        } catch (GalimatiasParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Expands a URL template at <code>samples</code> points.
+     *
+     * @return the expanded templates, or an empty list if some variable
+     *         cannot be given a value
+     */
+    static List<String> expand(String template,
+            Map<String, String[]> variables, int samples) {
+        List<String> rv = new ArrayList<>(samples);
+        for (int i = 0; i < samples; i++) {
+            StringBuilder sb = new StringBuilder();
+            Matcher m = VARIABLE.matcher(template);
+            int end = 0;
+            while (m.find()) {
+                String value = sample(variables.get(m.group(1)), i, samples);
+                if (value == null) {
+                    return Collections.emptyList();
+                }
+                sb.append(template, end, m.start()).append(value);
+                end = m.end();
+            }
+            sb.append(template, end, template.length());
+            rv.add(sb.toString());
+        }
+        return rv;
+    }
+
+    /**
+     * @param input
+     *            the <code>min</code>, <code>max</code> and
+     *            <code>value</code> of an input, or <code>null</code>
+     */
+    private static String sample(String[] input, int i, int samples) {
+        if (input == null) {
+            return null;
+        }
+        BigDecimal min = number(input[0]);
+        BigDecimal max = number(input[1]);
+        if (min == null || max == null) {
+            return input[2];
+        }
+        BigDecimal value = min.add(max.subtract(min).multiply(
+                BigDecimal.valueOf((2 * i + 1) / (2.0 * samples))));
+        if (min.scale() <= 0 && max.scale() <= 0) {
+            value = value.setScale(0, RoundingMode.HALF_EVEN);
+        }
+        return value.stripTrailingZeros().toPlainString();
+    }
+
+    /**
+     * Parses a bound, rejecting numbers whose plain form would be huge, such
+     * as <code>1e50000000</code>.
+     */
+    private static BigDecimal number(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            BigDecimal number = new BigDecimal(value.trim());
+            if (number.precision() > MAX_DIGITS
+                    || Math.abs(number.scale()) > MAX_DIGITS) {
+                return null;
+            }
+            return number;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2026 Mozilla Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package nu.validator.client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Finds the tags in document text without parsing it, so that the MapML
+ * validators can tell which <code>feature</code> elements declare or refer
+ * to which IDs. Comments, CDATA sections, doctypes, processing
+ * instructions and the text of <code>script</code> and <code>style</code>
+ * elements are skipped, so markup inside them is not mistaken for
+ * elements. Names are lower-cased.
+ *
+ * <p>This is only used to decide what has to be checked together; where
+ * it is unsure, it errs towards finding too much.
+ */
+final class MarkupScanner {
+
+    /**
+     * A start or end tag.
+     */
+    static final class Tag {
+
+        final String name;
+
+        final boolean isEnd;
+
+        final int start;
+
+        final int end;
+
+        /**
+         * Alternating attribute names and values.
+         */
+        private final List<String> attributes;
+
+        Tag(String name, boolean isEnd, int start, int end,
+                List<String> attributes) {
+            this.name = name;
+            this.isEnd = isEnd;
+            this.start = start;
+            this.end = end;
+            this.attributes = attributes;
+        }
+
+        /**
+         * Returns the value of the first attribute with the given name, or
+         * <code>null</code>.
+         */
+        String getAttribute(String name) {
+            for (int i = 0; i < attributes.size(); i += 2) {
+                if (name.equals(attributes.get(i))) {
+                    return attributes.get(i + 1);
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Returns the ID the tag declares, or <code>null</code>.
+         */
+        String getId() {
+            String id = getAttribute("id");
+            if (id == null) {
+                id = getAttribute("xml:id");
+                if (id != null) {
+                    id = id.trim();
+                }
+            }
+            return id == null || id.isEmpty() ? null : id;
+        }
+    }
+
+    /**
+     * Attributes whose values are IDs, or lists of IDs, of other elements.
+     */
+    private static final Set<String> ID_REFERENCE_ATTRIBUTES = new HashSet<>(
+            Arrays.asList("for", "list", "form", "headers", "itemref",
+                    "aria-activedescendant", "aria-controls",
+                    "aria-describedby", "aria-details", "aria-errormessage",
+                    "aria-flowto", "aria-labelledby", "aria-owns",
+                    "popovertarget", "commandfor", "anchor"));
+
+    private static final Set<String> RAW_TEXT_ELEMENTS = new HashSet<>(
+            Arrays.asList("script", "style"));
+
+    private MarkupScanner() {
+    }
+
+    /**
+     * Returns the tags of a document or of a fragment of one, in order.
+     */
+    static List<Tag> tags(String text) {
+        List<Tag> rv = new ArrayList<>();
+        int len = text.length();
+        int i = text.indexOf('<');
+        while (i >= 0 && i + 1 < len) {
+            char c = text.charAt(i + 1);
+            int next;
+            if (text.startsWith("<!--", i)) {
+                next = skipPast(text, "-->", i + 4);
+            } else if (text.startsWith("<![CDATA[", i)) {
+                next = skipPast(text, "]]>", i + 9);
+            } else if (c == '!' || c == '?') {
+                next = skipPast(text, ">", i + 2);
+            } else if (c == '/' || Character.isLetter(c) || c == '_') {
+                Tag tag = tag(text, i);
+                rv.add(tag);
+                next = tag.end;
+                if (!tag.isEnd && RAW_TEXT_ELEMENTS.contains(tag.name)) {
+                    next = indexOfEndTag(text, tag.name, next);
+                }
+            } else {
+                next = i + 1;
+            }
+            i = text.indexOf('<', next);
+        }
+        return rv;
+    }
+
+    /**
+     * Returns the IDs the tags declare, in order, duplicates included.
+     */
+    static List<String> ids(List<Tag> tags) {
+        List<String> rv = new ArrayList<>();
+        for (Tag tag : tags) {
+            String id = tag.isEnd ? null : tag.getId();
+            if (id != null) {
+                rv.add(id);
+            }
+        }
+        return rv;
+    }
+
+    /**
+     * Returns the IDs the tags refer to.
+     */
+    static Set<String> references(List<Tag> tags) {
+        Set<String> rv = new LinkedHashSet<>();
+        for (Tag tag : tags) {
+            for (int i = 0; i < tag.attributes.size(); i += 2) {
+                if (ID_REFERENCE_ATTRIBUTES.contains(tag.attributes.get(i))) {
+                    Collections.addAll(rv,
+                            tag.attributes.get(i + 1).trim().split("\\s+"));
+                }
+            }
+        }
+        rv.remove("");
+        return rv;
+    }
+
+    private static Tag tag(String text, int start) {
+        int len = text.length();
+        boolean isEnd = text.charAt(start + 1) == '/';
+        int i = isEnd ? start + 2 : start + 1;
+        int nameStart = i;
+        while (i < len && !isDelimiter(text.charAt(i))) {
+            i++;
+        }
+        String name = text.substring(nameStart, i).toLowerCase(Locale.ROOT);
+        List<String> attributes = new ArrayList<>();
+        while (i < len) {
+            char c = text.charAt(i);
+            if (c == '>') {
+                i++;
+                break;
+            }
+            if (isSpace(c) || c == '/') {
+                i++;
+                continue;
+            }
+            int attributeStart = i;
+            while (i < len && !isDelimiter(text.charAt(i))
+                    && (i == attributeStart || text.charAt(i) != '=')) {
+                i++;
+            }
+            String attribute = text.substring(attributeStart, i).toLowerCase(
+                    Locale.ROOT);
+            i = skipSpaces(text, i);
+            String value = "";
+            if (i < len && text.charAt(i) == '=') {
+                i = skipSpaces(text, i + 1);
+                if (i < len && (text.charAt(i) == '"'
+                        || text.charAt(i) == '\'')) {
+                    int close = text.indexOf(text.charAt(i), i + 1);
+                    if (close < 0) {
+                        close = len;
+                    }
+                    value = text.substring(i + 1, close);
+                    i = Math.min(close + 1, len);
+                } else {
+                    int valueStart = i;
+                    while (i < len && !isSpace(text.charAt(i))
+                            && text.charAt(i) != '>') {
+                        i++;
+                    }
+                    value = text.substring(valueStart, i);
+                }
+            }
+            attributes.add(attribute);
+            attributes.add(value);
+        }
+        return new Tag(name, isEnd, start, i, attributes);
+    }
+
+    private static int indexOfEndTag(String text, String name, int from) {
+        String endTag = "</" + name;
+        int i = text.indexOf("</", from);
+        while (i >= 0) {
+            if (text.regionMatches(true, i, endTag, 0, endTag.length())) {
+                return i;
+            }
+            i = text.indexOf("</", i + 2);
+        }
+        return text.length();
+    }
+
+    private static int skipPast(String text, String delimiter, int from) {
+        int i = text.indexOf(delimiter, from);
+        return i < 0 ? text.length() : i + delimiter.length();
+    }
+
+    private static int skipSpaces(String text, int i) {
+        while (i < text.length() && isSpace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+    }
+
+    private static boolean isDelimiter(char c) {
+        return isSpace(c) || c == '/' || c == '>';
+    }
+}
@@ -0,0 +1,474 @@
+/*
+ * Copyright (c) 2026 Mozilla Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package nu.validator.client;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.xml.sax.SAXException;
+
+import nu.validator.client.IncrementalValidator.CollectingErrorHandler;
+import nu.validator.client.IncrementalValidator.Located;
+import nu.validator.client.IncrementalValidator.Message;
+import nu.validator.validation.SimpleDocumentValidator;
+import nu.validator.xml.SystemErrErrorHandler;
+
+/**
+ * Checks large MapML documents by splitting them at <code>feature</code>
+ * boundaries and checking the pieces on a fork-join pool.
+ *
+ * <p>The features of a document are grouped into runs of consecutive
+ * features. Each run is checked as a document of its own made of the text
+ * before the first feature, the run and the text after the last feature,
+ * so that the features keep their real ancestors. Only the messages inside
+ * the run are kept and mapped back into the document. The text outside the
+ * features is checked once more without any features; that check reports
+ * the document-level messages, such as the <code>extent</code> and
+ * <code>selfStyles</code> checks. Duplicate IDs within one run are
+ * reported by the run itself; duplicates across runs are found on the
+ * coordinating thread from the <code>id</code> attributes (and, in XML,
+ * <code>xml:id</code> attributes) that <code>MarkupScanner</code> finds in
+ * the source, and reported in the words of the parser in use.
+ *
+ * <p>A run that refers to IDs declared only in other runs reports those
+ * references as errors. After joining, each such run is checked once more,
+ * again in parallel, together with the features that declare the IDs it
+ * refers to; messages of the run that this second check no longer reports
+ * are dropped, so references resolve as in a check of the whole document.
+ * Messages are returned sorted by location, like those of
+ * <code>IncrementalValidator</code>.
+ *
+ * <p>Every worker owns a <code>SimpleDocumentValidator</code>; workers
+ * are handed out through a queue, so a validator is only ever used by one
+ * thread at a time. Instances may be shared between threads.
+ */
+public class ParallelValidator implements AutoCloseable {
+
+    /**
+     * Documents with fewer features than this are checked in one piece.
+     */
+    private static final int MIN_FEATURES_PER_RUN = 64;
+
+    /**
+     * The number of runs per worker, so that uneven runs even out.
+     */
+    private static final int RUNS_PER_WORKER = 4;
+
+    /**
+     * A <code>feature</code> element with the IDs it declares and refers to.
+     */
+    private static final class Feature {
+
+        final int start;
+
+        final int end;
+
+        final List<String> ids;
+
+        final Set<String> references;
+
+        Feature(List<MarkupScanner.Tag> tags) {
+            start = tags.get(0).start;
+            end = tags.get(tags.size() - 1).end;
+            ids = MarkupScanner.ids(tags);
+            references = MarkupScanner.references(tags);
+        }
+    }
+
+    private static final class Worker {
+
+        final SimpleDocumentValidator validator;
+
+        final CollectingErrorHandler collector = new CollectingErrorHandler();
+
+        Worker(String schemaUrl, boolean loadEntities) throws SAXException {
+            validator = new SimpleDocumentValidator(true, false, false);
+            try {
+                validator.setUpMainSchema(schemaUrl,
+                        new SystemErrErrorHandler());
+            } catch (SAXException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new SAXException(e);
+            }
+            validator.setUpValidatorAndParsers(collector, true, loadEntities);
+        }
+    }
+
+    private final boolean asXml;
+
+    private final int parallelism;
+
+    private final BlockingQueue<Worker> workers;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor.
+     *
+     * @param schemaUrl
+     *            the main schema, for example
+     *            {@value MapmlCrawler#SCHEMA}
+     * @param asXml
+     *            <code>true</code> to parse documents as XML,
+     *            <code>false</code> to parse them as HTML
+     * @param loadEntities
+     *            <code>true</code> to have the XML parser load external
+     *            entities
+     * @param parallelism
+     *            the number of documents to check at the same time
+     * @throws SAXException
+     *             if the schema cannot be set up
+     */
+    public ParallelValidator(String schemaUrl, boolean asXml,
+            boolean loadEntities, int parallelism) throws SAXException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(
+                    "Parallelism must be positive.");
+        }
+        this.asXml = asXml;
+        this.parallelism = parallelism;
+        this.workers = new ArrayBlockingQueue<>(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            workers.add(new Worker(schemaUrl, loadEntities));
+        }
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Checks a document.
+     *
+     * @param document
+     *            the document text
+     * @return the messages in document order
+     * @throws IOException
+     * @throws SAXException
+     */
+    public List<Message> validate(String document) throws IOException,
+            SAXException {
+        int[] lineStarts = IncrementalValidator.lineStarts(document);
+        List<MarkupScanner.Tag> tags = MarkupScanner.tags(document);
+        List<Feature> features = findFeatures(tags);
+        int runs = Math.min(parallelism * RUNS_PER_WORKER,
+                features.size() / MIN_FEATURES_PER_RUN);
+        if (runs < 2) {
+            List<Located> messages = invoke(Collections.singletonList(
+                    task(document))).get(0);
+            Collections.sort(messages, Located.BY_OFFSET);
+            return IncrementalValidator.toMessages(messages, lineStarts);
+        }
+
+        int first = features.get(0).start;
+        int last = features.get(features.size() - 1).end;
+        String prefix = document.substring(0, first);
+        String suffix = document.substring(last);
+        int[] bounds = new int[runs + 1];
+        for (int i = 0; i < runs; i++) {
+            bounds[i] = features.get(i * features.size() / runs).start;
+        }
+        bounds[runs] = last;
+
+        List<Callable<List<Located>>> tasks = new ArrayList<>(runs + 1);
+        tasks.add(task(prefix + suffix));
+        for (int i = 0; i < runs; i++) {
+            tasks.add(task(prefix + document.substring(bounds[i],
+                    bounds[i + 1]) + suffix));
+        }
+        List<List<Located>> results = invoke(tasks);
+
+        Set<String> unresolved = resolveAcrossRuns(document, features,
+                bounds, prefix, suffix, results);
+
+        List<Located> messages = new ArrayList<>();
+        Set<String> dropped = new HashSet<>();
+        checkIdsAcrossRuns(tags, bounds, messages, dropped);
+        Set<String> unlocated = new HashSet<>();
+        for (Located located : results.get(0)) {
+            if (located.offset < 0) {
+                unlocated.add(located.type + located.message);
+                messages.add(located);
+            } else if (located.offset < first) {
+                messages.add(located);
+            } else if (!dropped.contains(runs + located.type
+                    + located.message)) {
+                messages.add(new Located(located.type,
+                        located.offset - first + last, located.message));
+            }
+        }
+        for (int i = 0; i < runs; i++) {
+            int length = bounds[i + 1] - bounds[i];
+            for (Located located : results.get(i + 1)) {
+                if (located.offset < 0) {
+                    if (unlocated.add(located.type + located.message)) {
+                        messages.add(located);
+                    }
+                } else if (located.offset >= first
+                        && located.offset < first + length
+                        && !dropped.contains(i + located.type
+                                + located.message)
+                        && !unresolved.contains(key(i, located.offset
+                                - first, located))) {
+                    messages.add(new Located(located.type,
+                            located.offset - first + bounds[i],
+                            located.message));
+                }
+            }
+        }
+
+        Collections.sort(messages, Located.BY_OFFSET);
+        return IncrementalValidator.toMessages(messages, lineStarts);
+    }
+
+    /**
+     * Shuts down the pool.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    /**
+     * Checks the runs that refer to IDs declared only in other runs again,
+     * each together with the features that declare those IDs, and returns
+     * the keys of the messages of those runs that the second check no
+     * longer reports.
+     */
+    private Set<String> resolveAcrossRuns(String document,
+            List<Feature> features, int[] bounds, String prefix,
+            String suffix, List<List<Located>> results) throws IOException,
+            SAXException {
+        int runs = bounds.length - 1;
+        List<Callable<List<Located>>> tasks = new ArrayList<>();
+        List<int[]> checked = new ArrayList<>();
+        for (int i = 0; i < runs; i++) {
+            int from = i * features.size() / runs;
+            int to = (i + 1) * features.size() / runs;
+            Set<String> references = new HashSet<>();
+            for (Feature feature : features.subList(from, to)) {
+                references.addAll(feature.references);
+            }
+            for (Feature feature : features.subList(from, to)) {
+                references.removeAll(feature.ids);
+            }
+            if (references.isEmpty()) {
+                continue;
+            }
+            StringBuilder sb = new StringBuilder(prefix);
+            int runStart = -1;
+            boolean targets = false;
+            for (int j = 0; j < features.size(); j++) {
+                if (j == from) {
+                    runStart = sb.length();
+                    sb.append(document, bounds[i], bounds[i + 1]);
+                }
+                Feature feature = features.get(j);
+                if ((j < from || j >= to)
+                        && !Collections.disjoint(feature.ids, references)) {
+                    sb.append(document, feature.start, feature.end);
+                    targets = true;
+                }
+            }
+            if (targets) {
+                sb.append(suffix);
+                tasks.add(task(sb.toString()));
+                checked.add(new int[] { i, runStart });
+            }
+        }
+        Set<String> unresolved = new HashSet<>();
+        if (tasks.isEmpty()) {
+            return unresolved;
+        }
+        List<List<Located>> rechecks = invoke(tasks);
+        int first = prefix.length();
+        for (int k = 0; k < checked.size(); k++) {
+            int run = checked.get(k)[0];
+            int runStart = checked.get(k)[1];
+            int length = bounds[run + 1] - bounds[run];
+            Set<String> kept = new HashSet<>();
+            for (Located located : rechecks.get(k)) {
+                if (located.offset >= runStart
+                        && located.offset < runStart + length) {
+                    kept.add(key(run, located.offset - runStart, located));
+                }
+            }
+            for (Located located : results.get(run + 1)) {
+                if (located.offset >= first
+                        && located.offset < first + length) {
+                    String key = key(run, located.offset - first, located);
+                    if (!kept.contains(key)) {
+                        unresolved.add(key);
+                    }
+                }
+            }
+        }
+        return unresolved;
+    }
+
+    private static String key(int run, int offset, Located located) {
+        return run + "\u0000" + offset + "\u0000" + located.type + "\u0000"
+                + located.message;
+    }
+
+    /**
+     * Reports IDs whose first occurrence is in another piece than the one
+     * being checked. Pieces are numbered -1 for the text before the first
+     * feature, 0 to <code>runs - 1</code> for the runs and
+     * <code>runs</code> for the text after the last feature, which is
+     * checked with the text before the first feature.
+     *
+     * <p>A piece sees the text before the first feature, so duplicates of
+     * IDs declared there are reported by the piece, except for the warning
+     * pointing at the first occurrence, which is outside the piece. For IDs
+     * first declared in an earlier piece, the piece only reports later
+     * occurrences within itself and points their warnings at the wrong
+     * occurrence; those warnings are added to <code>dropped</code> (keyed
+     * by piece, type and message) and replaced. Occurrences after the last
+     * feature are seen by the run with the first occurrence, which reports
+     * the warning but not the error.
+     */
+    private void checkIdsAcrossRuns(List<MarkupScanner.Tag> tags,
+            int[] bounds, List<Located> messages, Set<String> dropped) {
+        int runs = bounds.length - 1;
+        Map<String, int[]> seen = new HashMap<>();
+        for (MarkupScanner.Tag tag : tags) {
+            String value = tag.isEnd ? null : tag.getId();
+            if (value == null
+                    || (!asXml && !value.equals(tag.getAttribute("id")))) {
+                continue;
+            }
+            String name = tag.getAttribute("id") != null ? "id" : "xml:id";
+            int piece = -1;
+            while (piece < runs && tag.end >= bounds[piece + 1]) {
+                piece++;
+            }
+            // IdFilter reports after the start tag, the HTML parser at its
+            // last character.
+            int offset = asXml ? tag.end : tag.end - 1;
+            // first offset, first piece, last piece
+            int[] state = seen.get(value);
+            if (state == null) {
+                seen.put(value, new int[] { offset, piece, piece });
+                continue;
+            }
+            int firstPiece = state[1];
+            boolean firstInPiece = state[2] != piece;
+            state[2] = piece;
+            if (firstPiece == piece || (firstPiece == -1 && piece == runs)) {
+                continue;
+            }
+            String warning = asXml
+                    ? "The first occurrence of the ID value \u201C" + value
+                            + "\u201D was here."
+                    : "The first occurrence of ID \u201C" + value
+                            + "\u201D was here.";
+            if (firstPiece != -1) {
+                dropped.add(piece + "warning" + warning);
+                if (firstInPiece) {
+                    messages.add(new Located("error", offset, asXml
+                            ? "Attribute \u201C" + name
+                                    + "\u201D declares a duplicate ID value \u201C"
+                                    + value + "\u201D."
+                            : "Duplicate ID \u201C" + value + "\u201D."));
+                }
+            }
+            if (piece != runs) {
+                messages.add(new Located("warning", state[0], warning));
+            }
+        }
+    }
+
+    /**
+     * Finds the <code>feature</code> elements that are not nested in one
+     * another.
+     */
+    private static List<Feature> findFeatures(List<MarkupScanner.Tag> tags) {
+        List<Feature> rv = new ArrayList<>();
+        int open = -1;
+        for (int i = 0; i < tags.size(); i++) {
+            MarkupScanner.Tag tag = tags.get(i);
+            if (!"feature".equals(tag.name)) {
+                continue;
+            }
+            if (!tag.isEnd) {
+                if (open < 0) {
+                    open = i;
+                }
+            } else if (open >= 0) {
+                rv.add(new Feature(tags.subList(open, i + 1)));
+                open = -1;
+            }
+        }
+        return rv;
+    }
+
+    private Callable<List<Located>> task(final String document) {
+        return new Callable<List<Located>>() {
+            @Override
+            public List<Located> call() throws Exception {
+                Worker worker = workers.take();
+                try {
+                    return IncrementalValidator.check(worker.validator,
+                            worker.collector, document, asXml);
+                } finally {
+                    workers.add(worker);
+                }
+            }
+        };
+    }
+
+    private List<List<Located>> invoke(List<Callable<List<Located>>> tasks)
+            throws IOException, SAXException {
+        List<List<Located>> rv = new ArrayList<>(tasks.size());
+        try {
+            for (Future<List<Located>> future : pool.invokeAll(tasks)) {
+                rv.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof SAXException) {
+                throw (SAXException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+        return rv;
+    }
+}
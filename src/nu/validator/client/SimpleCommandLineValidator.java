@@ -23,19 +23,28 @@
 package nu.validator.client;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.InputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
 
+import nu.validator.checker.LinkCollector;
 import nu.validator.htmlparser.sax.XmlSerializer;
 import nu.validator.io.SystemIdIOException;
+import nu.validator.messages.CborMessageEmitter;
 import nu.validator.messages.GnuMessageEmitter;
 import nu.validator.messages.JsonMessageEmitter;
 import nu.validator.messages.MessageEmitterAdapter;
+import nu.validator.messages.NdjsonMessageEmitter;
 import nu.validator.messages.TextMessageEmitter;
 import nu.validator.messages.XmlMessageEmitter;
 import nu.validator.servlet.imagereview.ImageCollector;
@@ -64,6 +73,12 @@ public class SimpleCommandLineValidator {
 
     private static OutputStream out;
 
+    private static PrintStream stdout;
+
+    private static PrintStream stderr;
+
+    private static Map<String, SimpleDocumentValidator> warmValidators;
+
     private static Pattern filterPattern;
 
     private static MessageEmitterAdapter errorHandler;
@@ -102,8 +117,26 @@ public class SimpleCommandLineValidator {
 
     private static int lineOffset;
 
+    private static int aggregateThreshold;
+
+    private static int errorBudget;
+
+    private static int concurrency;
+
+    private static int perHost;
+
+    private static int hostDelay;
+
+    private static long maxSize;
+
+    private static int crawlDepth;
+
+    private static int crawlLimit;
+
+    private static int crawlSamples;
+
     private static enum OutputFormat {
-        HTML, XHTML, TEXT, XML, JSON, RELAXED, SOAP, UNICORN, GNU
+        HTML, XHTML, TEXT, XML, JSON, NDJSON, CBOR, RELAXED, SOAP, UNICORN, GNU
     }
 
     private static OutputFormat outputFormat;
@@ -112,8 +145,99 @@ public class SimpleCommandLineValidator {
 
     private static boolean hasSchemaOption;
 
+    /**
+     * Thrown instead of calling <code>System.exit()</code> so that the
+     * daemon can turn it into a status for its client.
+     */
+    private static final class ExitException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        ExitException(int status) {
+            this.status = status;
+        }
+    }
+
     public static void main(String[] args) throws SAXException, Exception {
-        out = System.err;
+        if (args.length > 0 && ("--daemon".equals(args[0])
+                || "--client".equals(args[0]))) {
+            CommandLineDaemon.main(args);
+            return;
+        }
+        try {
+            run(args, System.out, System.err);
+        } catch (ExitException e) {
+            System.exit(e.status);
+        }
+    }
+
+    /**
+     * Runs one command line for the daemon, with output going to the
+     * given streams instead of the process streams.
+     *
+     * @return the exit status the command line would have had
+     */
+    static int runInDaemon(String[] args, PrintStream stdout,
+            PrintStream stderr) {
+        try {
+            for (String arg : args) {
+                if ("-".equals(arg)) {
+                    stderr.println("error: The daemon cannot read from"
+                            + " standard input.");
+                    return 1;
+                }
+            }
+            run(args, stdout, stderr);
+            return 0;
+        } catch (ExitException e) {
+            return e.status;
+        } catch (Exception e) {
+            e.printStackTrace(stderr);
+            return 1;
+        } finally {
+            stdout.flush();
+            stderr.flush();
+        }
+    }
+
+    /**
+     * Makes later runs in this process reuse their validators, and the
+     * main schema compiled for them, instead of setting up new ones.
+     */
+    static void keepValidatorsWarm() {
+        warmValidators = new HashMap<>();
+    }
+
+    private static void exit(int status) {
+        throw new ExitException(status);
+    }
+
+    private static SimpleDocumentValidator newValidator(boolean logUrls,
+            boolean enableLanguageDetection) {
+        if (warmValidators == null) {
+            return new SimpleDocumentValidator(true, logUrls,
+                    enableLanguageDetection);
+        }
+        String key = logUrls + " " + enableLanguageDetection;
+        SimpleDocumentValidator warm = warmValidators.get(key);
+        if (warm == null) {
+            warm = new SimpleDocumentValidator(true, logUrls,
+                    enableLanguageDetection);
+            warmValidators.put(key, warm);
+        } else {
+            System.setProperty("nu.validator.checker.enableLangDetection",
+                    enableLanguageDetection ? "1" : "0");
+        }
+        return warm;
+    }
+
+    private static void run(String[] args, PrintStream stdout,
+            PrintStream stderr) throws SAXException, Exception {
+        SimpleCommandLineValidator.stdout = stdout;
+        SimpleCommandLineValidator.stderr = stderr;
+        out = stderr;
         userAgent = "Validator.nu/LV";
         System.setProperty("nu.validator.datatype.warn", "true");
         errorsOnly = false;
@@ -131,12 +255,23 @@ public class SimpleCommandLineValidator {
         noLangDetect = false;
         noStream = false;
         lineOffset = 0;
+        aggregateThreshold = 0;
+        errorBudget = 0;
+        concurrency = 16;
+        perHost = 2;
+        hostDelay = 100;
+        maxSize = 2097152;
+        crawlDepth = 2;
+        crawlLimit = 1000;
+        crawlSamples = 0;
         asciiQuotes = false;
         verbose = false;
 
         filterPattern = null;
         String filterString = "";
         String outFormat = null;
+        String urlsFrom = null;
+        String crawl = null;
         schemaUrl = null;
         hasSchemaOption = false;
         boolean hasFileArgs = false;
@@ -144,7 +279,7 @@ public class SimpleCommandLineValidator {
         int fileArgsStart = 0;
         if (args.length == 0) {
             usage();
-            System.exit(1);
+            exit(1);
         }
         for (int i = 0; i < args.length; i++) {
             if (args[i].equals("-")) {
@@ -189,9 +324,9 @@ public class SimpleCommandLineValidator {
                             }
                         }
                     } catch (FileNotFoundException e) {
-                        System.err.println("error: File not found: "
+                        stderr.println("error: File not found: "
                                 + filterFile.getPath());
-                        System.exit(1);
+                        exit(1);
                     } catch (IOException e) {
                         e.printStackTrace();
                     }
@@ -203,18 +338,54 @@ public class SimpleCommandLineValidator {
                     }
                 } else if ("--format".equals(args[i])) {
                     outFormat = args[++i];
+                } else if ("--fail-fast".equals(args[i])) {
+                    errorBudget = 1;
+                } else if ("--error-budget".equals(args[i])) {
+                    errorBudget = nonNegativeNumber("--error-budget",
+                            args[++i]);
+                } else if ("--aggregate".equals(args[i])) {
+                    aggregateThreshold = nonNegativeNumber("--aggregate",
+                            args[++i]);
+                } else if ("--urls-from".equals(args[i])) {
+                    urlsFrom = args[++i];
+                } else if ("--concurrency".equals(args[i])) {
+                    concurrency = positiveNumber("--concurrency", args[++i]);
+                } else if ("--per-host".equals(args[i])) {
+                    perHost = positiveNumber("--per-host", args[++i]);
+                } else if ("--host-delay".equals(args[i])) {
+                    try {
+                        hostDelay = Integer.parseInt(args[++i]);
+                    } catch (NumberFormatException e) {
+                        hostDelay = -1;
+                    }
+                    if (hostDelay < 0) {
+                        stderr.println("error: The \"--host-delay\" option"
+                                + " requires a number of milliseconds.");
+                        exit(1);
+                    }
+                } else if ("--max-size".equals(args[i])) {
+                    maxSize = positiveNumber("--max-size", args[++i]);
+                } else if ("--crawl".equals(args[i])) {
+                    crawl = args[++i];
+                } else if ("--crawl-depth".equals(args[i])) {
+                    crawlDepth = nonNegativeNumber("--crawl-depth", args[++i]);
+                } else if ("--crawl-limit".equals(args[i])) {
+                    crawlLimit = positiveNumber("--crawl-limit", args[++i]);
+                } else if ("--crawl-samples".equals(args[i])) {
+                    crawlSamples = nonNegativeNumber("--crawl-samples",
+                            args[++i]);
                 } else if ("--user-agent".equals(args[i])) {
                     userAgent = args[++i];
                 } else if ("--version".equals(args[i])) {
                     if (version != null) {
-                        System.out.println(version);
+                        stdout.println(version);
                     } else {
-                        System.out.println("[unknown version]");
+                        stdout.println("[unknown version]");
                     }
-                    System.exit(0);
+                    exit(0);
                 } else if ("--help".equals(args[i])) {
                     help();
-                    System.exit(0);
+                    exit(0);
                 } else if ("--also-check-css".equals(args[i])) {
                     alsoCheckCSS = true;
                 } else if ("--skip-non-css".equals(args[i])) {
@@ -241,9 +412,9 @@ public class SimpleCommandLineValidator {
                     hasSchemaOption = true;
                     schemaUrl = args[++i];
                     if (!schemaUrl.startsWith("http:")) {
-                        System.err.println("error: The \"--schema\" option"
+                        stderr.println("error: The \"--schema\" option"
                                 + " requires a URL for a schema.");
-                        System.exit(1);
+                        exit(1);
                     }
                 }
             }
@@ -252,7 +423,8 @@ public class SimpleCommandLineValidator {
             filterPattern = Pattern.compile(filterString);
         }
         if (schemaUrl == null) {
-            schemaUrl = "http://s.validator.nu/html5-all.rnc";
+            schemaUrl = crawl != null ? MapmlCrawler.SCHEMA
+                    : "http://s.validator.nu/html5-all.rnc";
         }
         if (outFormat == null) {
             outputFormat = OutputFormat.GNU;
@@ -265,61 +437,118 @@ public class SimpleCommandLineValidator {
                 outputFormat = OutputFormat.XML;
             } else if ("json".equals(outFormat)) {
                 outputFormat = OutputFormat.JSON;
+            } else if ("ndjson".equals(outFormat)) {
+                outputFormat = OutputFormat.NDJSON;
+            } else if ("cbor".equals(outFormat)) {
+                outputFormat = OutputFormat.CBOR;
             } else {
-                System.err.printf("Error: Unsupported output format \"%s\"."
+                stderr.printf("Error: Unsupported output format \"%s\"."
                         + " Must be \"gnu\", \"xml\", \"json\","
-                        + " or \"text\".\n", outFormat);
-                System.exit(1);
+                        + " \"ndjson\", \"cbor\", or \"text\".\n", outFormat);
+                exit(1);
             }
         }
-        if (readFromStdIn) {
-            InputSource is = new InputSource(System.in);
-            if (noLangDetect) {
-                validator = new SimpleDocumentValidator(true, false, false);
+        if (urlsFrom != null || crawl != null) {
+            String option = urlsFrom != null ? "--urls-from" : "--crawl";
+            if (readFromStdIn || hasFileArgs
+                    || (urlsFrom != null && crawl != null)) {
+                stderr.println("error: The \"" + option + "\" option cannot"
+                        + " be combined with other documents.");
+                exit(1);
+            }
+            if (outputFormat != OutputFormat.GNU
+                    && outputFormat != OutputFormat.TEXT
+                    && outputFormat != OutputFormat.NDJSON) {
+                stderr.println("error: The \"" + option + "\" option"
+                        + " requires the \"gnu\", \"text\", or \"ndjson\""
+                        + " format.");
+                exit(1);
+            }
+            if (urlsFrom != null) {
+                checkUrlList(readUrlList(urlsFrom));
             } else {
-                validator = new SimpleDocumentValidator();
+                if (!crawl.startsWith("http://")
+                        && !crawl.startsWith("https://")) {
+                    stderr.println("error: Not an http or https URL: "
+                            + crawl);
+                    exit(1);
+                }
+                crawl(crawl);
             }
-            setup(schemaUrl);
+            end();
+        } else if (readFromStdIn) {
+            InputSource is = new InputSource(System.in);
+            validator = newValidator(!noLangDetect, !noLangDetect);
+            setup(schemaUrl, out);
             validator.checkHtmlInputSource(is);
+            errorHandler.reportMemoryBudget(validator.getMemoryBudget());
             end();
         } else if (hasFileArgs) {
-            if (noLangDetect) {
-                validator = new SimpleDocumentValidator(true, false, false);
-            } else {
-                validator = new SimpleDocumentValidator(true, false, true);
-            }
-            setup(schemaUrl);
+            validator = newValidator(false, !noLangDetect);
+            setup(schemaUrl, out);
             checkFiles(args, fileArgsStart);
             end();
         } else {
-            System.err.printf("\nError: No documents specified.\n");
+            stderr.printf("\nError: No documents specified.\n");
             usage();
-            System.exit(1);
+            exit(1);
         }
     }
 
     private static void setSchema(String schemaUrl)
             throws SAXException, Exception {
         try {
-            validator.setUpMainSchema(schemaUrl, new SystemErrErrorHandler());
+            if (!schemaUrl.equals(validator.getMainSchemaUrl())) {
+                validator.setUpMainSchema(schemaUrl,
+                        new SystemErrErrorHandler());
+            }
         } catch (SchemaReadException e) {
-            System.out.println(e.getMessage() + " Terminating.");
-            System.exit(1);
+            stdout.println(e.getMessage() + " Terminating.");
+            exit(1);
         } catch (StackOverflowError e) {
-            System.out.println("StackOverflowError"
+            stdout.println("StackOverflowError"
                     + " while evaluating HTML schema.");
-            System.out.println("The checker requires a java thread stack size"
+            stdout.println("The checker requires a java thread stack size"
                     + " of at least 512k.");
-            System.out.println("Consider invoking java with the -Xss"
+            stdout.println("Consider invoking java with the -Xss"
                     + " option. For example:");
-            System.out.println("\n  java -Xss512k -jar ~/vnu.jar FILE.html");
-            System.exit(1);
+            stdout.println("\n  java -Xss512k -jar ~/vnu.jar FILE.html");
+            exit(1);
         }
         validator.setUpValidatorAndParsers(errorHandler, noStream, loadEntities);
     }
 
-    private static void setup(String schemaUrl) throws SAXException, Exception {
-        setErrorHandler();
+    private static int positiveNumber(String option, String value) {
+        try {
+            int number = Integer.parseInt(value);
+            if (number > 0) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+        }
+        stderr.println("error: The \"" + option + "\" option requires a"
+                + " positive number.");
+        exit(1);
+        return 0;
+    }
+
+    private static int nonNegativeNumber(String option, String value) {
+        try {
+            int number = Integer.parseInt(value);
+            if (number >= 0) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+        }
+        stderr.println("error: The \"" + option + "\" option requires a"
+                + " number.");
+        exit(1);
+        return 0;
+    }
+
+    private static void setup(String schemaUrl, OutputStream out)
+            throws SAXException, Exception {
+        errorHandler = newErrorHandler(validator.getSourceCode(), out);
         if (cssCheckingEnabled()) {
             errorHandler.setLineOffset(-1);
         }
@@ -334,7 +563,90 @@ public class SimpleCommandLineValidator {
                 "Document checking completed.", "");
         if (errorHandler.getErrors() > 0 || errorHandler.getFatalErrors() > 0
                 || (wError && errorHandler.getWarnings() > 0)) {
-            System.exit(exitZeroAlways ? 0 : 1);
+            exit(exitZeroAlways ? 0 : 1);
+        }
+    }
+
+    private static List<String> readUrlList(String urlsFrom)
+            throws IOException {
+        List<String> urls = new ArrayList<>();
+        try (BufferedReader reader = //
+                new BufferedReader(new FileReader(urlsFrom))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                if (!line.startsWith("http://")
+                        && !line.startsWith("https://")) {
+                    stderr.println("error: Not an http or https URL: "
+                            + line);
+                    exit(1);
+                }
+                urls.add(line);
+            }
+        } catch (FileNotFoundException e) {
+            stderr.println("error: File not found: " + urlsFrom);
+            exit(1);
+        }
+        return urls;
+    }
+
+    /**
+     * Fetches and checks the URLs concurrently, with one validator per
+     * processor, and leaves <code>errorHandler</code> holding the counts
+     * of all of them for <code>end()</code>.
+     */
+    private static void checkUrlList(List<String> urls)
+            throws SAXException, Exception {
+        List<UrlListChecker.Worker> workers = newWorkers(false);
+        UrlListChecker checker = new UrlListChecker(userAgent,
+                cssCheckingEnabled(), concurrency, perHost, hostDelay, out,
+                verbose ? stdout : null);
+        checker.setSizeLimit(maxSize);
+        checker.check(urls, workers);
+        addCounts(workers);
+    }
+
+    /**
+     * Like <code>checkUrlList()</code>, but for the MapML documents that
+     * <code>start</code> links to.
+     */
+    private static void crawl(String start) throws SAXException, Exception {
+        List<UrlListChecker.Worker> workers = newWorkers(true);
+        MapmlCrawler crawler = new MapmlCrawler(userAgent, concurrency,
+                perHost, hostDelay, crawlDepth, crawlLimit, crawlSamples, out,
+                verbose ? stdout : null);
+        crawler.setSizeLimit(maxSize);
+        crawler.crawl(start, workers);
+        addCounts(workers);
+    }
+
+    private static List<UrlListChecker.Worker> newWorkers(
+            boolean collectLinks) throws SAXException, Exception {
+        List<UrlListChecker.Worker> workers = new ArrayList<>();
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < threads; i++) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            validator = new SimpleDocumentValidator(true, false,
+                    !noLangDetect);
+            if (collectLinks) {
+                validator.setLinkCollector(new LinkCollector());
+            }
+            setup(schemaUrl, buffer);
+            workers.add(new UrlListChecker.Worker(validator, errorHandler,
+                    buffer));
+        }
+        errorHandler = newErrorHandler(validator.getSourceCode(), out);
+        errorHandler.setHtml(true);
+        errorHandler.start(null);
+        return workers;
+    }
+
+    private static void addCounts(List<UrlListChecker.Worker> workers) {
+        for (UrlListChecker.Worker worker : workers) {
+            errorHandler.addCounts(worker.errorHandler);
         }
     }
 
@@ -345,10 +657,16 @@ public class SimpleCommandLineValidator {
                 emitFilename(args[i]);
                 try {
                     validator.checkHttpURL(args[i], userAgent, errorHandler);
+                    endFile(args[i]);
                 } catch (IOException e) {
-                    errorHandler.fatalError(new SAXParseException(e.getMessage(),
-                            null, args[i], -1, -1,
-                            new SystemIdIOException(args[i], e.getMessage())));
+                    try {
+                        errorHandler.fatalError(new SAXParseException(
+                                e.getMessage(), null, args[i], -1, -1,
+                                new SystemIdIOException(args[i],
+                                        e.getMessage())));
+                    } finally {
+                        endFile(args[i]);
+                    }
                 }
             } else {
                 File file = new File(args[i]);
@@ -424,10 +742,11 @@ public class SimpleCommandLineValidator {
                     setSchema("http://s.validator.nu/svg-xhtml5-rdf-mathml.rnc");
                 }
                 validator.checkXmlFile(file);
+                endFile(file.toURI().toURL().toString());
             }
         } catch (SAXException e) {
             if (!errorsOnly) {
-                System.err.printf("\"%s\":-1:-1: warning: %s\n",
+                stderr.printf("\"%s\":-1:-1: warning: %s\n",
                         file.toURI().toURL().toString(), e.getMessage());
             }
         }
@@ -446,10 +765,11 @@ public class SimpleCommandLineValidator {
             } else {
                 emitFilename(path);
                 validator.checkCssFile(file, true);
+                endFile(file.toURI().toURL().toString());
             }
         } catch (SAXException e) {
             if (!errorsOnly) {
-                System.err.printf("\"%s\":-1:-1: warning: %s\n",
+                stderr.printf("\"%s\":-1:-1: warning: %s\n",
                         file.toURI().toURL().toString(), e.getMessage());
             }
         }
@@ -476,6 +796,7 @@ public class SimpleCommandLineValidator {
                     }
                     validator.checkXmlFile(file);
                 }
+                endFile(file.toURI().toURL().toString());
             } else if (isHtml(file)) {
                 emitFilename(path);
                 if (!"http://s.validator.nu/html5-all.rnc".equals(
@@ -483,6 +804,7 @@ public class SimpleCommandLineValidator {
                     setSchema("http://s.validator.nu/html5-all.rnc");
                 }
                 validator.checkHtmlFile(file, true);
+                endFile(file.toURI().toURL().toString());
             } else {
                 if (verbose) {
                     errorHandler.warning(new SAXParseException(
@@ -493,7 +815,7 @@ public class SimpleCommandLineValidator {
             }
         } catch (SAXException e) {
             if (!errorsOnly) {
-                System.err.printf("\"%s\":-1:-1: warning: %s\n",
+                stderr.printf("\"%s\":-1:-1: warning: %s\n",
                         file.toURI().toURL().toString(), e.getMessage());
             }
         }
@@ -523,14 +845,20 @@ public class SimpleCommandLineValidator {
         return (name.endsWith(".html") || name.endsWith(".htm") || !skipNonHTML);
     }
 
+    private static void endFile(String systemId) throws SAXException {
+        errorHandler.reportMemoryBudget(validator.getMemoryBudget());
+        errorHandler.endFile(systemId);
+    }
+
     private static void emitFilename(String name) {
         if (verbose) {
-            System.out.println(name);
+            stdout.println(name);
         }
     }
 
-    private static void setErrorHandler() {
-        SourceCode sourceCode = validator.getSourceCode();
+    private static MessageEmitterAdapter newErrorHandler(SourceCode sourceCode,
+            OutputStream out) {
+        MessageEmitterAdapter errorHandler;
         ImageCollector imageCollector = new ImageCollector(sourceCode);
         boolean showSource = false;
         if (outputFormat == OutputFormat.TEXT) {
@@ -551,40 +879,65 @@ public class SimpleCommandLineValidator {
                     showSource, imageCollector, lineOffset, true,
                     new JsonMessageEmitter(
                             new nu.validator.json.Serializer(out), callback));
+        } else if (outputFormat == OutputFormat.NDJSON) {
+            errorHandler = new MessageEmitterAdapter(filterPattern, sourceCode,
+                    showSource, imageCollector, lineOffset, true,
+                    new NdjsonMessageEmitter(
+                            new nu.validator.json.Serializer(out, false)));
+        } else if (outputFormat == OutputFormat.CBOR) {
+            errorHandler = new MessageEmitterAdapter(filterPattern, sourceCode,
+                    showSource, imageCollector, lineOffset, true,
+                    new CborMessageEmitter(out, true));
         } else {
             throw new RuntimeException("Bug. Should be unreachable.");
         }
         errorHandler.setErrorsOnly(errorsOnly);
+        if (aggregateThreshold > 0) {
+            errorHandler.setAggregateThreshold(aggregateThreshold);
+        }
+        errorHandler.setErrorBudget(errorBudget);
+        return errorHandler;
     }
 
     private static void usage() {
-        System.out.println("Usage:");
-        System.out.println("");
-        System.out.println("    java -jar vnu.jar [--errors-only] [--Werror] [--exit-zero-always]");
-        System.out.println("         [--asciiquotes] [--user-agent USER_AGENT] [--no-langdetect]");
-        System.out.println("         [--no-stream] [--filterfile FILENAME] [--filterpattern PATTERN]");
-        System.out.println("         [--css] [--skip-non-css] [--also-check-css]");
-        System.out.println("         [--svg] [--skip-non-svg] [--also-check-svg]");
-        System.out.println("         [--html] [--skip-non-html] [--format gnu|xml|json|text]");
-        System.out.println("         [--help] [--verbose] [--version] FILES");
-        System.out.println("");
-        System.out.println("    java -cp vnu.jar nu.validator.servlet.Main 8888");
-        System.out.println("");
-        System.out.println("    java -cp vnu.jar nu.validator.client.HttpClient FILES");
-        System.out.println("");
-        System.out.println("For detailed usage information, use \"java -jar vnu.jar --help\" or see:");
-        System.out.println("");
-        System.out.println("  http://validator.github.io/");
-        System.out.println("");
-        System.out.println("To read from stdin, use \"-\" as the filename, like this: \"java -jar vnu.jar - \".");
+        stdout.println("Usage:");
+        stdout.println("");
+        stdout.println("    java -jar vnu.jar [--errors-only] [--Werror] [--exit-zero-always]");
+        stdout.println("         [--asciiquotes] [--user-agent USER_AGENT] [--no-langdetect]");
+        stdout.println("         [--no-stream] [--filterfile FILENAME] [--filterpattern PATTERN]");
+        stdout.println("         [--aggregate N] [--fail-fast] [--error-budget N]");
+        stdout.println("         [--css] [--skip-non-css] [--also-check-css]");
+        stdout.println("         [--svg] [--skip-non-svg] [--also-check-svg]");
+        stdout.println("         [--html] [--skip-non-html] [--format gnu|xml|json|ndjson|cbor|text]");
+        stdout.println("         [--help] [--verbose] [--version] FILES");
+        stdout.println("");
+        stdout.println("    java -cp vnu.jar nu.validator.servlet.Main 8888");
+        stdout.println("");
+        stdout.println("    java -cp vnu.jar nu.validator.client.HttpClient FILES");
+        stdout.println("");
+        stdout.println("    java -jar vnu.jar [OPTIONS] --urls-from FILE [--concurrency N]");
+        stdout.println("         [--per-host N] [--host-delay MILLISECONDS] [--max-size BYTES]");
+        stdout.println("");
+        stdout.println("    java -jar vnu.jar [OPTIONS] --crawl URL [--crawl-depth N]");
+        stdout.println("         [--crawl-limit N] [--crawl-samples N] [--concurrency N]");
+        stdout.println("         [--per-host N] [--host-delay MILLISECONDS] [--max-size BYTES]");
+        stdout.println("");
+        stdout.println("    java -jar vnu.jar --daemon [--port N]");
+        stdout.println("    java -jar vnu.jar --client [--port N] [OPTIONS] FILES");
+        stdout.println("");
+        stdout.println("For detailed usage information, use \"java -jar vnu.jar --help\" or see:");
+        stdout.println("");
+        stdout.println("  http://validator.github.io/");
+        stdout.println("");
+        stdout.println("To read from stdin, use \"-\" as the filename, like this: \"java -jar vnu.jar - \".");
     }
 
     private static void help() {
         try (InputStream help = SimpleCommandLineValidator.class.getClassLoader().getResourceAsStream(
                 "nu/validator/localentities/files/cli-help")) {
-            System.out.println("");
+            stdout.println("");
             for (int b = help.read(); b != -1; b = help.read()) {
-                System.out.write(b);
+                stdout.write(b);
             }
         } catch (IOException e) {
             throw new RuntimeException(e);
@@ -30,6 +30,7 @@ import java.io.InputStreamReader;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
@@ -37,6 +38,12 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
 import org.xml.sax.SAXException;
@@ -55,6 +62,60 @@ import nu.validator.validation.SimpleDocumentValidator;
 @SuppressWarnings("unchecked")
 public class TestRunner extends MessageEmitterAdapter {
 
+    // p{C} = Other = Control+Format+Private_Use+Surrogate+Unassigned
+    // http://www.regular-expressions.info/unicode.html#category
+    // http://www.unicode.org/reports/tr18/#General_Category_Property
+    private static final Pattern OTHER_CHARACTERS = Pattern.compile("\\p{C}");
+
+    private static final Pattern DATETIME_MESSAGE = Pattern.compile(
+            "(Bad datetime with timezone: .+) (Bad date: .+)");
+
+    private enum Expectation {
+        VALID, INVALID, HAS_WARNING
+    }
+
+    /**
+     * A file to check, with the schema to check it against and what the
+     * result should be.
+     */
+    private static final class Test {
+
+        final File file;
+
+        final String schemaUrl;
+
+        final Expectation expectation;
+
+        Test(File file, String schemaUrl, Expectation expectation) {
+            this.file = file;
+            this.schemaUrl = schemaUrl;
+            this.expectation = expectation;
+        }
+    }
+
+    /**
+     * What checking a test file wrote and found, held until the results of
+     * all the files before it have been reported.
+     */
+    private static final class Result {
+
+        final String out;
+
+        final String err;
+
+        final boolean failed;
+
+        final Map<String, String> reportedMessages;
+
+        Result(String out, String err, boolean failed,
+                Map<String, String> reportedMessages) {
+            this.out = out;
+            this.err = err;
+            this.failed = failed;
+            this.reportedMessages = reportedMessages;
+        }
+    }
+
     private boolean inError = false;
 
     private boolean emitMessages = false;
@@ -83,12 +144,22 @@ public class TestRunner extends MessageEmitterAdapter {
 
     private static boolean verbose;
 
+    private static int threads = 1;
+
+    private static int shardIndex = 0;
+
+    private static int shardCount = 1;
+
     private File baseDir = null;
 
     private Map<String, String> expectedMessages;
 
     private Map<String, String> reportedMessages;
 
+    private Result[] results;
+
+    private int nextResult;
+
     public TestRunner() throws IOException {
         reportedMessages = new LinkedHashMap<>();
         validator = new SimpleDocumentValidator(true, false, false);
@@ -103,6 +174,17 @@ public class TestRunner extends MessageEmitterAdapter {
         }
     }
 
+    /**
+     * Creates a runner that checks files for <code>coordinator</code> on
+     * a thread of its own.
+     */
+    private TestRunner(TestRunner coordinator) throws IOException {
+        this();
+        this.baseDir = coordinator.baseDir;
+        this.expectedMessages = coordinator.expectedMessages;
+        this.schema = coordinator.schema;
+    }
+
     private URL getFileURL(File file) throws MalformedURLException {
         return file.toURI().toURL();
     }
@@ -194,188 +276,177 @@ public class TestRunner extends MessageEmitterAdapter {
         return false;
     }
 
-    private void checkFiles(List<File> files) throws IOException {
-        for (File file : files) {
-            if (isIgnorable(file)) {
-                continue;
-            }
-            reset();
-            emitMessages = true;
-            try {
-                if (file.isDirectory()) {
-                    recurseDirectory(file);
-                } else {
-                    checkHtmlFile(file);
-                }
-            } catch (IOException | SAXException e) {
-            }
-            if (inError) {
-                failed = true;
+    private void checkValidFile(File file) throws IOException {
+        if (isIgnorable(file)) {
+            return;
+        }
+        reset();
+        emitMessages = true;
+        try {
+            if (file.isDirectory()) {
+                recurseDirectory(file);
+            } else {
+                checkHtmlFile(file);
             }
+        } catch (IOException | SAXException e) {
+        }
+        if (inError) {
+            failed = true;
         }
     }
 
     private boolean messageMatches(String testFilename) {
-        // p{C} = Other = Control+Format+Private_Use+Surrogate+Unassigned
-        // http://www.regular-expressions.info/unicode.html#category
-        // http://www.unicode.org/reports/tr18/#General_Category_Property
-        String messageReported = exception.getMessage().replaceAll("\\p{C}",
-                "?");
-        String messageExpected = expectedMessages.get(testFilename).replaceAll(
-                "\\p{C}", "?");
-        // FIXME: The string replacements below are a hack to "normalize"
+        return normalize(exception.getMessage()).equals(
+                normalize(expectedMessages.get(testFilename)));
+    }
+
+    private static String normalize(String message) {
+        message = OTHER_CHARACTERS.matcher(message).replaceAll("?");
+        // FIXME: The string replacement below is a hack to "normalize"
         // error messages reported for bad values of the ins/del datetime
         // attribute, to work around the fact that in Java 8, parts of
         // those error messages don't always get emitted in the same order
         // that they do in Java 7 and earlier.
-        Pattern p;
-        p = Pattern.compile("(Bad datetime with timezone: .+) (Bad date: .+)");
-        messageExpected = p.matcher(messageExpected).replaceAll("$2 $1");
-        messageReported = p.matcher(messageReported).replaceAll("$2 $1");
-        return messageReported.equals(messageExpected);
+        return DATETIME_MESSAGE.matcher(message).replaceAll("$2 $1");
     }
 
-    private void checkInvalidFiles(List<File> files) throws IOException {
+    private void checkInvalidFile(File file) throws IOException {
         String testFilename;
         expectingError = true;
-        for (File file : files) {
-            if (isIgnorable(file)) {
-                continue;
-            }
-            reset();
-            try {
-                if (file.isDirectory()) {
-                    recurseDirectory(file);
-                } else {
-                    checkHtmlFile(file);
-                }
-            } catch (IOException | SAXException e) {
+        if (isIgnorable(file)) {
+            return;
+        }
+        reset();
+        try {
+            if (file.isDirectory()) {
+                recurseDirectory(file);
+            } else {
+                checkHtmlFile(file);
             }
-            if (exception != null) {
-                testFilename = this.getRelativePathname(file, baseDir);
-                if (writeMessages) {
-                    reportedMessages.put(testFilename, exception.getMessage());
-                } else if (expectedMessages != null
-                        && expectedMessages.get(testFilename) == null) {
-                    try {
-                        err.println(String.format(
-                                "\"%s\": warning: No expected message in"
-                                        + " messages file.",
-                                this.getFileURL(file)));
-                        err.flush();
-                    } catch (MalformedURLException e) {
-                        throw new RuntimeException(e);
-                    }
-                } else if (expectedMessages != null
-                        && !messageMatches(testFilename)) {
-                    failed = true;
-                    try {
-                        err.println(String.format(
-                                "\"%s\": error: Expected \"%s\""
-                                        + " but instead encountered \"%s\".",
-                                this.getFileURL(file),
-                                expectedMessages.get(testFilename),
-                                exception.getMessage()));
-                        err.flush();
-                    } catch (MalformedURLException e) {
-                        throw new RuntimeException(e);
-                    }
+        } catch (IOException | SAXException e) {
+        }
+        if (exception != null) {
+            testFilename = this.getRelativePathname(file, baseDir);
+            if (writeMessages) {
+                reportedMessages.put(testFilename, exception.getMessage());
+            } else if (expectedMessages != null
+                    && expectedMessages.get(testFilename) == null) {
+                try {
+                    err.println(String.format(
+                            "\"%s\": warning: No expected message in"
+                                    + " messages file.",
+                            this.getFileURL(file)));
+                    err.flush();
+                } catch (MalformedURLException e) {
+                    throw new RuntimeException(e);
                 }
-            }
-            if (!inError) {
+            } else if (expectedMessages != null
+                    && !messageMatches(testFilename)) {
                 failed = true;
                 try {
                     err.println(String.format(
-                            "\"%s\": error: Expected an error but did not"
-                                    + " encounter any.",
-                            this.getFileURL(file)));
+                            "\"%s\": error: Expected \"%s\""
+                                    + " but instead encountered \"%s\".",
+                            this.getFileURL(file),
+                            expectedMessages.get(testFilename),
+                            exception.getMessage()));
                     err.flush();
                 } catch (MalformedURLException e) {
                     throw new RuntimeException(e);
                 }
             }
         }
+        if (!inError) {
+            failed = true;
+            try {
+                err.println(String.format(
+                        "\"%s\": error: Expected an error but did not"
+                                + " encounter any.",
+                        this.getFileURL(file)));
+                err.flush();
+            } catch (MalformedURLException e) {
+                throw new RuntimeException(e);
+            }
+        }
     }
 
-    private void checkHasWarningFiles(List<File> files) throws IOException {
+    private void checkHasWarningFile(File file) throws IOException {
         String testFilename;
         expectingError = false;
-        for (File file : files) {
-            if (isIgnorable(file)) {
-                continue;
-            }
-            reset();
-            try {
-                if (file.isDirectory()) {
-                    recurseDirectory(file);
-                } else {
-                    checkHtmlFile(file);
-                }
-            } catch (IOException | SAXException e) {
-            }
-            if (exception != null) {
-                testFilename = this.getRelativePathname(file, baseDir);
-                if (writeMessages) {
-                    reportedMessages.put(testFilename, exception.getMessage());
-                } else if (expectedMessages != null
-                        && expectedMessages.get(testFilename) == null) {
-                    try {
-                        err.println(String.format(
-                                "\"%s\": warning: No expected message in"
-                                        + " messages file.",
-                                this.getFileURL(file)));
-                        err.flush();
-                    } catch (MalformedURLException e) {
-                        throw new RuntimeException(e);
-                    }
-                } else if (expectedMessages != null
-                        && !messageMatches(testFilename)) {
-                    try {
-                        err.println(String.format(
-                                "\"%s\": error: Expected \"%s\""
-                                        + " but instead encountered \"%s\".",
-                                this.getFileURL(file),
-                                expectedMessages.get(testFilename),
-                                exception.getMessage()));
-                        err.flush();
-                    } catch (MalformedURLException e) {
-                        throw new RuntimeException(e);
-                    }
-                }
+        if (isIgnorable(file)) {
+            return;
+        }
+        reset();
+        try {
+            if (file.isDirectory()) {
+                recurseDirectory(file);
+            } else {
+                checkHtmlFile(file);
             }
-            if (inError) {
-                failed = true;
+        } catch (IOException | SAXException e) {
+        }
+        if (exception != null) {
+            testFilename = this.getRelativePathname(file, baseDir);
+            if (writeMessages) {
+                reportedMessages.put(testFilename, exception.getMessage());
+            } else if (expectedMessages != null
+                    && expectedMessages.get(testFilename) == null) {
                 try {
                     err.println(String.format(
-                            "\"%s\": error: Expected a warning but encountered"
-                                    + " an error first.",
+                            "\"%s\": warning: No expected message in"
+                                    + " messages file.",
                             this.getFileURL(file)));
                     err.flush();
                 } catch (MalformedURLException e) {
                     throw new RuntimeException(e);
                 }
-            } else if (!exceptionIsWarning) {
+            } else if (expectedMessages != null
+                    && !messageMatches(testFilename)) {
                 try {
                     err.println(String.format(
-                            "\"%s\": error: Expected a warning but did not"
-                                    + " encounter any.",
-                            this.getFileURL(file)));
+                            "\"%s\": error: Expected \"%s\""
+                                    + " but instead encountered \"%s\".",
+                            this.getFileURL(file),
+                            expectedMessages.get(testFilename),
+                            exception.getMessage()));
                     err.flush();
                 } catch (MalformedURLException e) {
                     throw new RuntimeException(e);
                 }
             }
-            if (inError) {
-                failed = true;
-                try {
-                    err.println(String.format(
-                            "\"%s\": error: Expected a warning only but"
-                                    + " encountered at least one error.",
-                            this.getFileURL(file)));
-                    err.flush();
-                } catch (MalformedURLException e) {
-                    throw new RuntimeException(e);
-                }
+        }
+        if (inError) {
+            failed = true;
+            try {
+                err.println(String.format(
+                        "\"%s\": error: Expected a warning but encountered"
+                                + " an error first.",
+                        this.getFileURL(file)));
+                err.flush();
+            } catch (MalformedURLException e) {
+                throw new RuntimeException(e);
+            }
+        } else if (!exceptionIsWarning) {
+            try {
+                err.println(String.format(
+                        "\"%s\": error: Expected a warning but did not"
+                                + " encounter any.",
+                        this.getFileURL(file)));
+                err.flush();
+            } catch (MalformedURLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        if (inError) {
+            failed = true;
+            try {
+                err.println(String.format(
+                        "\"%s\": error: Expected a warning only but"
+                                + " encountered at least one error.",
+                        this.getFileURL(file)));
+                err.flush();
+            } catch (MalformedURLException e) {
+                throw new RuntimeException(e);
             }
         }
     }
@@ -384,14 +455,12 @@ public class TestRunner extends MessageEmitterAdapter {
         EXPECTING_INVALID_FILES, EXPECTING_VALID_FILES, EXPECTING_ANYTHING
     }
 
-    private void checkTestDirectoryAgainstSchema(File directory,
-            String schemaUrl) throws SAXException, Exception {
-        validator.setUpMainSchema(schemaUrl, this);
-        checkTestFiles(directory, State.EXPECTING_ANYTHING);
-    }
-
-    private void checkTestFiles(File directory, State state)
-            throws SAXException, IOException {
+    /**
+     * Adds the test files in <code>directory</code> to <code>tests</code>
+     * in the order in which they are checked and reported.
+     */
+    private void collectTestFiles(File directory, State state,
+            String schemaUrl, List<Test> tests) throws IOException {
         File[] files = directory.listFiles();
         List<File> validFiles = new ArrayList<>();
         List<File> invalidFiles = new ArrayList<>();
@@ -412,13 +481,16 @@ public class TestRunner extends MessageEmitterAdapter {
         for (File file : files) {
             if (file.isDirectory()) {
                 if (state != State.EXPECTING_ANYTHING) {
-                    checkTestFiles(file, state);
+                    collectTestFiles(file, state, schemaUrl, tests);
                 } else if ("invalid".equals(file.getName())) {
-                    checkTestFiles(file, State.EXPECTING_INVALID_FILES);
+                    collectTestFiles(file, State.EXPECTING_INVALID_FILES,
+                            schemaUrl, tests);
                 } else if ("valid".equals(file.getName())) {
-                    checkTestFiles(file, State.EXPECTING_VALID_FILES);
+                    collectTestFiles(file, State.EXPECTING_VALID_FILES,
+                            schemaUrl, tests);
                 } else {
-                    checkTestFiles(file, State.EXPECTING_ANYTHING);
+                    collectTestFiles(file, State.EXPECTING_ANYTHING,
+                            schemaUrl, tests);
                 }
             } else if (isCheckableFile(file)) {
                 if (state == State.EXPECTING_INVALID_FILES) {
@@ -434,24 +506,142 @@ public class TestRunner extends MessageEmitterAdapter {
                 }
             }
         }
-        if (validFiles.size() > 0) {
-            validator.setUpValidatorAndParsers(this, false, false);
-            checkFiles(validFiles);
+        addTests(validFiles, schemaUrl, Expectation.VALID, tests);
+        addTests(invalidFiles, schemaUrl, Expectation.INVALID, tests);
+        addTests(hasWarningFiles, schemaUrl, Expectation.HAS_WARNING, tests);
+    }
+
+    /**
+     * Adds the files that belong to this shard.
+     */
+    private void addTests(List<File> files, String schemaUrl,
+            Expectation expectation, List<Test> tests) throws IOException {
+        for (File file : files) {
+            if (shardCount > 1 && (getRelativePathname(file,
+                    baseDir).hashCode() & Integer.MAX_VALUE)
+                    % shardCount != shardIndex) {
+                continue;
+            }
+            tests.add(new Test(file, schemaUrl, expectation));
         }
-        if (invalidFiles.size() > 0) {
+    }
+
+    private void checkTest(Test test) throws SAXException, Exception {
+        if (!test.schemaUrl.equals(validator.getMainSchemaUrl())) {
+            validator.setUpMainSchema(test.schemaUrl, this);
             validator.setUpValidatorAndParsers(this, false, false);
-            checkInvalidFiles(invalidFiles);
         }
-        if (hasWarningFiles.size() > 0) {
-            validator.setUpValidatorAndParsers(this, false, false);
-            checkHasWarningFiles(hasWarningFiles);
+        switch (test.expectation) {
+            case VALID:
+                checkValidFile(test.file);
+                break;
+            case INVALID:
+                checkInvalidFile(test.file);
+                break;
+            case HAS_WARNING:
+                checkHasWarningFile(test.file);
+                break;
         }
-        if (writeMessages) {
-            OutputStreamWriter out = new OutputStreamWriter(
-                    new FileOutputStream(messagesFile), "utf-8");
-            try (BufferedWriter bw = new BufferedWriter(out)) {
-                bw.write(JSON.toString(reportedMessages));
+    }
+
+    /**
+     * Checks the tests on <code>threads</code> threads, each with its own
+     * validator. The threads take the next unchecked file as they become
+     * free, and each file's messages are held back until those of the
+     * files before it have been written, so the output is the same as that
+     * of a sequential run.
+     *
+     * <p>Whether RDFa is fully supported is a system property set along
+     * with the schema, so all the files for one schema are checked before
+     * any thread moves on to the next schema.
+     */
+    private void checkTestsConcurrently(final List<Test> tests)
+            throws SAXException, Exception {
+        Map<String, List<Test>> bySchema = new LinkedHashMap<>();
+        final Map<Test, Integer> indexes = new HashMap<>();
+        for (Test test : tests) {
+            List<Test> list = bySchema.get(test.schemaUrl);
+            if (list == null) {
+                list = new ArrayList<>();
+                bySchema.put(test.schemaUrl, list);
+            }
+            list.add(test);
+            indexes.put(test, indexes.size());
+        }
+        results = new Result[tests.size()];
+        nextResult = 0;
+        List<TestRunner> runners = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            runners.add(new TestRunner(this));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (final List<Test> list : bySchema.values()) {
+                final AtomicInteger next = new AtomicInteger();
+                List<Callable<Void>> jobs = new ArrayList<>();
+                for (final TestRunner runner : runners) {
+                    jobs.add(new Callable<Void>() {
+                        @Override
+                        public Void call() throws Exception {
+                            int i;
+                            while ((i = next.getAndIncrement()) < list.size()) {
+                                Test test = list.get(i);
+                                addResult(indexes.get(test),
+                                        runner.checkBuffered(test));
+                            }
+                            return null;
+                        }
+                    });
+                }
+                for (Future<Void> future : executor.invokeAll(jobs)) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException e) {
+                        if (e.getCause() instanceof Exception) {
+                            throw (Exception) e.getCause();
+                        }
+                        throw e;
+                    }
+                }
             }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Checks a test with output going to buffers instead of the console.
+     */
+    private Result checkBuffered(Test test) throws SAXException, Exception {
+        StringWriter outBuffer = new StringWriter();
+        StringWriter errBuffer = new StringWriter();
+        out = new PrintWriter(outBuffer);
+        err = new PrintWriter(errBuffer);
+        failed = false;
+        checkTest(test);
+        Result result = new Result(outBuffer.toString(),
+                errBuffer.toString(), failed, reportedMessages);
+        reportedMessages = new LinkedHashMap<>();
+        return result;
+    }
+
+    /**
+     * Records the result of the test at <code>index</code> and writes out
+     * all the results that no longer wait for an earlier one.
+     */
+    private synchronized void addResult(int index, Result result) {
+        results[index] = result;
+        while (nextResult < results.length && results[nextResult] != null) {
+            result = results[nextResult];
+            results[nextResult++] = null;
+            out.write(result.out);
+            out.flush();
+            err.write(result.err);
+            err.flush();
+            if (result.failed) {
+                failed = true;
+            }
+            reportedMessages.putAll(result.reportedMessages);
         }
     }
 
@@ -464,19 +654,35 @@ public class TestRunner extends MessageEmitterAdapter {
         } else {
             baseDir = new File(System.getProperty("user.dir"));
         }
+        List<Test> tests = new ArrayList<>();
         for (File directory : baseDir.listFiles()) {
             if (directory.isDirectory()) {
                 if (directory.getName().contains("rdfalite")) {
-                    checkTestDirectoryAgainstSchema(directory,
-                            "http://s.validator.nu/html5-rdfalite.rnc");
+                    collectTestFiles(directory, State.EXPECTING_ANYTHING,
+                            "http://s.validator.nu/html5-rdfalite.rnc", tests);
                 } else if (directory.getName().contains("xhtml")) {
-                    checkTestDirectoryAgainstSchema(directory,
-                            "http://s.validator.nu/xhtml5-all.rnc");
+                    collectTestFiles(directory, State.EXPECTING_ANYTHING,
+                            "http://s.validator.nu/xhtml5-all.rnc", tests);
                 } else {
-                    checkTestDirectoryAgainstSchema(directory, schema);
+                    collectTestFiles(directory, State.EXPECTING_ANYTHING,
+                            schema, tests);
                 }
             }
         }
+        if (threads > 1) {
+            checkTestsConcurrently(tests);
+        } else {
+            for (Test test : tests) {
+                checkTest(test);
+            }
+        }
+        if (writeMessages) {
+            OutputStreamWriter out = new OutputStreamWriter(
+                    new FileOutputStream(messagesFile), "utf-8");
+            try (BufferedWriter bw = new BufferedWriter(out)) {
+                bw.write(JSON.toString(reportedMessages));
+            }
+        }
         if (verbose) {
             if (failed) {
                 out.println("Failure!");
@@ -579,6 +785,34 @@ public class TestRunner extends MessageEmitterAdapter {
                 writeMessages = true;
             } else if (arg.startsWith("--ignore=")) {
                 ignoreList = arg.substring(9, arg.length()).split(",");
+            } else if (arg.startsWith("--threads=")) {
+                try {
+                    threads = Integer.parseInt(arg.substring(10));
+                } catch (NumberFormatException e) {
+                    threads = 0;
+                }
+                if (threads < 1) {
+                    System.out.println("\nError: The \"--threads\" option"
+                            + " requires a positive number.");
+                    usage();
+                    System.exit(1);
+                }
+            } else if (arg.startsWith("--shard=")) {
+                String[] shard = arg.substring(8).split("/");
+                try {
+                    shardIndex = Integer.parseInt(shard[0]) - 1;
+                    shardCount = Integer.parseInt(shard[1]);
+                } catch (NumberFormatException
+                        | ArrayIndexOutOfBoundsException e) {
+                    shardCount = 0;
+                }
+                if (shard.length != 2 || shardCount < 1 || shardIndex < 0
+                        || shardIndex >= shardCount) {
+                    System.out.println("\nError: The \"--shard\" option"
+                            + " requires a value like \"2/4\".");
+                    usage();
+                    System.exit(1);
+                }
             } else if (arg.startsWith("--")) {
                 System.out.println(String.format(
                         "\nError: There is no option \"%s\".", arg));
@@ -612,6 +846,11 @@ public class TestRunner extends MessageEmitterAdapter {
             usage();
             System.exit(1);
         }
+        if (writeMessages && shardCount > 1) {
+            System.out.println("\nError: The \"--write-messages\" option"
+                    + " can\u2019t be combined with \"--shard\".");
+            System.exit(1);
+        }
         TestRunner tr = new TestRunner();
         if (tr.runTestSuite()) {
             System.exit(0);
@@ -623,10 +862,14 @@ public class TestRunner extends MessageEmitterAdapter {
     private static void usage() {
         System.out.println("\nUsage:");
         System.out.println("\n    java nu.validator.client.TestRunner [--errors-only] [--write-messages]");
-        System.out.println("          [--verbose] [MESSAGES.json]");
+        System.out.println("          [--verbose] [--ignore=PATHS] [--threads=N] [--shard=I/N]");
+        System.out.println("          [MESSAGES.json]");
         System.out.println("\n...where the MESSAGES.json file contains name/value pairs in which the name is");
         System.out.println("a pathname of a document to check and the value is the first error message or");
         System.out.println("warning message the validator is expected to report when checking that document.");
         System.out.println("Use the --write-messages option to create the file.");
+        System.out.println("\nUse --threads=N to check files on N threads; the output is the same as with");
+        System.out.println("one thread. Use --shard=I/N to check only the Ith of N disjoint parts of the");
+        System.out.println("test files, e.g. on separate machines.");
     }
 }
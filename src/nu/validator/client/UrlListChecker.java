@@ -0,0 +1,513 @@
+/*
+ * Copyright (c) 2026 Mozilla Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package nu.validator.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import nu.validator.io.SystemIdIOException;
+import nu.validator.messages.ErrorBudgetExceededException;
+import nu.validator.messages.MessageEmitterAdapter;
+import nu.validator.validation.SimpleDocumentValidator;
+import nu.validator.xml.PrudentHttpEntityResolver;
+import nu.validator.xml.TypedInputSource;
+
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+/**
+ * Checks a list of http/https URLs for <code>--urls-from</code>, fetching
+ * documents on one set of threads while checking the documents already
+ * fetched on another.
+ *
+ * <p>Fetch threads bound the number of requests in flight. They take URLs
+ * from a per-host scheduler that allows at most <code>perHost</code>
+ * requests to a host at a time and starts requests to a host at least
+ * <code>hostDelay</code> milliseconds apart; hosts take turns, so a long
+ * run of URLs on one host doesn't hold up the others. Hosts are told apart
+ * by the authority of the listed URL, not of any redirect target. All
+ * requests go through the client set up by
+ * <code>PrudentHttpEntityResolver.setParams()</code>.
+ *
+ * <p>Fetched documents are read into memory and handed over through a
+ * bounded queue, so fetching pauses when checking falls behind. Each
+ * <code>Worker</code> owns a validator and an error handler writing to a
+ * buffer; the buffer is copied to the output as soon as a document has
+ * been checked, so results appear in completion order, not list order.
+ *
+ * <p>Subclasses may queue more URLs with {@link #add(String)} from
+ * {@link #checked(Worker, String)}; the run ends once no URLs are pending
+ * and every queued URL has been checked.
+ */
+public class UrlListChecker {
+
+    /**
+     * A validator with its own error handler, whose emitter writes to
+     * <code>buffer</code>.
+     */
+    public static final class Worker {
+
+        final SimpleDocumentValidator validator;
+
+        final MessageEmitterAdapter errorHandler;
+
+        final ByteArrayOutputStream buffer;
+
+        public Worker(SimpleDocumentValidator validator,
+                MessageEmitterAdapter errorHandler,
+                ByteArrayOutputStream buffer) {
+            this.validator = validator;
+            this.errorHandler = errorHandler;
+            this.buffer = buffer;
+        }
+
+        public SimpleDocumentValidator getValidator() {
+            return validator;
+        }
+
+        public MessageEmitterAdapter getErrorHandler() {
+            return errorHandler;
+        }
+    }
+
+    private static final class Host {
+
+        final ArrayDeque<String> pending = new ArrayDeque<>();
+
+        int active;
+
+        long nextStart;
+    }
+
+    /**
+     * Records what the resolver reports while fetching, to be replayed
+     * into the error handler of the worker that checks the document.
+     */
+    private static final class RecordingErrorHandler implements ErrorHandler {
+
+        final List<SAXParseException> exceptions = new ArrayList<>();
+
+        final List<String> types = new ArrayList<>();
+
+        @Override
+        public void warning(SAXParseException e) throws SAXException {
+            types.add("warning");
+            exceptions.add(e);
+        }
+
+        @Override
+        public void error(SAXParseException e) throws SAXException {
+            types.add("error");
+            exceptions.add(e);
+        }
+
+        @Override
+        public void fatalError(SAXParseException e) throws SAXException {
+            types.add("fatal");
+            exceptions.add(e);
+        }
+
+        void replay(ErrorHandler errorHandler) throws SAXException {
+            for (int i = 0; i < exceptions.size(); i++) {
+                String type = types.get(i);
+                if ("warning".equals(type)) {
+                    errorHandler.warning(exceptions.get(i));
+                } else if ("error".equals(type)) {
+                    errorHandler.error(exceptions.get(i));
+                } else {
+                    errorHandler.fatalError(exceptions.get(i));
+                }
+            }
+        }
+    }
+
+    private static final class Fetched {
+
+        final String url;
+
+        final RecordingErrorHandler messages;
+
+        final TypedInputSource input;
+
+        final IOException failure;
+
+        Fetched(String url, RecordingErrorHandler messages,
+                TypedInputSource input, IOException failure) {
+            this.url = url;
+            this.messages = messages;
+            this.input = input;
+            this.failure = failure;
+        }
+    }
+
+    private static final Fetched END = new Fetched(null, null, null, null);
+
+    private final String userAgent;
+
+    private final boolean allowCss;
+
+    private final int concurrency;
+
+    private final int perHost;
+
+    private final long hostDelay;
+
+    private final OutputStream out;
+
+    private final PrintStream names;
+
+    /**
+     * Held while a document's messages are written, rather than the stream
+     * itself, whose monitor a stream that waits for its reader gives up.
+     */
+    private final Object outputLock = new Object();
+
+    private long sizeLimit = -1;
+
+    private final Map<String, Host> hosts = new HashMap<>();
+
+    /**
+     * Hosts with pending URLs, in the order they take turns.
+     */
+    private final ArrayDeque<Host> turns = new ArrayDeque<>();
+
+    /**
+     * URLs queued but not yet checked.
+     */
+    private int outstanding;
+
+    /**
+     * Constructor.
+     *
+     * @param userAgent
+     *            the User-Agent request header
+     * @param allowCss
+     *            <code>true</code> to accept <code>text/css</code>
+     *            responses
+     * @param concurrency
+     *            the number of requests in flight at most
+     * @param perHost
+     *            the number of requests in flight to one host at most
+     * @param hostDelay
+     *            the minimum time between the starts of two requests to
+     *            one host, in milliseconds
+     * @param out
+     *            where the messages go
+     * @param names
+     *            where to print each URL before its messages, or
+     *            <code>null</code>
+     */
+    public UrlListChecker(String userAgent, boolean allowCss, int concurrency,
+            int perHost, long hostDelay, OutputStream out, PrintStream names) {
+        if (concurrency < 1 || perHost < 1 || hostDelay < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.userAgent = userAgent;
+        this.allowCss = allowCss;
+        this.concurrency = concurrency;
+        this.perHost = perHost;
+        this.hostDelay = hostDelay;
+        this.out = out;
+        this.names = names;
+    }
+
+    /**
+     * Sets the largest document to fetch. Larger ones are reported as
+     * failed fetches.
+     *
+     * @param sizeLimit
+     *            the limit in bytes, or -1 for none
+     */
+    public void setSizeLimit(long sizeLimit) {
+        this.sizeLimit = sizeLimit;
+    }
+
+    /**
+     * Fetches and checks the given URLs, returning once all of them have
+     * been checked.
+     */
+    public void check(List<String> urls, List<Worker> workers)
+            throws IOException, SAXException {
+        for (String url : urls) {
+            add(url);
+        }
+        final BlockingQueue<Fetched> fetched = new ArrayBlockingQueue<>(
+                2 * workers.size());
+        final int checkers = workers.size();
+        final AtomicInteger fetchers = new AtomicInteger(concurrency);
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency
+                + checkers);
+        CompletionService<Void> tasks = new ExecutorCompletionService<>(pool);
+        try {
+            for (int i = 0; i < concurrency; i++) {
+                tasks.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        try {
+                            String url;
+                            while ((url = next()) != null) {
+                                fetched.put(fetch(url));
+                            }
+                        } finally {
+                            if (fetchers.decrementAndGet() == 0) {
+                                for (int j = 0; j < checkers; j++) {
+                                    fetched.put(END);
+                                }
+                            }
+                        }
+                        return null;
+                    }
+                });
+            }
+            for (final Worker worker : workers) {
+                tasks.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        Fetched document;
+                        while ((document = fetched.take()) != END) {
+                            check(worker, document);
+                        }
+                        return null;
+                    }
+                });
+            }
+            for (int i = 0; i < concurrency + checkers; i++) {
+                await(tasks.take());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static String hostOf(String url) {
+        try {
+            String authority = new URL(url).getAuthority();
+            return authority == null ? "" : authority.toLowerCase(Locale.ROOT);
+        } catch (MalformedURLException e) {
+            return "";
+        }
+    }
+
+    /**
+     * Queues a URL to be fetched and checked.
+     */
+    protected synchronized void add(String url) {
+        String key = hostOf(url);
+        Host host = hosts.get(key);
+        if (host == null) {
+            host = new Host();
+            hosts.put(key, host);
+        }
+        if (host.pending.isEmpty()) {
+            turns.add(host);
+        }
+        host.pending.add(url);
+        outstanding++;
+        notifyAll();
+    }
+
+    /**
+     * Called on the worker's thread after a document has been checked and
+     * its messages written. Does nothing by default.
+     *
+     * @param worker
+     *            the worker that checked the document
+     * @param url
+     *            the URL as queued
+     */
+    protected void checked(Worker worker, String url) throws IOException,
+            SAXException {
+    }
+
+    /**
+     * Waits until some host may be sent another request and takes its next
+     * URL.
+     *
+     * @return the URL, or <code>null</code> if no URLs are left
+     */
+    private synchronized String next() throws InterruptedException {
+        for (;;) {
+            if (turns.isEmpty()) {
+                if (outstanding == 0) {
+                    return null;
+                }
+                wait();
+                continue;
+            }
+            long now = System.currentTimeMillis();
+            long wait = Long.MAX_VALUE;
+            for (Iterator<Host> i = turns.iterator(); i.hasNext();) {
+                Host host = i.next();
+                if (host.active >= perHost) {
+                    continue;
+                }
+                if (host.nextStart > now) {
+                    wait = Math.min(wait, host.nextStart - now);
+                    continue;
+                }
+                String url = host.pending.poll();
+                host.active++;
+                host.nextStart = now + hostDelay;
+                i.remove();
+                if (!host.pending.isEmpty()) {
+                    turns.add(host);
+                }
+                return url;
+            }
+            if (wait == Long.MAX_VALUE) {
+                wait();
+            } else {
+                wait(wait);
+            }
+        }
+    }
+
+    private synchronized void done(String url) {
+        hosts.get(hostOf(url)).active--;
+        notifyAll();
+    }
+
+    private synchronized void finished() {
+        outstanding--;
+        notifyAll();
+    }
+
+    private Fetched fetch(String url) {
+        RecordingErrorHandler messages = new RecordingErrorHandler();
+        PrudentHttpEntityResolver httpRes = new PrudentHttpEntityResolver(
+                sizeLimit, true, messages);
+        httpRes.setAllowCss(allowCss);
+        httpRes.setAllowHtml(true);
+        httpRes.setUserAgent(userAgent);
+        try {
+            TypedInputSource input = (TypedInputSource) httpRes.resolveEntity(
+                    null, url);
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            try (InputStream in = input.getByteStream()) {
+                byte[] buffer = new byte[8192];
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    body.write(buffer, 0, n);
+                }
+            }
+            input.setByteStream(new ByteArrayInputStream(body.toByteArray()));
+            input.setSystemId(url);
+            return new Fetched(url, messages, input, null);
+        } catch (IOException e) {
+            return new Fetched(url, messages, null, e);
+        } catch (SAXException e) {
+            // Already reported to messages by the resolver.
+            return new Fetched(url, messages, null, null);
+        } finally {
+            done(url);
+        }
+    }
+
+    private void check(Worker worker, Fetched document) throws IOException,
+            SAXException {
+        MessageEmitterAdapter errorHandler = worker.errorHandler;
+        IOException failure = document.failure;
+        try {
+            document.messages.replay(errorHandler);
+            if (document.input != null) {
+                try {
+                    worker.validator.checkTypedInputSource(document.input);
+                    errorHandler.reportMemoryBudget(
+                            worker.validator.getMemoryBudget());
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            if (failure != null) {
+                errorHandler.fatalError(new SAXParseException(
+                        failure.getMessage(), null, document.url, -1, -1,
+                        new SystemIdIOException(document.url,
+                                failure.getMessage())));
+            }
+        } catch (ErrorBudgetExceededException e) {
+            // Only this document stops; the budget is per document.
+        } finally {
+            errorHandler.endFile(document.url);
+        }
+        errorHandler.flush();
+        synchronized (outputLock) {
+            if (names != null) {
+                names.println(document.url);
+            }
+            worker.buffer.writeTo(out);
+            out.flush();
+        }
+        worker.buffer.reset();
+        checked(worker, document.url);
+        finished();
+    }
+
+    /**
+     * Rethrows the exception a task failed with, if any.
+     */
+    private static void await(Future<Void> future)
+            throws InterruptedException, IOException, SAXException {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof SAXException) {
+                throw (SAXException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
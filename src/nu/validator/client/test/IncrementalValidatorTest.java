@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2026 Mozilla Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package nu.validator.client.test;
+
+import java.util.List;
+
+import nu.validator.client.IncrementalValidator;
+import nu.validator.client.MapmlCrawler;
+
+/**
+ * Edits a document through <code>IncrementalValidator</code> and compares
+ * every result with a check of the whole edited document. One feature
+ * holds an <code>input</code> that a <code>label</code> in another feature
+ * refers to. Editing text in the feature with the <code>label</code> is
+ * checked on its own, with the feature of the <code>input</code> as
+ * context; changing the ID of the <code>input</code> breaks the reference
+ * from the other feature and falls back to checking the whole document.
+ *
+ * <p>Usage: <code>IncrementalValidatorTest</code>
+ */
+public class IncrementalValidatorTest {
+
+    private static final String DOCUMENT = "<!DOCTYPE html>\n"
+            + "<html lang=\"en\">\n<head>\n<title>Features</title>\n"
+            + "</head>\n<body>\n"
+            + "<feature id=\"a\"><properties><input id=\"target\">"
+            + "</properties></feature>\n"
+            + "<feature id=\"b\"><properties><p>one</p></properties>"
+            + "</feature>\n"
+            + "<feature id=\"c\"><properties><label for=\"target\">text"
+            + "</label></properties></feature>\n"
+            + "</body>\n</html>\n";
+
+    private static int failures;
+
+    /**
+     * @param args
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        IncrementalValidator validator = new IncrementalValidator(
+                MapmlCrawler.SCHEMA, false, false);
+        List<IncrementalValidator.Message> messages = validator.validate(
+                DOCUMENT);
+        check("reference resolves before the edits",
+                count(messages, "\u201Clabel\u201D") == 0);
+
+        String document = validator.getDocument();
+        int at = document.indexOf(">text<") + 1;
+        messages = validator.edit(at, at + 4, "longer text");
+        check("edit in the label feature checked on its own",
+                validator.wasLastCheckPartial());
+        check("partial check matches a full check",
+                matchesFullCheck(validator, messages));
+        check("reference still resolves",
+                count(messages, "\u201Clabel\u201D") == 0);
+
+        document = validator.getDocument();
+        at = document.indexOf("\"target\">") + 1;
+        messages = validator.edit(at, at + 6, "moved");
+        check("changed ID falls back to a full check",
+                !validator.wasLastCheckPartial());
+        check("fallback matches a full check",
+                matchesFullCheck(validator, messages));
+        check("broken reference reported in the other feature",
+                count(messages, "\u201Clabel\u201D") == 1
+                        && line(messages, "\u201Clabel\u201D") == 9);
+
+        System.out.println(failures == 0 ? "All passed." : failures
+                + " failed.");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    private static boolean matchesFullCheck(IncrementalValidator validator,
+            List<IncrementalValidator.Message> messages) throws Exception {
+        List<IncrementalValidator.Message> full = new IncrementalValidator(
+                MapmlCrawler.SCHEMA, false, false).validate(
+                        validator.getDocument());
+        if (!full.toString().equals(messages.toString())) {
+            System.out.println("Full:        " + full);
+            System.out.println("Incremental: " + messages);
+            return false;
+        }
+        return true;
+    }
+
+    private static int count(List<IncrementalValidator.Message> messages,
+            String text) {
+        int n = 0;
+        for (IncrementalValidator.Message message : messages) {
+            if (message.getMessage().contains(text)) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    private static int line(List<IncrementalValidator.Message> messages,
+            String text) {
+        for (IncrementalValidator.Message message : messages) {
+            if (message.getMessage().contains(text)) {
+                return message.getLine();
+            }
+        }
+        return -1;
+    }
+
+    private static void check(String name, boolean passed) {
+        System.out.println((passed ? "PASS " : "FAIL ") + name);
+        if (!passed) {
+            failures++;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2026 Mozilla Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package nu.validator.client.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import nu.validator.checker.LinkCollector;
+import nu.validator.client.MapmlCrawler;
+import nu.validator.client.UrlListChecker;
+import nu.validator.messages.MessageEmitterAdapter;
+import nu.validator.messages.TextMessageEmitter;
+import nu.validator.servlet.imagereview.ImageCollector;
+import nu.validator.validation.SimpleDocumentValidator;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Crawls a small MapML service served by a stub server and checks that
+ * <code>MapmlCrawler</code> follows <code>next</code>, <code>zoomin</code>
+ * and <code>zoomout</code> links, stops at the depth and document caps,
+ * and fetches each document once however many times, and with whatever
+ * fragment, it is linked to.
+ *
+ * <p>The service is <code>a</code> linking to <code>b</code> and
+ * <code>c</code> (and back to itself), <code>b</code> linking to
+ * <code>c</code> and <code>d</code>, and <code>d</code> linking to
+ * <code>e</code>.
+ *
+ * <p>Usage: <code>MapmlCrawlerTest</code>
+ */
+public class MapmlCrawlerTest {
+
+    private static final Map<String, String[][]> LINKS = new HashMap<>();
+
+    static {
+        LINKS.put("/a.mapml", new String[][] { { "next", "b.mapml" },
+                { "zoomin", "/c.mapml" }, { "next", "b.mapml#x" },
+                { "zoomout", "a.mapml" } });
+        LINKS.put("/b.mapml", new String[][] { { "zoomin", "c.mapml" },
+                { "next", "d.mapml" } });
+        LINKS.put("/c.mapml", new String[0][]);
+        LINKS.put("/d.mapml", new String[][] { { "next", "e.mapml" } });
+        LINKS.put("/e.mapml", new String[0][]);
+    }
+
+    private static final Map<String, Integer> hits = new HashMap<>();
+
+    private static int failures;
+
+    /**
+     * @param args
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress(
+                "127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                respond(exchange);
+            }
+        });
+        server.start();
+        String start = "http://127.0.0.1:" + server.getAddress().getPort()
+                + "/a.mapml";
+        try {
+            List<UrlListChecker.Worker> workers = newWorkers(2);
+
+            MapmlCrawler crawler = crawl(start, 2, 100, workers);
+            check("links followed to the depth cap", hits("/a.mapml") == 1
+                    && hits("/b.mapml") == 1 && hits("/c.mapml") == 1
+                    && hits("/d.mapml") == 1 && hits("/e.mapml") == 0
+                    && crawler.getDocumentCount() == 4);
+            check("each document fetched once", total() == 4);
+
+            hits.clear();
+            crawler = crawl(start, 3, 3, workers);
+            check("document cap", total() == 3
+                    && crawler.getDocumentCount() == 3
+                    && hits("/a.mapml") == 1 && hits("/d.mapml") == 0
+                    && hits("/e.mapml") == 0);
+
+            hits.clear();
+            crawler = crawl(start, 0, 100, workers);
+            check("depth 0 checks only the start", total() == 1
+                    && hits("/a.mapml") == 1
+                    && crawler.getDocumentCount() == 1);
+
+            hits.clear();
+            crawler = crawl(start, 3, 100, workers);
+            check("whole service crawled", total() == 5
+                    && hits("/e.mapml") == 1
+                    && crawler.getDocumentCount() == 5);
+        } finally {
+            server.stop(0);
+        }
+        System.out.println(failures == 0 ? "All passed." : failures
+                + " failed.");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    private static MapmlCrawler crawl(String start, int maxDepth,
+            int maxDocuments, List<UrlListChecker.Worker> workers)
+            throws Exception {
+        MapmlCrawler crawler = new MapmlCrawler("MapmlCrawlerTest", 2, 2, 0,
+                maxDepth, maxDocuments, 0, new ByteArrayOutputStream(), null);
+        crawler.crawl(start, workers);
+        return crawler;
+    }
+
+    private static List<UrlListChecker.Worker> newWorkers(int count)
+            throws Exception {
+        List<UrlListChecker.Worker> workers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            SimpleDocumentValidator validator = new SimpleDocumentValidator(
+                    true, false, false);
+            MessageEmitterAdapter errorHandler = new MessageEmitterAdapter(
+                    null, validator.getSourceCode(), false,
+                    new ImageCollector(validator.getSourceCode()), 0, true,
+                    new TextMessageEmitter(buffer, false));
+            errorHandler.setHtml(true);
+            errorHandler.start(null);
+            validator.setUpMainSchema(MapmlCrawler.SCHEMA, errorHandler);
+            validator.setLinkCollector(new LinkCollector());
+            validator.setUpValidatorAndParsers(errorHandler, false, false);
+            workers.add(new UrlListChecker.Worker(validator, errorHandler,
+                    buffer));
+        }
+        return workers;
+    }
+
+    private static void respond(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        count(path);
+        String[][] links = LINKS.get(path);
+        if (links == null) {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("<!DOCTYPE mapml>\n<mapml lang=\"en\">\n<head>\n")
+                .append("<meta charset=\"utf-8\">\n<title>")
+                .append(path)
+                .append("</title>\n");
+        for (String[] link : links) {
+            sb.append("<link rel=\"")
+                    .append(link[0])
+                    .append("\" href=\"")
+                    .append(link[1])
+                    .append("\" type=\"text/mapml\">\n");
+        }
+        sb.append("</head>\n<body></body>\n</mapml>\n");
+        byte[] body = sb.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type",
+                "text/mapml; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static synchronized void count(String key) {
+        Integer n = hits.get(key);
+        hits.put(key, n == null ? 1 : n + 1);
+    }
+
+    private static synchronized int hits(String key) {
+        Integer n = hits.get(key);
+        return n == null ? 0 : n;
+    }
+
+    private static synchronized int total() {
+        int total = 0;
+        for (int n : hits.values()) {
+            total += n;
+        }
+        return total;
+    }
+
+    private static void check(String name, boolean passed) {
+        System.out.println((passed ? "PASS " : "FAIL ") + name);
+        if (!passed) {
+            failures++;
+        }
+    }
+}
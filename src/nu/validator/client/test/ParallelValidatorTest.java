@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2026 Mozilla Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package nu.validator.client.test;
+
+import java.util.List;
+
+import nu.validator.client.IncrementalValidator;
+import nu.validator.client.MapmlCrawler;
+import nu.validator.client.ParallelValidator;
+
+/**
+ * Checks a document large enough for <code>ParallelValidator</code> to
+ * split into runs and compares the messages with those of a check of the
+ * whole document. The document has an ID declared in three features, two
+ * of them in a later run than the first, a <code>label</code> whose
+ * <code>for</code> refers to an <code>input</code> in another run, and one
+ * whose <code>for</code> refers to no element at all.
+ *
+ * <p>Usage: <code>ParallelValidatorTest</code>
+ */
+public class ParallelValidatorTest {
+
+    /**
+     * Enough features for four runs of 64 with a parallelism of 2.
+     */
+    private static final int FEATURES = 256;
+
+    private static int failures;
+
+    /**
+     * @param args
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<!DOCTYPE html>\n<html lang=\"en\">\n<head>\n")
+                .append("<title>Features</title>\n</head>\n<body>\n");
+        for (int i = 0; i < FEATURES; i++) {
+            String id = i == 5 || i == 150 || i == 151 ? "dup" : "f" + i;
+            String properties;
+            if (i == 10) {
+                properties = "<input id=\"target\">";
+            } else if (i == 200) {
+                properties = "<label for=\"target\">a</label>";
+            } else if (i == 201) {
+                properties = "<label for=\"missing\">b</label>";
+            } else {
+                properties = "<p>" + i + "</p>";
+            }
+            sb.append("<feature id=\"").append(id).append("\"><properties>")
+                    .append(properties).append("</properties></feature>\n");
+        }
+        sb.append("</body>\n</html>\n");
+        String document = sb.toString();
+
+        List<IncrementalValidator.Message> sequential;
+        sequential = new IncrementalValidator(MapmlCrawler.SCHEMA, false,
+                false).validate(document);
+        List<IncrementalValidator.Message> split;
+        try (ParallelValidator validator = new ParallelValidator(
+                MapmlCrawler.SCHEMA, false, false, 2)) {
+            split = validator.validate(document);
+        }
+
+        check("same messages as a sequential check",
+                sequential.toString().equals(split.toString()));
+        if (!sequential.toString().equals(split.toString())) {
+            System.out.println("Sequential: " + sequential);
+            System.out.println("Split:      " + split);
+        }
+        check("duplicate ID across runs reported twice",
+                count(split, "error", "Duplicate ID \u201Cdup\u201D.") == 2
+                        && count(split, "warning",
+                                "\u201Cdup\u201D was here") == 2);
+        // Feature i is on line 7 + i.
+        String label = "attribute of the \u201Clabel\u201D element";
+        check("reference across runs resolved, missing one reported",
+                count(split, "error", label) == 1
+                        && line(split, label) == 7 + 201);
+
+        System.out.println(failures == 0 ? "All passed." : failures
+                + " failed.");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    private static int count(List<IncrementalValidator.Message> messages,
+            String type, String text) {
+        int n = 0;
+        for (IncrementalValidator.Message message : messages) {
+            if (type.equals(message.getType())
+                    && message.getMessage().contains(text)) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    private static int line(List<IncrementalValidator.Message> messages,
+            String text) {
+        for (IncrementalValidator.Message message : messages) {
+            if (message.getMessage().contains(text)) {
+                return message.getLine();
+            }
+        }
+        return -1;
+    }
+
+    private static void check(String name, boolean passed) {
+        System.out.println((passed ? "PASS " : "FAIL ") + name);
+        if (!passed) {
+            failures++;
+        }
+    }
+}
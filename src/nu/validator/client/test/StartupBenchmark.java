@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2026 Mozilla Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package nu.validator.client.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Times complete <code>vnu.jar</code> command-line runs on one file, the
+ * way a pre-commit hook invokes it: cold, with language detection
+ * disabled, and with the AppCDS archive made by the <code>cds</code> build
+ * task if one is given.
+ *
+ * <p>Usage: <code>StartupBenchmark VNU_JAR FILE [ARCHIVE]</code>
+ */
+public class StartupBenchmark {
+
+    private static final int WARMUP_RUNS = 2;
+
+    private static final int RUNS = 10;
+
+    /**
+     * @param args
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public static void main(String[] args) throws IOException,
+            InterruptedException {
+        if (args.length < 2) {
+            System.err.println(
+                    "Usage: StartupBenchmark VNU_JAR FILE [ARCHIVE]");
+            System.exit(1);
+        }
+        String java = System.getProperty("java.home") + File.separator
+                + "bin" + File.separator + "java";
+        String jar = args[0];
+        String file = args[1];
+
+        time("default", Arrays.asList(java, "-jar", jar,
+                "--exit-zero-always", file));
+        time("no langdetect", Arrays.asList(java, "-jar", jar,
+                "--exit-zero-always", "--no-langdetect", file));
+        if (args.length > 2) {
+            time("AppCDS", Arrays.asList(java,
+                    "-XX:SharedArchiveFile=" + args[2], "-jar", jar,
+                    "--exit-zero-always", file));
+        }
+    }
+
+    private static void time(String name, List<String> command)
+            throws IOException, InterruptedException {
+        File log = File.createTempFile("startup", ".log");
+        log.deleteOnExit();
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectErrorStream(true);
+        builder.redirectOutput(ProcessBuilder.Redirect.appendTo(log));
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            run(builder);
+        }
+        long[] sorted = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            run(builder);
+            sorted[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(sorted);
+        System.out.printf("%s: min %.0f ms, median %.0f ms%n", name,
+                sorted[0] / 1e6, sorted[sorted.length / 2] / 1e6);
+    }
+
+    private static void run(ProcessBuilder builder) throws IOException,
+            InterruptedException {
+        int status = builder.start().waitFor();
+        if (status != 0) {
+            throw new IOException("Exit status " + status + " from "
+                    + builder.command());
+        }
+    }
+}
@@ -80,17 +80,33 @@ public abstract class AbstractDatatype implements Datatype {
     public abstract void checkValid(CharSequence literal) throws DatatypeException;
     
     /**
-     * Merely returns a <code>DatatypeStreamingValidatorImpl</code>.
+     * Returns the validator from <code>createIncrementalValidator()</code> 
+     * or, if the datatype does not check values incrementally, a 
+     * <code>DatatypeStreamingValidatorImpl</code>.
      * @param context the validation context (ignored by subclasses)
-     * @return An unoptimized <code>DatatypeStreamingValidator</code>
+     * @return a <code>DatatypeStreamingValidator</code>
      * @see org.relaxng.datatype.Datatype#createStreamingValidator(org.relaxng.datatype.ValidationContext)
      */
     @Override
     public DatatypeStreamingValidator createStreamingValidator(
             ValidationContext context) {
+        DatatypeStreamingValidator incremental = createIncrementalValidator();
+        if (incremental != null) {
+            return incremental;
+        }
         return new DatatypeStreamingValidatorImpl(this);
     }
 
+    /**
+     * Returns <code>null</code>. Subclasses that can check a value chunk by 
+     * chunk override this to return a fresh state machine so that long 
+     * values are not buffered and errors are found early.
+     * @return an incremental validator or <code>null</code> to buffer
+     */
+    protected IncrementalDatatypeStreamingValidator createIncrementalValidator() {
+        return null;
+    }
+
     /**
      * Implements strict string equality semantics by returning <code>literal</code> 
      * itself.
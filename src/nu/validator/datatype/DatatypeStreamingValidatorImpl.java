@@ -25,6 +25,10 @@ package nu.validator.datatype;
 import org.relaxng.datatype.DatatypeException;
 import org.relaxng.datatype.DatatypeStreamingValidator;
 
+/**
+ * Buffers the whole value and checks it at the end. Used for datatypes that
+ * do not provide an <code>IncrementalDatatypeStreamingValidator</code>.
+ */
 public final class DatatypeStreamingValidatorImpl implements
         DatatypeStreamingValidator {
 
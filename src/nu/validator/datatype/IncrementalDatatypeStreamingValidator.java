@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2026 Mozilla Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package nu.validator.datatype;
+
+import org.relaxng.datatype.DatatypeException;
+import org.relaxng.datatype.DatatypeStreamingValidator;
+
+/**
+ * Base class for streaming validators that check a value chunk by chunk
+ * instead of buffering it. Subclasses are state machines that receive the
+ * characters of the value in order, possibly split across any number of
+ * chunks, and are told when the value ends.
+ *
+ * <p>The first <code>DatatypeException</code> thrown by a subclass is
+ * remembered and the rest of the value is not looked at. A subclass whose
+ * message depends on the whole value (for example, on an item count) can
+ * instead keep going and throw from <code>end()</code>.
+ *
+ * <p>Datatypes opt in by overriding
+ * <code>AbstractDatatype.createIncrementalValidator()</code> and usually
+ * implement <code>checkValid(CharSequence)</code> with <code>run()</code>
+ * so that both paths report the same errors.
+ */
+public abstract class IncrementalDatatypeStreamingValidator implements
+        DatatypeStreamingValidator {
+
+    private DatatypeException error = null;
+
+    private boolean ended = false;
+
+    /**
+     * Processes the next character of the value.
+     *
+     * @param c the character
+     * @throws DatatypeException if the value is known to be invalid
+     */
+    protected abstract void character(char c) throws DatatypeException;
+
+    /**
+     * Processes a chunk of the value. Calls <code>character()</code> for
+     * each character; subclasses may override this with a tighter loop.
+     *
+     * @param buf the buffer
+     * @param start the start index
+     * @param len the number of characters
+     * @throws DatatypeException if the value is known to be invalid
+     */
+    protected void characters(char[] buf, int start, int len)
+            throws DatatypeException {
+        int end = start + len;
+        for (int i = start; i < end; i++) {
+            character(buf[i]);
+        }
+    }
+
+    /**
+     * Signals the end of the value.
+     *
+     * @throws DatatypeException if the value is invalid
+     */
+    protected abstract void end() throws DatatypeException;
+
+    /**
+     * Checks a complete value in one go.
+     *
+     * @param literal the value
+     * @throws DatatypeException if the value is invalid
+     */
+    public final void run(CharSequence literal) throws DatatypeException {
+        int len = literal.length();
+        for (int i = 0; i < len; i++) {
+            character(literal.charAt(i));
+        }
+        end();
+    }
+
+    @Override
+    public final void addCharacters(char[] buf, int start, int len) {
+        if (error != null || ended) {
+            return;
+        }
+        try {
+            characters(buf, start, len);
+        } catch (DatatypeException e) {
+            error = e;
+        }
+    }
+
+    private void finish() {
+        if (ended) {
+            return;
+        }
+        ended = true;
+        if (error == null) {
+            try {
+                end();
+            } catch (DatatypeException e) {
+                error = e;
+            }
+        }
+    }
+
+    @Override
+    public final boolean isValid() {
+        finish();
+        return error == null;
+    }
+
+    @Override
+    public final void checkValid() throws DatatypeException {
+        finish();
+        if (error != null) {
+            throw error;
+        }
+    }
+}
@@ -22,8 +22,6 @@
 
 package nu.validator.datatype;
 
-import java.util.List;
-
 import org.relaxng.datatype.DatatypeException;
 
 public final class Polyline extends AbstractInt {
@@ -40,20 +38,73 @@ public final class Polyline extends AbstractInt {
         super();
     }
 
-    @Override
-    public void checkValid(CharSequence literal) throws DatatypeException {
-        List<CharSequenceWithOffset> list = split(literal, ',');
-        if (list.size() < 6) {
-            throw newDatatypeException("A polyline must have at least six comma-separated integers.");
-        }
-        if (list.size() % 2 != 0) {
-            throw newDatatypeException("A polyline must have an even number of comma-separated integers.");
+    /**
+     * Checks the items as they arrive without splitting the value. The
+     * item count is only known at the end and takes precedence over an
+     * error inside an item, so the first item error is held until then.
+     */
+    private final class PolylineValidator extends
+            IncrementalDatatypeStreamingValidator {
+
+        private int offset = 0;
+
+        private int items = 1;
+
+        private int itemStart = 0;
+
+        private int itemLength = 0;
+
+        private DatatypeException itemError = null;
+
+        @Override
+        protected void character(char c) throws DatatypeException {
+            if (c == ',') {
+                if (itemError == null && itemLength == 0) {
+                    itemError = newDatatypeException("The empty string is not a valid integer.");
+                }
+                items++;
+                itemStart = offset + 1;
+                itemLength = 0;
+            } else if (itemError == null) {
+                if (itemLength == 0) {
+                    if (!(c == '-' || isAsciiDigit(c))) {
+                        itemError = newDatatypeException(0, "Expected a minus sign or a digit but saw ", c, " instead.");
+                    }
+                } else if (!isAsciiDigit(c)) {
+                    itemError = newDatatypeException(itemStart + itemLength, "Expected a digit but saw ", c, " instead.");
+                }
+                itemLength++;
+            }
+            offset++;
         }
-        for (CharSequenceWithOffset item : list) {
-            checkInt(item.getSequence(), item.getOffset());
+
+        @Override
+        protected void end() throws DatatypeException {
+            if (items < 6) {
+                throw newDatatypeException("A polyline must have at least six comma-separated integers.");
+            }
+            if (items % 2 != 0) {
+                throw newDatatypeException("A polyline must have an even number of comma-separated integers.");
+            }
+            if (itemError == null && itemLength == 0) {
+                throw newDatatypeException("The empty string is not a valid integer.");
+            }
+            if (itemError != null) {
+                throw itemError;
+            }
         }
     }
 
+    @Override
+    public void checkValid(CharSequence literal) throws DatatypeException {
+        new PolylineValidator().run(literal);
+    }
+
+    @Override
+    protected IncrementalDatatypeStreamingValidator createIncrementalValidator() {
+        return new PolylineValidator();
+    }
+
     @Override
     public String getName() {
         return "polyline";
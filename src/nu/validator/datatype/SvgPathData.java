@@ -16,12 +16,11 @@
  */
 
 // March 5, 2015 - rwhogg - removed unnecessary return statement
+// October 18, 2026 - rewritten as an incremental state machine that indexes
+// the literal directly and keeps the error context in a ring buffer
 
 package nu.validator.datatype;
 
-import java.io.StringReader;
-import java.io.IOException;
-
 import org.relaxng.datatype.DatatypeException;
 
 public class SvgPathData extends AbstractDatatype {
@@ -35,1427 +34,418 @@ public class SvgPathData extends AbstractDatatype {
 
     private static final int MAX_CONTEXT_LENGTH = 20;
 
-    private State appendToContext(State state) {
-        if (state.current != -1) {
-            if (state.context.length() == MAX_CONTEXT_LENGTH) {
-                state.context.deleteCharAt(0);
-            }
-            state.context.append((char) state.current);
-        }
-        return state;
-    }
-
-    private class State {
-        int current;
-
-        StringBuffer context;
-
-        StringReader reader;
-
-        boolean skipped;
-
-        State(int current, StringBuffer context, StringReader reader,
-                boolean skipped) {
-            this.current = current;
-            this.context = context;
-            this.reader = reader;
-            this.skipped = skipped;
-        }
-    }
-
-    @Override
-    public void checkValid(CharSequence literal) throws DatatypeException {
-
-        /**
-         * The current character.
-         */
-        int current;
-
-        final StringReader reader = new StringReader(literal.toString());
-        final StringBuffer context = new StringBuffer(MAX_CONTEXT_LENGTH);
-
-        boolean skipped = false;
-
-        State state;
-
-        try {
-            current = reader.read();
-            state = appendToContext(
-                    new State(current, context, reader, skipped));
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-
-        loop: for (;;) {
-            try {
-                switch (state.current) {
-                    case 0xD:
-                    case 0xA:
-                    case 0x20:
-                    case 0x9:
-                        state.current = state.reader.read();
-                        state = appendToContext(state);
-                        break;
-                    case 'z':
-                    case 'Z':
-                        state.current = state.reader.read();
-                        state = appendToContext(state);
-                        break;
-                    case 'm':
-                        state = checkm(state);
-                        break;
-                    case 'M':
-                        state = checkM(state);
-                        break;
-                    case 'l':
-                        state = checkl(state);
-                        break;
-                    case 'L':
-                        state = checkL(state);
-                        break;
-                    case 'h':
-                        state = checkh(state);
-                        break;
-                    case 'H':
-                        state = checkH(state);
-                        break;
-                    case 'v':
-                        state = checkv(state);
-                        break;
-                    case 'V':
-                        state = checkV(state);
-                        break;
-                    case 'c':
-                        state = checkc(state);
-                        break;
-                    case 'C':
-                        state = checkC(state);
-                        break;
-                    case 'q':
-                        state = checkq(state);
-                        break;
-                    case 'Q':
-                        state = checkQ(state);
-                        break;
-                    case 's':
-                        state = checks(state);
-                        break;
-                    case 'S':
-                        state = checkS(state);
-                        break;
-                    case 't':
-                        state = checkt(state);
-                        break;
-                    case 'T':
-                        state = checkT(state);
-                        break;
-                    case 'a':
-                        state = checka(state);
-                        break;
-                    case 'A':
-                        state = checkA(state);
-                        break;
-                    case -1:
-                        break loop;
-                    default:
-                        throw newDatatypeException("Expected command but "
-                                + "found \u201c" + (char) state.current
-                                + "\u201d (context: \u201c"
-                                + state.context.toString() + "\u201d).");
-                }
-            } catch (IOException e) {
-                try {
-                    state = skipSubPath(state);
-                } catch (IOException ioe) {
-                    throw new RuntimeException(ioe);
-                }
-                throw new RuntimeException(e);
-            }
-        }
-
-        try {
-            state = skipSpaces(state);
-            if (state.current != -1) {
-                throw newDatatypeException("Found unexpected character "
-                        + "\u201c" + (char) state.current + "\u201d.");
-            }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-    }
-
-    /**
-     * Checks an 'm' command.
-     */
-    private State checkm(State state) throws DatatypeException, IOException {
-        if (state.context.length() == 0) {
-            state = appendToContext(state);
-        }
-        state.current = state.reader.read();
-        state = appendToContext(state);
-        state = skipSpaces(state);
-
-        state = checkArg('m', "x coordinate", state);
-        state = skipCommaSpaces(state);
-        state = checkArg('m', "y coordinate", state);
-
-        state = skipCommaSpaces2(state);
-        boolean expectNumber = state.skipped;
-        _checkl('m', expectNumber, state);
-        return state;
-    }
-
-    /**
-     * Checks an 'M' command.
-     */
-    private State checkM(State state) throws DatatypeException, IOException {
-        if (state.context.length() == 0) {
-            state = appendToContext(state);
-        }
-        state.current = state.reader.read();
-        state = appendToContext(state);
-        state = skipSpaces(state);
-
-        state = checkArg('M', "x coordinate", state);
-        state = skipCommaSpaces(state);
-        state = checkArg('M', "y coordinate", state);
-
-        state = skipCommaSpaces2(state);
-        boolean expectNumber = state.skipped;
-        _checkL('M', expectNumber, state);
-        return state;
-    }
-
-    /**
-     * Checks an 'l' command.
-     */
-    private State checkl(State state) throws DatatypeException, IOException {
-        if (state.context.length() == 0) {
-            state = appendToContext(state);
-        }
-        state.current = state.reader.read();
-        state = appendToContext(state);
-        state = skipSpaces(state);
-        _checkl('l', true, state);
-        return state;
-    }
-
-    private State _checkl(char command, boolean expectNumber, State state)
-            throws IOException, DatatypeException {
-        for (;;) {
-            switch (state.current) {
-                default:
-                    if (expectNumber) {
-                        reportUnexpected(
-                                "coordinate pair for " + "\u201c" + command
-                                        + "\u201d command",
-                                state.current, state.context);
-                        state = skipSubPath(state);
-                    }
-                    return state;
-                case '+':
-                case '-':
-                case '.':
-                case '0':
-                case '1':
-                case '2':
-                case '3':
-                case '4':
-                case '5':
-                case '6':
-                case '7':
-                case '8':
-                case '9':
-                    break;
-            }
-            state = checkArg(command, "x coordinate", state);
-            state = skipCommaSpaces(state);
-            state = checkArg(command, "y coordinate", state);
-
-            state = skipCommaSpaces2(state);
-            expectNumber = state.skipped;
-        }
-    }
-
-    /**
-     * Checks an 'L' command.
-     */
-    private State checkL(State state) throws DatatypeException, IOException {
-        if (state.context.length() == 0) {
-            state = appendToContext(state);
-        }
-        state.current = state.reader.read();
-        state = appendToContext(state);
-        state = skipSpaces(state);
-        _checkL('L', true, state);
-        return state;
-    }
-
-    private State _checkL(char command, boolean expectNumber, State state)
-            throws IOException, DatatypeException {
-        for (;;) {
-            switch (state.current) {
-                default:
-                    if (expectNumber) {
-                        reportUnexpected(
-                                "coordinate pair for " + "\u201c" + command
-                                        + "\u201d command",
-                                state.current, state.context);
-                        state = skipSubPath(state);
-                    }
-                    return state;
-                case '+':
-                case '-':
-                case '.':
-                case '0':
-                case '1':
-                case '2':
-                case '3':
-                case '4':
-                case '5':
-                case '6':
-                case '7':
-                case '8':
-                case '9':
-                    break;
-            }
-            state = checkArg(command, "x coordinate", state);
-            state = skipCommaSpaces(state);
-            state = checkArg(command, "y coordinate", state);
-
-            state = skipCommaSpaces2(state);
-            expectNumber = state.skipped;
-        }
-    }
-
-    /**
-     * Checks an 'h' command.
-     */
-    private State checkh(State state) throws DatatypeException, IOException {
-        if (state.context.length() == 0) {
-            state = appendToContext(state);
-        }
-        state.current = state.reader.read();
-        state = appendToContext(state);
-        state = skipSpaces(state);
-        boolean expectNumber = true;
+    private static final String LARGE_ARC_FLAG = "large-arc-flag";
 
-        for (;;) {
-            switch (state.current) {
-                default:
-                    if (expectNumber)
-                        reportNonNumber('h', state.current, state.context);
-                    return state;
+    private static final String SWEEP_FLAG = "sweep-flag";
 
-                case '+':
-                case '-':
-                case '.':
-                case '0':
-                case '1':
-                case '2':
-                case '3':
-                case '4':
-                case '5':
-                case '6':
-                case '7':
-                case '8':
-                case '9':
-                    break;
-            }
-            state = checkArg('h', "x coordinate", state);
+    private static final String[] PAIR_ARGUMENTS = { "x coordinate",
+            "y coordinate" };
 
-            state = skipCommaSpaces2(state);
-            expectNumber = state.skipped;
-        }
-    }
+    private static final String[] HORIZONTAL_ARGUMENTS = { "x coordinate" };
 
-    /**
-     * Checks an 'H' command.
-     */
-    private State checkH(State state) throws DatatypeException, IOException {
-        if (state.context.length() == 0) {
-            state = appendToContext(state);
-        }
-        state.current = state.reader.read();
-        state = appendToContext(state);
-        state = skipSpaces(state);
-        boolean expectNumber = true;
+    private static final String[] VERTICAL_ARGUMENTS = { "y coordinate" };
 
-        for (;;) {
-            switch (state.current) {
-                default:
-                    if (expectNumber)
-                        reportNonNumber('H', state.current, state.context);
-                    return state;
+    private static final String[] CUBIC_ARGUMENTS = { "x1 coordinate",
+            "y1 coordinate", "x2 coordinate", "y2 coordinate", "x coordinate",
+            "y coordinate" };
 
-                case '+':
-                case '-':
-                case '.':
-                case '0':
-                case '1':
-                case '2':
-                case '3':
-                case '4':
-                case '5':
-                case '6':
-                case '7':
-                case '8':
-                case '9':
-                    break;
-            }
-            state = checkArg('H', "x coordinate", state);
-
-            state = skipCommaSpaces2(state);
-            expectNumber = state.skipped;
-        }
-    }
+    private static final String[] QUADRATIC_ARGUMENTS = { "x1 coordinate",
+            "y1 coordinate", "x coordinate", "y coordinate" };
 
-    /**
-     * Checks a 'v' command.
-     */
-    private State checkv(State state) throws DatatypeException, IOException {
-        if (state.context.length() == 0) {
-            state = appendToContext(state);
-        }
-        state.current = state.reader.read();
-        state = appendToContext(state);
-        state = skipSpaces(state);
-        boolean expectNumber = true;
+    private static final String[] SMOOTH_CUBIC_ARGUMENTS = { "x2 coordinate",
+            "y2 coordinate", "x coordinate", "y coordinate" };
 
-        for (;;) {
-            switch (state.current) {
-                default:
-                    if (expectNumber)
-                        reportNonNumber('v', state.current, state.context);
-                    return state;
+    private static final String[] ARC_ARGUMENTS = { "rx radius", "ry radius",
+            "x-axis-rotation", LARGE_ARC_FLAG, SWEEP_FLAG, "x coordinate",
+            "y coordinate" };
 
-                case '+':
-                case '-':
-                case '.':
-                case '0':
-                case '1':
-                case '2':
-                case '3':
-                case '4':
-                case '5':
-                case '6':
-                case '7':
-                case '8':
-                case '9':
-                    break;
-            }
-            state = checkArg('v', "y coordinate", state);
-
-            state = skipCommaSpaces2(state);
-            expectNumber = state.skipped;
-        }
-    }
-
-    /**
-     * Checks a 'V' command.
+    /*
+     * Parser states. Each state examines the current character and either
+     * consumes it or hands it on to the next state.
      */
-    private State checkV(State state) throws DatatypeException, IOException {
-        if (state.context.length() == 0) {
-            state = appendToContext(state);
-        }
-        state.current = state.reader.read();
-        state = appendToContext(state);
-        state = skipSpaces(state);
-        boolean expectNumber = true;
 
-        for (;;) {
-            switch (state.current) {
-                default:
-                    if (expectNumber)
-                        reportNonNumber('V', state.current, state.context);
-                    return state;
+    private static final int COMMAND = 0;
 
-                case '+':
-                case '-':
-                case '.':
-                case '0':
-                case '1':
-                case '2':
-                case '3':
-                case '4':
-                case '5':
-                case '6':
-                case '7':
-                case '8':
-                case '9':
-                    break;
-            }
-            state = checkArg('V', "y coordinate", state);
+    private static final int AFTER_COMMAND = 1;
 
-            state = skipCommaSpaces2(state);
-            expectNumber = state.skipped;
-        }
-    }
+    private static final int ARGUMENTS = 2;
 
-    /**
-     * Checks a 'c' command.
-     */
-    private State checkc(State state) throws DatatypeException, IOException {
-        if (state.context.length() == 0) {
-            state = appendToContext(state);
-        }
-        state.current = state.reader.read();
-        state = appendToContext(state);
-        state = skipSpaces(state);
-        boolean expectNumber = true;
+    private static final int NUMBER = 3;
 
-        for (;;) {
-            switch (state.current) {
-                default:
-                    if (expectNumber)
-                        reportNonNumber('c', state.current, state.context);
-                    return state;
+    private static final int MANTISSA = 4;
 
-                case '+':
-                case '-':
-                case '.':
-                case '0':
-                case '1':
-                case '2':
-                case '3':
-                case '4':
-                case '5':
-                case '6':
-                case '7':
-                case '8':
-                case '9':
-                    break;
-            }
+    private static final int LEADING_ZEROS = 5;
 
-            state = checkArg('c', "x1 coordinate", state);
-            state = skipCommaSpaces(state);
-            state = checkArg('c', "y1 coordinate", state);
-            state = skipCommaSpaces(state);
-            state = checkArg('c', "x2 coordinate", state);
-            state = skipCommaSpaces(state);
-            state = checkArg('c', "y2 coordinate", state);
-            state = skipCommaSpaces(state);
-            state = checkArg('c', "x coordinate", state);
-            state = skipCommaSpaces(state);
-            state = checkArg('c', "y coordinate", state);
+    private static final int INTEGER = 6;
 
-            state = skipCommaSpaces2(state);
-            expectNumber = state.skipped;
-        }
-    }
+    private static final int POINT = 7;
 
-    /**
-     * Checks a 'C' command.
-     */
-    private State checkC(State state) throws DatatypeException, IOException {
-        if (state.context.length() == 0) {
-            state = appendToContext(state);
-        }
-        state.current = state.reader.read();
-        state = appendToContext(state);
-        state = skipSpaces(state);
-        boolean expectNumber = true;
-
-        for (;;) {
-            switch (state.current) {
-                default:
-                    if (expectNumber)
-                        reportNonNumber('C', state.current, state.context);
-                    return state;
-
-                case '+':
-                case '-':
-                case '.':
-                case '0':
-                case '1':
-                case '2':
-                case '3':
-                case '4':
-                case '5':
-                case '6':
-                case '7':
-                case '8':
-                case '9':
-                    break;
-            }
-
-            state = checkArg('C', "x1 coordinate", state);
-            state = skipCommaSpaces(state);
-            state = checkArg('C', "y1 coordinate", state);
-            state = skipCommaSpaces(state);
-            state = checkArg('C', "x2 coordinate", state);
-            state = skipCommaSpaces(state);
-            state = checkArg('C', "y2 coordinate", state);
-            state = skipCommaSpaces(state);
-            state = checkArg('C', "x coordinate", state);
-            state = skipCommaSpaces(state);
-            state = checkArg('C', "y coordinate", state);
-
-            state = skipCommaSpaces2(state);
-            expectNumber = state.skipped;
-        }
-    }
-
-    /**
-     * Checks a 'q' command.
-     */
-    private State checkq(State state) throws DatatypeException, IOException {
-        if (state.context.length() == 0) {
-            state = appendToContext(state);
-        }
-        state.current = state.reader.read();
-        state = appendToContext(state);
-        state = skipSpaces(state);
-        boolean expectNumber = true;
-
-        for (;;) {
-            switch (state.current) {
-                default:
-                    if (expectNumber)
-                        reportNonNumber('q', state.current, state.context);
-                    return state;
-
-                case '+':
-                case '-':
-                case '.':
-                case '0':
-                case '1':
-                case '2':
-                case '3':
-                case '4':
-                case '5':
-                case '6':
-                case '7':
-                case '8':
-                case '9':
-                    break;
-            }
+    private static final int FRACTION_ZEROS = 8;
 
-            state = checkArg('q', "x1 coordinate", state);
-            state = skipCommaSpaces(state);
-            state = checkArg('q', "y1 coordinate", state);
-            state = skipCommaSpaces(state);
-            state = checkArg('q', "x coordinate", state);
-            state = skipCommaSpaces(state);
-            state = checkArg('q', "y coordinate", state);
+    private static final int FRACTION = 9;
 
-            state = skipCommaSpaces2(state);
-            expectNumber = state.skipped;
-        }
-    }
-
-    /**
-     * Checks a 'Q' command.
-     */
-    private State checkQ(State state) throws DatatypeException, IOException {
-        if (state.context.length() == 0) {
-            state = appendToContext(state);
-        }
-        state.current = state.reader.read();
-        state = appendToContext(state);
-        state = skipSpaces(state);
-        boolean expectNumber = true;
-
-        for (;;) {
-            switch (state.current) {
-                default:
-                    if (expectNumber)
-                        reportNonNumber('Q', state.current, state.context);
-                    return state;
-
-                case '+':
-                case '-':
-                case '.':
-                case '0':
-                case '1':
-                case '2':
-                case '3':
-                case '4':
-                case '5':
-                case '6':
-                case '7':
-                case '8':
-                case '9':
-                    break;
-            }
+    private static final int EXPONENT = 10;
 
-            state = checkArg('Q', "x1 coordinate", state);
-            state = skipCommaSpaces(state);
-            state = checkArg('Q', "y1 coordinate", state);
-            state = skipCommaSpaces(state);
-            state = checkArg('Q', "x coordinate", state);
-            state = skipCommaSpaces(state);
-            state = checkArg('Q', "y coordinate", state);
+    private static final int EXPONENT_SIGN = 11;
 
-            state = skipCommaSpaces2(state);
-            expectNumber = state.skipped;
-        }
-    }
+    private static final int EXPONENT_DIGITS = 12;
 
-    /**
-     * Checks an 's' command.
-     */
-    private State checks(State state) throws DatatypeException, IOException {
-        if (state.context.length() == 0) {
-            state = appendToContext(state);
-        }
-        state.current = state.reader.read();
-        state = appendToContext(state);
-        state = skipSpaces(state);
-        boolean expectNumber = true;
+    private static final int SEPARATOR = 13;
 
-        for (;;) {
-            switch (state.current) {
-                default:
-                    if (expectNumber)
-                        reportNonNumber('s', state.current, state.context);
-                    return state;
+    private static final int SEPARATOR_AFTER_COMMA = 14;
 
-                case '+':
-                case '-':
-                case '.':
-                case '0':
-                case '1':
-                case '2':
-                case '3':
-                case '4':
-                case '5':
-                case '6':
-                case '7':
-                case '8':
-                case '9':
-                    break;
-            }
+    private static final int TRAILING_SEPARATOR = 15;
 
-            state = checkArg('s', "x2 coordinate", state);
-            state = skipCommaSpaces(state);
-            state = checkArg('s', "y2 coordinate", state);
-            state = skipCommaSpaces(state);
-            state = checkArg('s', "x coordinate", state);
-            state = skipCommaSpaces(state);
-            state = checkArg('s', "y coordinate", state);
+    private static final int TRAILING_SEPARATOR_AFTER_COMMA = 16;
 
-            state = skipCommaSpaces2(state);
-            expectNumber = state.skipped;
-        }
+    private static boolean isSpace(int c) {
+        return c == 0x20 || c == 0x9 || c == 0xD || c == 0xA;
     }
 
-    /**
-     * Checks an 'S' command.
-     */
-    private State checkS(State state) throws DatatypeException, IOException {
-        if (state.context.length() == 0) {
-            state = appendToContext(state);
-        }
-        state.current = state.reader.read();
-        state = appendToContext(state);
-        state = skipSpaces(state);
-        boolean expectNumber = true;
-
-        for (;;) {
-            switch (state.current) {
-                default:
-                    if (expectNumber)
-                        reportNonNumber('S', state.current, state.context);
-                    return state;
-
-                case '+':
-                case '-':
-                case '.':
-                case '0':
-                case '1':
-                case '2':
-                case '3':
-                case '4':
-                case '5':
-                case '6':
-                case '7':
-                case '8':
-                case '9':
-                    break;
-            }
-
-            state = checkArg('S', "x2 coordinate", state);
-            state = skipCommaSpaces(state);
-            state = checkArg('S', "y2 coordinate", state);
-            state = skipCommaSpaces(state);
-            state = checkArg('S', "x coordinate", state);
-            state = skipCommaSpaces(state);
-            state = checkArg('S', "y coordinate", state);
-
-            state = skipCommaSpaces2(state);
-            expectNumber = state.skipped;
-        }
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
     }
 
-    /**
-     * Checks a 't' command.
-     */
-    private State checkt(State state) throws DatatypeException, IOException {
-        if (state.context.length() == 0) {
-            state = appendToContext(state);
-        }
-        state.current = state.reader.read();
-        state = appendToContext(state);
-        state = skipSpaces(state);
-        boolean expectNumber = true;
-
-        for (;;) {
-            switch (state.current) {
-                default:
-                    if (expectNumber)
-                        reportNonNumber('t', state.current, state.context);
-                    return state;
-
-                case '+':
-                case '-':
-                case '.':
-                case '0':
-                case '1':
-                case '2':
-                case '3':
-                case '4':
-                case '5':
-                case '6':
-                case '7':
-                case '8':
-                case '9':
-                    break;
-            }
-
-            state = checkArg('t', "x coordinate", state);
-            state = skipCommaSpaces(state);
-            state = checkArg('t', "y coordinate", state);
-
-            state = skipCommaSpaces2(state);
-            expectNumber = state.skipped;
-        }
+    private static boolean isNumberStart(int c) {
+        return isDigit(c) || c == '+' || c == '-' || c == '.';
     }
 
-    /**
-     * Checks a 'T' command.
-     */
-    private State checkT(State state) throws DatatypeException, IOException {
-        if (state.context.length() == 0) {
-            state = appendToContext(state);
-        }
-        state.current = state.reader.read();
-        state = appendToContext(state);
-        state = skipSpaces(state);
-        boolean expectNumber = true;
-
-        for (;;) {
-            switch (state.current) {
-                default:
-                    if (expectNumber)
-                        reportNonNumber('T', state.current, state.context);
-                    return state;
-
-                case '+':
-                case '-':
-                case '.':
-                case '0':
-                case '1':
-                case '2':
-                case '3':
-                case '4':
-                case '5':
-                case '6':
-                case '7':
-                case '8':
-                case '9':
-                    break;
-            }
-
-            state = checkArg('T', "x coordinate", state);
-            state = skipCommaSpaces(state);
-            state = checkArg('T', "y coordinate", state);
-
-            state = skipCommaSpaces2(state);
-            expectNumber = state.skipped;
+    private static String[] argumentsFor(char command) {
+        switch (command) {
+            case 'm':
+            case 'M':
+            case 'l':
+            case 'L':
+            case 't':
+            case 'T':
+                return PAIR_ARGUMENTS;
+            case 'h':
+            case 'H':
+                return HORIZONTAL_ARGUMENTS;
+            case 'v':
+            case 'V':
+                return VERTICAL_ARGUMENTS;
+            case 'c':
+            case 'C':
+                return CUBIC_ARGUMENTS;
+            case 'q':
+            case 'Q':
+                return QUADRATIC_ARGUMENTS;
+            case 's':
+            case 'S':
+                return SMOOTH_CUBIC_ARGUMENTS;
+            case 'a':
+            case 'A':
+                return ARC_ARGUMENTS;
+            default:
+                return null;
         }
     }
 
     /**
-     * Checks an 'a' command.
+     * A push parser for path data. Characters are passed in one at a time
+     * and -1 signals the end of the value, so the same parser serves both
+     * <code>checkValid</code> and the streaming validator. The last
+     * characters seen are kept in a ring buffer and only turned into a
+     * string when an error is reported.
      */
-    private State checka(State state) throws DatatypeException, IOException {
-        if (state.context.length() == 0) {
-            state = appendToContext(state);
-        }
-        state.current = state.reader.read();
-        state = appendToContext(state);
-        state = skipSpaces(state);
-        boolean expectNumber = true;
+    private final class PathDataParser extends
+            IncrementalDatatypeStreamingValidator {
 
-        for (;;) {
-            switch (state.current) {
-                default:
-                    if (expectNumber)
-                        reportNonNumber('a', state.current, state.context);
-                    return state;
+        private final char[] context = new char[MAX_CONTEXT_LENGTH];
 
-                case '+':
-                case '-':
-                case '.':
-                case '0':
-                case '1':
-                case '2':
-                case '3':
-                case '4':
-                case '5':
-                case '6':
-                case '7':
-                case '8':
-                case '9':
-                    break;
-            }
+        private int seen = 0;
 
-            state = checkArg('a', "rx radius", state);
-            state = skipCommaSpaces(state);
-            state = checkArg('a', "ry radius", state);
-            state = skipCommaSpaces(state);
-            state = checkArg('a', "x-axis-rotation", state);
-            state = skipCommaSpaces(state);
+        private int state = COMMAND;
 
-            switch (state.current) {
-                default:
-                    reportUnexpected("\u201c0\u201d or \u201c1\u201d "
-                            + "for large-arc-flag for \u201ca\u201d"
-                            + " command", state.current, state.context);
-                    state = skipSubPath(state);
-                    return state;
-                case '0':
-                case '1':
-                    break;
-            }
+        private char command;
 
-            state.current = state.reader.read();
-            state = appendToContext(state);
-            state = skipCommaSpaces(state);
+        private String[] arguments;
 
-            switch (state.current) {
-                default:
-                    reportUnexpected("\u201c0\u201d or \u201c1\u201d for"
-                            + " sweep-flag for \u201ca\u201d" + " command",
-                            state.current, state.context);
-                    state = skipSubPath(state);
-                    return state;
-                case '0':
-                case '1':
-                    break;
-            }
+        private int argument;
 
-            state.current = state.reader.read();
-            state = appendToContext(state);
-            state = skipCommaSpaces(state);
+        private boolean expectNumber;
 
-            state = checkArg('a', "x coordinate", state);
-            state = skipCommaSpaces(state);
-            state = checkArg('a', "y coordinate", state);
+        private boolean mantissaRead;
 
-            state = skipCommaSpaces2(state);
-            expectNumber = state.skipped;
-        }
-    }
+        private boolean significant;
 
-    /**
-     * Checks an 'A' command.
-     */
-    private State checkA(State state) throws DatatypeException, IOException {
-        if (state.context.length() == 0) {
-            state = appendToContext(state);
-        }
-        state.current = state.reader.read();
-        state = appendToContext(state);
-        state = skipSpaces(state);
-        boolean expectNumber = true;
-
-        for (;;) {
-            switch (state.current) {
-                default:
-                    if (expectNumber)
-                        reportNonNumber('A', state.current, state.context);
-                    return state;
-
-                case '+':
-                case '-':
-                case '.':
-                case '0':
-                case '1':
-                case '2':
-                case '3':
-                case '4':
-                case '5':
-                case '6':
-                case '7':
-                case '8':
-                case '9':
-                    break;
-            }
-
-            state = checkArg('A', "rx radius", state);
-            state = skipCommaSpaces(state);
-            state = checkArg('A', "ry radius", state);
-            state = skipCommaSpaces(state);
-            state = checkArg('A', "x-axis-rotation", state);
-            state = skipCommaSpaces(state);
-
-            switch (state.current) {
-                default:
-                    reportUnexpected("\u201c0\u201d or \u201c1\u201d for"
-                            + " large-arc-flag for \u201cA\u201d" + " command",
-                            state.current, state.context);
-                    state = skipSubPath(state);
-                    return state;
-                case '0':
-                case '1':
-                    break;
-            }
-
-            state.current = state.reader.read();
-            state = appendToContext(state);
-            state = skipCommaSpaces(state);
-
-            switch (state.current) {
-                default:
-                    reportUnexpected("\u201c0\u201d or \u201c1\u201d for"
-                            + " sweep-flag for \u201cA\u201d" + " command",
-                            state.current, state.context);
-                    state = skipSubPath(state);
-                    return state;
-                case '0':
-                case '1':
-                    break;
-            }
-
-            state.current = state.reader.read();
-            state = appendToContext(state);
-            state = skipCommaSpaces(state);
-
-            state = checkArg('A', "x coordinate", state);
-            state = skipCommaSpaces(state);
-            state = checkArg('A', "y coordinate", state);
-
-            state = skipCommaSpaces2(state);
-            expectNumber = state.skipped;
+        @Override
+        protected void character(char c) throws DatatypeException {
+            next(c);
         }
-    }
 
-    /**
-     * Checks a command argument.
-     */
-    private State checkArg(char command, String arg, State state)
-            throws DatatypeException, IOException {
-        int mant = 0;
-        int mantDig = 0;
-        boolean mantPos = true;
-        boolean mantRead = false;
-
-        int exp = 0;
-        int expDig = 0;
-        int expAdj = 0;
-        boolean expPos = true;
-
-        switch (state.current) {
-            case '-':
-                mantPos = false;
-            case '+':
-                state.current = state.reader.read();
-                state = appendToContext(state);
+        @Override
+        protected void end() throws DatatypeException {
+            next(-1);
         }
 
-        m1: switch (state.current) {
-            default:
-                reportUnexpected(
-                        arg + " for \u201c" + command + "\u201d command",
-                        state.current, state.context);
-                state = skipSubPath(state);
-                return state;
-
-            case '.':
-                break;
-
-            case '0':
-                mantRead = true;
-                l: for (;;) {
-                    state.current = state.reader.read();
-                    state = appendToContext(state);
-                    switch (state.current) {
-                        case '1':
-                        case '2':
-                        case '3':
-                        case '4':
-                        case '5':
-                        case '6':
-                        case '7':
-                        case '8':
-                        case '9':
-                            break l;
-                        case '.':
-                        case 'e':
-                        case 'E':
-                            break m1;
-                        default:
-                            return state;
-                        case '0':
-                    }
-                }
-
-            case '1':
-            case '2':
-            case '3':
-            case '4':
-            case '5':
-            case '6':
-            case '7':
-            case '8':
-            case '9':
-                mantRead = true;
-                l: for (;;) {
-                    if (mantDig < 9) {
-                        mantDig++;
-                        mant = mant * 10 + (state.current - '0');
-                    } else {
-                        expAdj++;
-                    }
-                    state.current = state.reader.read();
-                    state = appendToContext(state);
-                    switch (state.current) {
-                        default:
-                            break l;
-                        case '0':
-                        case '1':
-                        case '2':
-                        case '3':
-                        case '4':
-                        case '5':
-                        case '6':
-                        case '7':
-                        case '8':
-                        case '9':
-                    }
+        private void next(int c) throws DatatypeException {
+            if (c != -1) {
+                context[seen % MAX_CONTEXT_LENGTH] = (char) c;
+                seen++;
+                if (seen == 2 * MAX_CONTEXT_LENGTH) {
+                    seen = MAX_CONTEXT_LENGTH;
                 }
-        }
-
-        if (state.current == '.') {
-            state.current = state.reader.read();
-            state = appendToContext(state);
-            m2: switch (state.current) {
-                default:
-                case 'e':
-                case 'E':
-                    if (!mantRead) {
-                        reportNonNumber(command, state.current, state.context);
-                        return state;
-                    }
-                    break;
-
-                case '0':
-                    if (mantDig == 0) {
-                        l: for (;;) {
-                            state.current = state.reader.read();
-                            state = appendToContext(state);
-                            expAdj--;
-                            switch (state.current) {
-                                case '1':
-                                case '2':
-                                case '3':
-                                case '4':
-                                case '5':
-                                case '6':
-                                case '7':
-                                case '8':
-                                case '9':
-                                    break l;
-                                default:
-                                    if (!mantRead) {
-                                        return state;
-                                    }
-                                    break m2;
-                                case '0':
-                            }
+            }
+            for (;;) {
+                switch (state) {
+                    case COMMAND:
+                        if (c == -1 || isSpace(c) || c == 'z' || c == 'Z') {
+                            return;
                         }
-                    }
-                case '1':
-                case '2':
-                case '3':
-                case '4':
-                case '5':
-                case '6':
-                case '7':
-                case '8':
-                case '9':
-                    l: for (;;) {
-                        if (mantDig < 9) {
-                            mantDig++;
-                            mant = mant * 10 + (state.current - '0');
-                            expAdj--;
+                        arguments = argumentsFor((char) c);
+                        if (arguments == null) {
+                            throw newDatatypeException("Expected command but "
+                                    + "found \u201c" + (char) c
+                                    + "\u201d (context: \u201c" + context()
+                                    + "\u201d).");
                         }
-                        state.current = state.reader.read();
-                        state = appendToContext(state);
-                        switch (state.current) {
-                            default:
-                                break l;
-                            case '0':
-                            case '1':
-                            case '2':
-                            case '3':
-                            case '4':
-                            case '5':
-                            case '6':
-                            case '7':
-                            case '8':
-                            case '9':
+                        command = (char) c;
+                        expectNumber = true;
+                        state = AFTER_COMMAND;
+                        return;
+                    case AFTER_COMMAND:
+                        if (isSpace(c)) {
+                            return;
                         }
-                    }
-            }
-        }
-
-        switch (state.current) {
-            case 'e':
-            case 'E':
-                state.current = state.reader.read();
-                state = appendToContext(state);
-                switch (state.current) {
-                    default:
-                        reportNonNumber(command, state.current, state.context);
-                        return state;
-                    case '-':
-                        expPos = false;
-                    case '+':
-                        state.current = state.reader.read();
-                        state = appendToContext(state);
-                        switch (state.current) {
-                            default:
-                                reportNonNumber(command, state.current,
-                                        state.context);
-                                return state;
-                            case '0':
-                            case '1':
-                            case '2':
-                            case '3':
-                            case '4':
-                            case '5':
-                            case '6':
-                            case '7':
-                            case '8':
-                            case '9':
+                        if (command == 'm' || command == 'M') {
+                            argument = 0;
+                            state = NUMBER;
+                        } else {
+                            state = ARGUMENTS;
                         }
-                    case '0':
-                    case '1':
-                    case '2':
-                    case '3':
-                    case '4':
-                    case '5':
-                    case '6':
-                    case '7':
-                    case '8':
-                    case '9':
-                }
-
-                en: switch (state.current) {
-                    case '0':
-                        l: for (;;) {
-                            state.current = state.reader.read();
-                            state = appendToContext(state);
-                            switch (state.current) {
-                                case '1':
-                                case '2':
-                                case '3':
-                                case '4':
-                                case '5':
-                                case '6':
-                                case '7':
-                                case '8':
-                                case '9':
-                                    break l;
-                                default:
-                                    break en;
-                                case '0':
-                            }
+                        continue;
+                    case ARGUMENTS:
+                        if (isNumberStart(c)) {
+                            argument = 0;
+                            state = NUMBER;
+                            continue;
                         }
-
-                    case '1':
-                    case '2':
-                    case '3':
-                    case '4':
-                    case '5':
-                    case '6':
-                    case '7':
-                    case '8':
-                    case '9':
-                        l: for (;;) {
-                            if (expDig < 3) {
-                                expDig++;
-                                exp = exp * 10 + (state.current - '0');
+                        if (expectNumber) {
+                            if (command == 'm' || command == 'M'
+                                    || command == 'l' || command == 'L') {
+                                throw unexpected("coordinate pair for "
+                                        + "\u201c" + command
+                                        + "\u201d command", c);
                             }
-                            state.current = state.reader.read();
-                            state = appendToContext(state);
-                            switch (state.current) {
-                                default:
-                                    break l;
-                                case '0':
-                                case '1':
-                                case '2':
-                                case '3':
-                                case '4':
-                                case '5':
-                                case '6':
-                                case '7':
-                                case '8':
-                                case '9':
+                            throw nonNumber(c);
+                        }
+                        state = COMMAND;
+                        continue;
+                    case NUMBER:
+                        if (arguments[argument] == LARGE_ARC_FLAG
+                                || arguments[argument] == SWEEP_FLAG) {
+                            if (c != '0' && c != '1') {
+                                throw unexpected("\u201c0\u201d or \u201c1\u201d"
+                                        + " for " + arguments[argument]
+                                        + " for \u201c" + command
+                                        + "\u201d command", c);
                             }
+                            endArgument();
+                            return;
+                        }
+                        mantissaRead = false;
+                        significant = false;
+                        state = MANTISSA;
+                        if (c == '-' || c == '+') {
+                            return;
+                        }
+                        continue;
+                    case MANTISSA:
+                        if (c == '.') {
+                            state = POINT;
+                            return;
+                        }
+                        if (c == '0') {
+                            mantissaRead = true;
+                            state = LEADING_ZEROS;
+                            return;
+                        }
+                        if (isDigit(c)) {
+                            mantissaRead = true;
+                            significant = true;
+                            state = INTEGER;
+                            return;
+                        }
+                        throw unexpected(arguments[argument] + " for \u201c"
+                                + command + "\u201d command", c);
+                    case LEADING_ZEROS:
+                        if (c == '0') {
+                            return;
+                        }
+                        if (isDigit(c)) {
+                            significant = true;
+                            state = INTEGER;
+                            return;
+                        }
+                        // fall through
+                    case INTEGER:
+                        if (isDigit(c)) {
+                            return;
+                        }
+                        if (c == '.') {
+                            state = POINT;
+                            return;
+                        }
+                        if (c == 'e' || c == 'E') {
+                            state = EXPONENT;
+                            return;
+                        }
+                        endArgument();
+                        continue;
+                    case POINT:
+                        if (c == '0' && !significant) {
+                            state = FRACTION_ZEROS;
+                            return;
+                        }
+                        if (isDigit(c)) {
+                            state = FRACTION;
+                            return;
+                        }
+                        if (!mantissaRead) {
+                            throw nonNumber(c);
+                        }
+                        state = FRACTION;
+                        continue;
+                    case FRACTION_ZEROS:
+                        if (c == '0') {
+                            return;
+                        }
+                        if (isDigit(c)) {
+                            state = FRACTION;
+                            return;
+                        }
+                        if (!mantissaRead) {
+                            // Without an integer part, trailing zeros end
+                            // the number before any exponent.
+                            endArgument();
+                            continue;
+                        }
+                        state = FRACTION;
+                        continue;
+                    case FRACTION:
+                        if (isDigit(c)) {
+                            return;
+                        }
+                        if (c == 'e' || c == 'E') {
+                            state = EXPONENT;
+                            return;
+                        }
+                        endArgument();
+                        continue;
+                    case EXPONENT:
+                        if (c == '-' || c == '+') {
+                            state = EXPONENT_SIGN;
+                            return;
+                        }
+                        // fall through
+                    case EXPONENT_SIGN:
+                        if (!isDigit(c)) {
+                            throw nonNumber(c);
+                        }
+                        state = EXPONENT_DIGITS;
+                        return;
+                    case EXPONENT_DIGITS:
+                        if (isDigit(c)) {
+                            return;
+                        }
+                        endArgument();
+                        continue;
+                    case SEPARATOR:
+                        if (isSpace(c)) {
+                            return;
+                        }
+                        if (c == ',') {
+                            state = SEPARATOR_AFTER_COMMA;
+                            return;
+                        }
+                        state = NUMBER;
+                        continue;
+                    case SEPARATOR_AFTER_COMMA:
+                        if (isSpace(c)) {
+                            return;
+                        }
+                        state = NUMBER;
+                        continue;
+                    case TRAILING_SEPARATOR:
+                        if (isSpace(c)) {
+                            return;
+                        }
+                        if (c == ',') {
+                            expectNumber = true;
+                            state = TRAILING_SEPARATOR_AFTER_COMMA;
+                            return;
+                        }
+                        expectNumber = false;
+                        state = ARGUMENTS;
+                        continue;
+                    case TRAILING_SEPARATOR_AFTER_COMMA:
+                        if (isSpace(c)) {
+                            return;
                         }
+                        state = ARGUMENTS;
+                        continue;
+                    default:
+                        throw new IllegalStateException("Bug!");
                 }
-            default:
-        }
-
-        if (!expPos) {
-            exp = -exp;
-        }
-        exp += expAdj;
-        if (!mantPos) {
-            mant = -mant;
-        }
-        return state;
-    }
-
-    /**
-     * Skips a sub-path.
-     */
-    private State skipSubPath(State state) throws IOException {
-        for (;;) {
-            switch (state.current) {
-                case -1:
-                case 'm':
-                case 'M':
-                    return state;
-                default:
-                    break;
             }
-            state.current = state.reader.read();
-            state = appendToContext(state);
         }
-    }
 
-    /**
-     * Skips the whitespaces in the current reader.
-     */
-    private State skipSpaces(State state) throws IOException {
-        for (;;) {
-            switch (state.current) {
-                default:
-                    return state;
-                case 0x20:
-                case 0x09:
-                case 0x0D:
-                case 0x0A:
+        private void endArgument() {
+            argument++;
+            if (argument == arguments.length) {
+                state = TRAILING_SEPARATOR;
+            } else {
+                state = SEPARATOR;
             }
-            state.current = state.reader.read();
-            state = appendToContext(state);
         }
-    }
 
-    /**
-     * Skips the whitespaces and an optional comma.
-     */
-    private State skipCommaSpaces(State state) throws IOException {
-        wsp1: for (;;) {
-            switch (state.current) {
-                default:
-                    break wsp1;
-                case 0x20:
-                case 0x9:
-                case 0xD:
-                case 0xA:
+        private String context() {
+            if (seen <= MAX_CONTEXT_LENGTH) {
+                return new String(context, 0, seen);
             }
-            state.current = state.reader.read();
-            state = appendToContext(state);
-        }
-        if (state.current == ',') {
-            wsp2: for (;;) {
-                switch (state.current = state.reader.read()) {
-                    default:
-                        state = appendToContext(state);
-                        break wsp2;
-                    case 0x20:
-                    case 0x9:
-                    case 0xA:
-                    case 0xD:
-                        state = appendToContext(state);
-                }
-            }
-        }
-        return state;
-    }
-
-    /**
-     * Skips the whitespaces and an optional comma.
-     *
-     */
-    private State skipCommaSpaces2(State state) throws IOException {
-        wsp1: for (;;) {
-            switch (state.current) {
-                default:
-                    break wsp1;
-                case 0x20:
-                case 0x9:
-                case 0xD:
-                case 0xA:
-                    break;
+            int start = seen % MAX_CONTEXT_LENGTH;
+            StringBuilder sb = new StringBuilder(MAX_CONTEXT_LENGTH);
+            sb.append(context, start, MAX_CONTEXT_LENGTH - start);
+            sb.append(context, 0, start);
+            return sb.toString();
+        }
+
+        private DatatypeException unexpected(String expected, int c) {
+            if (c != -1) {
+                return newDatatypeException("Expected " + expected
+                        + " but found \u201c" + (char) c + "\u201d instead "
+                        + "(context: \u201c" + context() + "\u201d).");
+            } else {
+                return newDatatypeException("Expected " + expected
+                        + " but value ended " + "(context: \u201c"
+                        + context() + "\u201d).");
             }
-            state.current = state.reader.read();
-            state = appendToContext(state);
-        }
-
-        if (state.current != ',') {
-            state.skipped = false; // no comma.
-            return state;
         }
 
-        wsp2: for (;;) {
-            switch (state.current = state.reader.read()) {
-                default:
-                    state = appendToContext(state);
-                    break wsp2;
-                case 0x20:
-                case 0x9:
-                case 0xD:
-                case 0xA:
-                    state = appendToContext(state);
-                    break;
+        private DatatypeException nonNumber(int c) {
+            if (c != -1) {
+                return newDatatypeException("Expected number for \u201c"
+                        + command + "\u201d command but found " + "\u201c"
+                        + (char) c + "\u201d instead " + "(context: \u201c"
+                        + context() + "\u201d).");
+            } else {
+                return newDatatypeException("Expected number for \u201c"
+                        + command + "\u201d command but value ended "
+                        + "(context: \u201c" + context() + "\u201d).");
             }
         }
-        state.skipped = true; // had comma
-        return state;
     }
 
-    private void reportUnexpected(String expected, int ch, StringBuffer context)
-            throws DatatypeException {
-        if (ch != -1) {
-            throw newDatatypeException("Expected " + expected
-                    + " but found \u201c" + (char) ch + "\u201d instead "
-                    + "(context: \u201c" + context.toString() + "\u201d).");
-        } else {
-            throw newDatatypeException("Expected " + expected
-                    + " but value ended " + "(context: \u201c"
-                    + context.toString() + "\u201d).");
-        }
+    @Override
+    public void checkValid(CharSequence literal) throws DatatypeException {
+        new PathDataParser().run(literal);
     }
 
-    private void reportNonNumber(char command, int ch, StringBuffer context)
-            throws DatatypeException {
-        if (ch != -1) {
-            throw newDatatypeException("Expected number for \u201c" + command
-                    + "\u201d command but found " + "\u201c" + (char) ch
-                    + "\u201d instead " + "(context: \u201c"
-                    + context.toString() + "\u201d).");
-        } else {
-            throw newDatatypeException("Expected number for \u201c" + command
-                    + "\u201d command but value ended " + "(context: \u201c"
-                    + context.toString() + "\u201d).");
-        }
+    @Override
+    protected IncrementalDatatypeStreamingValidator createIncrementalValidator() {
+        return new PathDataParser();
     }
 
     @Override
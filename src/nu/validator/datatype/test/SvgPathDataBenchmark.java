@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2026 Mozilla Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package nu.validator.datatype.test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.relaxng.datatype.Datatype;
+import org.relaxng.datatype.DatatypeException;
+import org.relaxng.datatype.DatatypeStreamingValidator;
+import nu.validator.datatype.Html5DatatypeLibrary;
+
+/**
+ * Times the SVG path data datatype on the <code>d</code> attributes of the
+ * SVG files given as arguments, or on synthesized icon-sized paths if there
+ * are no arguments. Both <code>checkValid</code> and the streaming
+ * validator (fed in SAX-sized chunks) are measured.
+ */
+public class SvgPathDataBenchmark {
+
+    private static final Pattern D_ATTRIBUTE = Pattern.compile(
+            "\\sd\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)')");
+
+    private static final int WARMUP_ROUNDS = 20;
+
+    private static final int ROUNDS = 50;
+
+    private static final int CHUNK = 2048;
+
+    /**
+     * @param args
+     * @throws IOException
+     * @throws DatatypeException
+     */
+    public static void main(String[] args) throws IOException,
+            DatatypeException {
+        List<String> paths = new ArrayList<>();
+        for (String arg : args) {
+            String svg = new String(Files.readAllBytes(Paths.get(arg)),
+                    StandardCharsets.UTF_8);
+            Matcher m = D_ATTRIBUTE.matcher(svg);
+            while (m.find()) {
+                paths.add(m.group(1) != null ? m.group(1) : m.group(2));
+            }
+        }
+        if (paths.isEmpty()) {
+            Random random = new Random(0);
+            for (int i = 0; i < 20; i++) {
+                paths.add(synthesize(random, 40 * 1024));
+            }
+        }
+        long chars = 0;
+        for (String path : paths) {
+            chars += path.length();
+        }
+        System.out.println(paths.size() + " paths, " + chars + " chars.");
+
+        Datatype datatype = (new Html5DatatypeLibrary()).createDatatype(
+                "svg-pathdata");
+        for (String path : paths) {
+            datatype.checkValid(path, null);
+        }
+        run(datatype, paths, WARMUP_ROUNDS);
+        long start = System.nanoTime();
+        run(datatype, paths, ROUNDS);
+        report("checkValid", System.nanoTime() - start, chars * ROUNDS);
+
+        List<char[]> arrays = new ArrayList<>();
+        for (String path : paths) {
+            arrays.add(path.toCharArray());
+        }
+        runStreaming(datatype, arrays, WARMUP_ROUNDS);
+        start = System.nanoTime();
+        runStreaming(datatype, arrays, ROUNDS);
+        report("streaming", System.nanoTime() - start, chars * ROUNDS);
+    }
+
+    private static void run(Datatype datatype, List<String> paths,
+            int rounds) throws DatatypeException {
+        for (int i = 0; i < rounds; i++) {
+            for (String path : paths) {
+                datatype.checkValid(path, null);
+            }
+        }
+    }
+
+    private static void runStreaming(Datatype datatype, List<char[]> paths,
+            int rounds) throws DatatypeException {
+        for (int i = 0; i < rounds; i++) {
+            for (char[] path : paths) {
+                DatatypeStreamingValidator validator = datatype.createStreamingValidator(null);
+                for (int off = 0; off < path.length; off += CHUNK) {
+                    validator.addCharacters(path, off,
+                            Math.min(CHUNK, path.length - off));
+                }
+                validator.checkValid();
+            }
+        }
+    }
+
+    private static void report(String name, long nanos, long chars) {
+        System.out.printf("%s: %.1f ms, %.1f MB/s%n", name, nanos / 1e6,
+                (chars * 2 / 1e6) / (nanos / 1e9));
+    }
+
+    /**
+     * Builds a path resembling exported icon data: absolute and relative
+     * curves with optimizer-style number packing.
+     */
+    private static String synthesize(Random random, int length) {
+        StringBuilder sb = new StringBuilder(length + 64);
+        sb.append("M").append(random.nextInt(512)).append(' ').append(
+                random.nextInt(512));
+        String commands = "cClLsSqQhHvVaA";
+        while (sb.length() < length) {
+            char command = commands.charAt(random.nextInt(commands.length()));
+            sb.append(command);
+            int args;
+            switch (command) {
+                case 'c':
+                case 'C':
+                    args = 6;
+                    break;
+                case 's':
+                case 'S':
+                case 'q':
+                case 'Q':
+                    args = 4;
+                    break;
+                case 'h':
+                case 'H':
+                case 'v':
+                case 'V':
+                    args = 1;
+                    break;
+                case 'a':
+                case 'A':
+                    sb.append(random.nextInt(50)).append(' ').append(
+                            random.nextInt(50)).append(" 0 ").append(
+                            random.nextInt(2)).append(' ').append(
+                            random.nextInt(2)).append(' ');
+                    args = 2;
+                    break;
+                default:
+                    args = 2;
+                    break;
+            }
+            for (int i = 0; i < args; i++) {
+                if (i > 0) {
+                    sb.append(random.nextBoolean() ? ',' : ' ');
+                }
+                if (random.nextBoolean()) {
+                    sb.append('-');
+                }
+                sb.append(random.nextInt(100)).append('.').append(
+                        random.nextInt(1000));
+            }
+            if (random.nextInt(50) == 0) {
+                sb.append("z");
+            }
+        }
+        return sb.toString();
+    }
+}
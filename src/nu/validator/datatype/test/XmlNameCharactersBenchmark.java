@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2026 Mozilla Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package nu.validator.datatype.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import nu.validator.datatype.XmlNameCharacters;
+
+/**
+ * Compares <code>XmlNameCharacters.isNCName</code> with the range
+ * alternation regular expression that <code>IdFilter</code> used to match
+ * IDs with. The expression is rebuilt from the table in the same shape, so
+ * the two are first checked to agree on every BMP character and then timed
+ * on MapML-style feature IDs.
+ */
+public class XmlNameCharactersBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+
+    private static final int ROUNDS = 20;
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) {
+        String start = alternation(true);
+        Pattern pattern = Pattern.compile("(?:" + start + ")(?:" + start
+                + "|" + alternation(false) + ")*");
+        for (int c = 0; c <= 0xFFFF; c++) {
+            String s = String.valueOf((char) c);
+            if (pattern.matcher(s).matches() != XmlNameCharacters.isNCName(s)
+                    || pattern.matcher("a" + s).matches() != XmlNameCharacters.isNCName(
+                            "a" + s)) {
+                System.out.println("Mismatch at U+"
+                        + Integer.toHexString(c).toUpperCase());
+                System.exit(1);
+            }
+        }
+
+        Random random = new Random(0);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            switch (random.nextInt(10)) {
+                case 0:
+                    ids.add("\u0440\u0435\u0433\u0438\u043E\u043D-" + i);
+                    break;
+                case 1:
+                    ids.add(i + "-feature");
+                    break;
+                default:
+                    ids.add("feature_" + random.nextInt(100) + "." + i);
+                    break;
+            }
+        }
+        long chars = 0;
+        for (String id : ids) {
+            chars += id.length();
+        }
+        System.out.println(ids.size() + " IDs, " + chars + " chars.");
+
+        runRegex(pattern, ids, WARMUP_ROUNDS);
+        long begin = System.nanoTime();
+        int matches = runRegex(pattern, ids, ROUNDS);
+        report("regex", System.nanoTime() - begin, ids.size() * ROUNDS,
+                matches);
+
+        runTable(ids, WARMUP_ROUNDS);
+        begin = System.nanoTime();
+        matches = runTable(ids, ROUNDS);
+        report("table", System.nanoTime() - begin, ids.size() * ROUNDS,
+                matches);
+    }
+
+    private static int runRegex(Pattern pattern, List<String> ids,
+            int rounds) {
+        int matches = 0;
+        for (int i = 0; i < rounds; i++) {
+            for (String id : ids) {
+                if (pattern.matcher(id).matches()) {
+                    matches++;
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static int runTable(List<String> ids, int rounds) {
+        int matches = 0;
+        for (int i = 0; i < rounds; i++) {
+            for (String id : ids) {
+                if (XmlNameCharacters.isNCName(id)) {
+                    matches++;
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static void report(String name, long nanos, long ids,
+            int matches) {
+        System.out.printf("%s: %.1f ms, %.1f ns/ID (%d matched)%n", name,
+                nanos / 1e6, (double) nanos / ids, matches);
+    }
+
+    /**
+     * Builds an alternation of the ranges of start characters, or of the
+     * ranges of characters that may only follow the start.
+     */
+    private static String alternation(boolean startChars) {
+        StringBuilder sb = new StringBuilder();
+        int c = 0;
+        while (c <= 0xFFFF) {
+            if (!inClass((char) c, startChars)) {
+                c++;
+                continue;
+            }
+            int end = c;
+            while (end < 0xFFFF && inClass((char) (end + 1), startChars)) {
+                end++;
+            }
+            if (sb.length() > 0) {
+                sb.append('|');
+            }
+            if (c == end) {
+                sb.append(escape(c));
+            } else {
+                sb.append('[').append(escape(c)).append('-').append(
+                        escape(end)).append(']');
+            }
+            c = end + 1;
+        }
+        return sb.toString();
+    }
+
+    private static boolean inClass(char c, boolean startChars) {
+        if (startChars) {
+            return XmlNameCharacters.isNCNameStart(c);
+        }
+        return XmlNameCharacters.isNCNameTrail(c)
+                && !XmlNameCharacters.isNCNameStart(c);
+    }
+
+    private static String escape(int c) {
+        return String.format("\\u%04X", c);
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2026 Mozilla Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package nu.validator.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An input stream that reads a local file through a read-only memory
+ * mapping instead of copying it through <code>read()</code> system calls.
+ * Files larger than one mapping can hold are mapped one segment at a time.
+ */
+public final class MappedFileInputStream extends InputStream {
+
+    private static final long SEGMENT_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+
+    private final long size;
+
+    private long segmentStart = 0;
+
+    private MappedByteBuffer segment;
+
+    /**
+     * @param path the file to read
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public MappedFileInputStream(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            this.size = channel.size();
+            map(0);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the size of the file when it was opened.
+     *
+     * @return the size in bytes
+     */
+    public long size() {
+        return size;
+    }
+
+    private void map(long position) throws IOException {
+        segmentStart = position;
+        segment = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                Math.min(SEGMENT_SIZE, size - position));
+    }
+
+    private boolean ensureRemaining() throws IOException {
+        if (segment.hasRemaining()) {
+            return true;
+        }
+        long next = segmentStart + segment.capacity();
+        if (next >= size) {
+            return false;
+        }
+        map(next);
+        return true;
+    }
+
+    private long position() {
+        return segmentStart + segment.position();
+    }
+
+    /**
+     * @see java.io.InputStream#read()
+     */
+    @Override
+    public int read() throws IOException {
+        if (!ensureRemaining()) {
+            return -1;
+        }
+        return segment.get() & 0xFF;
+    }
+
+    /**
+     * @see java.io.InputStream#read(byte[], int, int)
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureRemaining()) {
+            return -1;
+        }
+        int n = Math.min(len, segment.remaining());
+        segment.get(b, off, n);
+        return n;
+    }
+
+    /**
+     * @see java.io.InputStream#skip(long)
+     */
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        long skipped = Math.min(n, size - position());
+        if (skipped <= segment.remaining()) {
+            segment.position(segment.position() + (int) skipped);
+        } else {
+            map(position() + skipped);
+        }
+        return skipped;
+    }
+
+    /**
+     * @see java.io.InputStream#available()
+     */
+    @Override
+    public int available() throws IOException {
+        return (int) Math.min(Integer.MAX_VALUE, size - position());
+    }
+
+    /**
+     * Closes the channel. The mapping itself is released when it is
+     * garbage collected.
+     *
+     * @see java.io.InputStream#close()
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
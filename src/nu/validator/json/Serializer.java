@@ -48,6 +48,8 @@ public class Serializer implements JsonHandler {
 
     private final Writer writer;
 
+    private final boolean closeOnEndDocument;
+
     private static Writer newOutputStreamWriter(OutputStream out) {
         CharsetEncoder enc = Charset.forName("UTF-8").newEncoder();
         enc.onMalformedInput(CodingErrorAction.REPLACE);
@@ -56,7 +58,20 @@ public class Serializer implements JsonHandler {
     }
     
     public Serializer(OutputStream out) {
+        this(out, true);
+    }
+
+    /**
+     * @param out
+     *            the stream to write to
+     * @param closeOnEndDocument
+     *            <code>false</code> to only flush at the end of each document,
+     *            so that further documents can be written to the same stream
+     *            (as with newline-delimited JSON)
+     */
+    public Serializer(OutputStream out, boolean closeOnEndDocument) {
         this.writer = newOutputStreamWriter(out);
+        this.closeOnEndDocument = closeOnEndDocument;
         push(State.INITIAL);
     }
 
@@ -204,7 +219,9 @@ public class Serializer implements JsonHandler {
                     }
                     writer.write('\n');
                     writer.flush();
-                    writer.close();
+                    if (closeOnEndDocument) {
+                        writer.close();
+                    }
                     pop();
                     break;
                 default:
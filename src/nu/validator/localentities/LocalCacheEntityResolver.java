@@ -47,6 +47,10 @@ public class LocalCacheEntityResolver implements EntityResolver {
     public static InputStream getHtml5SpecAsStream() {
         return LOADER.getResourceAsStream("nu/validator/localentities/files/html5spec");
     }
+
+    public static InputStream getHtml5SpecSnapshotAsStream() {
+        return LOADER.getResourceAsStream("nu/validator/localentities/files/html5spec-snapshot");
+    }
     
     private EntityResolver delegate;
 
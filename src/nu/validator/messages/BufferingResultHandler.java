@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2026 Mozilla Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package nu.validator.messages;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Keeps the result and its message for emitters that write them out later,
+ * together with other end-of-run data.
+ */
+public class BufferingResultHandler implements ResultHandler {
+
+    private final StringBuilder message = new StringBuilder();
+
+    private Result result;
+
+    @Override
+    public void characters(char[] ch, int start, int length)
+            throws SAXException {
+        message.append(ch, start, length);
+    }
+
+    @Override
+    public void startResult(Result result) throws SAXException {
+        this.result = result;
+        message.setLength(0);
+    }
+
+    @Override
+    public void endResult() throws SAXException {
+    }
+
+    /**
+     * @return the result, or <code>null</code> if none has been reported
+     */
+    public Result getResult() {
+        return result;
+    }
+
+    public String getMessage() {
+        return message.toString();
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2026 Mozilla Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package nu.validator.messages;
+
+import java.util.SortedSet;
+
+import nu.validator.source.SourceHandler;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Buffers a message extract along with the offset and length of its
+ * highlighted part.
+ */
+public class CborExtractHandler implements SourceHandler {
+
+    private enum HiliteState {
+        BEFORE,
+        INSIDE,
+        AFTER
+    }
+
+    private final StringBuilder extract = new StringBuilder();
+
+    private int hiliteStart;
+
+    private int hiliteLength;
+
+    private HiliteState hiliteState;
+
+    @Override
+    public void characters(char[] ch, int start, int length)
+            throws SAXException {
+        extract.append(ch, start, length);
+        switch (hiliteState) {
+            case BEFORE:
+                hiliteStart += length;
+                break;
+            case INSIDE:
+                hiliteLength += length;
+                break;
+            case AFTER:
+                break;
+        }
+    }
+
+    @Override
+    public void endCharHilite() throws SAXException {
+        hiliteState = HiliteState.AFTER;
+    }
+
+    @Override
+    public void endRange() throws SAXException {
+        hiliteState = HiliteState.AFTER;
+    }
+
+    @Override
+    public void endSource() throws SAXException {
+    }
+
+    @Override
+    public void newLine() throws SAXException {
+        extract.append('\n');
+        switch (hiliteState) {
+            case BEFORE:
+                hiliteStart++;
+                break;
+            case INSIDE:
+                hiliteLength++;
+                break;
+            case AFTER:
+                break;
+        }
+    }
+
+    @Override
+    public void startCharHilite(int oneBasedLine, int oneBasedColumn)
+            throws SAXException {
+        hiliteState = HiliteState.INSIDE;
+    }
+
+    @Override
+    public void startRange(int oneBasedLine, int oneBasedColumn)
+            throws SAXException {
+        hiliteState = HiliteState.INSIDE;
+    }
+
+    @Override
+    public void startSource(String type, String encoding) throws SAXException {
+        extract.setLength(0);
+        hiliteStart = 0;
+        hiliteLength = 0;
+        hiliteState = HiliteState.BEFORE;
+    }
+
+    @Override
+    public void setLineErrors(SortedSet<Integer> oneBasedLineErrors)
+            throws SAXException {
+    }
+
+    CharSequence getExtract() {
+        return extract;
+    }
+
+    int getHiliteStart() {
+        return hiliteStart;
+    }
+
+    int getHiliteLength() {
+        return hiliteLength;
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2026 Mozilla Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package nu.validator.messages;
+
+import java.io.OutputStream;
+
+import nu.validator.cbor.CborEncoder;
+import nu.validator.messages.types.MessageType;
+import nu.validator.source.SourceHandler;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Emits messages in a compact binary form for machine consumers: a CBOR
+ * stringref namespace (tag 256) wrapping an indefinite-length array of
+ * records, so that repeated strings (types, URLs, message templates and
+ * arguments) are only spelled out once. Each record is an array whose first
+ * item is its kind:
+ *
+ * <ul>
+ * <li><code>[0, documentUri]</code> at the start</li>
+ * <li><code>[1, type, subType, url, firstLine, firstColumn, lastLine,
+ * lastColumn, template, [arguments...], extract]</code> for each message,
+ * where unknown positions are -1, the template has a U+FFFC for each
+ * argument, and extract is <code>null</code> or
+ * <code>[text, hiliteStart, hiliteLength]</code></li>
+ * <li><code>[2, url, errors, warnings, fatalErrors]</code> after each file of
+ * a batch run</li>
+ * <li><code>[3, result, message, language]</code> at the end</li>
+ * </ul>
+ */
+public class CborMessageEmitter extends MessageEmitter {
+
+    private static final int START_RECORD = 0;
+
+    private static final int MESSAGE_RECORD = 1;
+
+    private static final int FILE_RECORD = 2;
+
+    private static final int RESULT_RECORD = 3;
+
+    private static final int MESSAGE_RECORD_LENGTH = 11;
+
+    private static final int TEXT_INDEX = 8;
+
+    private static final int EXTRACT_INDEX = 10;
+
+    private final CborEncoder encoder;
+
+    private final boolean extracts;
+
+    private final CborMessageTextHandler messageTextHandler = new CborMessageTextHandler();
+
+    private final CborExtractHandler extractHandler = new CborExtractHandler();
+
+    private final BufferingResultHandler resultHandler = new BufferingResultHandler();
+
+    private int itemsWritten;
+
+    /**
+     * @param out
+     *            the stream to write to
+     * @param extracts
+     *            whether to include source extracts in message records
+     */
+    public CborMessageEmitter(OutputStream out, boolean extracts) {
+        this.encoder = new CborEncoder(out);
+        this.extracts = extracts;
+    }
+
+    /**
+     * @see nu.validator.messages.MessageEmitter#startMessages(java.lang.String, boolean)
+     */
+    @Override
+    public void startMessages(String documentUri, boolean willShowSource)
+            throws SAXException {
+        encoder.startStream();
+        encoder.startArray(2);
+        encoder.number(START_RECORD);
+        encoder.stringRef(documentUri);
+    }
+
+    @Override
+    public void startMessage(MessageType type, String systemId,
+            int oneBasedFirstLine, int oneBasedFirstColumn,
+            int oneBasedLastLine, int oneBasedLastColumn, boolean exact)
+            throws SAXException {
+        encoder.startArray(MESSAGE_RECORD_LENGTH);
+        encoder.number(MESSAGE_RECORD);
+        encoder.stringRef(type.getSuperType());
+        encoder.stringRef(type.getSubType());
+        encoder.stringRef(systemId);
+        encoder.number(oneBasedFirstLine);
+        encoder.number(oneBasedFirstColumn);
+        encoder.number(oneBasedLastLine);
+        encoder.number(oneBasedLastColumn);
+        itemsWritten = TEXT_INDEX;
+    }
+
+    /**
+     * @see nu.validator.messages.MessageEmitter#startText()
+     */
+    @Override
+    public MessageTextHandler startText() throws SAXException {
+        messageTextHandler.reset();
+        return messageTextHandler;
+    }
+
+    /**
+     * @see nu.validator.messages.MessageEmitter#endText()
+     */
+    @Override
+    public void endText() throws SAXException {
+        encoder.stringRef(messageTextHandler.getTemplate());
+        encoder.startArray(messageTextHandler.getArguments().size());
+        for (String argument : messageTextHandler.getArguments()) {
+            encoder.stringRef(argument);
+        }
+        itemsWritten = EXTRACT_INDEX;
+    }
+
+    /**
+     * @see nu.validator.messages.MessageEmitter#startSource()
+     */
+    @Override
+    public SourceHandler startSource() throws SAXException {
+        return extracts ? extractHandler : null;
+    }
+
+    /**
+     * @see nu.validator.messages.MessageEmitter#endSource()
+     */
+    @Override
+    public void endSource() throws SAXException {
+        if (!extracts) {
+            return;
+        }
+        padTo(EXTRACT_INDEX);
+        encoder.startArray(3);
+        encoder.string(extractHandler.getExtract());
+        encoder.number(extractHandler.getHiliteStart());
+        encoder.number(extractHandler.getHiliteLength());
+        itemsWritten = MESSAGE_RECORD_LENGTH;
+    }
+
+    @Override
+    public void endMessage() throws SAXException {
+        padTo(MESSAGE_RECORD_LENGTH);
+    }
+
+    /**
+     * @see nu.validator.messages.MessageEmitter#endFile(java.lang.String, int, int, int)
+     */
+    @Override
+    public void endFile(String systemId, int errors, int warnings,
+            int fatalErrors) throws SAXException {
+        encoder.startArray(5);
+        encoder.number(FILE_RECORD);
+        encoder.stringRef(systemId);
+        encoder.number(errors);
+        encoder.number(warnings);
+        encoder.number(fatalErrors);
+        encoder.flush();
+    }
+
+    /**
+     * @see nu.validator.messages.MessageEmitter#startResult()
+     */
+    @Override
+    public ResultHandler startResult() throws SAXException {
+        return resultHandler;
+    }
+
+    /**
+     * @see nu.validator.messages.MessageEmitter#endMessages(java.lang.String)
+     */
+    @Override
+    public void endMessages(String language) throws SAXException {
+        encoder.startArray(4);
+        encoder.number(RESULT_RECORD);
+        Result result = resultHandler.getResult();
+        encoder.stringRef(result == null ? null
+                : result.name().toLowerCase());
+        encoder.string(result == null ? null : resultHandler.getMessage());
+        encoder.stringRef("".equals(language) ? null : language);
+        encoder.endStream();
+    }
+
+    /**
+     * Writes nulls for the message record items that weren't produced (no
+     * text, no extract), keeping the record length fixed.
+     */
+    private void padTo(int index) throws SAXException {
+        if (itemsWritten == TEXT_INDEX && index > TEXT_INDEX) {
+            encoder.nullValue();
+            encoder.startArray(0);
+            itemsWritten = EXTRACT_INDEX;
+        }
+        while (itemsWritten < index) {
+            encoder.nullValue();
+            itemsWritten++;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2026 Mozilla Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package nu.validator.messages;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Splits message text into a template and its arguments: each code span
+ * becomes an argument and is replaced in the template by
+ * {@link #ARGUMENT_SLOT}, so that the template is the same for every
+ * occurrence of a given kind of message.
+ */
+public class CborMessageTextHandler implements MessageTextHandler {
+
+    /**
+     * U+FFFC OBJECT REPLACEMENT CHARACTER, marks an argument slot.
+     */
+    public static final char ARGUMENT_SLOT = '\uFFFC';
+
+    private final StringBuilder template = new StringBuilder();
+
+    private final StringBuilder argument = new StringBuilder();
+
+    private final List<String> arguments = new ArrayList<>();
+
+    private boolean inCode;
+
+    void reset() {
+        template.setLength(0);
+        arguments.clear();
+        inCode = false;
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length)
+            throws SAXException {
+        if (inCode) {
+            argument.append(ch, start, length);
+        } else {
+            template.append(ch, start, length);
+        }
+    }
+
+    @Override
+    public void startCode() throws SAXException {
+        template.append(ARGUMENT_SLOT);
+        argument.setLength(0);
+        inCode = true;
+    }
+
+    @Override
+    public void endCode() throws SAXException {
+        arguments.add(argument.toString());
+        inCode = false;
+    }
+
+    @Override
+    public void startLink(String href, String title) throws SAXException {
+    }
+
+    @Override
+    public void endLink() throws SAXException {
+    }
+
+    String getTemplate() {
+        return template.toString();
+    }
+
+    List<String> getArguments() {
+        return arguments;
+    }
+}
@@ -98,6 +98,18 @@ public class GnuMessageEmitter extends MessageEmitter {
         }
     }
 
+    /**
+     * @see nu.validator.messages.MessageEmitter#flush()
+     */
+    @Override
+    public void flush() throws SAXException {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new SAXException(e.getMessage(), e);
+        }
+    }
+
     /**
      * @see nu.validator.messages.MessageEmitter#endMessages()
      */
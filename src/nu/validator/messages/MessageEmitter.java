@@ -82,6 +82,23 @@ public abstract class MessageEmitter {
 
     }
 
+    /**
+     * Called in batch mode after each file has been checked, with the number
+     * of messages reported for that file.
+     */
+    public void endFile(String systemId, int errors, int warnings,
+            int fatalErrors) throws SAXException {
+
+    }
+
+    /**
+     * Writes out anything the emitter has buffered so far, so that the
+     * output of a file can be passed on before the run ends.
+     */
+    public void flush() throws SAXException {
+
+    }
+
     public ResultHandler startResult() throws SAXException {
         return null;        
     }
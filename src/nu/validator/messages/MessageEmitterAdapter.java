@@ -27,7 +27,7 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
@@ -36,6 +36,7 @@ import java.util.Set;
 
 import nu.validator.checker.NormalizationChecker;
 import nu.validator.checker.DatatypeMismatchException;
+import nu.validator.checker.MemoryBudget;
 import nu.validator.checker.VnuBadAttrValueException;
 import nu.validator.checker.VnuBadElementNameException;
 import nu.validator.datatype.Html5DatatypeException;
@@ -175,6 +176,15 @@ public class MessageEmitterAdapter implements ErrorHandler {
     private static final long MAX_MESSAGES = Integer.parseInt(System.getProperty(
             "nu.validator.messages.limit", "1000"));
 
+    private static final int AGGREGATE_THRESHOLD = Integer.parseInt(System.getProperty(
+            "nu.validator.messages.aggregate", "0"));
+
+    /**
+     * How many locations of an aggregated message are listed; the rest are
+     * only counted.
+     */
+    private static final int MAX_REPEATED_LOCATIONS = 20;
+
     private static final Map<String, String[]> validInputTypesByAttributeName = new TreeMap<>();
 
     static {
@@ -412,12 +422,24 @@ public class MessageEmitterAdapter implements ErrorHandler {
 
     private int errors = 0;
 
+    /**
+     * Warnings and errors counted but not emitted because they repeat a
+     * message more than <code>aggregateThreshold</code> times.
+     */
+    private int aggregatedMessages = 0;
+
     private int fatalErrors = 0;
 
     private final boolean batchMode;
 
     private int nonDocumentErrors = 0;
 
+    private int errorsAtFileStart = 0;
+
+    private int warningsAtFileStart = 0;
+
+    private int fatalErrorsAtFileStart = 0;
+
     private final Pattern filterPattern;
 
     private final SourceCode sourceCode;
@@ -440,6 +462,14 @@ public class MessageEmitterAdapter implements ErrorHandler {
 
     private boolean errorsOnly = false;
 
+    private int aggregateThreshold = AGGREGATE_THRESHOLD;
+
+    private int errorBudget = 0;
+
+    private boolean errorBudgetReached = false;
+
+    private final Map<String, RepeatedMessage> repeatedMessages = new LinkedHashMap<>();
+
     @SuppressWarnings("deprecation")
     protected static String scrub(String s) throws SAXException {
         if (s == null) {
@@ -464,11 +494,29 @@ public class MessageEmitterAdapter implements ErrorHandler {
     }
 
     private void throwIfTooManyMessages() throws SAXException {
-        if (!batchMode && (warnings + errors > MAX_MESSAGES)) {
+        if (!batchMode
+                && (warnings + errors - aggregatedMessages > MAX_MESSAGES)) {
             throw new TooManyErrorsException("Too many messages.");
         }
     }
 
+    /**
+     * Stops checking the current document once it has as many errors as the
+     * error budget allows. Aborting the parse this way also skips the
+     * end-of-document passes of the checkers.
+     */
+    private void throwIfErrorBudgetReached() throws SAXException {
+        if (errorBudget > 0 && !errorBudgetReached
+                && (errors + fatalErrors - errorsAtFileStart
+                        - fatalErrorsAtFileStart) >= errorBudget) {
+            errorBudgetReached = true;
+            String msg = "Stopped checking after " + errorBudget
+                    + (errorBudget == 1 ? " error." : " errors.");
+            info(msg);
+            throw new ErrorBudgetExceededException(msg);
+        }
+    }
+
     public MessageEmitterAdapter(Pattern filterPattern, SourceCode sourceCode,
             boolean showSource, ImageCollector imageCollector, int lineOffset,
             boolean batchMode, MessageEmitter messageEmitter) {
@@ -519,6 +567,21 @@ public class MessageEmitterAdapter implements ErrorHandler {
         return warnings;
     }
 
+    /**
+     * Adds the message counts of another adapter to the counts of this one,
+     * so that {@link #end(String, String, String)} reports the result of
+     * files that were checked through several adapters in parallel.
+     */
+    public void addCounts(MessageEmitterAdapter other) {
+        warnings += other.warnings;
+        errors += other.errors;
+        fatalErrors += other.fatalErrors;
+        nonDocumentErrors += other.nonDocumentErrors;
+        warningsAtFileStart = warnings;
+        errorsAtFileStart = errors;
+        fatalErrorsAtFileStart = fatalErrors;
+    }
+
     private boolean isErrors() {
         return !(errors == 0 && fatalErrors == 0);
     }
@@ -541,7 +604,6 @@ public class MessageEmitterAdapter implements ErrorHandler {
             return;
         }
         this.warnings++;
-        throwIfTooManyMessages();
         messageFromSAXParseException(MessageType.WARNING, e, exact, null);
     }
 
@@ -558,7 +620,8 @@ public class MessageEmitterAdapter implements ErrorHandler {
      * @throws SAXException
      */
     private void error(SAXParseException e, boolean exact) throws SAXException {
-        if ((!batchMode && fatalErrors > 0) || nonDocumentErrors > 0) {
+        if ((!batchMode && fatalErrors > 0) || nonDocumentErrors > 0
+                || errorBudgetReached) {
             return;
         }
         Map<String, DatatypeException> datatypeErrors = null;
@@ -581,7 +644,6 @@ public class MessageEmitterAdapter implements ErrorHandler {
                     Html5DatatypeException ex5 = (Html5DatatypeException) dex;
                     if (ex5.isWarning()) {
                         this.warnings++;
-                        throwIfTooManyMessages();
                         messageFromSAXParseException(MessageType.WARNING, e,
                                 exact, null);
                         return;
@@ -590,23 +652,24 @@ public class MessageEmitterAdapter implements ErrorHandler {
             }
         }
         this.errors++;
-        throwIfTooManyMessages();
         messageFromSAXParseException(MessageType.ERROR, e, exact, null);
+        throwIfErrorBudgetReached();
     }
 
     public void errorWithStart(SAXParseException e, int[] start)
             throws SAXException {
-        if ((!batchMode && fatalErrors > 0) || nonDocumentErrors > 0) {
+        if ((!batchMode && fatalErrors > 0) || nonDocumentErrors > 0
+                || errorBudgetReached) {
             return;
         }
         this.errors++;
-        throwIfTooManyMessages();
         int startLine = start[0];
         int startColumn = start[1];
         int lastLine = e.getLineNumber();
         int lastColumn = e.getColumnNumber();
         boolean exact = (startLine == lastLine && startColumn == lastColumn);
         messageFromSAXParseException(MessageType.ERROR, e, exact, start);
+        throwIfErrorBudgetReached();
     }
 
     /**
@@ -647,6 +710,32 @@ public class MessageEmitterAdapter implements ErrorHandler {
                 null);
     }
 
+    /**
+     * Warns if the memory budget made checking the current document
+     * degrade: if it was exceeded, cross-reference checks were skipped, and
+     * if the source was given up, extracts are missing.
+     */
+    public void reportMemoryBudget(MemoryBudget memoryBudget)
+            throws SAXException {
+        boolean checksSkipped = memoryBudget.isExceeded();
+        boolean sourceDropped = sourceCode.isRetentionDropped();
+        if (!checksSkipped && !sourceDropped) {
+            return;
+        }
+        String msg;
+        if (checksSkipped && sourceDropped) {
+            msg = "The document exceeded the memory budget, so the source was"
+                    + " not retained and cross-reference checks were skipped.";
+        } else if (checksSkipped) {
+            msg = "The document exceeded the memory budget, so cross-reference"
+                    + " checks were skipped.";
+        } else {
+            msg = "The document exceeded the memory budget for its source, so"
+                    + " the source was not retained.";
+        }
+        warning(new SAXParseException(msg, null, sourceCode.getUri(), -1, -1));
+    }
+
     public void ioError(IOException e) throws SAXException {
         this.nonDocumentErrors++;
         String systemId = null;
@@ -672,6 +761,29 @@ public class MessageEmitterAdapter implements ErrorHandler {
         emitter.startMessages(scrub(shortenDataUri(documentUri)), showSource);
     }
 
+    /**
+     * Reports the per-file message counts for the file that was checked since
+     * the previous call (or since {@link #start(String)}), for emitters that
+     * summarize each file of a batch run.
+     */
+    public void endFile(String systemId) throws SAXException {
+        emitRepeatedMessages();
+        emitter.endFile(scrub(shortenDataUri(systemId)),
+                errors - errorsAtFileStart, warnings - warningsAtFileStart,
+                fatalErrors - fatalErrorsAtFileStart);
+        errorsAtFileStart = errors;
+        warningsAtFileStart = warnings;
+        fatalErrorsAtFileStart = fatalErrors;
+        errorBudgetReached = false;
+    }
+
+    /**
+     * Writes out the messages the emitter has buffered so far.
+     */
+    public void flush() throws SAXException {
+        emitter.flush();
+    }
+
     private String shortenDataUri(String uri) {
         if (DataUri.startsWithData(uri)) {
             return "data:\u2026";
@@ -682,6 +794,7 @@ public class MessageEmitterAdapter implements ErrorHandler {
 
     public void end(String successMessage, String failureMessage,
             String language) throws SAXException {
+        emitRepeatedMessages();
         ResultHandler resultHandler = emitter.startResult();
         if (resultHandler != null) {
             if (isIndeterminate()) {
@@ -733,44 +846,27 @@ public class MessageEmitterAdapter implements ErrorHandler {
 
     private void emitImageReview(ImageReviewHandler imageReviewHandler)
             throws SAXException {
-        List<Image> noAltNoLink = new LinkedList<>();
-        List<Image> noAltLink = new LinkedList<>();
-        List<Image> emptyAlt = new LinkedList<>();
-        List<Image> hasAlt = new LinkedList<>();
-
-        for (Image image : imageCollector) {
-            String alt = image.getAlt();
-            if (alt == null) {
-                if (image.isLinked()) {
-                    noAltLink.add(image);
-                } else {
-                    noAltNoLink.add(image);
-                }
-            } else if ("".equals(alt)) {
-                emptyAlt.add(image);
-            } else {
-                hasAlt.add(image);
-            }
-        }
-
-        emitImageList(imageReviewHandler, noAltLink, NO_ALT_LINK_HEADING,
-                NO_ALT_LINK_ADVICE, false);
-        emitImageList(imageReviewHandler, noAltNoLink, NO_ALT_NO_LINK_HEADING,
-                NO_ALT_NO_LINK_ADVICE, false);
-        emitImageList(imageReviewHandler, emptyAlt, EMPTY_ALT,
+        emitImageList(imageReviewHandler, ImageCollector.NO_ALT_LINK,
+                NO_ALT_LINK_HEADING, NO_ALT_LINK_ADVICE, false);
+        emitImageList(imageReviewHandler, ImageCollector.NO_ALT_NO_LINK,
+                NO_ALT_NO_LINK_HEADING, NO_ALT_NO_LINK_ADVICE, false);
+        emitImageList(imageReviewHandler, ImageCollector.EMPTY_ALT, EMPTY_ALT,
                 EMPTY_ALT_ADVICE, false);
-        emitImageList(imageReviewHandler, hasAlt, HAS_ALT, HAS_ALT_ADVICE, true);
+        emitImageList(imageReviewHandler, ImageCollector.HAS_ALT, HAS_ALT,
+                HAS_ALT_ADVICE, true);
     }
 
     private void emitImageList(ImageReviewHandler imageReviewHandler,
-            List<Image> list, char[] heading, DocumentFragment instruction,
+            int category, char[] heading, DocumentFragment instruction,
             boolean hasAlt) throws SAXException {
-        if (!list.isEmpty()) {
+        int size = imageCollector.size(category);
+        if (size > 0) {
             imageReviewHandler.startImageGroup(heading, instruction, hasAlt);
-            for (Image image : list) {
-                String systemId = image.getSystemId();
-                int oneBasedLine = image.getLineNumber();
-                int oneBasedColumn = image.getColumnNumber();
+            for (int i = 0; i < size; i++) {
+                String systemId = imageCollector.getSystemId(category, i);
+                int oneBasedLine = imageCollector.getLineNumber(category, i);
+                int oneBasedColumn = imageCollector.getColumnNumber(category, i);
+                Image image = imageCollector.get(category, i);
                 Location rangeLast = sourceCode.newLocatorLocation(
                         oneBasedLine, oneBasedColumn);
                 if (sourceCode.isWithinKnownSource(rangeLast)) {
@@ -826,6 +922,19 @@ public class MessageEmitterAdapter implements ErrorHandler {
         if (errorsOnly && type.getSuperType() == "info") {
             return;
         }
+        boolean counted = type == MessageType.ERROR
+                || type == MessageType.WARNING;
+        if (aggregateThreshold > 0 && msg != null
+                && isRepeatOverThreshold(type, msg, systemId, oneBasedLine,
+                        oneBasedColumn)) {
+            if (counted) {
+                aggregatedMessages++;
+            }
+            return;
+        }
+        if (counted) {
+            throwIfTooManyMessages();
+        }
         String uri = sourceCode.getUri();
         if (oneBasedLine > -1
                 && (uri == systemId || (uri != null && uri.equals(systemId)))) {
@@ -846,6 +955,72 @@ public class MessageEmitterAdapter implements ErrorHandler {
         }
     }
 
+    /**
+     * Counts an occurrence of a message and, once the same message (same
+     * type and same text, which includes its arguments) has been emitted
+     * <code>aggregateThreshold</code> times, records just its location so
+     * that the rest can be summarized by {@link #emitRepeatedMessages()}.
+     */
+    private boolean isRepeatOverThreshold(MessageType type, String msg,
+            String systemId, int oneBasedLine, int oneBasedColumn) {
+        String key = type.getFlatType() + '\u0000' + msg;
+        RepeatedMessage repeated = repeatedMessages.get(key);
+        if (repeated == null) {
+            repeated = new RepeatedMessage(type, msg, systemId);
+            repeatedMessages.put(key, repeated);
+        }
+        repeated.count++;
+        if (repeated.count <= aggregateThreshold) {
+            return false;
+        }
+        repeated.addLocation(oneBasedLine, oneBasedColumn);
+        return true;
+    }
+
+    private void emitRepeatedMessages() throws SAXException {
+        for (RepeatedMessage repeated : repeatedMessages.values()) {
+            int more = repeated.count - aggregateThreshold;
+            if (more <= 0) {
+                continue;
+            }
+            String systemId = batchMode ? repeated.systemId
+                    : sourceCode.getUri();
+            startMessage(repeated.type, scrub(shortenDataUri(systemId)), -1,
+                    -1, -1, -1, false);
+            MessageTextHandler messageTextHandler = emitter.startText();
+            if (messageTextHandler != null) {
+                emitStringWithQurlyQuotes(messageTextHandler, repeated.message);
+                StringBuilder sb = new StringBuilder();
+                sb.append(" (").append(more).append(
+                        more == 1 ? " more time" : " more times");
+                String separator = ", at ";
+                int listed = 0;
+                for (int i = 0; i < repeated.locationCount; i++) {
+                    int oneBasedLine = repeated.locations[2 * i];
+                    int oneBasedColumn = repeated.locations[2 * i + 1];
+                    if (oneBasedLine == -1) {
+                        continue;
+                    }
+                    sb.append(separator).append(oneBasedLine + lineOffset);
+                    if (oneBasedColumn != -1) {
+                        sb.append(':').append(oneBasedColumn);
+                    }
+                    separator = ", ";
+                    listed++;
+                }
+                if (listed > 0 && more > listed) {
+                    sb.append(", and ").append(more - listed).append(" more");
+                }
+                sb.append(").");
+                messageTextHandler.characters(sb.toString().toCharArray(), 0,
+                        sb.length());
+            }
+            emitter.endText();
+            endMessage();
+        }
+        repeatedMessages.clear();
+    }
+
     private void messageWithRange(MessageType type, Exception message,
             String systemId, int oneBasedLine, int oneBasedColumn, int[] start)
             throws SAXException {
@@ -1699,6 +1874,50 @@ public class MessageEmitterAdapter implements ErrorHandler {
         xhtmlSaxEmitter.endElement("a");
     }
 
+    private static final class RepeatedMessage {
+
+        private final MessageType type;
+
+        private final String message;
+
+        private final String systemId;
+
+        private int count;
+
+        /**
+         * Line and column pairs of the first repeats; allocated when the
+         * message first goes over the threshold, since most messages never
+         * do.
+         */
+        private int[] locations;
+
+        private int locationCount;
+
+        RepeatedMessage(MessageType type, String message, String systemId) {
+            this.type = type;
+            this.message = message;
+            this.systemId = systemId;
+        }
+
+        void addLocation(int oneBasedLine, int oneBasedColumn) {
+            if (locationCount == MAX_REPEATED_LOCATIONS) {
+                return;
+            }
+            if (locations == null) {
+                locations = new int[8];
+            } else if (2 * locationCount == locations.length) {
+                int[] newLocations = new int[Math.min(locations.length * 2,
+                        2 * MAX_REPEATED_LOCATIONS)];
+                System.arraycopy(locations, 0, newLocations, 0,
+                        locations.length);
+                locations = newLocations;
+            }
+            locations[2 * locationCount] = oneBasedLine;
+            locations[2 * locationCount + 1] = oneBasedColumn;
+            locationCount++;
+        }
+    }
+
     private final class ExactErrorHandler implements ErrorHandler {
 
         private final MessageEmitterAdapter owner;
@@ -1780,6 +1999,30 @@ public class MessageEmitterAdapter implements ErrorHandler {
         this.errorsOnly = errorsOnly;
     }
 
+    /**
+     * Sets how many occurrences of the same message are emitted in full;
+     * further occurrences are reported as a count plus a list of locations.
+     *
+     * @param aggregateThreshold
+     *            the number of occurrences to emit in full, or 0 to emit all
+     *            occurrences in full
+     */
+    public void setAggregateThreshold(int aggregateThreshold) {
+        this.aggregateThreshold = aggregateThreshold;
+    }
+
+    /**
+     * Sets the error budget: checking of a document (of each file, in batch
+     * mode) stops with an {@link ErrorBudgetExceededException} once this
+     * many errors have been reported for it.
+     *
+     * @param errorBudget
+     *            the number of errors after which to stop, or 0 for no limit
+     */
+    public void setErrorBudget(int errorBudget) {
+        this.errorBudget = errorBudget;
+    }
+
     /**
      * @throws SAXException
      * @see nu.validator.messages.MessageEmitter#endMessage()
@@ -167,6 +167,18 @@ public class TextMessageEmitter extends MessageEmitter {
         this.textEmitted = false;
     }
 
+    /**
+     * @see nu.validator.messages.MessageEmitter#flush()
+     */
+    @Override
+    public void flush() throws SAXException {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new SAXException(e.getMessage(), e);
+        }
+    }
+
     /**
      * @see nu.validator.messages.MessageEmitter#endMessages()
      */
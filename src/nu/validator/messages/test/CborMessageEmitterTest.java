@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2026 Mozilla Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package nu.validator.messages.test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import nu.validator.cbor.CborEncoder;
+import nu.validator.messages.CborMessageEmitter;
+import nu.validator.messages.MessageTextHandler;
+import nu.validator.messages.Result;
+import nu.validator.messages.ResultHandler;
+import nu.validator.messages.types.MessageType;
+import nu.validator.source.SourceHandler;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Writes a stream with <code>CborMessageEmitter</code> and reads it back with
+ * a small stringref decoder that, like any conforming one, gives a table slot
+ * to every long enough text string in the namespace. Extracts and the result
+ * message are written without interning, so the reference to the argument
+ * that the last message repeats only resolves correctly if the encoder
+ * counted the slot of the extract written before it. Strings past the bound
+ * on remembered strings are written in full again.
+ *
+ * <p>Usage: <code>CborMessageEmitterTest</code>
+ */
+public class CborMessageEmitterTest {
+
+    private static final String URL = "http://example.org/layer.mapml";
+
+    private static int failures;
+
+    /**
+     * @param args
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CborMessageEmitter emitter = new CborMessageEmitter(out, true);
+        MessageType error = MessageType.ERROR;
+        emitter.startMessages(URL, true);
+        message(emitter, error, "alpha");
+        message(emitter, error, "beta");
+        message(emitter, error, "beta");
+        emitter.endFile(URL, 3, 0, 0);
+        ResultHandler result = emitter.startResult();
+        result.startResult(Result.FAILURE);
+        char[] text = "There were errors.".toCharArray();
+        result.characters(text, 0, text.length);
+        result.endResult();
+        emitter.endResult();
+        emitter.endMessages("en");
+
+        byte[] bytes = out.toByteArray();
+        Decoder decoder = new Decoder(bytes);
+        List<?> records = (List<?>) decoder.read();
+        check("whole stream decoded", decoder.pos == bytes.length
+                && records.size() == 6);
+        check("start record", Arrays.asList(0L, URL).equals(records.get(0)));
+        for (int i = 1; i <= 3; i++) {
+            List<?> record = (List<?>) records.get(i);
+            String id = i == 1 ? "alpha" : "beta";
+            check("message " + i + " type and url",
+                    "error".equals(record.get(1))
+                            && URL.equals(record.get(3)));
+            check("message " + i + " template",
+                    "Duplicate ID \uFFFC.".equals(record.get(8))
+                            && Arrays.asList(id).equals(record.get(9)));
+            String extract = "<map-feature id=\"" + id + "\">";
+            check("message " + i + " extract", Arrays.asList(extract, 0L,
+                    (long) extract.length() - 1).equals(record.get(10)));
+        }
+        check("file record", Arrays.asList(2L, URL, 3L, 0L, 0L).equals(
+                records.get(4)));
+        check("result record", Arrays.asList(3L, "failure",
+                "There were errors.", "en").equals(records.get(5)));
+        check("repeated strings referenced", decoder.references > 0);
+
+        out.reset();
+        CborEncoder encoder = new CborEncoder(out);
+        encoder.startStream();
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < 5000; i++) {
+                encoder.stringRef("string " + i);
+            }
+        }
+        encoder.endStream();
+        bytes = out.toByteArray();
+        decoder = new Decoder(bytes);
+        List<?> strings = (List<?>) decoder.read();
+        boolean roundTripped = strings.size() == 10000;
+        for (int i = 0; i < strings.size() && roundTripped; i++) {
+            roundTripped = ("string " + (i % 5000)).equals(strings.get(i));
+        }
+        check("strings past the table bound written in full", roundTripped
+                && decoder.references == 4096);
+
+        System.out.println(failures == 0 ? "All passed." : failures
+                + " failed.");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    private static void message(CborMessageEmitter emitter, MessageType type,
+            String id) throws SAXException {
+        emitter.startMessage(type, URL, 1, 1, 1, 19, false);
+        MessageTextHandler text = emitter.startText();
+        characters(text, "Duplicate ID ");
+        text.startCode();
+        characters(text, id);
+        text.endCode();
+        characters(text, ".");
+        emitter.endText();
+        SourceHandler source = emitter.startSource();
+        source.startSource("text/html", "UTF-8");
+        source.startRange(1, 1);
+        char[] chars = ("<map-feature id=\"" + id + "\">").toCharArray();
+        source.characters(chars, 0, chars.length - 1);
+        source.endRange();
+        source.characters(chars, chars.length - 1, 1);
+        source.endSource();
+        emitter.endSource();
+        emitter.endMessage();
+    }
+
+    private static void characters(MessageTextHandler text, String string)
+            throws SAXException {
+        char[] chars = string.toCharArray();
+        text.characters(chars, 0, chars.length);
+    }
+
+    private static void check(String name, boolean passed) {
+        System.out.println((passed ? "PASS " : "FAIL ") + name);
+        if (!passed) {
+            failures++;
+        }
+    }
+
+    /**
+     * Decodes the subset of CBOR the emitter writes, following the stringref
+     * rules for which strings get a slot.
+     */
+    private static final class Decoder {
+
+        private final byte[] bytes;
+
+        private final List<String> table = new ArrayList<>();
+
+        private int pos;
+
+        private int references;
+
+        Decoder(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        Object read() {
+            int initial = bytes[pos++] & 0xFF;
+            int major = initial >> 5;
+            if (initial == 0x9F) {
+                List<Object> items = new ArrayList<>();
+                while ((bytes[pos] & 0xFF) != 0xFF) {
+                    items.add(read());
+                }
+                pos++;
+                return items;
+            }
+            if (initial == 0xF6) {
+                return null;
+            }
+            long value = argument(initial & 0x1F);
+            switch (major) {
+                case 0:
+                    return Long.valueOf(value);
+                case 1:
+                    return Long.valueOf(-1 - value);
+                case 3:
+                    String string = new String(bytes, pos, (int) value,
+                            StandardCharsets.UTF_8);
+                    pos += (int) value;
+                    if (value >= minimumRefLength(table.size())) {
+                        table.add(string);
+                    }
+                    return string;
+                case 4:
+                    List<Object> items = new ArrayList<>();
+                    for (long i = 0; i < value; i++) {
+                        items.add(read());
+                    }
+                    return items;
+                case 6:
+                    if (value == 25) {
+                        references++;
+                        return table.get(((Long) read()).intValue());
+                    }
+                    return read();
+                default:
+                    throw new IllegalStateException("Unexpected major type "
+                            + major);
+            }
+        }
+
+        private long argument(int info) {
+            if (info < 24) {
+                return info;
+            }
+            int length = 1 << (info - 24);
+            long value = 0;
+            for (int i = 0; i < length; i++) {
+                value = (value << 8) | (bytes[pos++] & 0xFF);
+            }
+            return value;
+        }
+
+        private static int minimumRefLength(int nextIndex) {
+            if (nextIndex < 24) {
+                return 3;
+            } else if (nextIndex < 256) {
+                return 4;
+            } else if (nextIndex < 65536) {
+                return 5;
+            } else {
+                return 7;
+            }
+        }
+    }
+}
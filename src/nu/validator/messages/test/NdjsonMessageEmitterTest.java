@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2026 Mozilla Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package nu.validator.messages.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import nu.validator.client.EmbeddedValidator;
+
+import net.arnx.jsonic.JSON;
+
+/**
+ * Checks a document through the streaming <code>InputStream</code> API of
+ * <code>EmbeddedValidator</code> with NDJSON output: every line is one
+ * complete JSON object, each message is written and flushed on its own
+ * line as soon as it is reported, and a file record with the counts of the
+ * document comes before the summary.
+ *
+ * <p>Usage: <code>NdjsonMessageEmitterTest</code>
+ */
+public class NdjsonMessageEmitterTest {
+
+    private static final String DOCUMENT = "<!DOCTYPE html>\n"
+            + "<html><head><meta charset=\"utf-8\">"
+            + "<title>t</title></head>\n"
+            + "<body><p id=\"a\">x</p><p id=\"a\">y</p><p id=\"a\">z</p>"
+            + "</body></html>\n";
+
+    private static int failures;
+
+    /**
+     * @param args
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        final List<Integer> flushedAt = new ArrayList<>();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputStream out = new OutputStream() {
+            @Override
+            public void write(int b) {
+                bytes.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                bytes.write(b, off, len);
+            }
+
+            @Override
+            public void flush() {
+                flushedAt.add(bytes.size());
+            }
+        };
+        EmbeddedValidator validator = new EmbeddedValidator();
+        validator.setOutputFormat(EmbeddedValidator.OutputFormat.NDJSON);
+        validator.validate(new ByteArrayInputStream(
+                DOCUMENT.getBytes(StandardCharsets.UTF_8)), out);
+
+        String output = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        check("output ends with a newline", output.endsWith("\n"));
+        String[] lines = output.split("\n");
+        List<Map<?, ?>> records = new ArrayList<>();
+        boolean parsed = true;
+        for (String line : lines) {
+            try {
+                records.add((Map<?, ?>) JSON.decode(line));
+            } catch (RuntimeException e) {
+                System.out.println("Not a JSON object: " + line);
+                parsed = false;
+            }
+        }
+        check("every line is a JSON object", parsed);
+
+        int errors = 0;
+        int offset = 0;
+        boolean eachFlushed = true;
+        Map<?, ?> file = null;
+        Map<?, ?> summary = null;
+        for (int i = 0; i < records.size(); i++) {
+            Map<?, ?> record = records.get(i);
+            offset += lines[i].getBytes(StandardCharsets.UTF_8).length + 1;
+            Object type = record.get("type");
+            if ("error".equals(type)) {
+                errors++;
+                if (!(record.get("message") instanceof String)
+                        || record.get("lastLine") == null) {
+                    System.out.println("Incomplete message: " + lines[i]);
+                    eachFlushed = false;
+                }
+            } else if ("file".equals(type)) {
+                file = record;
+            } else if ("summary".equals(type)) {
+                summary = record;
+            }
+            if (!"summary".equals(type) && !flushedAt.contains(offset)) {
+                System.out.println("Not flushed after: " + lines[i]);
+                eachFlushed = false;
+            }
+        }
+        check("two duplicate ID errors, one per line", errors == 2);
+        check("each message flushed on its own line", eachFlushed);
+        check("file record with the counts", file != null
+                && Integer.valueOf(errors).equals(number(file.get("errors")))
+                && number(file.get("warnings")) != null);
+        check("file record before the summary", file != null
+                && summary != null
+                && records.indexOf(file) < records.indexOf(summary)
+                && records.indexOf(summary) == records.size() - 1);
+        check("summary reports failure", summary != null
+                && "failure".equals(summary.get("result")));
+
+        System.out.println(failures == 0 ? "All passed." : failures
+                + " failed.");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    private static Integer number(Object value) {
+        return value instanceof Number ? Integer.valueOf(
+                ((Number) value).intValue()) : null;
+    }
+
+    private static void check(String name, boolean passed) {
+        System.out.println((passed ? "PASS " : "FAIL ") + name);
+        if (!passed) {
+            failures++;
+        }
+    }
+}
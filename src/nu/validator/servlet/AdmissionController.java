@@ -0,0 +1,447 @@
+/*
+ * Copyright (c) 2026 Mozilla Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package nu.validator.servlet;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Limits how many checks run at once and decides which waiting check runs
+ * next, shedding requests with a 503 and <code>Retry-After</code> when they
+ * would wait too long.
+ *
+ * <p>The cost of a request is estimated from its <code>Content-Length</code>,
+ * or, for a document fetched by URL, from a fixed guess, doubled if the
+ * query names schemas; a crawl costs that many times the number of
+ * documents it may check. The controller keeps a running estimate of the milliseconds a
+ * check takes per unit of cost, and from it, the wait of a new request as
+ * the cost queued ahead of it spread over the running checks. A request is
+ * shed at once if that wait exceeds the budget, if the queue is full or if
+ * its client already has too many requests waiting, and later if it has
+ * waited for the whole budget after all.
+ *
+ * <p>When a check finishes, the waiting request with the lowest priority
+ * value runs next: the binary order of magnitude of its cost, plus the
+ * number of requests its client has running, minus the seconds it has
+ * waited. Small documents thus go first, no client can crowd out the
+ * others, and large documents are not starved.
+ *
+ * <p>A waiting request doesn't hold a container thread: it is put in async
+ * mode and dispatched again once admitted. Only if the request doesn't
+ * support async mode does its thread wait.
+ *
+ * <p>Clients are told apart by their address, or, behind a trusted proxy,
+ * by the last address in the request header named by
+ * <code>nu.validator.servlet.admission.client-header</code>.
+ */
+final class AdmissionController {
+
+    private static final Logger log4j = Logger.getLogger(AdmissionController.class);
+
+    private static final int CONCURRENCY = Integer.parseInt(System.getProperty(
+            "nu.validator.servlet.admission.concurrency", "0"));
+
+    private static final int MAX_QUEUE = Integer.parseInt(System.getProperty(
+            "nu.validator.servlet.admission.max-queue", "100"));
+
+    private static final int MAX_QUEUE_PER_CLIENT = Integer.parseInt(System.getProperty(
+            "nu.validator.servlet.admission.max-queue-per-client", "10"));
+
+    private static final long MAX_WAIT = Long.parseLong(System.getProperty(
+            "nu.validator.servlet.admission.max-wait", "10000"));
+
+    private static final String CLIENT_HEADER = System.getProperty(
+            "nu.validator.servlet.admission.client-header", "");
+
+    /**
+     * The request attribute holding the ticket of a parked request.
+     */
+    private static final String TICKET_ATTRIBUTE = "nu.validator.servlet.admission.ticket";
+
+    /**
+     * The cost of any request, for the work that does not depend on size.
+     */
+    private static final long BASE_COST = 16384;
+
+    /**
+     * The cost guessed for a document fetched by URL.
+     */
+    private static final long FETCH_COST = 131072;
+
+    /**
+     * The weight of the newest check in the running estimate.
+     */
+    private static final double SMOOTHING = 0.1;
+
+    /**
+     * The controller, or <code>null</code> if admission control is off.
+     */
+    static final AdmissionController INSTANCE = CONCURRENCY > 0 ? new AdmissionController(
+            CONCURRENCY) : null;
+
+    /**
+     * A request admitted to run, to be released when its check is done.
+     */
+    final class Ticket {
+
+        final String client;
+
+        final long cost;
+
+        final long arrival = System.currentTimeMillis();
+
+        long start;
+
+        boolean admitted = false;
+
+        /**
+         * The context of the request while it is parked, or
+         * <code>null</code> if its thread waits.
+         */
+        AsyncContext asyncContext;
+
+        Ticket(String client, long cost) {
+            this.client = client;
+            this.cost = cost;
+        }
+
+        /**
+         * Lets the next request run.
+         */
+        void release() {
+            AdmissionController.this.release(this);
+        }
+    }
+
+    private final int concurrency;
+
+    private int running = 0;
+
+    private final List<Ticket> queue = new ArrayList<>();
+
+    private final Map<String, int[]> runningByClient = new HashMap<>();
+
+    private final Map<String, int[]> queuedByClient = new HashMap<>();
+
+    /**
+     * Milliseconds per unit of cost; starts at one second per megabyte.
+     */
+    private double millisPerCost = 1000.0 / (1024 * 1024);
+
+    private AdmissionController(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Lets the request run, parks it until it may, or sends a 503. A parked
+     * request is dispatched again once admitted, and this method then
+     * returns its ticket.
+     *
+     * @return the ticket to release when the check is done, or
+     *         <code>null</code> if the request has been parked or shed
+     */
+    Ticket admit(HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        Object parked = request.getAttribute(TICKET_ATTRIBUTE);
+        if (parked instanceof Ticket) {
+            request.removeAttribute(TICKET_ATTRIBUTE);
+            return (Ticket) parked;
+        }
+        final Ticket ticket = new Ticket(client(request), cost(request));
+        long retryAfter;
+        synchronized (this) {
+            if (running < concurrency && queue.isEmpty()) {
+                start(ticket);
+                return ticket;
+            }
+            long wait = estimateWait(ticket);
+            if (queue.size() >= MAX_QUEUE || wait > MAX_WAIT) {
+                shed(false);
+                retryAfter = wait;
+            } else if (count(queuedByClient, ticket.client) >= MAX_QUEUE_PER_CLIENT) {
+                shed(true);
+                retryAfter = wait;
+            } else if (request.isAsyncSupported()) {
+                queue.add(ticket);
+                add(queuedByClient, ticket.client, 1);
+                request.setAttribute(TICKET_ATTRIBUTE, ticket);
+                ticket.asyncContext = request.startAsync(request, response);
+                ticket.asyncContext.setTimeout(MAX_WAIT);
+                ticket.asyncContext.addListener(new AsyncListener() {
+                    @Override
+                    public void onTimeout(AsyncEvent event) throws IOException {
+                        timedOut(ticket);
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                        abandon(ticket);
+                    }
+
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+                return null;
+            } else {
+                queue.add(ticket);
+                add(queuedByClient, ticket.client, 1);
+                try {
+                    long deadline = ticket.arrival + MAX_WAIT;
+                    long now;
+                    while (!ticket.admitted
+                            && (now = System.currentTimeMillis()) < deadline) {
+                        wait(deadline - now);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (ticket.admitted) {
+                    return ticket;
+                }
+                recordWait(ticket);
+                queue.remove(ticket);
+                add(queuedByClient, ticket.client, -1);
+                shed(false);
+                retryAfter = estimateWait(ticket);
+            }
+        }
+        sendBusy(response, retryAfter);
+        return null;
+    }
+
+    /**
+     * Sheds a parked request that has waited for the whole budget.
+     */
+    private void timedOut(Ticket ticket) throws IOException {
+        long retryAfter;
+        synchronized (this) {
+            if (!queue.remove(ticket)) {
+                // Admitted and being dispatched.
+                return;
+            }
+            add(queuedByClient, ticket.client, -1);
+            recordWait(ticket);
+            shed(false);
+            retryAfter = estimateWait(ticket);
+        }
+        try {
+            sendBusy((HttpServletResponse) ticket.asyncContext.getResponse(),
+                    retryAfter);
+        } finally {
+            ticket.asyncContext.complete();
+        }
+    }
+
+    /**
+     * Forgets a parked request whose connection has failed.
+     */
+    private synchronized void abandon(Ticket ticket) {
+        if (queue.remove(ticket)) {
+            add(queuedByClient, ticket.client, -1);
+        }
+    }
+
+    private static void sendBusy(HttpServletResponse response,
+            long retryAfter) throws IOException {
+        response.setHeader("Retry-After",
+                Long.toString(Math.max(1, (retryAfter + 999) / 1000)));
+        response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                "The service is busy. Please try again later.");
+    }
+
+    /**
+     * @return the number of requests waiting to run
+     */
+    synchronized int getQueueDepth() {
+        return queue.size();
+    }
+
+    private void release(Ticket ticket) {
+        List<Ticket> admitted = new ArrayList<>();
+        synchronized (this) {
+            long elapsed = System.currentTimeMillis() - ticket.start;
+            millisPerCost += SMOOTHING
+                    * ((double) elapsed / ticket.cost - millisPerCost);
+            running--;
+            add(runningByClient, ticket.client, -1);
+            while (running < concurrency && !queue.isEmpty()) {
+                Ticket next = next();
+                queue.remove(next);
+                add(queuedByClient, next.client, -1);
+                recordWait(next);
+                start(next);
+                admitted.add(next);
+            }
+            notifyAll();
+        }
+        for (Ticket next : admitted) {
+            if (next.asyncContext != null) {
+                try {
+                    next.asyncContext.dispatch();
+                } catch (IllegalStateException e) {
+                    // The request ended in the meantime.
+                    log4j.debug("Could not dispatch an admitted request.", e);
+                    next.release();
+                }
+            }
+        }
+    }
+
+    private void start(Ticket ticket) {
+        ticket.admitted = true;
+        ticket.start = System.currentTimeMillis();
+        running++;
+        add(runningByClient, ticket.client, 1);
+    }
+
+    private Ticket next() {
+        long now = System.currentTimeMillis();
+        Ticket best = null;
+        double bestPriority = 0;
+        for (Ticket ticket : queue) {
+            double priority = priority(ticket, now);
+            if (best == null || priority < bestPriority) {
+                best = ticket;
+                bestPriority = priority;
+            }
+        }
+        return best;
+    }
+
+    private double priority(Ticket ticket, long now) {
+        return (63 - Long.numberOfLeadingZeros(ticket.cost / BASE_COST + 1))
+                + count(runningByClient, ticket.client)
+                - (now - ticket.arrival) / 1000.0;
+    }
+
+    /**
+     * Estimates how long a request would wait behind the ones queued that
+     * would run before it.
+     */
+    private long estimateWait(Ticket ticket) {
+        long now = System.currentTimeMillis();
+        double priority = priority(ticket, now);
+        long ahead = 0;
+        for (Ticket queued : queue) {
+            if (queued != ticket && priority(queued, now) <= priority) {
+                ahead += queued.cost;
+            }
+        }
+        return (long) (ahead * millisPerCost / concurrency);
+    }
+
+    /**
+     * @return the key that requests of one client share
+     */
+    private static String client(HttpServletRequest request) {
+        if (!"".equals(CLIENT_HEADER)) {
+            String forwarded = request.getHeader(CLIENT_HEADER);
+            if (forwarded != null) {
+                // The proxy appends the address it saw last.
+                String last = forwarded.substring(
+                        forwarded.lastIndexOf(',') + 1).trim();
+                if (!"".equals(last)) {
+                    return last;
+                }
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    private static long cost(HttpServletRequest request) {
+        long cost = BASE_COST;
+        if ("GET".equals(request.getMethod())
+                || "HEAD".equals(request.getMethod())) {
+            // Only the query is looked at, so as not to consume the body.
+            if (request.getParameter("doc") != null) {
+                cost += FETCH_COST;
+            }
+            if (request.getParameter("schema") != null) {
+                cost *= 2;
+            }
+        } else {
+            long length = request.getContentLengthLong();
+            cost += length < 0 ? FETCH_COST : length;
+        }
+        if (VerifierServlet.CRAWL_PATH.equals(request.getPathInfo())) {
+            cost *= MapmlCrawlTransaction.MAX_DOCUMENTS;
+        }
+        return cost;
+    }
+
+    private static int count(Map<String, int[]> counts, String client) {
+        int[] count = counts.get(client);
+        return count == null ? 0 : count[0];
+    }
+
+    private static void add(Map<String, int[]> counts, String client, int n) {
+        int[] count = counts.get(client);
+        if (count == null) {
+            count = new int[1];
+            counts.put(client, count);
+        }
+        count[0] += n;
+        if (count[0] == 0) {
+            counts.remove(client);
+        }
+    }
+
+    private void recordWait(Ticket ticket) {
+        Statistics stats = Statistics.STATISTICS;
+        if (stats != null) {
+            synchronized (stats) {
+                stats.incrementField(Statistics.Field.ADMISSION_QUEUED);
+                stats.incrementField(Statistics.Field.ADMISSION_WAIT_MILLIS,
+                        System.currentTimeMillis() - ticket.arrival);
+            }
+        }
+    }
+
+    private void shed(boolean perClient) {
+        Statistics stats = Statistics.STATISTICS;
+        if (stats != null) {
+            synchronized (stats) {
+                stats.incrementField(Statistics.Field.ADMISSION_SHED);
+                if (perClient) {
+                    stats.incrementField(Statistics.Field.ADMISSION_SHED_PER_CLIENT);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright (c) 2026 Mozilla Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package nu.validator.servlet;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+
+import org.apache.log4j.Logger;
+
+/**
+ * The output stream a transaction writes to when the servlet checks
+ * documents off the container's threads. Output is cut into chunks that go
+ * into a bounded queue, and the container drains the queue into the real
+ * output stream with non-blocking writes as the client takes them, so a slow
+ * client holds memory rather than a thread.
+ *
+ * <p>When the queue is full, the writing thread waits until the client has
+ * taken enough, for at most the given timeout, after which the write fails
+ * as if the client had gone. Closing the stream completes the async context
+ * once the queue has been drained.
+ *
+ * <p>The write listener is only set when there is output to write, so that
+ * a transaction that sends an error instead of output can do so as usual.
+ * If the real stream does not accept a write listener, for example because
+ * a filter wraps it, chunks are written to it with blocking writes
+ * instead.
+ */
+final class AsyncResponseOutputStream extends ServletOutputStream implements
+        WriteListener {
+
+    private static final Logger log4j = Logger.getLogger(AsyncResponseOutputStream.class);
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private final AsyncContext asyncContext;
+
+    private final ServletOutputStream out;
+
+    private final int maxQueued;
+
+    private final long timeout;
+
+    private boolean started = false;
+
+    private boolean blocking = false;
+
+    private final ArrayDeque<byte[]> queue = new ArrayDeque<>();
+
+    private int queued = 0;
+
+    private byte[] chunk = new byte[CHUNK_SIZE];
+
+    private int chunkLength = 0;
+
+    /**
+     * Whether the container has yet to call <code>onWritePossible</code>
+     * after <code>isReady</code> returned false.
+     */
+    private boolean waitingForContainer = false;
+
+    private boolean flushRequested = false;
+
+    private boolean closed = false;
+
+    private boolean completed = false;
+
+    private Throwable failure = null;
+
+    /**
+     * @param asyncContext
+     *            the context to complete once the output has been written
+     * @param out
+     *            the output stream of the response
+     * @param maxQueued
+     *            how many bytes to queue at most
+     * @param timeout
+     *            how many milliseconds to wait at most for the client to take
+     *            queued output
+     */
+    AsyncResponseOutputStream(AsyncContext asyncContext,
+            ServletOutputStream out, int maxQueued, long timeout) {
+        this.asyncContext = asyncContext;
+        this.out = out;
+        this.maxQueued = Math.max(maxQueued, CHUNK_SIZE);
+        this.timeout = timeout;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (chunkLength == chunk.length) {
+            enqueue();
+        }
+        chunk[chunkLength++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (chunkLength == chunk.length) {
+                enqueue();
+            }
+            int n = Math.min(len, chunk.length - chunkLength);
+            System.arraycopy(b, off, chunk, chunkLength, n);
+            chunkLength += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Queues what has been written so far and has it sent to the client as
+     * soon as the client takes it.
+     *
+     * @see java.io.OutputStream#flush()
+     */
+    @Override
+    public void flush() throws IOException {
+        if (chunkLength > 0) {
+            enqueue();
+        }
+        synchronized (this) {
+            flushRequested = true;
+            if (blocking || !waitingForContainer) {
+                drain();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        synchronized (this) {
+            if (!started && chunkLength == 0) {
+                closed = true;
+                complete();
+                return;
+            }
+        }
+        try {
+            flush();
+        } finally {
+            synchronized (this) {
+                closed = true;
+                if (blocking || !waitingForContainer) {
+                    drain();
+                }
+            }
+        }
+    }
+
+    /**
+     * Completes the response without writing what is still queued, for when
+     * the transaction has failed.
+     */
+    synchronized void abort() {
+        closed = true;
+        queue.clear();
+        queued = 0;
+        complete();
+    }
+
+    /**
+     * Completes the response without writing what is still queued and makes
+     * later writes fail, for when the async context has timed out or failed
+     * while the transaction is still running.
+     */
+    synchronized void fail(Throwable t) {
+        if (failure == null) {
+            failure = t != null ? t : new IOException("Async request failed.");
+        }
+        closed = true;
+        queue.clear();
+        queued = 0;
+        notifyAll();
+        complete();
+    }
+
+    /**
+     * Always true: writes that would overrun the queue wait instead.
+     *
+     * @see javax.servlet.ServletOutputStream#isReady()
+     */
+    @Override
+    public boolean isReady() {
+        return true;
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+        throw new IllegalStateException(
+                "This stream does its own non-blocking writes.");
+    }
+
+    /**
+     * Called by the container when the client can take more output.
+     *
+     * @see javax.servlet.WriteListener#onWritePossible()
+     */
+    @Override
+    public synchronized void onWritePossible() throws IOException {
+        waitingForContainer = false;
+        drain();
+    }
+
+    /**
+     * Called by the container when writing fails, usually because the
+     * client has gone.
+     *
+     * @see javax.servlet.WriteListener#onError(java.lang.Throwable)
+     */
+    @Override
+    public synchronized void onError(Throwable t) {
+        log4j.debug("Async write failed.", t);
+        failure = t;
+        queue.clear();
+        queued = 0;
+        notifyAll();
+        complete();
+    }
+
+    private void enqueue() throws IOException {
+        byte[] full = chunkLength == chunk.length ? chunk : Arrays.copyOf(
+                chunk, chunkLength);
+        chunk = new byte[CHUNK_SIZE];
+        chunkLength = 0;
+        synchronized (this) {
+            long deadline = System.currentTimeMillis() + timeout;
+            while (failure == null && queued + full.length > maxQueued
+                    && !queue.isEmpty()) {
+                long wait = deadline - System.currentTimeMillis();
+                if (wait <= 0) {
+                    failure = new IOException(
+                            "Timed out waiting for the client to read the response.");
+                    break;
+                }
+                try {
+                    wait(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failure = new IOException("Interrupted.", e);
+                }
+            }
+            if (failure != null) {
+                throw failure instanceof IOException ? (IOException) failure
+                        : new IOException(failure);
+            }
+            queue.add(full);
+            queued += full.length;
+            if (blocking || !waitingForContainer) {
+                drain();
+            }
+        }
+    }
+
+    /**
+     * Writes queued chunks for as long as the client takes them, then
+     * flushes or completes the response if asked to once nothing is pending.
+     * Must be called holding the lock, and not while waiting for the
+     * container.
+     */
+    private void drain() throws IOException {
+        if (failure != null) {
+            return;
+        }
+        if (!started) {
+            started = true;
+            try {
+                // The container calls onWritePossible when ready.
+                waitingForContainer = true;
+                out.setWriteListener(this);
+                return;
+            } catch (IllegalStateException | UnsupportedOperationException e) {
+                log4j.debug("Write listener not accepted; writing blocking.", e);
+                waitingForContainer = false;
+                blocking = true;
+            }
+        }
+        try {
+            while (!queue.isEmpty()) {
+                if (!blocking && !out.isReady()) {
+                    waitingForContainer = true;
+                    return;
+                }
+                byte[] next = queue.poll();
+                queued -= next.length;
+                out.write(next);
+                notifyAll();
+            }
+            if (!blocking && !out.isReady()) {
+                waitingForContainer = true;
+            } else if (closed) {
+                complete();
+            } else if (flushRequested) {
+                flushRequested = false;
+                out.flush();
+            }
+        } catch (IOException e) {
+            failure = e;
+            queue.clear();
+            queued = 0;
+            notifyAll();
+            complete();
+            throw e;
+        }
+    }
+
+    private void complete() {
+        if (!completed) {
+            completed = true;
+            asyncContext.complete();
+        }
+    }
+}
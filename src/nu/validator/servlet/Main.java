@@ -41,6 +41,7 @@ import org.eclipse.jetty.server.ServerConnector;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlet.FilterHolder;
 import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.servlets.AsyncGzipFilter;
 import org.eclipse.jetty.servlets.GzipFilter;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
 
@@ -53,6 +54,18 @@ public class Main {
     private static final long SIZE_LIMIT = Integer.parseInt(System.getProperty(
             "nu.validator.servlet.max-file-size", "2097152"));
 
+    /**
+     * Whether requests go async, for checker threads or to wait for
+     * admission without holding a thread.
+     */
+    private static final boolean ASYNC = VerifierServlet.ASYNC_OUTPUT
+            || AdmissionController.INSTANCE != null;
+
+    private static FilterHolder asyncSupported(FilterHolder holder) {
+        holder.setAsyncSupported(ASYNC);
+        return holder;
+    }
+
     public static void main(String[] args) throws Exception {
         if (!"1".equals(System.getProperty("nu.validator.servlet.read-local-log4j-properties"))) {
             PropertyConfigurator.configure(Main.class.getClassLoader().getResource(
@@ -64,17 +77,23 @@ public class Main {
 
         ServletContextHandler contextHandler = new ServletContextHandler();
         contextHandler.setContextPath("/");
-        contextHandler.addFilter(new FilterHolder(new GzipFilter()), "/*",
+        // GzipFilter's output stream doesn't support write listeners.
+        contextHandler.addFilter(asyncSupported(new FilterHolder(
+                VerifierServlet.ASYNC_OUTPUT ? new AsyncGzipFilter()
+                        : new GzipFilter())), "/*",
+                EnumSet.of(DispatcherType.REQUEST));
+        contextHandler.addFilter(asyncSupported(new FilterHolder(
+                new InboundSizeLimitFilter(SIZE_LIMIT))), "/*",
+                EnumSet.of(DispatcherType.REQUEST));
+        contextHandler.addFilter(asyncSupported(new FilterHolder(
+                new InboundGzipFilter())), "/*",
                 EnumSet.of(DispatcherType.REQUEST));
-        contextHandler.addFilter(new FilterHolder(new InboundSizeLimitFilter(
-                SIZE_LIMIT)), "/*", EnumSet.of(DispatcherType.REQUEST));
-        contextHandler.addFilter(new FilterHolder(new InboundGzipFilter()),
-                "/*", EnumSet.of(DispatcherType.REQUEST));
-        contextHandler.addFilter(
-                new FilterHolder(new MultipartFormDataFilter()), "/*",
+        contextHandler.addFilter(asyncSupported(new FilterHolder(
+                new MultipartFormDataFilter())), "/*",
                 EnumSet.of(DispatcherType.REQUEST));
-        contextHandler.addServlet(new ServletHolder(new VerifierServlet()),
-                "/*");
+        ServletHolder servletHolder = new ServletHolder(new VerifierServlet());
+        servletHolder.setAsyncSupported(ASYNC);
+        contextHandler.addServlet(servletHolder, "/*");
 
         Server server = new Server(new QueuedThreadPool(100));
         server.setHandler(contextHandler);
@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2026 Mozilla Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package nu.validator.servlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import nu.validator.checker.LinkCollector;
+import nu.validator.client.MapmlCrawler;
+import nu.validator.client.UrlListChecker;
+import nu.validator.messages.GnuMessageEmitter;
+import nu.validator.messages.MessageEmitter;
+import nu.validator.messages.MessageEmitterAdapter;
+import nu.validator.messages.NdjsonMessageEmitter;
+import nu.validator.messages.TextMessageEmitter;
+import nu.validator.servlet.imagereview.ImageCollector;
+import nu.validator.validation.SimpleDocumentValidator;
+
+import org.apache.log4j.Logger;
+import org.xml.sax.SAXException;
+
+/**
+ * Checks a MapML service with <code>MapmlCrawler</code>: the document given
+ * by the <code>doc</code> parameter and the MapML documents it links to,
+ * up to <code>depth</code> links away, with link templates filled in at
+ * <code>samples</code> points. Results are streamed in the
+ * <code>out</code> format, <code>text</code> by default, as each document
+ * is checked.
+ *
+ * <p>At most <code>nu.validator.servlet.crawl.max-crawls</code> crawls run
+ * at a time; further requests get a <code>503</code>. Validators, with
+ * their compiled schemas, are kept for reuse by later crawls. Crawls go
+ * through the servlet's admission control and, if on, its checker threads
+ * like any other check.
+ */
+public class MapmlCrawlTransaction {
+
+    private static final Logger log4j = Logger.getLogger(MapmlCrawlTransaction.class);
+
+    private static final int MAX_DEPTH = Integer.parseInt(System.getProperty(
+            "nu.validator.servlet.crawl.max-depth", "3"));
+
+    static final int MAX_DOCUMENTS = Integer.parseInt(System.getProperty(
+            "nu.validator.servlet.crawl.max-documents", "100"));
+
+    private static final int MAX_SAMPLES = Integer.parseInt(System.getProperty(
+            "nu.validator.servlet.crawl.max-samples", "8"));
+
+    private static final int WORKERS = Integer.parseInt(System.getProperty(
+            "nu.validator.servlet.crawl.workers", "2"));
+
+    private static final int CONCURRENCY = Integer.parseInt(System.getProperty(
+            "nu.validator.servlet.crawl.concurrency", "4"));
+
+    private static final int PER_HOST = Integer.parseInt(System.getProperty(
+            "nu.validator.servlet.crawl.per-host", "2"));
+
+    private static final int HOST_DELAY = Integer.parseInt(System.getProperty(
+            "nu.validator.servlet.crawl.host-delay", "100"));
+
+    private static final int MAX_CRAWLS = Integer.parseInt(System.getProperty(
+            "nu.validator.servlet.crawl.max-crawls", "2"));
+
+    private static final long SIZE_LIMIT = Integer.parseInt(System.getProperty(
+            "nu.validator.servlet.max-file-size", "2097152"));
+
+    private static final Semaphore CRAWLS = new Semaphore(MAX_CRAWLS);
+
+    /**
+     * Validators with the crawl schema set up, not in use by a crawl.
+     */
+    private static final Queue<SimpleDocumentValidator> VALIDATORS = new ConcurrentLinkedQueue<>();
+
+    private final HttpServletRequest request;
+
+    private final HttpServletResponse response;
+
+    /**
+     * @param request
+     * @param response
+     */
+    public MapmlCrawlTransaction(final HttpServletRequest request,
+            final HttpServletResponse response) {
+        this.request = request;
+        this.response = response;
+    }
+
+    public void service() throws IOException {
+        request.setCharacterEncoding("utf-8");
+        String document = request.getParameter("doc");
+        if (document == null
+                || MapmlCrawler.normalize(null, document) == null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                    "The doc parameter must be an http or https URL.");
+            return;
+        }
+        String outFormat = request.getParameter("out");
+        if (outFormat == null) {
+            outFormat = "text";
+        }
+        if ("text".equals(outFormat) || "gnu".equals(outFormat)) {
+            response.setContentType("text/plain; charset=utf-8");
+        } else if ("ndjson".equals(outFormat)) {
+            response.setContentType("application/x-ndjson");
+        } else {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                    "Unsupported output format");
+            return;
+        }
+        int depth = number("depth", 1, MAX_DEPTH);
+        int samples = number("samples", 0, MAX_SAMPLES);
+        if (depth < 0 || samples < 0) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                    "The depth and samples parameters must be numbers.");
+            return;
+        }
+        if (!CRAWLS.tryAcquire()) {
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                    "Too many crawls in progress. Try again later.");
+            return;
+        }
+        // Every error that gets a status has been sent by now; from here
+        // on, problems are reported in the stream or logged.
+        OutputStream out = null;
+        List<SimpleDocumentValidator> validators = new ArrayList<>();
+        try {
+            out = response.getOutputStream();
+            boolean langDetect = "1".equals(System.getProperty(
+                    "nu.validator.checker.enableLangDetection"));
+            List<UrlListChecker.Worker> workers = new ArrayList<>();
+            SimpleDocumentValidator validator = null;
+            for (int i = 0; i < WORKERS; i++) {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                validator = VALIDATORS.poll();
+                boolean fresh = validator == null;
+                if (fresh) {
+                    validator = new SimpleDocumentValidator(false, true,
+                            langDetect);
+                }
+                MessageEmitterAdapter errorHandler = newErrorHandler(
+                        outFormat, validator, buffer);
+                if (fresh) {
+                    validator.setUpMainSchema(MapmlCrawler.SCHEMA,
+                            errorHandler);
+                }
+                validators.add(validator);
+                validator.setLinkCollector(new LinkCollector());
+                validator.setUpValidatorAndParsers(errorHandler, false, false);
+                workers.add(new UrlListChecker.Worker(validator,
+                        errorHandler, buffer));
+            }
+            MessageEmitterAdapter summary = newErrorHandler(outFormat,
+                    validator, out);
+            MapmlCrawler crawler = new MapmlCrawler(
+                    VerifierServletTransaction.USER_AGENT, CONCURRENCY,
+                    PER_HOST, HOST_DELAY, depth, MAX_DOCUMENTS, samples, out,
+                    null);
+            crawler.setSizeLimit(SIZE_LIMIT);
+            crawler.crawl(document, workers);
+            for (UrlListChecker.Worker worker : workers) {
+                summary.addCounts(worker.getErrorHandler());
+            }
+            summary.end("Document checking completed. No errors found.",
+                    "Document checking completed.", "");
+        } catch (SAXException e) {
+            log4j.debug("SAXException: " + e.getMessage());
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            log4j.error("Error while crawling " + document, e);
+        } finally {
+            VALIDATORS.addAll(validators);
+            CRAWLS.release();
+            if (out != null) {
+                out.flush();
+            }
+        }
+    }
+
+    /**
+     * @return the parameter, at most <code>max</code>, or
+     *         <code>defaultValue</code> if it is missing, or -1 if it is not
+     *         a number
+     */
+    private int number(String name, int defaultValue, int max) {
+        String value = request.getParameter(name);
+        if (value == null || "".equals(value)) {
+            return defaultValue;
+        }
+        try {
+            return Math.min(Integer.parseInt(value), max);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static MessageEmitterAdapter newErrorHandler(String outFormat,
+            SimpleDocumentValidator validator, OutputStream out)
+            throws SAXException {
+        MessageEmitter emitter;
+        if ("gnu".equals(outFormat)) {
+            emitter = new GnuMessageEmitter(out, false);
+        } else if ("ndjson".equals(outFormat)) {
+            emitter = new NdjsonMessageEmitter(
+                    new nu.validator.json.Serializer(out, false));
+        } else {
+            emitter = new TextMessageEmitter(out, false);
+        }
+        MessageEmitterAdapter errorHandler = new MessageEmitterAdapter(null,
+                validator.getSourceCode(), false,
+                new ImageCollector(validator.getSourceCode()), 0, true,
+                emitter);
+        errorHandler.setHtml(true);
+        errorHandler.start(null);
+        return errorHandler;
+    }
+}
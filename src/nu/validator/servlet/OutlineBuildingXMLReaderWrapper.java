@@ -32,6 +32,7 @@
 package nu.validator.servlet;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.ArrayList;
 import java.util.Deque;
@@ -302,7 +303,7 @@ public final class OutlineBuildingXMLReaderWrapper implements XMLReader,
     // open elements at all with a "hidden" attribute -- including elements
     // that may be descendants of heading-content elements (which per the
     // spec never end up on the outline stack).
-    private Deque<Element> elementStack = new LinkedList<>();
+    private Deque<Element> elementStack = new ArrayDeque<>();
 
     private boolean inHiddenSubtree() {
         for (Element element : elementStack) {
@@ -316,7 +317,7 @@ public final class OutlineBuildingXMLReaderWrapper implements XMLReader,
     // A stack, defined in the spec, to which we only add open
     // heading-content elements and elements with a "hidden" attribute that
     // are ancestors to heading-content elements.
-    private Deque<Element> outlineStack = new LinkedList<>();
+    private Deque<Element> outlineStack = new ArrayDeque<>();
 
     // The top of the outline stack defined in the spec is always either a
     // heading content element or an element with a hidden attribute.
@@ -479,8 +480,7 @@ public final class OutlineBuildingXMLReaderWrapper implements XMLReader,
                     currentSection.sections.add(section);
                 }
             }
-        } else if (Arrays.binarySearch(SECTIONING_ROOT_ELEMENTS.toArray(),
-                localName) > -1) {
+        } else if (SECTIONING_ROOT_ELEMENTS.contains(localName)) {
             // When exiting a sectioning root element, if the stack is not empty
             if (!outlineStack.isEmpty()) {
                 // Run these steps:
@@ -598,8 +598,7 @@ public final class OutlineBuildingXMLReaderWrapper implements XMLReader,
         // When entering a sectioning content element or a sectioning root
         // element
         if (Arrays.binarySearch(SECTIONING_CONTENT_ELEMENTS, localName) > -1
-                || Arrays.binarySearch(SECTIONING_ROOT_ELEMENTS.toArray(),
-                        localName) > -1) {
+                || SECTIONING_ROOT_ELEMENTS.contains(localName)) {
             if (currentOutlinee != null) {
                 // If current outlinee is not null, and the current section has
                 // no heading,
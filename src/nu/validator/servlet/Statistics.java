@@ -51,6 +51,12 @@ public class Statistics {
 
     private static final char[] VALIDATIONS_PER_SECOND = "Validations per second".toCharArray();
 
+    private static final char[] HTTP_CACHE_HIT_RATIO = "HTTP cache hit ratio".toCharArray();
+
+    private static final char[] ADMISSION_QUEUE_DEPTH = "Admission queue depth".toCharArray();
+
+    private static final char[] ADMISSION_MEAN_WAIT = "Mean admission wait in milliseconds".toCharArray();
+
     private static final char[] SORT_LANGS_SCRIPT = (""
             + " var rows = document.querySelectorAll('tr');"
             + " var langRows = new Array();"
@@ -106,6 +112,7 @@ public class Statistics {
         OUTPUT_XML("Output: XML"), //
         OUTPUT_HTML("Output: HTML"), //
         OUTPUT_JSON("Output: JSON"), //
+        OUTPUT_CBOR("Output: CBOR"), //
         OUTPUT_GNU("Output: GNU"), //
         OUTPUT_TEXT("Output: Text"), //
         OUTPUT_XHTML("Output: XHTML"), //
@@ -131,6 +138,15 @@ public class Statistics {
         CUSTOM_ENC("Encoding: manually set"), //
         PARSER_XML_EXTERNAL("Parser: set to XML with external entities"), //
         XMLNS_FILTER("Parser: XMLNS filter set"), //
+        MEMORY_BUDGET_EXCEEDED("Memory: budget exceeded"), //
+        MEMORY_SOURCE_DROPPED("Memory: source retention dropped"), //
+        HTTP_CACHE_HIT("HTTP cache: served fresh"), //
+        HTTP_CACHE_REVALIDATED("HTTP cache: served after revalidation"), //
+        HTTP_CACHE_MISS("HTTP cache: fetched"), //
+        ADMISSION_QUEUED("Admission: queued"), //
+        ADMISSION_WAIT_MILLIS("\u2514 Total wait in milliseconds"), //
+        ADMISSION_SHED("Admission: shed with 503"), //
+        ADMISSION_SHED_PER_CLIENT("\u2514 Client over its queue share"), //
         LOGIC_ERROR("Logic errors in schema stats"), //
         HGROUP_FOUND("<hgroup> found"), //
         STYLE_ELEMENT_ERRORS_FOUND("<style> element with CSS errors found"), //
@@ -587,6 +603,10 @@ public class Statistics {
         counters[field.ordinal()]++;
     }
 
+    public void incrementField(Field field, long count) {
+        counters[field.ordinal()] += count;
+    }
+
     public void writeToResponse(HttpServletResponse response)
             throws IOException {
         try {
@@ -638,6 +658,39 @@ public class Statistics {
                 characters(ch, totalDouble / (uptimeMillis / 1000.0));
                 endElement(ch, "dd");
 
+                long cacheHits = countersCopy[Field.HTTP_CACHE_HIT.ordinal()]
+                        + countersCopy[Field.HTTP_CACHE_REVALIDATED.ordinal()];
+                long cacheRequests = cacheHits
+                        + countersCopy[Field.HTTP_CACHE_MISS.ordinal()];
+                if (cacheRequests > 0) {
+                    startElement(ch, "dt");
+                    characters(ch, HTTP_CACHE_HIT_RATIO);
+                    endElement(ch, "dt");
+                    startElement(ch, "dd");
+                    characters(ch, (double) cacheHits / cacheRequests);
+                    endElement(ch, "dd");
+                }
+
+                AdmissionController admission = AdmissionController.INSTANCE;
+                if (admission != null) {
+                    startElement(ch, "dt");
+                    characters(ch, ADMISSION_QUEUE_DEPTH);
+                    endElement(ch, "dt");
+                    startElement(ch, "dd");
+                    characters(ch, (long) admission.getQueueDepth());
+                    endElement(ch, "dd");
+                    long queued = countersCopy[Field.ADMISSION_QUEUED.ordinal()];
+                    if (queued > 0) {
+                        startElement(ch, "dt");
+                        characters(ch, ADMISSION_MEAN_WAIT);
+                        endElement(ch, "dt");
+                        startElement(ch, "dd");
+                        characters(ch, (double) countersCopy[Field.ADMISSION_WAIT_MILLIS.ordinal()]
+                                / queued);
+                        endElement(ch, "dd");
+                    }
+                }
+
                 endElement(ch, "dl");
 
                 startElement(ch, "table");
@@ -28,11 +28,22 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.UnsupportedEncodingException;
-
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
 import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
 
 import nu.validator.messages.MessageEmitterAdapter;
 import nu.validator.xml.PrudentHttpEntityResolver;
@@ -64,6 +75,45 @@ public class VerifierServlet extends HttpServlet {
 
     static final String PARSETREE_PATH = System.getProperty("nu.validator.servlet.path.parsetree", "/parsetree/");
 
+    static final String CRAWL_PATH = System.getProperty("nu.validator.servlet.path.crawl", "/crawl/");
+
+    /**
+     * Whether to check documents on the checker threads and write the
+     * results with non-blocking I/O instead of on the container's threads.
+     */
+    static final boolean ASYNC_OUTPUT = "1".equals(System.getProperty(
+            "nu.validator.servlet.async-output"));
+
+    private static final int ASYNC_OUTPUT_BUFFER = Integer.parseInt(System.getProperty(
+            "nu.validator.servlet.async-output.buffer", "1048576"));
+
+    private static final long ASYNC_OUTPUT_TIMEOUT = Long.parseLong(System.getProperty(
+            "nu.validator.servlet.async-output.timeout", "60000"));
+
+    private static final long ASYNC_REQUEST_TIMEOUT = Long.parseLong(System.getProperty(
+            "nu.validator.servlet.async-output.request-timeout", "300000"));
+
+    private static final int CHECKER_THREADS = Integer.parseInt(System.getProperty(
+            "nu.validator.servlet.async-output.threads", "100"));
+
+    /**
+     * The checker threads, with a bounded queue; a request that finds the
+     * queue full gets a 503.
+     */
+    private static final ExecutorService CHECKERS = ASYNC_OUTPUT ? new ThreadPoolExecutor(
+            CHECKER_THREADS, CHECKER_THREADS, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<Runnable>(Integer.parseInt(System.getProperty(
+                    "nu.validator.servlet.async-output.queue", "100"))))
+            : null;
+
+    /**
+     * The kinds of transaction that go through admission control and, if
+     * on, the checker threads.
+     */
+    private enum Transaction {
+        GENERIC, HTML5, CRAWL
+    }
+
     private static final byte[] GENERIC_ROBOTS_TXT;
 
     private static final byte[] HTML5_ROBOTS_TXT;
@@ -260,7 +310,8 @@ public class VerifierServlet extends HttpServlet {
             response.sendError(400, "Bad request. Valid requests must include a User-Agent header.");
             return;
         }
-        if (!isOptions) {
+        // A request the admission controller parked was logged on arrival.
+        if (!isOptions && request.getDispatcherType() != DispatcherType.ASYNC) {
             Object[] fields = new String[] { method, ua, query, referer };
             log4j.info(String.format("%s\t%s\t%s\t%s", fields));
         }
@@ -284,7 +335,7 @@ public class VerifierServlet extends HttpServlet {
             if (isOptions) {
                 sendOptions(request, response);
             } else {
-                new VerifierServletTransaction(request, response).service();
+                service(request, response, Transaction.GENERIC);
             }
         } else if (hostMatch(HTML5_HOST, serverName) && HTML5_PATH.equals(pathInfo)) {
             response.setHeader("Access-Control-Allow-Origin", "*");
@@ -292,7 +343,7 @@ public class VerifierServlet extends HttpServlet {
             if (isOptions) {
                 sendOptions(request, response);
             } else {
-                new Html5ConformanceCheckerTransaction(request, response).service();
+                service(request, response, Transaction.HTML5);
             }
         } else if (hostMatch(PARSETREE_HOST, serverName) && PARSETREE_PATH.equals(pathInfo)) {
             if (isOptions) {
@@ -300,11 +351,147 @@ public class VerifierServlet extends HttpServlet {
             } else {
                 new ParseTreePrinter(request, response).service();
             }
+        } else if (hostMatch(GENERIC_HOST, serverName) && CRAWL_PATH.equals(pathInfo)) {
+            if (isOptions) {
+                sendGetOnlyOptions(request, response);
+            } else {
+                service(request, response, Transaction.CRAWL);
+            }
         } else {
             response.sendError(HttpServletResponse.SC_NOT_FOUND);
         }
     }
 
+    /**
+     * Runs a transaction once the admission controller, if any, lets it.
+     */
+    private void service(HttpServletRequest request,
+            HttpServletResponse response, Transaction transaction)
+            throws ServletException, IOException {
+        AdmissionController.Ticket ticket = null;
+        if (AdmissionController.INSTANCE != null) {
+            ticket = AdmissionController.INSTANCE.admit(request, response);
+            if (ticket == null) {
+                return;
+            }
+        }
+        boolean released = false;
+        try {
+            if (ASYNC_OUTPUT && request.isAsyncSupported()) {
+                serviceAsync(request, response, transaction, ticket);
+                released = true;
+            } else {
+                run(transaction, request, response);
+            }
+        } finally {
+            if (ticket != null && !released) {
+                ticket.release();
+            }
+        }
+    }
+
+    /**
+     * Runs a transaction on a checker thread, freeing the container's
+     * thread, with the output going through an
+     * <code>AsyncResponseOutputStream</code>. The ticket, if any, is
+     * released when the transaction is done.
+     */
+    private void serviceAsync(final HttpServletRequest request,
+            final HttpServletResponse response, final Transaction transaction,
+            final AdmissionController.Ticket ticket) throws IOException {
+        AsyncContext asyncContext = request.startAsync(request, response);
+        asyncContext.setTimeout(ASYNC_REQUEST_TIMEOUT);
+        final AsyncResponseOutputStream out = new AsyncResponseOutputStream(
+                asyncContext, response.getOutputStream(), ASYNC_OUTPUT_BUFFER,
+                ASYNC_OUTPUT_TIMEOUT);
+        asyncContext.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                log4j.warn("Async transaction timed out.");
+                out.fail(new IOException("The check took too long."));
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                out.fail(event.getThrowable());
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+        final HttpServletResponse wrapped = new HttpServletResponseWrapper(
+                response) {
+            @Override
+            public ServletOutputStream getOutputStream() {
+                return out;
+            }
+
+            @Override
+            public void flushBuffer() throws IOException {
+                out.flush();
+            }
+        };
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    VerifierServlet.run(transaction, request, wrapped);
+                    out.close();
+                } catch (Throwable e) {
+                    log4j.error("Async transaction failed.", e);
+                    if (!response.isCommitted()) {
+                        try {
+                            response.sendError(
+                                    HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                        } catch (IOException | IllegalStateException e2) {
+                            log4j.debug("Could not send the error.", e2);
+                        }
+                    }
+                    out.abort();
+                } finally {
+                    if (ticket != null) {
+                        ticket.release();
+                    }
+                }
+            }
+        };
+        try {
+            CHECKERS.execute(task);
+        } catch (RejectedExecutionException e) {
+            log4j.warn("Checker queue full; refusing request.");
+            try {
+                response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                        "The service is busy. Please try again later.");
+            } finally {
+                out.abort();
+                if (ticket != null) {
+                    ticket.release();
+                }
+            }
+        }
+    }
+
+    private static void run(Transaction transaction,
+            HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        switch (transaction) {
+            case HTML5:
+                new Html5ConformanceCheckerTransaction(request, response).service();
+                break;
+            case CRAWL:
+                new MapmlCrawlTransaction(request, response).service();
+                break;
+            default:
+                new VerifierServletTransaction(request, response).service();
+                break;
+        }
+    }
+
     private void sendGetOnlyOptions(HttpServletRequest request, HttpServletResponse response) {
         response.setHeader("Allow", "GET, HEAD, OPTIONS");
         response.setHeader("Access-Control-Allow-Methods", "GET, HEAD, POST, OPTIONS");
@@ -57,6 +57,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import nu.validator.checker.LanguageDetectingChecker;
+import nu.validator.checker.MemoryBudget;
 import nu.validator.checker.XmlPiChecker;
 import nu.validator.checker.jing.CheckerSchema;
 import nu.validator.checker.schematronequiv.Assertions;
@@ -73,6 +74,8 @@ import nu.validator.io.BoundedInputStream;
 import nu.validator.io.DataUri;
 import nu.validator.io.StreamBoundException;
 import nu.validator.localentities.LocalCacheEntityResolver;
+import nu.validator.messages.CborMessageEmitter;
+import nu.validator.messages.ErrorBudgetExceededException;
 import nu.validator.messages.GnuMessageEmitter;
 import nu.validator.messages.JsonMessageEmitter;
 import nu.validator.messages.MessageEmitterAdapter;
@@ -83,7 +86,9 @@ import nu.validator.messages.XmlMessageEmitter;
 import nu.validator.servlet.imagereview.ImageCollector;
 import nu.validator.servlet.OutlineBuildingXMLReaderWrapper.Section;
 import nu.validator.source.SourceCode;
+import nu.validator.spec.EmptySpec;
 import nu.validator.spec.Spec;
+import nu.validator.spec.SpecSnapshot;
 import nu.validator.spec.html5.Html5SpecBuilder;
 import nu.validator.xml.AttributesImpl;
 import nu.validator.xml.AttributesPermutingXMLReaderWrapper;
@@ -101,6 +106,7 @@ import nu.validator.xml.PrudentHttpEntityResolver.ResourceNotRetrievableExceptio
 import nu.validator.xml.SystemErrErrorHandler;
 import nu.validator.xml.TypedInputSource;
 import nu.validator.xml.WiretapXMLReaderWrapper;
+import nu.validator.xml.XMLReaderPipeline;
 import nu.validator.xml.XhtmlSaxEmitter;
 import nu.validator.xml.customelements.NamespaceChangingSchemaWrapper;
 import nu.validator.xml.templateelement.TemplateElementDroppingSchemaWrapper;
@@ -147,7 +153,7 @@ import com.ibm.icu.text.Normalizer;
 class VerifierServletTransaction implements DocumentModeHandler, SchemaResolver {
 
     private enum OutputFormat {
-        HTML, XHTML, TEXT, XML, JSON, RELAXED, SOAP, UNICORN, GNU
+        HTML, XHTML, TEXT, XML, JSON, CBOR, RELAXED, SOAP, UNICORN, GNU
     }
 
     private static final Logger log4j = Logger.getLogger(VerifierServletTransaction.class);
@@ -237,9 +243,7 @@ class VerifierServletTransaction implements DocumentModeHandler, SchemaResolver
 
     private static final byte[] CSS_CHECKING_EPILOG = "\n</style>".getBytes();
 
-    private static final String USER_AGENT;
-
-    private static Spec html5spec;
+    static final String USER_AGENT;
 
     private static int[] presetDoctypes;
 
@@ -383,6 +387,9 @@ class VerifierServletTransaction implements DocumentModeHandler, SchemaResolver
 
     private SourceCode sourceCode = new SourceCode();
 
+    private final MemoryBudget memoryBudget = new MemoryBudget(
+            MemoryBudget.DEFAULT_LIMIT);
+
     private Deque<Section> outline;
 
     private Deque<Section> headingOutline;
@@ -585,11 +592,7 @@ class VerifierServletTransaction implements DocumentModeHandler, SchemaResolver
                 i++;
             }
 
-            log4j.debug("Reading spec.");
-
-            html5spec = Html5SpecBuilder.parseSpec(LocalCacheEntityResolver.getHtml5SpecAsStream());
-
-            log4j.debug("Spec read.");
+            LanguageDetectingChecker.loadProfiles();
 
             if (new File(FILTER_FILE).isFile()) {
                 log4j.debug("Reading filter file " + FILTER_FILE);
@@ -622,6 +625,38 @@ class VerifierServletTransaction implements DocumentModeHandler, SchemaResolver
         }
     }
 
+    /**
+     * Holds the HTML spec, which is read on first use from the snapshot made
+     * at build time, or parsed from the spec document if there is no
+     * snapshot.
+     */
+    private static final class Html5Spec {
+
+        static final Spec INSTANCE = load();
+
+        private static Spec load() {
+            log4j.debug("Reading spec.");
+            try {
+                Spec spec;
+                InputStream snapshot = LocalCacheEntityResolver.getHtml5SpecSnapshotAsStream();
+                if (snapshot != null) {
+                    try {
+                        spec = SpecSnapshot.read(snapshot);
+                    } finally {
+                        snapshot.close();
+                    }
+                } else {
+                    spec = Html5SpecBuilder.parseSpec(LocalCacheEntityResolver.getHtml5SpecAsStream());
+                }
+                log4j.debug("Spec read.");
+                return spec;
+            } catch (Exception e) {
+                log4j.error("Could not read the spec.", e);
+                return EmptySpec.THE_INSTANCE;
+            }
+        }
+    }
+
     @SuppressWarnings("deprecation")
     protected static String scrub(CharSequence s) {
         return Normalizer.normalize(
@@ -761,6 +796,8 @@ class VerifierServletTransaction implements DocumentModeHandler, SchemaResolver
                 outputFormat = OutputFormat.XML;
             } else if ("json".equals(outFormat)) {
                 outputFormat = OutputFormat.JSON;
+            } else if ("cbor".equals(outFormat)) {
+                outputFormat = OutputFormat.CBOR;
             } else {
                 response.sendError(HttpServletResponse.SC_BAD_REQUEST,
                         "Unsupported output format");
@@ -912,6 +949,28 @@ class VerifierServletTransaction implements DocumentModeHandler, SchemaResolver
 
         boolean asciiQuotes = (request.getParameter("asciiquotes") != null);
 
+        int aggregateThreshold = -1;
+        String aggregateStr = request.getParameter("aggregate");
+        if (aggregateStr != null) {
+            aggregateThreshold = nonNegativeNumber(aggregateStr);
+            if (aggregateThreshold < 0) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                        "The aggregate parameter must be a number.");
+                return;
+            }
+        }
+
+        int errorBudget = (request.getParameter("failfast") != null) ? 1 : 0;
+        String errorBudgetStr = request.getParameter("errorbudget");
+        if (errorBudgetStr != null) {
+            errorBudget = nonNegativeNumber(errorBudgetStr);
+            if (errorBudget < 0) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                        "The errorbudget parameter must be a number.");
+                return;
+            }
+        }
+
         int lineOffset = 0;
         String lineOffsetStr = request.getParameter("lineoffset");
         if (lineOffsetStr != null) {
@@ -937,6 +996,10 @@ class VerifierServletTransaction implements DocumentModeHandler, SchemaResolver
                 errorHandler = new MessageEmitterAdapter(filterPattern,
                         sourceCode, showSource, imageCollector, lineOffset,
                         false, new XhtmlMessageEmitter(contentHandler));
+                if (aggregateThreshold >= 0) {
+                    errorHandler.setAggregateThreshold(aggregateThreshold);
+                }
+                errorHandler.setErrorBudget(errorBudget);
                 PageEmitter.emit(contentHandler, this);
             } else {
                 if (outputFormat == OutputFormat.TEXT) {
@@ -965,10 +1028,20 @@ class VerifierServletTransaction implements DocumentModeHandler, SchemaResolver
                             new JsonMessageEmitter(
                                     new nu.validator.json.Serializer(out),
                                     callback));
+                } else if (outputFormat == OutputFormat.CBOR) {
+                    response.setContentType("application/cbor");
+                    errorHandler = new MessageEmitterAdapter(filterPattern,
+                            sourceCode, showSource, null, lineOffset, false,
+                            new CborMessageEmitter(out,
+                                    request.getParameter("noextracts") == null));
                 } else {
                     throw new RuntimeException("Unreachable.");
                 }
                 errorHandler.setErrorsOnly(errorsOnly);
+                if (aggregateThreshold >= 0) {
+                    errorHandler.setAggregateThreshold(aggregateThreshold);
+                }
+                errorHandler.setErrorBudget(errorBudget);
                 validate();
             }
         } catch (SAXException e) {
@@ -979,6 +1052,18 @@ class VerifierServletTransaction implements DocumentModeHandler, SchemaResolver
     /**
      * @throws ServletException
      */
+    /**
+     * @return the value as a number, or -1 if it is not a non-negative
+     *         number
+     */
+    private static int nonNegativeNumber(String value) {
+        try {
+            return Math.max(Integer.parseInt(value.trim()), -1);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
     protected void setup() throws ServletException {
         String preset = request.getParameter("preset");
 
@@ -1081,6 +1166,7 @@ class VerifierServletTransaction implements DocumentModeHandler, SchemaResolver
                     new VerifierServletXMLReaderCreator(errorHandler,
                             entityResolver));
             pmb.put(ValidateProperty.SCHEMA_RESOLVER, this);
+            pmb.put(MemoryBudget.PROPERTY, memoryBudget);
             RngProperty.CHECK_ID_IDREF.add(pmb);
             jingPropertyMap = pmb.toPropertyMap();
 
@@ -1111,6 +1197,7 @@ class VerifierServletTransaction implements DocumentModeHandler, SchemaResolver
             }
             reader.setErrorHandler(errorHandler);
             sourceCode.initialize(documentInput);
+            sourceCode.setMemoryBudget(memoryBudget);
             if (validator == null) {
                 checkNormalization = true;
             }
@@ -1119,17 +1206,24 @@ class VerifierServletTransaction implements DocumentModeHandler, SchemaResolver
                         "http://xml.org/sax/features/unicode-normalization-checking",
                         true);
             }
-            WiretapXMLReaderWrapper wiretap = new WiretapXMLReaderWrapper(
-                    reader);
-            ContentHandler recorder = sourceCode.getLocationRecorder();
-            if (baseUriTracker == null) {
-                wiretap.setWiretapContentHander(recorder);
-            } else {
-                wiretap.setWiretapContentHander(new CombineContentHandler(
-                        recorder, baseUriTracker));
-            }
-            wiretap.setWiretapLexicalHandler((LexicalHandler) recorder);
-            reader = wiretap;
+            XMLReaderPipeline pipeline = new XMLReaderPipeline(
+                    log4j.isDebugEnabled());
+            pipeline.add("wiretap", true, new XMLReaderPipeline.Stage() {
+                @Override
+                public XMLReader wrap(XMLReader reader) {
+                    WiretapXMLReaderWrapper wiretap = new WiretapXMLReaderWrapper(
+                            reader);
+                    ContentHandler recorder = sourceCode.getLocationRecorder();
+                    if (baseUriTracker == null) {
+                        wiretap.setWiretapContentHander(recorder);
+                    } else {
+                        wiretap.setWiretapContentHander(new CombineContentHandler(
+                                recorder, baseUriTracker));
+                    }
+                    wiretap.setWiretapLexicalHandler((LexicalHandler) recorder);
+                    return wiretap;
+                }
+            });
             if (htmlParser != null) {
                 htmlParser.addCharacterHandler(sourceCode);
                 htmlParser.setMappingLangToXmlLang(false);
@@ -1137,20 +1231,45 @@ class VerifierServletTransaction implements DocumentModeHandler, SchemaResolver
                 htmlParser.setTreeBuilderErrorHandlerOverride(errorHandler);
                 errorHandler.setHtml(true);
             } else if (xmlParser != null) {
-                // this must be after wiretap!
-                if (!filteredNamespaces.isEmpty()) {
-                    reader = new NamespaceDroppingXMLReaderWrapper(reader,
-                            filteredNamespaces);
-                }
                 xmlParser.setErrorHandler(errorHandler.getExactErrorHandler());
                 xmlParser.lockErrorHandler();
             } else {
                 throw new RuntimeException("Bug. Unreachable.");
             }
-            reader = new AttributesPermutingXMLReaderWrapper(reader); // make
-            // RNG
-            // validation
-            // better
+            // this must be after wiretap!
+            pipeline.add("namespace-dropping",
+                    xmlParser != null && !filteredNamespaces.isEmpty(),
+                    new XMLReaderPipeline.Stage() {
+                        @Override
+                        public XMLReader wrap(XMLReader reader) {
+                            return new NamespaceDroppingXMLReaderWrapper(
+                                    reader, filteredNamespaces);
+                        }
+                    });
+            // make RNG validation better
+            pipeline.add("attributes-permuting", true,
+                    new XMLReaderPipeline.Stage() {
+                        @Override
+                        public XMLReader wrap(XMLReader reader) {
+                            return new AttributesPermutingXMLReaderWrapper(
+                                    reader);
+                        }
+                    });
+            pipeline.add("outline", showOutline, new XMLReaderPipeline.Stage() {
+                @Override
+                public XMLReader wrap(XMLReader reader) {
+                    return new OutlineBuildingXMLReaderWrapper(reader,
+                            request, false);
+                }
+            });
+            pipeline.add("heading-outline", showOutline,
+                    new XMLReaderPipeline.Stage() {
+                        @Override
+                        public XMLReader wrap(XMLReader reader) {
+                            return new OutlineBuildingXMLReaderWrapper(reader,
+                                    request, true);
+                        }
+                    });
             if (charsetOverride != null) {
                 String charset = documentInput.getEncoding();
                 if (charset == null) {
@@ -1165,11 +1284,12 @@ class VerifierServletTransaction implements DocumentModeHandler, SchemaResolver
                 }
                 documentInput.setEncoding(charsetOverride);
             }
-            if (showOutline) {
-                reader = new OutlineBuildingXMLReaderWrapper(reader, request, false);
-                reader = new OutlineBuildingXMLReaderWrapper(reader, request, true);
-            }
+            reader = pipeline.assemble(reader);
             reader.parse(documentInput);
+            if (log4j.isDebugEnabled()) {
+                log4j.debug("Reader pipeline: " + pipeline.getTimings());
+            }
+            errorHandler.reportMemoryBudget(memoryBudget);
             if (showOutline) {
                 outline = (Deque<Section>) request.getAttribute(
                         "http://validator.nu/properties/document-outline");
@@ -1187,6 +1307,8 @@ class VerifierServletTransaction implements DocumentModeHandler, SchemaResolver
             errorHandler.ioError(new IOException(e.getMessage(), null));
         } catch (ConnectTimeoutException e) {
             errorHandler.ioError(new IOException(e.getMessage(), null));
+        } catch (ErrorBudgetExceededException e) {
+            log4j.debug(e.getMessage());
         } catch (TooManyErrorsException e) {
             errorHandler.fatalError(e);
         } catch (SAXException e) {
@@ -1241,6 +1363,20 @@ class VerifierServletTransaction implements DocumentModeHandler, SchemaResolver
         }
         synchronized (stats) {
             stats.incrementTotal();
+            if (memoryBudget.isExceeded()) {
+                stats.incrementField(Statistics.Field.MEMORY_BUDGET_EXCEEDED);
+            }
+            if (sourceCode.isRetentionDropped()) {
+                stats.incrementField(Statistics.Field.MEMORY_SOURCE_DROPPED);
+            }
+            if (httpRes != null) {
+                stats.incrementField(Statistics.Field.HTTP_CACHE_HIT,
+                        httpRes.getCacheHits());
+                stats.incrementField(Statistics.Field.HTTP_CACHE_REVALIDATED,
+                        httpRes.getCacheRevalidations());
+                stats.incrementField(Statistics.Field.HTTP_CACHE_MISS,
+                        httpRes.getCacheMisses());
+            }
             if (charsetOverride != null) {
                 stats.incrementField(Statistics.Field.CUSTOM_ENC);
             }
@@ -1314,6 +1450,9 @@ class VerifierServletTransaction implements DocumentModeHandler, SchemaResolver
                 case JSON:
                     stats.incrementField(Statistics.Field.OUTPUT_JSON);
                     break;
+                case CBOR:
+                    stats.incrementField(Statistics.Field.OUTPUT_CBOR);
+                    break;
                 case TEXT:
                     stats.incrementField(Statistics.Field.OUTPUT_TEXT);
                     break;
@@ -1790,7 +1929,7 @@ class VerifierServletTransaction implements DocumentModeHandler, SchemaResolver
                 || "http://s.validator.nu/html5-its.rnc".equals(url)
                 || "http://s.validator.nu/xhtml5-rdfalite.rnc".equals(url)
                 || "http://s.validator.nu/html5-rdfalite.rnc".equals(url)) {
-            errorHandler.setSpec(html5spec);
+            errorHandler.setSpec(Html5Spec.INSTANCE);
         }
         Schema sch = resolveSchema(url, jingPropertyMap);
         Validator validator = sch.createValidator(jingPropertyMap);
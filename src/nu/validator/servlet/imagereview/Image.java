@@ -53,6 +53,14 @@ public class Image implements Locator {
      * @param locator 
      */
     public Image(String src, String alt, String lang, boolean rtl, int width, int height, boolean linked, Locator locator) {
+        this(src, alt, lang, rtl, width, height, linked,
+                locator.getSystemId(), locator.getPublicId(),
+                locator.getLineNumber(), locator.getColumnNumber());
+    }
+
+    public Image(String src, String alt, String lang, boolean rtl, int width,
+            int height, boolean linked, String systemId, String publicId,
+            int line, int column) {
         this.src = src;
         this.alt = alt;
         this.lang = lang;
@@ -60,10 +68,10 @@ public class Image implements Locator {
         this.width = width;
         this.height = height;
         this.linked = linked;
-        this.systemId = locator.getSystemId();
-        this.publicId = locator.getPublicId();
-        this.column = locator.getColumnNumber();
-        this.line = locator.getLineNumber();
+        this.systemId = systemId;
+        this.publicId = publicId;
+        this.column = column;
+        this.line = line;
     }
 
     /**
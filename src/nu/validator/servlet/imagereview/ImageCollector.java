@@ -22,9 +22,7 @@
 
 package nu.validator.servlet.imagereview;
 
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Arrays;
 
 import nu.validator.source.SourceCode;
 import nu.validator.xml.UriLangContext;
@@ -38,11 +36,42 @@ import org.xml.sax.SAXException;
 
 import com.thaiopensource.validate.Validator;
 
-public class ImageCollector implements Validator, ContentHandler, Iterable<Image> {
+/**
+ * Collects the <code>img</code> elements of a document for the image report.
+ * Images are sorted into the report's categories as they are seen and kept
+ * in parallel arrays per category, with line and column packed into one
+ * <code>int</code> array, so the report can be emitted category by category
+ * without building lists. The alt text, language and direction are only
+ * kept for images with a non-empty alt, the only ones whose alt is shown.
+ */
+public class ImageCollector implements Validator, ContentHandler {
+
+    /**
+     * Images without alt inside a link.
+     */
+    public static final int NO_ALT_LINK = 0;
+
+    /**
+     * Images without alt outside links.
+     */
+    public static final int NO_ALT_NO_LINK = 1;
+
+    /**
+     * Images with an empty alt.
+     */
+    public static final int EMPTY_ALT = 2;
+
+    /**
+     * Images with a non-empty alt.
+     */
+    public static final int HAS_ALT = 3;
+
+    private static final int INITIAL_CAPACITY = 16;
 
     private final SourceCode sourceCode;
     
-    private final List<Image> images = new LinkedList<>();
+    private final Category[] categories = { new Category(false),
+            new Category(false), new Category(false), new Category(true) };
     
     private UriLangContext context = null;
     
@@ -154,9 +183,23 @@ public class ImageCollector implements Validator, ContentHandler, Iterable<Image
                     }
                 }
             }
-            Image image = new Image(src, alt, context.currentLanguage(), context.isCurrentRtl(), width, height, depthInLink > 0, locator);
-            sourceCode.registerRandeEnd(image);
-            images.add(image);
+            int category;
+            if (alt == null) {
+                category = depthInLink > 0 ? NO_ALT_LINK : NO_ALT_NO_LINK;
+            } else if ("".equals(alt)) {
+                category = EMPTY_ALT;
+            } else {
+                category = HAS_ALT;
+            }
+            String lang = null;
+            boolean rtl = false;
+            if (category == HAS_ALT) {
+                lang = context.currentLanguage();
+                rtl = context.isCurrentRtl();
+            }
+            categories[category].add(src, alt, lang, rtl, width, height,
+                    locator);
+            sourceCode.registerRandeEnd(locator);
         }
     }
     
@@ -166,18 +209,128 @@ public class ImageCollector implements Validator, ContentHandler, Iterable<Image
             throws SAXException {
     }
 
-    @Override
-    public Iterator<Image> iterator() {
-        return images.iterator();
+    /**
+     * @return the number of images in <code>category</code>
+     */
+    public int size(int category) {
+        return categories[category].size;
+    }
+
+    /**
+     * @return the one-based line of an image
+     */
+    public int getLineNumber(int category, int index) {
+        return categories[category].positions[2 * index];
+    }
+
+    /**
+     * @return the one-based column of an image
+     */
+    public int getColumnNumber(int category, int index) {
+        return categories[category].positions[2 * index + 1];
     }
 
     /**
-     * @return
-     * @see java.util.List#isEmpty()
+     * @return the system id of an image
      */
+    public String getSystemId(int category, int index) {
+        return categories[category].systemIds[index];
+    }
+
+    /**
+     * Makes an <code>Image</code> for one image of a category, to be used
+     * while emitting it.
+     */
+    public Image get(int category, int index) {
+        Category c = categories[category];
+        String alt = null;
+        String lang = null;
+        boolean rtl = false;
+        if (category == EMPTY_ALT) {
+            alt = "";
+        } else if (category == HAS_ALT) {
+            alt = c.alts[index];
+            lang = c.langs[index];
+            rtl = c.rtl[index];
+        }
+        return new Image(c.srcs[index], alt, lang, rtl,
+                c.dimensions[2 * index], c.dimensions[2 * index + 1],
+                category == NO_ALT_LINK, c.systemIds[index],
+                c.publicIds[index], c.positions[2 * index],
+                c.positions[2 * index + 1]);
+    }
+
     public boolean isEmpty() {
-        return images.isEmpty();
+        for (Category category : categories) {
+            if (category.size > 0) {
+                return false;
+            }
+        }
+        return true;
     }
 
+    private static final class Category {
+
+        int size = 0;
+
+        String[] srcs = new String[INITIAL_CAPACITY];
+
+        String[] systemIds = new String[INITIAL_CAPACITY];
+
+        String[] publicIds = new String[INITIAL_CAPACITY];
 
+        /**
+         * Width and height of each image.
+         */
+        int[] dimensions = new int[2 * INITIAL_CAPACITY];
+
+        /**
+         * Line and column of each image.
+         */
+        int[] positions = new int[2 * INITIAL_CAPACITY];
+
+        String[] alts;
+
+        String[] langs;
+
+        boolean[] rtl;
+
+        Category(boolean keepAlt) {
+            if (keepAlt) {
+                alts = new String[INITIAL_CAPACITY];
+                langs = new String[INITIAL_CAPACITY];
+                rtl = new boolean[INITIAL_CAPACITY];
+            }
+        }
+
+        void add(String src, String alt, String lang, boolean isRtl,
+                int width, int height, Locator locator) {
+            if (size == srcs.length) {
+                int capacity = size * 2;
+                srcs = Arrays.copyOf(srcs, capacity);
+                systemIds = Arrays.copyOf(systemIds, capacity);
+                publicIds = Arrays.copyOf(publicIds, capacity);
+                dimensions = Arrays.copyOf(dimensions, 2 * capacity);
+                positions = Arrays.copyOf(positions, 2 * capacity);
+                if (alts != null) {
+                    alts = Arrays.copyOf(alts, capacity);
+                    langs = Arrays.copyOf(langs, capacity);
+                    rtl = Arrays.copyOf(rtl, capacity);
+                }
+            }
+            srcs[size] = src;
+            systemIds[size] = locator.getSystemId();
+            publicIds[size] = locator.getPublicId();
+            dimensions[2 * size] = width;
+            dimensions[2 * size + 1] = height;
+            positions[2 * size] = locator.getLineNumber();
+            positions[2 * size + 1] = locator.getColumnNumber();
+            if (alts != null) {
+                alts[size] = alt;
+                langs[size] = lang;
+                rtl[size] = isRtl;
+            }
+            size++;
+        }
+    }
 }
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2026 Mozilla Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package nu.validator.servlet.test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks whether slow clients tie up the service's threads. Starts clients
+ * that request <code>URL</code> and read the response at a throttled rate,
+ * and while they are reading, times the same request made by a client that
+ * reads at full speed. With blocking output, once the slow clients hold
+ * all the container's threads, the fast requests wait for them; with
+ * <code>-Dnu.validator.servlet.async-output=1</code> they should not.
+ *
+ * <p>The URL should give a large response, for example a big document with
+ * <code>showsource=yes</code>, so that it does not fit in the socket
+ * buffers.
+ *
+ * <p>With <code>gzip</code> as the last argument, all requests send
+ * <code>Accept-Encoding: gzip</code>, so that the compressed output path is
+ * measured too.
+ *
+ * <p>Usage:
+ * <code>SlowClientLoadTest URL [SLOW_CLIENTS [BYTES_PER_SECOND [gzip]]]</code>
+ */
+public class SlowClientLoadTest {
+
+    private static final int FAST_REQUESTS = 10;
+
+    private static final int RECEIVE_BUFFER = 4096;
+
+    /**
+     * @param args
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println(
+                    "Usage: SlowClientLoadTest URL [SLOW_CLIENTS [BYTES_PER_SECOND [gzip]]]");
+            System.exit(1);
+        }
+        final URL url = new URL(args[0]);
+        int slowClients = args.length > 1 ? Integer.parseInt(args[1]) : 150;
+        final int bytesPerSecond = args.length > 2 ? Integer.parseInt(args[2])
+                : 1024;
+        final boolean gzip = args.length > 3 && "gzip".equals(args[3]);
+
+        System.out.printf("alone: median %.0f ms%n", timeFastRequests(url,
+                gzip));
+
+        final CountDownLatch connected = new CountDownLatch(slowClients);
+        final AtomicInteger finished = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        for (int i = 0; i < slowClients; i++) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        readSlowly(url, bytesPerSecond, gzip, connected);
+                        finished.incrementAndGet();
+                    } catch (IOException | InterruptedException e) {
+                        failed.incrementAndGet();
+                    }
+                }
+            };
+            thread.setDaemon(true);
+            thread.start();
+        }
+        connected.await();
+        // Let the service start writing to all of them.
+        Thread.sleep(2000);
+        System.out.printf(
+                "with %d slow clients: median %.0f ms (%d slow done, %d failed)%n",
+                slowClients, timeFastRequests(url, gzip), finished.get(),
+                failed.get());
+    }
+
+    private static double timeFastRequests(URL url, boolean gzip)
+            throws IOException {
+        long[] sorted = new long[FAST_REQUESTS];
+        byte[] buffer = new byte[8192];
+        for (int i = 0; i < FAST_REQUESTS; i++) {
+            long start = System.nanoTime();
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            if (gzip) {
+                connection.setRequestProperty("Accept-Encoding", "gzip");
+            }
+            try (InputStream in = connection.getInputStream()) {
+                while (in.read(buffer) != -1) {
+                    // discard
+                }
+            }
+            sorted[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2] / 1e6;
+    }
+
+    private static void readSlowly(URL url, int bytesPerSecond,
+            boolean gzip, CountDownLatch connected) throws IOException,
+            InterruptedException {
+        int port = url.getPort() == -1 ? url.getDefaultPort() : url.getPort();
+        boolean counted = false;
+        try (Socket socket = new Socket()) {
+            socket.setReceiveBufferSize(RECEIVE_BUFFER);
+            socket.connect(new InetSocketAddress(url.getHost(), port));
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET " + url.getFile() + " HTTP/1.0\r\nHost: "
+                    + url.getHost() + "\r\nUser-Agent: SlowClientLoadTest\r\n"
+                    + (gzip ? "Accept-Encoding: gzip\r\n" : "") + "\r\n").getBytes(
+                    "US-ASCII"));
+            out.flush();
+            connected.countDown();
+            counted = true;
+            InputStream in = socket.getInputStream();
+            byte[] buffer = new byte[Math.max(1, bytesPerSecond / 10)];
+            while (in.read(buffer) != -1) {
+                Thread.sleep(100);
+            }
+        } finally {
+            if (!counted) {
+                connected.countDown();
+            }
+        }
+    }
+}
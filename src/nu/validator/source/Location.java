@@ -51,7 +51,7 @@ public final class Location implements Comparable<Location>, Cloneable {
                 column = 0;                
             } else {
                 try {
-                    column = owner.getLine(line).getBufferLength();
+                    column = owner.getLineLength(line);
                 } catch (IndexOutOfBoundsException e) {
                     column = 0;
                 }
@@ -135,8 +135,7 @@ public final class Location implements Comparable<Location>, Cloneable {
                     break;
                 }
                 newColumn++;
-                Line sourceLine = owner.getLine(newLine);
-                if (newColumn > sourceLine.getBufferLength()) {
+                if (newColumn > owner.getLineLength(newLine)) {
                     newLine++;
                     newColumn = 0;
                 }
@@ -151,7 +150,7 @@ public final class Location implements Comparable<Location>, Cloneable {
                 newColumn--;
                 if (newColumn == -1) {
                     newLine--;
-                    newColumn = owner.getLine(newLine).getBufferLength();
+                    newColumn = owner.getLineLength(newLine);
                 }
             }            
             return new Location(owner, newLine, newColumn);
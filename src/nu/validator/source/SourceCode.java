@@ -22,14 +22,10 @@
 
 package nu.validator.source;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.SortedSet;
 
-import nu.validator.collections.HeadBiasedSortedSet;
+import nu.validator.checker.MemoryBudget;
 import nu.validator.collections.TailBiasedSortedSet;
 import nu.validator.htmlparser.common.CharacterHandler;
 import nu.validator.xml.TypedInputSource;
@@ -40,11 +36,16 @@ import org.xml.sax.InputSource;
 import org.xml.sax.Locator;
 import org.xml.sax.SAXException;
 
+/**
+ * Keeps the source text of the document being checked and renders
+ * extracts and the source listing from it. The text of all lines is kept
+ * in a single buffer without the line breaks, with the offsets where the
+ * lines start kept in an array, so that extracts are handed to
+ * <code>SourceHandler</code>s as slices of that one buffer.
+ */
 public final class SourceCode implements CharacterHandler {
     private static final Logger log4j = Logger.getLogger(SourceCode.class);
 
-    private static Location[] SOURCE_LOCATION_ARRAY_TYPE = new Location[0];
-
     private String uri;
     
     private String type;
@@ -53,7 +54,14 @@ public final class SourceCode implements CharacterHandler {
 
     private int expectedLength;
 
-    private final SortedSet<Location> reverseSortedLocations = new HeadBiasedSortedSet<>(Collections.reverseOrder());
+    /**
+     * Sorted packed positions reported by the locator, for finding where a
+     * range ends. Positions mostly arrive in document order, so inserting
+     * is an append.
+     */
+    private long[] locatorLocations = new long[256];
+
+    private int numberOfLocatorLocations = 0;
 
     private final SortedSet<Location> exactErrors = new TailBiasedSortedSet<>();
 
@@ -61,8 +69,6 @@ public final class SourceCode implements CharacterHandler {
     
     private final SortedSet<Integer> oneBasedLineErrors = new TailBiasedSortedSet<>();
 
-//    private final SortedSet<Location> reverseSortedLocations = new TreeSet<>(Collections.reverseOrder());
-//
 //    private final SortedSet<Location> exactErrors = new TreeSet<>();
 //
 //    private final SortedSet<Location> rangeLasts = new TreeSet<>();
@@ -70,9 +76,13 @@ public final class SourceCode implements CharacterHandler {
 //    private final SortedSet<Integer> oneBasedLineErrors = new TreeSet<>();
 
     
-    private final List<Line> lines = new ArrayList<>();
+    private char[] buffer = null;
+
+    private int bufferLength = 0;
+
+    private int[] lineStarts = new int[256];
 
-    private Line currentLine = null;
+    private int numberOfLines = 0;
 
     private boolean prevWasCr = false;
 
@@ -80,6 +90,17 @@ public final class SourceCode implements CharacterHandler {
 
     private boolean isCss = false;
 
+    private MemoryBudget memoryBudget = null;
+
+    private boolean retentionDropped = false;
+
+    private final MemoryBudget.Reserve reserve = new MemoryBudget.Reserve() {
+        @Override
+        public void drop() {
+            dropRetention();
+        }
+    };
+
     public SourceCode() {
         this.locationRecorder = new LocationRecorder(this);
     }
@@ -92,6 +113,21 @@ public final class SourceCode implements CharacterHandler {
         return this.isCss;
     }
 
+    public void setMemoryBudget(MemoryBudget memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Returns <code>true</code> if the source lines of the current document
+     * were released because the memory budget was exceeded. Extracts and
+     * the source listing are unavailable in that case.
+     * 
+     * @return <code>true</code> if retention was dropped
+     */
+    public boolean isRetentionDropped() {
+        return retentionDropped;
+    }
+
     public void initialize(InputSource inputSource) {
         this.uri = inputSource.getSystemId();
         this.encoding = inputSource.getEncoding();
@@ -117,6 +153,14 @@ public final class SourceCode implements CharacterHandler {
     @Override
     public void characters(char[] ch, int start, int length)
             throws SAXException {
+        if (retentionDropped) {
+            return;
+        }
+        if (memoryBudget != null
+                && !memoryBudget.chargeReserve(reserve, 2L * length)) {
+            dropRetention();
+            return;
+        }
         int s = start;
         int end = start + length;
         for (int i = start; i < end; i++) {
@@ -124,7 +168,7 @@ public final class SourceCode implements CharacterHandler {
             switch (c) {
                 case '\r':
                     if (s < i) {
-                        currentLine.characters(ch, s, i - s);
+                        append(ch, s, i - s);
                     }
                     newLine();
                     s = i + 1;
@@ -133,7 +177,7 @@ public final class SourceCode implements CharacterHandler {
                 case '\n':
                     if (!prevWasCr) {
                         if (s < i) {
-                            currentLine.characters(ch, s, i - s);
+                            append(ch, s, i - s);
                         }
                         newLine();
                     }
@@ -146,46 +190,117 @@ public final class SourceCode implements CharacterHandler {
             }
         }
         if (s < end) {
-            currentLine.characters(ch, s, end - s);
+            append(ch, s, end - s);
         }
     }
 
+    /**
+     * Releases the source lines of the current document, which is what the
+     * memory budget gives up before it skips any checks.
+     */
+    private void dropRetention() {
+        buffer = null;
+        bufferLength = 0;
+        numberOfLines = 0;
+        retentionDropped = true;
+    }
+
+    private void append(char[] ch, int start, int length) {
+        int newBufferLength = bufferLength + length;
+        if (newBufferLength > buffer.length) {
+            char[] newBuf = new char[Math.max(newBufferLength,
+                    buffer.length << 1)];
+            System.arraycopy(buffer, 0, newBuf, 0, bufferLength);
+            buffer = newBuf;
+        }
+        System.arraycopy(ch, start, buffer, bufferLength, length);
+        bufferLength = newBufferLength;
+    }
+
     private void newLine() {
-        int offset;
-        char[] buffer;
-        if (currentLine == null) {
-            offset = 0;
-            buffer = new char[expectedLength];
-        } else {
-            offset = currentLine.getOffset() + currentLine.getBufferLength();
-            buffer = currentLine.getBuffer();
+        if (numberOfLines == lineStarts.length) {
+            int[] newStarts = new int[numberOfLines << 1];
+            System.arraycopy(lineStarts, 0, newStarts, 0, numberOfLines);
+            lineStarts = newStarts;
         }
-        currentLine = new Line(buffer, offset);
-        lines.add(currentLine);
+        lineStarts[numberOfLines++] = bufferLength;
     }
 
     @Override
     public void end() throws SAXException {
-        if (currentLine != null && currentLine.getBufferLength() == 0) {
+        if (numberOfLines > 0 && getLineLength(numberOfLines - 1) == 0) {
             // Theoretical impurity with line separators vs. terminators
-            lines.remove(lines.size() - 1);
-            currentLine = null;
+            numberOfLines--;
         }
     }
 
     @Override
     public void start() throws SAXException {
-        reverseSortedLocations.clear();
-        lines.clear();
-        currentLine = null;
+        numberOfLocatorLocations = 0;
+        int capacity = expectedLength;
+        if (memoryBudget != null && memoryBudget.getLimit() > 0) {
+            // Don't preallocate more than the budget would let us keep.
+            capacity = (int) Math.min(capacity, memoryBudget.getLimit() / 2);
+        }
+        buffer = new char[Math.max(capacity, 16)];
+        bufferLength = 0;
+        numberOfLines = 0;
+        retentionDropped = false;
         newLine();
         prevWasCr = false;
     }
 
     public void addLocatorLocation(int oneBasedLine, int oneBasedColumn) {
         log4j.debug(oneBasedLine + ", " + oneBasedColumn);
-        reverseSortedLocations.add(new Location(this, oneBasedLine - 1,
-                oneBasedColumn - 1));
+        addLocation(new Location(this, oneBasedLine - 1, oneBasedColumn - 1));
+    }
+
+    private static long pack(Location location) {
+        return ((long) location.getLine() << 32) | location.getColumn();
+    }
+
+    private Location unpack(long packed) {
+        return new Location(this, (int) (packed >>> 32), (int) packed);
+    }
+
+    /**
+     * Returns the index of the last locator location before the given
+     * one, or -1 if there is none.
+     */
+    private int locatorLocationBefore(long packed) {
+        int lo = 0;
+        int hi = numberOfLocatorLocations - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (locatorLocations[mid] < packed) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return hi;
+    }
+
+    private void addLocation(Location location) {
+        long packed = pack(location);
+        int n = numberOfLocatorLocations;
+        int i;
+        if (n == 0 || locatorLocations[n - 1] < packed) {
+            i = n;
+        } else {
+            i = locatorLocationBefore(packed) + 1;
+            if (locatorLocations[i] == packed) {
+                return;
+            }
+        }
+        if (n == locatorLocations.length) {
+            long[] newLocations = new long[n << 1];
+            System.arraycopy(locatorLocations, 0, newLocations, 0, n);
+            locatorLocations = newLocations;
+        }
+        System.arraycopy(locatorLocations, i, locatorLocations, i + 1, n - i);
+        locatorLocations[i] = packed;
+        numberOfLocatorLocations++;
     }
 
     public void exactError(Location location, SourceHandler extractHandler)
@@ -220,7 +335,7 @@ public final class SourceCode implements CharacterHandler {
     
     public void rangeEndError(Location rangeStart, Location rangeLast,
             SourceHandler extractHandler) throws SAXException {
-        reverseSortedLocations.add(rangeLast);
+        addLocation(rangeLast);
         rangeLasts.add(rangeLast);
         Location endRange = rangeLast.next();
         Location start = rangeStart.step(-10);
@@ -243,10 +358,9 @@ public final class SourceCode implements CharacterHandler {
      * @return
      */
     public Location rangeStartForRangeLast(Location rangeLast) {
-        for (Location loc : reverseSortedLocations) {
-            if (loc.compareTo(rangeLast) < 0) {
-                return loc.next();
-            }
+        int i = locatorLocationBefore(pack(rangeLast));
+        if (i >= 0) {
+            return unpack(locatorLocations[i]).next();
         }
         return new Location(this, 0, 0);
     }
@@ -254,41 +368,58 @@ public final class SourceCode implements CharacterHandler {
     public void lineError(int oneBasedLine, SourceHandler extractHandler)
             throws SAXException {
         oneBasedLineErrors.add(oneBasedLine);
-        Line line = lines.get(oneBasedLine - 1);
+        int line = oneBasedLine - 1;
+        int start = getLineStart(line);
         extractHandler.startSource(type, encoding);
-        extractHandler.characters(line.getBuffer(), line.getOffset(),
-                line.getBufferLength());
+        extractHandler.characters(buffer, start, getLineLength(line));
         extractHandler.endSource();
     }
 
     public boolean isWithinKnownSource(Location location) {
-        if (location.getLine() >= lines.size()) {
+        if (location.getLine() >= numberOfLines) {
             return false;
         }
-        Line line = lines.get(location.getLine());
-        return line.getBufferLength() >= location.getColumn();
+        return getLineLength(location.getLine()) >= location.getColumn();
     }
 
     public boolean isWithinKnownSource(int oneBasedLine) {
-        return !(oneBasedLine > lines.size());
+        return !(oneBasedLine > numberOfLines);
     }
 
-    Line getLine(int line) {
-        return lines.get(line);
+    private int getLineStart(int line) {
+        if (line < 0 || line >= numberOfLines) {
+            throw new IndexOutOfBoundsException("Line: " + line);
+        }
+        return lineStarts[line];
+    }
+
+    /**
+     * Returns the length of a line without the line break.
+     * 
+     * @param line the zero-based line number
+     * @return the length
+     * @throws IndexOutOfBoundsException if there is no such line
+     */
+    int getLineLength(int line) {
+        int start = getLineStart(line);
+        if (line + 1 < numberOfLines) {
+            return lineStarts[line + 1] - start;
+        }
+        return bufferLength - start;
     }
 
     int getNumberOfLines() {
-        return lines.size();
+        return numberOfLines;
     }
 
     void emitCharacter(Location location, SourceHandler handler)
             throws SAXException {
-        Line line = getLine(location.getLine());
+        int line = location.getLine();
         int col = location.getColumn();
-        if (col == line.getBufferLength()) {
+        if (col == getLineLength(line)) {
             handler.newLine();
         } else {
-            handler.characters(line.getBuffer(), line.getOffset() + col, 1);
+            handler.characters(buffer, getLineStart(line) + col, 1);
         }
     }
 
@@ -308,25 +439,24 @@ public final class SourceCode implements CharacterHandler {
         }
         int fromLine = from.getLine();
         int untilLine = until.getLine();
-        Line line = getLine(fromLine);
+        int fromStart = getLineStart(fromLine);
         if (fromLine == untilLine) {
-            try {
-                handler.characters(line.getBuffer(),
-                        line.getOffset() + from.getColumn(),
-                        until.getColumn() - from.getColumn());
-            } catch (ArrayIndexOutOfBoundsException e) {
+            int start = fromStart + from.getColumn();
+            int length = until.getColumn() - from.getColumn();
+            if (start + length <= buffer.length) {
+                handler.characters(buffer, start, length);
             }
         } else {
             // first line
-            int length = line.getBufferLength() - from.getColumn();
+            int length = getLineLength(fromLine) - from.getColumn();
             if (length > 0) {
-                if (!((fromLine == 0 || fromLine == lines.size() - 1)
+                if (!((fromLine == 0 || fromLine == numberOfLines - 1)
                         && this.isCss)) {
-                    handler.characters(line.getBuffer(),
-                            line.getOffset() + from.getColumn(), length);
+                    handler.characters(buffer, fromStart + from.getColumn(),
+                            length);
                 }
             }
-            if (fromLine + 1 != lines.size()) {
+            if (fromLine + 1 != numberOfLines) {
                 if (!(fromLine == 0 && this.isCss)) {
                     handler.newLine();
                 }
@@ -334,61 +464,69 @@ public final class SourceCode implements CharacterHandler {
             // lines in between
             int wholeLine = fromLine + 1;
             while (wholeLine < untilLine) {
-                line = getLine(wholeLine);
-                handler.characters(line.getBuffer(), line.getOffset(),
-                        line.getBufferLength());
+                handler.characters(buffer, lineStarts[wholeLine],
+                        getLineLength(wholeLine));
                 wholeLine++;
-                if (wholeLine != lines.size()) {
+                if (wholeLine != numberOfLines) {
                     handler.newLine();
                 }
             }
             // last line
             int untilCol = until.getColumn();
             if (untilCol > 0) {
-                line = getLine(untilLine);
-                if (!(untilLine == lines.size() - 1 && this.isCss)) {
-                    handler.characters(line.getBuffer(), line.getOffset(),
-                            untilCol);
+                int untilStart = getLineStart(untilLine);
+                if (!(untilLine == numberOfLines - 1 && this.isCss)) {
+                    handler.characters(buffer, untilStart, untilCol);
                 }
             }
         }
     }
 
     public void emitSource(SourceHandler handler) throws SAXException {
-        List<Range> ranges = new LinkedList<>();
-        Location[] locations = reverseSortedLocations.toArray(SOURCE_LOCATION_ARRAY_TYPE);
-        int i = locations.length - 1;
+        if (retentionDropped) {
+            handler.startSource(type, encoding);
+            handler.endSource();
+            return;
+        }
+        int numberOfRanges = rangeLasts.size();
+        Location[] rangeStarts = new Location[numberOfRanges];
+        Location[] rangeEnds = new Location[numberOfRanges];
+        Location[] rangeLocs = new Location[numberOfRanges];
+        int i = 0;
+        int r = 0;
         for (Location loc : rangeLasts) {
-            while (i >= 0 && locations[i].compareTo(loc) < 0) {
-                i--;
+            long packed = pack(loc);
+            while (i < numberOfLocatorLocations
+                    && locatorLocations[i] < packed) {
+                i++;
             }
-            Location start;
-            if (i == locations.length - 1) {
-                start = new Location(this, 0, 0);
+            if (i == 0) {
+                rangeStarts[r] = new Location(this, 0, 0);
             } else {
-                start = locations[i + 1].next();                
+                rangeStarts[r] = unpack(locatorLocations[i - 1]).next();
             }
-            Location end = loc.next();
-            ranges.add(new Range(start, end, loc));
+            rangeEnds[r] = loc.next();
+            rangeLocs[r] = loc;
+            r++;
         }
         try {
             handler.startSource(type, encoding);
             handler.setLineErrors(oneBasedLineErrors);
-            Iterator<Range> rangeIter = ranges.iterator();
             Iterator<Location> exactIter = exactErrors.iterator();
             Location previousLocation = new Location(this, 0, 0);
             Location exact = null;
             Location rangeStart = null;
             Location rangeEnd = null;
             Location rangeLoc = null;
+            r = 0;
             if (exactIter.hasNext()) {
                 exact = exactIter.next();
             }
-            if (rangeIter.hasNext()) {
-                Range r = rangeIter.next();
-                rangeStart = r.getStart();
-                rangeEnd = r.getEnd();
-                rangeLoc = r.getLoc();
+            if (r < numberOfRanges) {
+                rangeStart = rangeStarts[r];
+                rangeEnd = rangeEnds[r];
+                rangeLoc = rangeLocs[r];
+                r++;
             }
             while (exact != null || rangeEnd != null) {
                 if (exact != null
@@ -418,11 +556,11 @@ public final class SourceCode implements CharacterHandler {
                     handler.endRange();
                     previousLocation = rangeEnd;
 
-                    if (rangeIter.hasNext()) {
-                        Range r = rangeIter.next();
-                        rangeStart = r.getStart();
-                        rangeEnd = r.getEnd();
-                        rangeLoc = r.getLoc();
+                    if (r < numberOfRanges) {
+                        rangeStart = rangeStarts[r];
+                        rangeEnd = rangeEnds[r];
+                        rangeLoc = rangeLocs[r];
+                        r++;
                     } else {
                         rangeEnd = null;
                     }
@@ -430,10 +568,10 @@ public final class SourceCode implements CharacterHandler {
             }
             if (this.isCss) {
                 emitContent(previousLocation,
-                        new Location(this, lines.size() - 1, 0), handler);
+                        new Location(this, numberOfLines - 1, 0), handler);
             } else {
                 emitContent(previousLocation,
-                        new Location(this, lines.size(), 0), handler);
+                        new Location(this, numberOfLines, 0), handler);
             }
         } finally {
             handler.endSource();
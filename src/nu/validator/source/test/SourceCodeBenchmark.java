@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2026 Mozilla Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package nu.validator.source.test;
+
+import java.util.SortedSet;
+
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import nu.validator.source.Location;
+import nu.validator.source.SourceCode;
+import nu.validator.source.SourceHandler;
+
+/**
+ * Times recording a synthesized document of many feature elements and
+ * rendering the extracts of a message for each of them, followed by the
+ * source listing, the way <code>MessageEmitterAdapter</code> drives
+ * <code>SourceCode</code> when a document has tens of thousands of errors.
+ */
+public class SourceCodeBenchmark {
+
+    private static final int FEATURES = 20000;
+
+    private static final int WARMUP_ROUNDS = 5;
+
+    private static final int ROUNDS = 10;
+
+    private static final class CountingHandler implements SourceHandler {
+
+        long chars;
+
+        long events;
+
+        @Override
+        public void startSource(String type, String encoding) {
+            events++;
+        }
+
+        @Override
+        public void setLineErrors(SortedSet<Integer> oneBasedLineErrors) {
+            events++;
+        }
+
+        @Override
+        public void endSource() {
+            events++;
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            chars += length;
+            events++;
+        }
+
+        @Override
+        public void newLine() {
+            events++;
+        }
+
+        @Override
+        public void startRange(int oneBasedLine, int oneBasedColumn) {
+            events++;
+        }
+
+        @Override
+        public void endRange() {
+            events++;
+        }
+
+        @Override
+        public void startCharHilite(int oneBasedLine, int oneBasedColumn) {
+            events++;
+        }
+
+        @Override
+        public void endCharHilite() {
+            events++;
+        }
+    }
+
+    /**
+     * @param args
+     * @throws SAXException
+     */
+    public static void main(String[] args) throws SAXException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < FEATURES; i++) {
+            sb.append("<feature id=\"f").append(i).append(
+                    "\"><geometry><polygon><coordinates>");
+            for (int j = 0; j < 20; j++) {
+                sb.append(j * 7).append(' ').append(i % 90).append(' ');
+            }
+            sb.append("</coordinates></polygon></geometry></feature>\n");
+        }
+        char[] document = sb.toString().toCharArray();
+        System.out.println(FEATURES + " lines, " + document.length
+                + " chars, " + (3 * FEATURES) + " messages per round.");
+
+        run(document, WARMUP_ROUNDS);
+        long start = System.nanoTime();
+        CountingHandler handler = run(document, ROUNDS);
+        long nanos = System.nanoTime() - start;
+        System.out.printf("%.1f ms per round, %d handler events%n",
+                nanos / 1e6 / ROUNDS, handler.events / ROUNDS);
+    }
+
+    private static CountingHandler run(char[] document, int rounds)
+            throws SAXException {
+        CountingHandler handler = new CountingHandler();
+        for (int round = 0; round < rounds; round++) {
+            SourceCode sourceCode = new SourceCode();
+            sourceCode.initialize(new InputSource("about:benchmark"));
+            sourceCode.start();
+            for (int off = 0; off < document.length; off += 2048) {
+                sourceCode.characters(document, off,
+                        Math.min(2048, document.length - off));
+            }
+            sourceCode.end();
+            for (int line = 1; line <= FEATURES; line++) {
+                sourceCode.addLocatorLocation(line, 17);
+                sourceCode.addLocatorLocation(line, 40);
+            }
+            for (int line = 1; line <= FEATURES; line++) {
+                Location exact = sourceCode.newLocatorLocation(line, 60);
+                sourceCode.exactError(exact, handler);
+                Location rangeLast = sourceCode.newLocatorLocation(line, 39);
+                sourceCode.rangeEndError(
+                        sourceCode.rangeStartForRangeLast(rangeLast),
+                        rangeLast, handler);
+                sourceCode.lineError(line, handler);
+            }
+            sourceCode.emitSource(handler);
+        }
+        return handler;
+    }
+}
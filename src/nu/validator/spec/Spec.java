@@ -66,4 +66,20 @@ public class Spec {
         return attributesByElement.get(element);
     }
 
+    Map<Name, String> getUrisByElement() {
+        return urisByElement;
+    }
+
+    Map<Name, DocumentFragment> getContextsByElement() {
+        return contextsByElement;
+    }
+
+    Map<Name, DocumentFragment> getContentModelsByElement() {
+        return contentModelsByElement;
+    }
+
+    Map<Name, DocumentFragment> getAttributesByElement() {
+        return attributesByElement;
+    }
+
 }
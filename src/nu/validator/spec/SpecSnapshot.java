@@ -0,0 +1,353 @@
+/*
+ * Copyright (c) 2026 Mozilla Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package nu.validator.spec;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import nu.validator.saxtree.DocumentFragment;
+import nu.validator.saxtree.TreeBuilder;
+import nu.validator.saxtree.TreeParser;
+import nu.validator.xml.AttributesImpl;
+import nu.validator.xml.EmptyAttributes;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+
+import com.thaiopensource.xml.util.Name;
+
+/**
+ * Writes a <code>Spec</code> to a compact binary form and reads it back, so
+ * that the spec can be extracted from the spec document at build time
+ * instead of parsing the whole document when the validator starts.
+ *
+ * <p>The form is a table of all the strings, followed by the element links
+ * and, for each of the three kinds of description, the SAX events of each
+ * element's fragment, with strings given as indexes into the table.
+ */
+public final class SpecSnapshot {
+
+    private static final int MAGIC = 0x766e7553; // "vnuS"
+
+    private static final int VERSION = 1;
+
+    private static final int END_FRAGMENT = 0;
+
+    private static final int START_ELEMENT = 1;
+
+    private static final int END_ELEMENT = 2;
+
+    private static final int CHARACTERS = 3;
+
+    /**
+     * Longest run of characters written as one string.
+     */
+    private static final int MAX_CHUNK = 8192;
+
+    private SpecSnapshot() {
+    }
+
+    public static void write(Spec spec, OutputStream out) throws IOException,
+            SAXException {
+        Encoder encoder = new Encoder();
+        encoder.writeLinks(spec.getUrisByElement());
+        encoder.writeFragments(spec.getContextsByElement());
+        encoder.writeFragments(spec.getContentModelsByElement());
+        encoder.writeFragments(spec.getAttributesByElement());
+        DataOutputStream data = new DataOutputStream(
+                new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(encoder.strings.size());
+        for (String s : encoder.strings.keySet()) {
+            data.writeUTF(s);
+        }
+        encoder.body.writeTo(data);
+        data.flush();
+    }
+
+    public static Spec read(InputStream in) throws IOException, SAXException {
+        DataInputStream data = new DataInputStream(
+                new BufferedInputStream(in));
+        if (data.readInt() != MAGIC || data.readInt() != VERSION) {
+            throw new IOException("Not a spec snapshot of this version.");
+        }
+        String[] strings = new String[data.readInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = data.readUTF().intern();
+        }
+        Decoder decoder = new Decoder(data, strings);
+        Map<Name, String> urisByElement = decoder.readLinks();
+        Map<Name, DocumentFragment> contextsByElement = decoder.readFragments();
+        Map<Name, DocumentFragment> contentModelsByElement = decoder.readFragments();
+        Map<Name, DocumentFragment> attributesByElement = decoder.readFragments();
+        return new Spec(urisByElement, contextsByElement,
+                contentModelsByElement, attributesByElement);
+    }
+
+    private static void writeNumber(DataOutputStream out, int n)
+            throws IOException {
+        while ((n & ~0x7F) != 0) {
+            out.writeByte((n & 0x7F) | 0x80);
+            n >>>= 7;
+        }
+        out.writeByte(n);
+    }
+
+    private static int readNumber(DataInputStream in) throws IOException {
+        int n = 0;
+        for (int shift = 0;; shift += 7) {
+            int b = in.readUnsignedByte();
+            n |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return n;
+            }
+        }
+    }
+
+    private static final class Encoder implements ContentHandler {
+
+        final Map<String, Integer> strings = new LinkedHashMap<>();
+
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        private final DataOutputStream out = new DataOutputStream(body);
+
+        void writeLinks(Map<Name, String> links) throws IOException {
+            writeNumber(out, links.size());
+            for (Map.Entry<Name, String> entry : links.entrySet()) {
+                writeName(entry.getKey());
+                writeString(entry.getValue());
+            }
+        }
+
+        void writeFragments(Map<Name, DocumentFragment> fragments)
+                throws IOException, SAXException {
+            writeNumber(out, fragments.size());
+            TreeParser treeParser = new TreeParser(this, null);
+            for (Map.Entry<Name, DocumentFragment> entry : fragments.entrySet()) {
+                writeName(entry.getKey());
+                treeParser.parse(entry.getValue());
+                writeNumber(out, END_FRAGMENT);
+            }
+        }
+
+        private void writeName(Name name) throws IOException {
+            writeString(name.getNamespaceUri());
+            writeString(name.getLocalName());
+        }
+
+        private void writeString(String s) throws IOException {
+            Integer index = strings.get(s);
+            if (index == null) {
+                index = strings.size();
+                strings.put(s, index);
+            }
+            writeNumber(out, index);
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName,
+                Attributes atts) throws SAXException {
+            try {
+                writeNumber(out, START_ELEMENT);
+                writeString(uri);
+                writeString(localName);
+                writeString(qName);
+                writeNumber(out, atts.getLength());
+                for (int i = 0; i < atts.getLength(); i++) {
+                    writeString(atts.getURI(i));
+                    writeString(atts.getLocalName(i));
+                    writeString(atts.getQName(i));
+                    writeString(atts.getType(i));
+                    writeString(atts.getValue(i));
+                }
+            } catch (IOException e) {
+                throw new SAXException(e);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName)
+                throws SAXException {
+            try {
+                writeNumber(out, END_ELEMENT);
+            } catch (IOException e) {
+                throw new SAXException(e);
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length)
+                throws SAXException {
+            try {
+                while (length > 0) {
+                    int chunk = Math.min(length, MAX_CHUNK);
+                    writeNumber(out, CHARACTERS);
+                    writeString(new String(ch, start, chunk));
+                    start += chunk;
+                    length -= chunk;
+                }
+            } catch (IOException e) {
+                throw new SAXException(e);
+            }
+        }
+
+        @Override
+        public void ignorableWhitespace(char[] ch, int start, int length)
+                throws SAXException {
+            characters(ch, start, length);
+        }
+
+        @Override
+        public void setDocumentLocator(Locator locator) {
+        }
+
+        @Override
+        public void startDocument() throws SAXException {
+        }
+
+        @Override
+        public void endDocument() throws SAXException {
+        }
+
+        @Override
+        public void startPrefixMapping(String prefix, String uri)
+                throws SAXException {
+        }
+
+        @Override
+        public void endPrefixMapping(String prefix) throws SAXException {
+        }
+
+        @Override
+        public void processingInstruction(String target, String data)
+                throws SAXException {
+        }
+
+        @Override
+        public void skippedEntity(String name) throws SAXException {
+        }
+    }
+
+    private static final class Decoder {
+
+        private final DataInputStream in;
+
+        private final String[] strings;
+
+        Decoder(DataInputStream in, String[] strings) {
+            this.in = in;
+            this.strings = strings;
+        }
+
+        Map<Name, String> readLinks() throws IOException {
+            int count = readNumber(in);
+            Map<Name, String> links = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                links.put(readName(), readString());
+            }
+            return links;
+        }
+
+        Map<Name, DocumentFragment> readFragments() throws IOException,
+                SAXException {
+            int count = readNumber(in);
+            Map<Name, DocumentFragment> fragments = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                fragments.put(readName(), readFragment());
+            }
+            return fragments;
+        }
+
+        private DocumentFragment readFragment() throws IOException,
+                SAXException {
+            TreeBuilder builder = new TreeBuilder(true, true);
+            ArrayDeque<String[]> open = new ArrayDeque<>();
+            for (;;) {
+                switch (readNumber(in)) {
+                    case END_FRAGMENT:
+                        if (!open.isEmpty()) {
+                            throw new IOException("Corrupt spec snapshot.");
+                        }
+                        return (DocumentFragment) builder.getRoot();
+                    case START_ELEMENT:
+                        String[] element = { readString(), readString(),
+                                readString() };
+                        int length = readNumber(in);
+                        Attributes atts = EmptyAttributes.EMPTY_ATTRIBUTES;
+                        if (length > 0) {
+                            AttributesImpl attributesImpl = new AttributesImpl();
+                            for (int i = 0; i < length; i++) {
+                                attributesImpl.addAttribute(readString(),
+                                        readString(), readString(),
+                                        readString(), readString());
+                            }
+                            atts = attributesImpl;
+                        }
+                        builder.startElement(element[0], element[1],
+                                element[2], atts);
+                        open.push(element);
+                        break;
+                    case END_ELEMENT:
+                        if (open.isEmpty()) {
+                            throw new IOException("Corrupt spec snapshot.");
+                        }
+                        String[] closed = open.pop();
+                        builder.endElement(closed[0], closed[1], closed[2]);
+                        break;
+                    case CHARACTERS:
+                        char[] text = readString().toCharArray();
+                        builder.characters(text, 0, text.length);
+                        break;
+                    default:
+                        throw new IOException("Corrupt spec snapshot.");
+                }
+            }
+        }
+
+        private Name readName() throws IOException {
+            return new Name(readString(), readString());
+        }
+
+        private String readString() throws IOException {
+            int index = readNumber(in);
+            if (index >= strings.length) {
+                throw new IOException("Corrupt spec snapshot.");
+            }
+            return strings[index];
+        }
+    }
+}
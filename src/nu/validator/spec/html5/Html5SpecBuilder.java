@@ -22,8 +22,11 @@
 
 package nu.validator.spec.html5;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.regex.Matcher;
@@ -34,6 +37,7 @@ import nu.validator.htmlparser.sax.HtmlParser;
 import nu.validator.saxtree.DocumentFragment;
 import nu.validator.saxtree.TreeBuilder;
 import nu.validator.spec.Spec;
+import nu.validator.spec.SpecSnapshot;
 import nu.validator.xml.AttributesImpl;
 import nu.validator.xml.EmptyAttributes;
 
@@ -111,7 +115,7 @@ public final class Html5SpecBuilder implements ContentHandler {
    
     public static void main(String[] args) throws IOException, SAXException {
         if (args == null || args.length < 1)  {
-            System.err.printf("Usage: java -cp ~/vnu.jar nu.validator.spec.html5.Html5SpecBuilder URL_OF_HTML_SPEC\n");
+            System.err.printf("Usage: java -cp ~/vnu.jar nu.validator.spec.html5.Html5SpecBuilder URL_OR_FILE_OF_HTML_SPEC [SNAPSHOT_FILE]\n");
             System.exit(1);
         }
         
@@ -121,12 +125,19 @@ public final class Html5SpecBuilder implements ContentHandler {
         System.err.println(url);
         if ("-".equals(url)) {
             is = new InputSource(System.in);
+        } else if (new File(url).isFile()) {
+            is = new InputSource(new File(url).toURI().toString());
         } else {
             is = new InputSource(url);
         }
         
         try {
-            parseSpec(is);
+            Spec spec = parseSpec(is);
+            if (args.length > 1) {
+                try (OutputStream out = new FileOutputStream(args[1])) {
+                    SpecSnapshot.write(spec, out);
+                }
+            }
         } catch (SAXParseException e) {
             System.err.printf("Line: %d Col: %d\n", e.getLineNumber(), e.getColumnNumber());
             e.printStackTrace();
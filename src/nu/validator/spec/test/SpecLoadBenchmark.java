@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2026 Mozilla Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package nu.validator.spec.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import nu.validator.spec.Spec;
+import nu.validator.spec.SpecSnapshot;
+import nu.validator.spec.html5.Html5SpecBuilder;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Compares reading the HTML spec by parsing the spec document with reading
+ * it from a snapshot: the time of the first read and the median of later
+ * ones, and the heap the loaded spec keeps. The files are read into memory
+ * first so that only parsing is timed.
+ *
+ * <p>Usage: <code>SpecLoadBenchmark HTML5SPEC_FILE [SNAPSHOT_FILE]</code>;
+ * without a snapshot file, one is made from the spec in memory.
+ */
+public class SpecLoadBenchmark {
+
+    private static final int RUNS = 10;
+
+    private interface Loader {
+        Spec load() throws IOException, SAXException;
+    }
+
+    /**
+     * @param args
+     * @throws IOException
+     * @throws SAXException
+     */
+    public static void main(String[] args) throws IOException, SAXException {
+        if (args.length < 1) {
+            System.err.println(
+                    "Usage: SpecLoadBenchmark HTML5SPEC_FILE [SNAPSHOT_FILE]");
+            System.exit(1);
+        }
+        final byte[] spec = readFully(args[0]);
+        final byte[] snapshot;
+        if (args.length > 1) {
+            snapshot = readFully(args[1]);
+        } else {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            SpecSnapshot.write(Html5SpecBuilder.parseSpec(
+                    new ByteArrayInputStream(spec)), out);
+            snapshot = out.toByteArray();
+        }
+        System.out.printf("spec: %d bytes, snapshot: %d bytes%n",
+                spec.length, snapshot.length);
+
+        measure("snapshot", new Loader() {
+            @Override
+            public Spec load() throws IOException, SAXException {
+                return SpecSnapshot.read(new ByteArrayInputStream(snapshot));
+            }
+        });
+        measure("parse", new Loader() {
+            @Override
+            public Spec load() throws IOException, SAXException {
+                return Html5SpecBuilder.parseSpec(
+                        new ByteArrayInputStream(spec));
+            }
+        });
+    }
+
+    private static void measure(String name, Loader loader)
+            throws IOException, SAXException {
+        long before = usedHeap();
+        long start = System.nanoTime();
+        Spec retained = loader.load();
+        long first = System.nanoTime() - start;
+        long heap = usedHeap() - before;
+        long[] sorted = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            start = System.nanoTime();
+            loader.load();
+            sorted[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(sorted);
+        System.out.printf(
+                "%s: first %.0f ms, median %.0f ms, retained %d KB (%s)%n",
+                name, first / 1e6, sorted[sorted.length / 2] / 1e6,
+                heap / 1024, retained.getClass().getSimpleName());
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static byte[] readFully(String path) throws IOException {
+        try (InputStream in = new FileInputStream(path)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int len;
+            while ((len = in.read(buffer)) != -1) {
+                out.write(buffer, 0, len);
+            }
+            return out.toByteArray();
+        }
+    }
+}
@@ -24,7 +24,6 @@ package nu.validator.validation;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.SequenceInputStream;
@@ -33,6 +32,8 @@ import nu.validator.checker.jing.CheckerSchema;
 import nu.validator.checker.jing.CheckerValidator;
 import nu.validator.checker.table.TableChecker;
 import nu.validator.checker.ConformingButObsoleteWarner;
+import nu.validator.checker.LinkCollector;
+import nu.validator.checker.MemoryBudget;
 import nu.validator.checker.MicrodataChecker;
 import nu.validator.checker.NormalizationChecker;
 import nu.validator.checker.TextContentChecker;
@@ -45,6 +46,7 @@ import nu.validator.gnu.xml.aelfred2.SAXDriver;
 import nu.validator.htmlparser.common.Heuristics;
 import nu.validator.htmlparser.common.XmlViolationPolicy;
 import nu.validator.htmlparser.sax.HtmlParser;
+import nu.validator.io.MappedFileInputStream;
 import nu.validator.localentities.LocalCacheEntityResolver;
 import nu.validator.source.SourceCode;
 import nu.validator.xml.customelements.NamespaceChangingSchemaWrapper;
@@ -111,10 +113,15 @@ public class SimpleDocumentValidator {
 
     private SourceCode sourceCode = new SourceCode();
 
+    private final MemoryBudget memoryBudget = new MemoryBudget(
+            MemoryBudget.DEFAULT_LIMIT);
+
     private TypedInputSource documentInput;
 
     private PrudentHttpEntityResolver httpRes;
 
+    private LinkCollector linkCollector;
+
     private XMLReader htmlReader;
 
     private SAXDriver xmlParser;
@@ -188,6 +195,10 @@ public class SimpleDocumentValidator {
         return this.sourceCode;
     }
 
+    public MemoryBudget getMemoryBudget() {
+        return this.memoryBudget;
+    }
+
     public String getMainSchemaUrl() {
         return this.mainSchemaUrl;
     }
@@ -316,8 +327,13 @@ public class SimpleDocumentValidator {
         pmb.put(ValidateProperty.ERROR_HANDLER, docValidationErrHandler);
         pmb.put(ValidateProperty.XML_READER_CREATOR,
                 new Jaxp11XMLReaderCreator());
+        pmb.put(MemoryBudget.PROPERTY, memoryBudget);
+        if (linkCollector != null) {
+            pmb.put(LinkCollector.PROPERTY, linkCollector);
+        }
         RngProperty.CHECK_ID_IDREF.add(pmb);
         PropertyMap jingPropertyMap = pmb.toPropertyMap();
+        sourceCode.setMemoryBudget(memoryBudget);
 
         validator = this.mainSchema.createValidator(jingPropertyMap);
 
@@ -407,6 +423,22 @@ public class SimpleDocumentValidator {
         return wiretap;
     }
 
+    /**
+     * Sets a collector for the links to other documents that the checkers
+     * come across. Takes effect at the next call to
+     * <code>setUpValidatorAndParsers</code>.
+     *
+     * @param linkCollector
+     *            the collector, or <code>null</code> for none
+     */
+    public void setLinkCollector(LinkCollector linkCollector) {
+        this.linkCollector = linkCollector;
+    }
+
+    public LinkCollector getLinkCollector() {
+        return linkCollector;
+    }
+
     /**
      * @param allowCss
      *            The allowCss to set.
@@ -440,12 +472,14 @@ public class SimpleDocumentValidator {
     public void checkCssFile(File file, boolean asUTF8) throws IOException,
             SAXException {
         validator.reset();
-        InputSource is = new InputSource(new FileInputStream(file));
-        is.setSystemId(file.toURI().toURL().toString());
-        if (asUTF8) {
-            is.setEncoding("UTF-8");
+        try (MappedFileInputStream in = new MappedFileInputStream(
+                file.toPath())) {
+            InputSource is = fileInputSource(file, in);
+            if (asUTF8) {
+                is.setEncoding("UTF-8");
+            }
+            checkAsCss(is);
         }
-        checkAsCss(is);
     }
 
     /* *
@@ -454,12 +488,14 @@ public class SimpleDocumentValidator {
     public void checkHtmlFile(File file, boolean asUTF8) throws IOException,
             SAXException {
         validator.reset();
-        InputSource is = new InputSource(new FileInputStream(file));
-        is.setSystemId(file.toURI().toURL().toString());
-        if (asUTF8) {
-            is.setEncoding("UTF-8");
+        try (MappedFileInputStream in = new MappedFileInputStream(
+                file.toPath())) {
+            InputSource is = fileInputSource(file, in);
+            if (asUTF8) {
+                is.setEncoding("UTF-8");
+            }
+            checkAsHTML(is);
         }
-        checkAsHTML(is);
     }
 
     /* *
@@ -467,9 +503,23 @@ public class SimpleDocumentValidator {
      */
     public void checkXmlFile(File file) throws IOException, SAXException {
         validator.reset();
-        InputSource is = new InputSource(new FileInputStream(file));
+        try (MappedFileInputStream in = new MappedFileInputStream(
+                file.toPath())) {
+            checkAsXML(fileInputSource(file, in));
+        }
+    }
+
+    /* *
+     * Wraps a memory-mapped local file. The file size is passed on as the
+     * expected length so that the source buffer is sized once instead of
+     * growing by doubling.
+     */
+    private static InputSource fileInputSource(File file,
+            MappedFileInputStream in) throws IOException {
+        TypedInputSource is = new TypedInputSource(in);
+        is.setLength((int) Math.min(Integer.MAX_VALUE, in.size()));
         is.setSystemId(file.toURI().toURL().toString());
-        checkAsXML(is);
+        return is;
     }
 
     /* *
@@ -482,7 +532,6 @@ public class SimpleDocumentValidator {
             throws IOException, SAXException {
         CookieHandler.setDefault(
                 new CookieManager(null, CookiePolicy.ACCEPT_ALL));
-        validator.reset();
         httpRes = new PrudentHttpEntityResolver(-1, true, errorHandler);
         if (this.allowCss) {
             httpRes.setAllowCss(true);
@@ -492,22 +541,37 @@ public class SimpleDocumentValidator {
         try {
             documentInput = (TypedInputSource) httpRes.resolveEntity(null,
                     document);
-            String contentType = documentInput.getType();
             documentInput.setSystemId(document);
-            for (String param : contentType.replace(" ", "").split(";")) {
-                if (param.startsWith("charset=")) {
-                    documentInput.setEncoding(param.split("=", 2)[1]);
-                    break;
-                }
-            }
-            if (documentInput.getType().startsWith("text/css")) {
-                checkAsCss(documentInput);
-            } else if (documentInput.getType().startsWith("text/html")) {
-                checkAsHTML(documentInput);
-            } else {
-                checkAsXML(documentInput);
-            }
+            checkTypedInputSource(documentInput);
         } catch (ResourceNotRetrievableException e) {
+        } catch (SAXParseException e) {
+            // Already reported, like parse errors; this includes the error
+            // handler stopping the document over a response header.
+        }
+    }
+
+    /* *
+     * Checks a document that has already been retrieved, for example by a
+     * <code>PrudentHttpEntityResolver</code>, choosing the parser from its
+     * content type.
+     */
+    public void checkTypedInputSource(TypedInputSource is)
+            throws IOException, SAXException {
+        validator.reset();
+        String contentType = is.getType();
+        for (String param : contentType.replace(" ", "").split(";")) {
+            if (param.startsWith("charset=")) {
+                is.setEncoding(param.split("=", 2)[1]);
+                break;
+            }
+        }
+        if (contentType.startsWith("text/css")) {
+            checkAsCss(is);
+        } else if (contentType.startsWith("text/html")
+                || contentType.startsWith("text/mapml")) {
+            checkAsHTML(is);
+        } else {
+            checkAsXML(is);
         }
     }
 
@@ -528,6 +592,7 @@ public class SimpleDocumentValidator {
         is.setEncoding(charset);
         sourceCode.setIsCss();
         sourceCode.initialize(is);
+        memoryBudget.reset();
         try {
             htmlReader.parse(is);
         } catch (SAXParseException e) {
@@ -539,9 +604,16 @@ public class SimpleDocumentValidator {
      */
     private void checkAsHTML(InputSource is) throws IOException, SAXException {
         sourceCode.initialize(is);
+        memoryBudget.reset();
         try {
             htmlReader.parse(is);
         } catch (SAXParseException e) {
+        } catch (IOException e) {
+            // The decoder reports through the error handler and wraps what
+            // it throws, such as the stop at the error budget.
+            if (!(e.getCause() instanceof SAXParseException)) {
+                throw e;
+            }
         }
     }
 
@@ -551,6 +623,7 @@ public class SimpleDocumentValidator {
     private void checkAsXML(InputSource is) throws IOException, SAXException {
         xmlParser.setCharacterHandler(sourceCode);
         sourceCode.initialize(is);
+        memoryBudget.reset();
         try {
             xmlReader.parse(is);
         } catch (SAXParseException e) {
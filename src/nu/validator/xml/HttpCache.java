@@ -0,0 +1,767 @@
+/*
+ * Copyright (c) 2026 Mozilla Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package nu.validator.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.log4j.Logger;
+
+/**
+ * An on-disk cache of HTTP responses for
+ * <code>PrudentHttpEntityResolver</code>, following the freshness and
+ * validation model of RFC 7234.
+ *
+ * <p>Only complete <code>200</code> responses that aren't marked
+ * <code>no-store</code> or <code>private</code> and don't vary on anything
+ * but <code>Accept-Encoding</code> are stored. A fresh entry is served
+ * without contacting the server; a stale one is revalidated with
+ * <code>If-None-Match</code> or <code>If-Modified-Since</code>.
+ *
+ * <p>The cache is enabled by setting the
+ * <code>nu.validator.xml.http-cache</code> system property to a directory.
+ * Each entry is one file, replaced atomically, so concurrent validations
+ * may share the directory. Once the directory holds more than
+ * <code>nu.validator.xml.http-cache.max-size</code> bytes, the least
+ * recently used entries are deleted.
+ *
+ * <p>The cache never makes a fetch fail: if an entry can't be written, the
+ * response is passed through uncached.
+ */
+public final class HttpCache {
+
+    private static final Logger log4j = Logger.getLogger(HttpCache.class);
+
+    /**
+     * The cache configured by system property, or <code>null</code>.
+     */
+    public static final HttpCache THE_INSTANCE;
+
+    static {
+        String dir = System.getProperty("nu.validator.xml.http-cache");
+        if (dir == null || "".equals(dir)) {
+            THE_INSTANCE = null;
+        } else {
+            THE_INSTANCE = new HttpCache(Paths.get(dir), Long.parseLong(
+                    System.getProperty("nu.validator.xml.http-cache.max-size",
+                            "268435456")));
+        }
+    }
+
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * The upper bound for freshness guessed from <code>Last-Modified</code>
+     * when the server gives no explicit lifetime.
+     */
+    private static final long MAX_HEURISTIC_LIFETIME = 24L * 60 * 60 * 1000;
+
+    private static final Set<String> UNSTORED_HEADERS = new HashSet<>(
+            Arrays.asList("connection", "content-length", "keep-alive",
+                    "proxy-connection", "set-cookie", "te", "trailer",
+                    "transfer-encoding", "upgrade"));
+
+    private final Path directory;
+
+    private final long maxSize;
+
+    /**
+     * The bytes in the directory as of the last scan plus those written
+     * since, or -1 before the first scan.
+     */
+    private final AtomicLong size = new AtomicLong(-1);
+
+    /**
+     * A stored response.
+     */
+    public final class Entry {
+
+        private final Path file;
+
+        private final long responseTime;
+
+        private final Header[] headers;
+
+        private final long bodyOffset;
+
+        private final long bodyLength;
+
+        private Entry(Path file, long responseTime, Header[] headers,
+                long bodyOffset, long bodyLength) {
+            this.file = file;
+            this.responseTime = responseTime;
+            this.headers = headers;
+            this.bodyOffset = bodyOffset;
+            this.bodyLength = bodyLength;
+        }
+
+        private String getHeader(String name) {
+            for (Header header : headers) {
+                if (name.equalsIgnoreCase(header.getName())) {
+                    return header.getValue();
+                }
+            }
+            return null;
+        }
+
+        private long getDateHeader(String name) {
+            String value = getHeader(name);
+            if (value == null) {
+                return -1;
+            }
+            Date date = DateUtils.parseDate(value);
+            return date == null ? -1 : date.getTime();
+        }
+
+        /**
+         * Returns the freshness lifetime in milliseconds.
+         */
+        private long freshnessLifetime() {
+            long maxAge = -1;
+            long sharedMaxAge = -1;
+            for (String directive : cacheControl(getHeader("Cache-Control"))) {
+                if ("no-cache".equals(directive)) {
+                    return 0;
+                } else if (directive.startsWith("s-maxage=")) {
+                    sharedMaxAge = seconds(directive.substring(9));
+                } else if (directive.startsWith("max-age=")) {
+                    maxAge = seconds(directive.substring(8));
+                }
+            }
+            if (sharedMaxAge > -1) {
+                return sharedMaxAge * 1000;
+            }
+            if (maxAge > -1) {
+                return maxAge * 1000;
+            }
+            long date = getDateHeader("Date");
+            if (date == -1) {
+                date = responseTime;
+            }
+            if (getHeader("Expires") != null) {
+                long expires = getDateHeader("Expires");
+                return expires == -1 ? 0 : Math.max(0, expires - date);
+            }
+            long lastModified = getDateHeader("Last-Modified");
+            if (lastModified != -1 && lastModified < date) {
+                return Math.min((date - lastModified) / 10,
+                        MAX_HEURISTIC_LIFETIME);
+            }
+            return 0;
+        }
+
+        private long currentAge(long now) {
+            long age = 0;
+            long date = getDateHeader("Date");
+            if (date != -1) {
+                age = Math.max(0, responseTime - date);
+            }
+            String ageHeader = getHeader("Age");
+            if (ageHeader != null) {
+                age = Math.max(age, seconds(ageHeader.trim()) * 1000);
+            }
+            return age + (now - responseTime);
+        }
+
+        /**
+         * Tells whether the entry may be used without revalidation.
+         *
+         * @return <code>true</code> if the entry is fresh
+         */
+        public boolean isFresh() {
+            return freshnessLifetime() > currentAge(System.currentTimeMillis());
+        }
+
+        /**
+         * Tells whether the entry has a validator a conditional request
+         * could use.
+         *
+         * @return <code>true</code> if the entry can be revalidated
+         */
+        public boolean canRevalidate() {
+            return getHeader("ETag") != null
+                    || getHeader("Last-Modified") != null;
+        }
+
+        /**
+         * Makes a request conditional on the entry being current.
+         *
+         * @param request
+         *            the request to add headers to
+         */
+        public void addValidators(HttpRequest request) {
+            String etag = getHeader("ETag");
+            if (etag != null) {
+                request.setHeader("If-None-Match", etag);
+            }
+            String lastModified = getHeader("Last-Modified");
+            if (lastModified != null) {
+                request.setHeader("If-Modified-Since", lastModified);
+            }
+        }
+
+        /**
+         * Returns the length of the stored body.
+         *
+         * @return the length in bytes
+         */
+        public long getBodyLength() {
+            return bodyLength;
+        }
+
+        /**
+         * Recreates the stored response.
+         *
+         * @return a <code>200</code> response whose entity reads the stored
+         *         body
+         * @throws IOException
+         *             if the entry can no longer be read
+         */
+        public HttpResponse toResponse() throws IOException {
+            BasicHttpResponse response = new BasicHttpResponse(
+                    HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK");
+            response.setHeaders(headers);
+            InputStream body = Files.newInputStream(file);
+            try {
+                long toSkip = bodyOffset;
+                while (toSkip > 0) {
+                    long skipped = body.skip(toSkip);
+                    if (skipped <= 0) {
+                        throw new IOException("Truncated cache entry.");
+                    }
+                    toSkip -= skipped;
+                }
+            } catch (IOException e) {
+                body.close();
+                throw e;
+            }
+            response.setEntity(new InputStreamEntity(body, bodyLength));
+            return response;
+        }
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param directory
+     *            the directory holding the entries
+     * @param maxSize
+     *            the number of bytes above which entries are evicted, or -1
+     *            for no bound
+     */
+    public HttpCache(Path directory, long maxSize) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+    }
+
+    private static List<String> cacheControl(String value) {
+        List<String> directives = new ArrayList<>();
+        if (value != null) {
+            for (String directive : value.split(",")) {
+                directives.add(directive.trim().toLowerCase(Locale.ROOT).replace(
+                        "\"", ""));
+            }
+        }
+        return directives;
+    }
+
+    private static long seconds(String value) {
+        try {
+            return Math.max(0, Long.parseLong(value));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private Path fileFor(String url) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(url.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder();
+            for (byte b : hash) {
+                name.append(String.format("%02x", b & 0xFF));
+            }
+            return directory.resolve(name.toString());
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Finds the stored response for a URL.
+     *
+     * @param url
+     *            the request URL
+     * @return the entry, or <code>null</code> if there is none
+     */
+    public Entry lookup(String url) {
+        Path file = fileFor(url);
+        try (DataInputStream in = new DataInputStream(
+                Files.newInputStream(file))) {
+            int headerLength = in.readInt();
+            byte[] header = new byte[headerLength];
+            in.readFully(header);
+            DataInputStream meta = new DataInputStream(
+                    new ByteArrayInputStream(header));
+            if (meta.readInt() != FORMAT_VERSION
+                    || !url.equals(meta.readUTF())) {
+                return null;
+            }
+            long responseTime = meta.readLong();
+            Header[] headers = new Header[meta.readInt()];
+            for (int i = 0; i < headers.length; i++) {
+                headers[i] = new BasicHeader(meta.readUTF(), meta.readUTF());
+            }
+            long bodyOffset = 4 + headerLength;
+            touch(file);
+            return new Entry(file, responseTime, headers, bodyOffset,
+                    Files.size(file) - bodyOffset);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            log4j.debug("Unreadable cache entry for " + url, e);
+            return null;
+        }
+    }
+
+    /**
+     * Tells whether a response may be stored.
+     *
+     * @param response
+     *            the response
+     * @return <code>true</code> if the response is storable
+     */
+    public boolean isStorable(HttpResponse response) {
+        if (response.getStatusLine().getStatusCode() != HttpStatus.SC_OK
+                || response.getEntity() == null) {
+            return false;
+        }
+        for (Header header : response.getHeaders("Cache-Control")) {
+            for (String directive : cacheControl(header.getValue())) {
+                if ("no-store".equals(directive)
+                        || directive.startsWith("private")) {
+                    return false;
+                }
+            }
+        }
+        for (Header header : response.getHeaders("Vary")) {
+            for (String field : header.getValue().split(",")) {
+                String name = field.trim();
+                if (!"".equals(name)
+                        && !"accept-encoding".equalsIgnoreCase(name)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Arranges for the body of a storable response to be stored as the
+     * caller reads it. The entry is committed when the body has been read to
+     * the end, and abandoned if it is larger than <code>sizeLimit</code>, if
+     * the stream is closed early or if writing to the cache fails. In every
+     * case the caller sees the body exactly as it came from the network.
+     *
+     * @param url
+     *            the request URL
+     * @param response
+     *            a response for which <code>isStorable()</code> is true
+     * @param sizeLimit
+     *            the largest body to store, or -1 for no limit
+     * @return the response to use in place of <code>response</code>
+     * @throws IOException
+     *             if the body can't be obtained from the response
+     */
+    public HttpResponse store(String url, HttpResponse response,
+            long sizeLimit) throws IOException {
+        HttpEntity entity = response.getEntity();
+        InputStream body = entity.getContent();
+        List<Header> headers = new ArrayList<>();
+        for (Header header : response.getAllHeaders()) {
+            if (!UNSTORED_HEADERS.contains(
+                    header.getName().toLowerCase(Locale.ROOT))) {
+                headers.add(header);
+            }
+        }
+        Path temp = null;
+        OutputStream out = null;
+        try {
+            Files.createDirectories(directory);
+            temp = Files.createTempFile(directory, "entry", ".tmp");
+            out = Files.newOutputStream(temp);
+            writeHeader(out, url, System.currentTimeMillis(), headers);
+        } catch (IOException e) {
+            log4j.warn("Not caching " + url + ": " + e.getMessage());
+            closeQuietly(out);
+            deleteQuietly(temp);
+            return response;
+        }
+        response.setEntity(new InputStreamEntity(new StoringInputStream(body,
+                url, temp, out, sizeLimit), entity.getContentLength()));
+        return response;
+    }
+
+    /**
+     * Passes a response body through, writing a copy to a temporary entry
+     * file.
+     */
+    private final class StoringInputStream extends FilterInputStream {
+
+        private final String url;
+
+        private final Path temp;
+
+        private final long sizeLimit;
+
+        /**
+         * The entry file, or <code>null</code> once the entry has been
+         * committed or abandoned.
+         */
+        private OutputStream out;
+
+        private long length;
+
+        StoringInputStream(InputStream in, String url, Path temp,
+                OutputStream out, long sizeLimit) {
+            super(in);
+            this.url = url;
+            this.temp = temp;
+            this.out = out;
+            this.sizeLimit = sizeLimit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b == -1) {
+                commit();
+            } else if (out != null) {
+                length++;
+                if (sizeLimit > -1 && length > sizeLimit) {
+                    abandon(null);
+                } else {
+                    try {
+                        out.write(b);
+                    } catch (IOException e) {
+                        abandon(e);
+                    }
+                }
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n == -1) {
+                commit();
+            } else if (out != null) {
+                length += n;
+                if (sizeLimit > -1 && length > sizeLimit) {
+                    abandon(null);
+                } else {
+                    try {
+                        out.write(b, off, n);
+                    } catch (IOException e) {
+                        abandon(e);
+                    }
+                }
+            }
+            return n;
+        }
+
+        /**
+         * Reads rather than skips so that the skipped bytes are stored.
+         */
+        @Override
+        public long skip(long n) throws IOException {
+            byte[] buffer = new byte[(int) Math.min(n, 8192)];
+            long skipped = 0;
+            while (skipped < n) {
+                int read = read(buffer, 0,
+                        (int) Math.min(n - skipped, buffer.length));
+                if (read == -1) {
+                    break;
+                }
+                skipped += read;
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            abandon(null);
+            super.close();
+        }
+
+        private void commit() {
+            if (out == null) {
+                return;
+            }
+            try {
+                out.close();
+                out = null;
+                Path file = fileFor(url);
+                long replaced = Files.exists(file) ? Files.size(file) : 0;
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                added(Files.size(file) - replaced);
+            } catch (IOException e) {
+                abandon(e);
+            }
+        }
+
+        private void abandon(IOException e) {
+            if (e != null) {
+                log4j.warn("Not caching " + url + ": " + e.getMessage());
+            }
+            closeQuietly(out);
+            out = null;
+            deleteQuietly(temp);
+        }
+    }
+
+    /**
+     * Updates an entry from a <code>304</code> response to a conditional
+     * request, refreshing its headers and age.
+     *
+     * @param url
+     *            the request URL
+     * @param entry
+     *            the entry that was revalidated
+     * @param notModified
+     *            the <code>304</code> response
+     * @return the updated entry, or <code>entry</code> if it can't be
+     *         rewritten
+     */
+    public Entry revalidated(String url, Entry entry,
+            HttpResponse notModified) {
+        Set<String> updated = new HashSet<>();
+        List<Header> updates = new ArrayList<>();
+        for (Header header : notModified.getAllHeaders()) {
+            String name = header.getName().toLowerCase(Locale.ROOT);
+            if (!UNSTORED_HEADERS.contains(name)
+                    && !name.startsWith("content-")) {
+                updated.add(name);
+                updates.add(header);
+            }
+        }
+        List<Header> headers = new ArrayList<>();
+        for (Header header : entry.headers) {
+            if (!updated.contains(header.getName().toLowerCase(Locale.ROOT))) {
+                headers.add(header);
+            }
+        }
+        headers.addAll(updates);
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(directory, "entry", ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp);
+                    InputStream body = entry.toResponse().getEntity().getContent()) {
+                writeHeader(out, url, System.currentTimeMillis(), headers);
+                copy(body, out);
+            }
+            Files.move(temp, entry.file, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log4j.warn("Could not refresh the cache entry for " + url + ": "
+                    + e.getMessage());
+            deleteQuietly(temp);
+            return entry;
+        }
+        Entry current = lookup(url);
+        return current == null ? entry : current;
+    }
+
+    /**
+     * Writes the metadata that precedes the body in an entry file.
+     *
+     * @return the number of bytes written
+     */
+    private static int writeHeader(OutputStream out, String url,
+            long responseTime, List<Header> headers) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream meta = new DataOutputStream(buffer);
+        meta.writeInt(FORMAT_VERSION);
+        meta.writeUTF(url);
+        meta.writeLong(responseTime);
+        meta.writeInt(headers.size());
+        for (Header header : headers) {
+            meta.writeUTF(header.getName());
+            meta.writeUTF(header.getValue());
+        }
+        meta.flush();
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(buffer.size());
+        buffer.writeTo(data);
+        data.flush();
+        return 4 + buffer.size();
+    }
+
+    private static void copy(InputStream in, OutputStream out)
+            throws IOException {
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+    }
+
+    private static void closeQuietly(OutputStream out) {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+            }
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log4j.debug("Could not delete " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Marks an entry as recently used, for eviction.
+     */
+    private static void touch(Path file) {
+        try {
+            Files.setLastModifiedTime(file,
+                    FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            log4j.debug("Could not touch " + file, e);
+        }
+    }
+
+    /**
+     * Accounts for bytes added to the directory and evicts entries if the
+     * directory has grown past <code>maxSize</code>.
+     */
+    private void added(long bytes) {
+        if (maxSize < 0) {
+            return;
+        }
+        long current = size.get();
+        if (current < 0 || size.addAndGet(bytes) > maxSize) {
+            evict();
+        }
+    }
+
+    /**
+     * Rescans the directory and, if it holds more than <code>maxSize</code>
+     * bytes, deletes the least recently used entries until it holds three
+     * quarters of that.
+     */
+    private synchronized void evict() {
+        final List<Path> files = new ArrayList<>();
+        final List<BasicFileAttributes> attributes = new ArrayList<>();
+        long total = 0;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(
+                directory)) {
+            for (Path file : entries) {
+                if (file.getFileName().toString().endsWith(".tmp")) {
+                    continue;
+                }
+                BasicFileAttributes attrs = Files.readAttributes(file,
+                        BasicFileAttributes.class);
+                files.add(file);
+                attributes.add(attrs);
+                total += attrs.size();
+            }
+        } catch (IOException e) {
+            log4j.warn("Could not scan the HTTP cache: " + e.getMessage());
+            size.set(0);
+            return;
+        }
+        if (total > maxSize) {
+            List<Integer> order = new ArrayList<>();
+            for (int i = 0; i < files.size(); i++) {
+                order.add(i);
+            }
+            Collections.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    return attributes.get(a).lastModifiedTime().compareTo(
+                            attributes.get(b).lastModifiedTime());
+                }
+            });
+            long target = maxSize / 4 * 3;
+            for (int i : order) {
+                if (total <= target) {
+                    break;
+                }
+                deleteQuietly(files.get(i));
+                total -= attributes.get(i).size();
+            }
+        }
+        size.set(total);
+    }
+}
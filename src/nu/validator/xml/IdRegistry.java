@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2026 Mozilla Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package nu.validator.xml;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The set of IDs seen in a document, for duplicate detection and for
+ * resolving ID references. Each ID is kept in an open-addressing table
+ * next to its 64-bit hash, the packed line and column of its first
+ * occurrence and a bit set of caller-defined kinds (for example "form
+ * control" or "datalist"). Lookups compare hashes first and only compare
+ * the strings when the hashes are equal, so colliding IDs are never
+ * confused. An entry costs {@link #ENTRY_SIZE} bytes plus the ID string.
+ *
+ * <p>Instances are not thread-safe; use one per document.
+ */
+public final class IdRegistry {
+
+    /**
+     * The approximate number of bytes an entry occupies.
+     */
+    public static final int ENTRY_SIZE = 28;
+
+    /**
+     * Returned by {@link #add(CharSequence, int, int)} when the ID had not
+     * been added with a position before. No packed position equals it, not
+     * even that of an unknown line and column.
+     */
+    public static final long NOT_SEEN = Long.MIN_VALUE;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final long seed = ThreadLocalRandom.current().nextLong();
+
+    private long[] hashes = new long[INITIAL_CAPACITY];
+
+    private String[] ids = new String[INITIAL_CAPACITY];
+
+    private long[] positions = new long[INITIAL_CAPACITY];
+
+    private int[] kinds = new int[INITIAL_CAPACITY];
+
+    private int size = 0;
+
+    /**
+     * Packs a line and a column into one <code>long</code>.
+     *
+     * @param line the line number
+     * @param column the column number
+     * @return the packed position
+     */
+    public static long pack(int line, int column) {
+        return ((long) line << 32) | (column & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Returns the line of a packed position.
+     *
+     * @param position the packed position
+     * @return the line number
+     */
+    public static int line(long position) {
+        return (int) (position >> 32);
+    }
+
+    /**
+     * Returns the column of a packed position.
+     *
+     * @param position the packed position
+     * @return the column number
+     */
+    public static int column(long position) {
+        return (int) position;
+    }
+
+    /**
+     * FNV-1a over the UTF-16 code units, started from a per-registry seed so
+     * that a document cannot be written to make all of its IDs collide, with
+     * 0 reserved for empty slots.
+     */
+    private long hash(CharSequence id) {
+        long h = 0xCBF29CE484222325L ^ seed;
+        int len = id.length();
+        for (int i = 0; i < len; i++) {
+            h ^= id.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        return h == 0 ? 1 : h;
+    }
+
+    private static boolean equals(String a, CharSequence b) {
+        int len = a.length();
+        if (len != b.length()) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (a.charAt(i) != b.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int slot(long h, CharSequence id) {
+        int mask = hashes.length - 1;
+        int i = (int) (h ^ (h >>> 32)) & mask;
+        while (hashes[i] != 0 && (hashes[i] != h || !equals(ids[i], id))) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private int insert(CharSequence id) {
+        long h = hash(id);
+        int i = slot(h, id);
+        if (hashes[i] == 0) {
+            if ((size + 1) * 4 > hashes.length * 3) {
+                grow();
+                i = slot(h, id);
+            }
+            hashes[i] = h;
+            ids[i] = id.toString();
+            positions[i] = NOT_SEEN;
+            kinds[i] = 0;
+            size++;
+        }
+        return i;
+    }
+
+    private void grow() {
+        long[] oldHashes = hashes;
+        String[] oldIds = ids;
+        long[] oldPositions = positions;
+        int[] oldKinds = kinds;
+        hashes = new long[oldHashes.length * 2];
+        ids = new String[hashes.length];
+        positions = new long[hashes.length];
+        kinds = new int[hashes.length];
+        int mask = hashes.length - 1;
+        for (int j = 0; j < oldHashes.length; j++) {
+            long h = oldHashes[j];
+            if (h != 0) {
+                // The old entries are distinct, so only free slots matter.
+                int i = (int) (h ^ (h >>> 32)) & mask;
+                while (hashes[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                hashes[i] = h;
+                ids[i] = oldIds[j];
+                positions[i] = oldPositions[j];
+                kinds[i] = oldKinds[j];
+            }
+        }
+    }
+
+    /**
+     * Records an occurrence of an ID.
+     *
+     * @param id the ID
+     * @param line the line of the occurrence
+     * @param column the column of the occurrence
+     * @return the packed position of the first occurrence if the ID has
+     *         been added before, otherwise {@link #NOT_SEEN}
+     */
+    public long add(CharSequence id, int line, int column) {
+        int i = insert(id);
+        long first = positions[i];
+        if (first == NOT_SEEN) {
+            positions[i] = pack(line, column);
+        }
+        return first;
+    }
+
+    /**
+     * Records that an ID belongs to an element of the given kinds.
+     *
+     * @param id the ID
+     * @param kind a bit set of caller-defined kinds
+     * @return <code>true</code> if the ID was not in the registry before
+     */
+    public boolean addKind(CharSequence id, int kind) {
+        int before = size;
+        int i = insert(id);
+        kinds[i] |= kind;
+        return size != before;
+    }
+
+    /**
+     * Returns <code>true</code> if the ID has been recorded with all of
+     * the given kinds.
+     *
+     * @param id the ID
+     * @param kind a bit set of caller-defined kinds
+     * @return <code>true</code> if the ID is of the given kinds
+     */
+    public boolean hasKind(CharSequence id, int kind) {
+        int i = slot(hash(id), id);
+        return hashes[i] != 0 && (kinds[i] & kind) == kind;
+    }
+
+    /**
+     * Returns the number of distinct IDs.
+     *
+     * @return the size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Forgets all IDs. Tables that grew past their initial capacity are
+     * dropped so that a large document does not pin them.
+     */
+    public void clear() {
+        if (hashes.length > INITIAL_CAPACITY) {
+            hashes = new long[INITIAL_CAPACITY];
+            ids = new String[INITIAL_CAPACITY];
+            positions = new long[INITIAL_CAPACITY];
+            kinds = new int[INITIAL_CAPACITY];
+        } else {
+            Arrays.fill(hashes, 0L);
+            Arrays.fill(ids, null);
+            Arrays.fill(kinds, 0);
+        }
+        size = 0;
+    }
+}
@@ -37,6 +37,13 @@ public final class LocatorImpl implements Locator {
         this.column = locator.getColumnNumber();
         this.line = locator.getLineNumber();
     }
+
+    public LocatorImpl(Locator locator, int line, int column) {
+        this.systemId = locator.getSystemId();
+        this.publicId = locator.getPublicId();
+        this.column = column;
+        this.line = line;
+    }
     
     @Override
     public int getColumnNumber() {
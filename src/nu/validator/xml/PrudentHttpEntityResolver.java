@@ -25,11 +25,13 @@ package nu.validator.xml;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URI;
 import java.security.KeyManagementException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.util.List;
 import java.util.zip.GZIPInputStream;
 
 import javax.net.ssl.HostnameVerifier;
@@ -49,10 +51,12 @@ import nu.validator.io.SystemIdIOException;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.config.CookieSpecs;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.config.Registry;
 import org.apache.http.config.RegistryBuilder;
 import org.apache.http.conn.socket.ConnectionSocketFactory;
@@ -64,6 +68,7 @@ import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.impl.client.LaxRedirectStrategy;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
 import org.apache.log4j.Logger;
 
 import org.xml.sax.EntityResolver;
@@ -113,6 +118,14 @@ import io.mola.galimatias.GalimatiasParseException;
 
     private HttpServletRequest request;
 
+    private HttpCache cache = HttpCache.THE_INSTANCE;
+
+    private int cacheHits;
+
+    private int cacheRevalidations;
+
+    private int cacheMisses;
+
     /**
      * Sets the timeouts of the HTTP client.
      *
@@ -184,6 +197,17 @@ import io.mola.galimatias.GalimatiasParseException;
         userAgent = ua;
     }
 
+    /**
+     * Sets the HTTP cache to use instead of the one configured by system
+     * property.
+     *
+     * @param cache
+     *            the cache, or <code>null</code> to always fetch
+     */
+    public void setHttpCache(HttpCache cache) {
+        this.cache = cache;
+    }
+
     public PrudentHttpEntityResolver(long sizeLimit, boolean laxContentType,
             ErrorHandler errorHandler, HttpServletRequest request) {
         this.request = request;
@@ -274,7 +298,49 @@ import io.mola.galimatias.GalimatiasParseException;
                     throw new IOException(
                             "Port number must be less than 65536.");
             }
-            HttpResponse response = client.execute(m);
+            HttpCache.Entry cached = null;
+            if (cache != null) {
+                cached = cache.lookup(systemId);
+            }
+            HttpResponse response = null;
+            boolean storable = false;
+            if (cached != null && cached.isFresh()) {
+                response = toResponse(cached);
+                if (response != null) {
+                    cacheHits++;
+                }
+            }
+            if (response == null) {
+                if (cached != null) {
+                    cached.addValidators(m);
+                }
+                HttpClientContext context = HttpClientContext.create();
+                response = client.execute(m, context);
+                boolean revalidated = false;
+                if (cached != null && response.getStatusLine().getStatusCode()
+                        == HttpStatus.SC_NOT_MODIFIED) {
+                    EntityUtils.consume(response.getEntity());
+                    HttpResponse stored = toResponse(cache.revalidated(
+                            systemId, cached, response));
+                    if (stored != null) {
+                        cacheRevalidations++;
+                        response = stored;
+                        revalidated = true;
+                    } else {
+                        // The entry went away after the lookup.
+                        m.removeHeaders("If-None-Match");
+                        m.removeHeaders("If-Modified-Since");
+                        context = HttpClientContext.create();
+                        response = client.execute(m, context);
+                    }
+                }
+                if (!revalidated && cache != null) {
+                    cacheMisses++;
+                    List<URI> redirects = context.getRedirectLocations();
+                    storable = (redirects == null || redirects.isEmpty())
+                            && cache.isStorable(response);
+                }
+            }
             boolean ignoreResponseStatus = false;
             if (request != null && request.getAttribute(
                     "http://validator.nu/properties/ignore-response-status") != null) {
@@ -310,6 +376,10 @@ import io.mola.galimatias.GalimatiasParseException;
                 }
                 throw spe;
             }
+            if (storable) {
+                response = cache.store(systemId, response, sizeLimit);
+                entity = response.getEntity();
+            }
             TypedInputSource is;
             org.apache.http.Header ct = response.getFirstHeader("Content-Type");
             String contentType = null;
@@ -467,6 +537,35 @@ import io.mola.galimatias.GalimatiasParseException;
         }
     }
 
+    /**
+     * Returns how many resources were served from the HTTP cache without
+     * contacting the server.
+     *
+     * @return the number of fresh cache hits
+     */
+    public int getCacheHits() {
+        return cacheHits;
+    }
+
+    /**
+     * Returns how many cached resources the server confirmed unchanged.
+     *
+     * @return the number of revalidated cache hits
+     */
+    public int getCacheRevalidations() {
+        return cacheRevalidations;
+    }
+
+    /**
+     * Returns how many resources were fetched in full while the HTTP cache
+     * was enabled.
+     *
+     * @return the number of cache misses
+     */
+    public int getCacheMisses() {
+        return cacheMisses;
+    }
+
     /**
      * @return Returns the allowRnc.
      */
@@ -571,6 +670,19 @@ import io.mola.galimatias.GalimatiasParseException;
         return "text/mapml;q=1.0,text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,image/apng,*/*;q=0.8";
     }
 
+    /**
+     * Opens a cache entry, or returns <code>null</code> if it has been
+     * evicted or damaged since the lookup.
+     */
+    private static HttpResponse toResponse(HttpCache.Entry entry) {
+        try {
+            return entry.toResponse();
+        } catch (IOException e) {
+            log4j.debug("Unreadable cache entry", e);
+            return null;
+        }
+    }
+
     /**
      * Returns the allowHtml.
      *
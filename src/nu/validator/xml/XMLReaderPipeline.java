@@ -0,0 +1,400 @@
+/*
+ * Copyright (c) 2026 Mozilla Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package nu.validator.xml;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.DTDHandler;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXNotRecognizedException;
+import org.xml.sax.SAXNotSupportedException;
+import org.xml.sax.XMLReader;
+
+/**
+ * Declares the reader wrappers that sit between a parser and its content
+ * handler, and assembles only the ones that are enabled. A stage's wrapper
+ * is not created at all when the stage is disabled, so features not asked
+ * for cost nothing per event.
+ *
+ * <p>Stages are added innermost first: the first stage sees the events of
+ * the parser first. If the pipeline is timed, a timing wrapper is put
+ * around the parser and after every stage, and <code>getTimings()</code>
+ * reports the time spent in each stage's own event handling as the
+ * difference between the time spent below consecutive timing wrappers.
+ * The time of the content handler at the end of the pipeline is reported
+ * as <code>handler</code>. Only content handler events are timed.
+ */
+public final class XMLReaderPipeline {
+
+    /**
+     * Makes the wrapper of one stage.
+     */
+    public interface Stage {
+
+        /**
+         * @param reader
+         *            the reader assembled so far
+         * @return a reader that wraps <code>reader</code>
+         */
+        XMLReader wrap(XMLReader reader) throws SAXException;
+    }
+
+    private final boolean timed;
+
+    private final List<String> names = new ArrayList<>();
+
+    private final List<Stage> stages = new ArrayList<>();
+
+    private final List<TimingXMLReaderWrapper> timers = new ArrayList<>();
+
+    private final List<String> timedNames = new ArrayList<>();
+
+    /**
+     * @param timed
+     *            whether to time the stages
+     */
+    public XMLReaderPipeline(boolean timed) {
+        this.timed = timed;
+    }
+
+    /**
+     * Adds a stage if it is enabled.
+     *
+     * @param name
+     *            the name of the stage in the timings
+     * @param enabled
+     *            whether the stage is wanted for this document
+     * @return this pipeline
+     */
+    public XMLReaderPipeline add(String name, boolean enabled, Stage stage) {
+        if (enabled) {
+            names.add(name);
+            stages.add(stage);
+        }
+        return this;
+    }
+
+    /**
+     * Wraps <code>reader</code> in the enabled stages. The content handler
+     * of <code>reader</code> must already be set; it ends up at the end of
+     * the pipeline, and setting the content handler of the returned reader
+     * replaces it.
+     *
+     * @return the outermost reader
+     */
+    public XMLReader assemble(XMLReader reader) throws SAXException {
+        timers.clear();
+        timedNames.clear();
+        if (timed) {
+            reader = time(reader, null);
+        }
+        for (int i = 0; i < stages.size(); i++) {
+            reader = stages.get(i).wrap(reader);
+            if (timed) {
+                reader = time(reader, names.get(i));
+            }
+        }
+        return reader;
+    }
+
+    private XMLReader time(XMLReader reader, String name) {
+        TimingXMLReaderWrapper timer = new TimingXMLReaderWrapper(reader);
+        timers.add(timer);
+        timedNames.add(name);
+        return timer;
+    }
+
+    /**
+     * @return the names of the assembled stages with the milliseconds spent
+     *         in each, or the empty string if the pipeline is not timed
+     */
+    public String getTimings() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 1; i < timers.size(); i++) {
+            append(sb, timedNames.get(i), timers.get(i - 1).getNanos()
+                    - timers.get(i).getNanos());
+        }
+        if (!timers.isEmpty()) {
+            append(sb, "handler", timers.get(timers.size() - 1).getNanos());
+        }
+        return sb.toString();
+    }
+
+    private static void append(StringBuilder sb, String name, long nanos) {
+        if (sb.length() > 0) {
+            sb.append(", ");
+        }
+        sb.append(name).append(": ").append(
+                String.format("%.2f ms", nanos / 1e6));
+    }
+
+    /**
+     * Passes events on unchanged, adding up the time taken by the handler
+     * it passes them to.
+     */
+    private static final class TimingXMLReaderWrapper implements XMLReader,
+            ContentHandler {
+
+        private final XMLReader wrappedReader;
+
+        private ContentHandler contentHandler;
+
+        private long nanos;
+
+        TimingXMLReaderWrapper(XMLReader wrappedReader) {
+            this.wrappedReader = wrappedReader;
+            this.contentHandler = wrappedReader.getContentHandler();
+            wrappedReader.setContentHandler(this);
+        }
+
+        long getNanos() {
+            return nanos;
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length)
+                throws SAXException {
+            if (contentHandler == null) {
+                return;
+            }
+            long begin = System.nanoTime();
+            try {
+                contentHandler.characters(ch, start, length);
+            } finally {
+                nanos += System.nanoTime() - begin;
+            }
+        }
+
+        @Override
+        public void endDocument() throws SAXException {
+            if (contentHandler == null) {
+                return;
+            }
+            long begin = System.nanoTime();
+            try {
+                contentHandler.endDocument();
+            } finally {
+                nanos += System.nanoTime() - begin;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName)
+                throws SAXException {
+            if (contentHandler == null) {
+                return;
+            }
+            long begin = System.nanoTime();
+            try {
+                contentHandler.endElement(uri, localName, qName);
+            } finally {
+                nanos += System.nanoTime() - begin;
+            }
+        }
+
+        @Override
+        public void endPrefixMapping(String prefix) throws SAXException {
+            if (contentHandler == null) {
+                return;
+            }
+            long begin = System.nanoTime();
+            try {
+                contentHandler.endPrefixMapping(prefix);
+            } finally {
+                nanos += System.nanoTime() - begin;
+            }
+        }
+
+        @Override
+        public void ignorableWhitespace(char[] ch, int start, int length)
+                throws SAXException {
+            if (contentHandler == null) {
+                return;
+            }
+            long begin = System.nanoTime();
+            try {
+                contentHandler.ignorableWhitespace(ch, start, length);
+            } finally {
+                nanos += System.nanoTime() - begin;
+            }
+        }
+
+        @Override
+        public void processingInstruction(String target, String data)
+                throws SAXException {
+            if (contentHandler == null) {
+                return;
+            }
+            long begin = System.nanoTime();
+            try {
+                contentHandler.processingInstruction(target, data);
+            } finally {
+                nanos += System.nanoTime() - begin;
+            }
+        }
+
+        @Override
+        public void setDocumentLocator(Locator locator) {
+            if (contentHandler == null) {
+                return;
+            }
+            contentHandler.setDocumentLocator(locator);
+        }
+
+        @Override
+        public void skippedEntity(String name) throws SAXException {
+            if (contentHandler == null) {
+                return;
+            }
+            long begin = System.nanoTime();
+            try {
+                contentHandler.skippedEntity(name);
+            } finally {
+                nanos += System.nanoTime() - begin;
+            }
+        }
+
+        @Override
+        public void startDocument() throws SAXException {
+            if (contentHandler == null) {
+                return;
+            }
+            long begin = System.nanoTime();
+            try {
+                contentHandler.startDocument();
+            } finally {
+                nanos += System.nanoTime() - begin;
+            }
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName,
+                Attributes atts) throws SAXException {
+            if (contentHandler == null) {
+                return;
+            }
+            long begin = System.nanoTime();
+            try {
+                contentHandler.startElement(uri, localName, qName, atts);
+            } finally {
+                nanos += System.nanoTime() - begin;
+            }
+        }
+
+        @Override
+        public void startPrefixMapping(String prefix, String uri)
+                throws SAXException {
+            if (contentHandler == null) {
+                return;
+            }
+            long begin = System.nanoTime();
+            try {
+                contentHandler.startPrefixMapping(prefix, uri);
+            } finally {
+                nanos += System.nanoTime() - begin;
+            }
+        }
+
+        @Override
+        public ContentHandler getContentHandler() {
+            return contentHandler;
+        }
+
+        @Override
+        public void setContentHandler(ContentHandler handler) {
+            contentHandler = handler;
+        }
+
+        @Override
+        public DTDHandler getDTDHandler() {
+            return wrappedReader.getDTDHandler();
+        }
+
+        @Override
+        public void setDTDHandler(DTDHandler handler) {
+            wrappedReader.setDTDHandler(handler);
+        }
+
+        @Override
+        public EntityResolver getEntityResolver() {
+            return wrappedReader.getEntityResolver();
+        }
+
+        @Override
+        public void setEntityResolver(EntityResolver resolver) {
+            wrappedReader.setEntityResolver(resolver);
+        }
+
+        @Override
+        public ErrorHandler getErrorHandler() {
+            return wrappedReader.getErrorHandler();
+        }
+
+        @Override
+        public void setErrorHandler(ErrorHandler handler) {
+            wrappedReader.setErrorHandler(handler);
+        }
+
+        @Override
+        public boolean getFeature(String name)
+                throws SAXNotRecognizedException, SAXNotSupportedException {
+            return wrappedReader.getFeature(name);
+        }
+
+        @Override
+        public void setFeature(String name, boolean value)
+                throws SAXNotRecognizedException, SAXNotSupportedException {
+            wrappedReader.setFeature(name, value);
+        }
+
+        @Override
+        public Object getProperty(String name)
+                throws SAXNotRecognizedException, SAXNotSupportedException {
+            return wrappedReader.getProperty(name);
+        }
+
+        @Override
+        public void setProperty(String name, Object value)
+                throws SAXNotRecognizedException, SAXNotSupportedException {
+            wrappedReader.setProperty(name, value);
+        }
+
+        @Override
+        public void parse(InputSource input) throws IOException, SAXException {
+            wrappedReader.parse(input);
+        }
+
+        @Override
+        public void parse(String systemId) throws IOException, SAXException {
+            wrappedReader.parse(systemId);
+        }
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2026 Mozilla Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package nu.validator.xml.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import nu.validator.xml.HttpCache;
+import nu.validator.xml.PrudentHttpEntityResolver;
+
+import org.xml.sax.InputSource;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Checks <code>HttpCache</code> through
+ * <code>PrudentHttpEntityResolver</code> against a stub server: fresh
+ * entries are served without a request, stale ones are revalidated with
+ * <code>ETag</code> and <code>Last-Modified</code> and a 304 is answered
+ * from the cache, redirected and unstorable responses are passed through,
+ * bodies over the size limit or closed early aren't kept, a cache
+ * directory that can't be written doesn't break fetching, and the size
+ * bound evicts old entries.
+ *
+ * <p>Usage: <code>HttpCacheTest</code>
+ */
+public class HttpCacheTest {
+
+    private static final byte[] BODY = "<!DOCTYPE html><title>x</title>".getBytes();
+
+    private static final Map<String, Integer> hits = new HashMap<>();
+
+    private static int failures;
+
+    /**
+     * @param args
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        PrudentHttpEntityResolver.setParams(5000, 5000, 100);
+        HttpServer server = HttpServer.create(new InetSocketAddress(
+                "127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                respond(exchange);
+            }
+        });
+        server.start();
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+        Path root = Files.createTempDirectory("http-cache-test");
+        try {
+            HttpCache cache = new HttpCache(root.resolve("cache"), -1);
+            PrudentHttpEntityResolver resolver = resolver(cache, -1);
+
+            fetch(resolver, base + "/fresh");
+            check("fresh entry served from the cache",
+                    Arrays.equals(BODY, fetch(resolver, base + "/fresh"))
+                            && hits("/fresh") == 1
+                            && resolver.getCacheHits() == 1);
+
+            fetch(resolver, base + "/etag");
+            check("entry revalidated with If-None-Match",
+                    Arrays.equals(BODY, fetch(resolver, base + "/etag"))
+                            && hits("/etag") == 2
+                            && hits("/etag 304") == 1
+                            && resolver.getCacheRevalidations() == 1);
+
+            fetch(resolver, base + "/last-modified");
+            check("entry revalidated with If-Modified-Since",
+                    Arrays.equals(BODY, fetch(resolver,
+                            base + "/last-modified"))
+                            && hits("/last-modified 304") == 1
+                            && resolver.getCacheRevalidations() == 2);
+
+            fetch(resolver, base + "/redirect");
+            check("redirected response followed and not cached",
+                    Arrays.equals(BODY, fetch(resolver, base + "/redirect"))
+                            && hits("/redirect") == 2
+                            && cache.lookup(base + "/redirect") == null);
+
+            fetch(resolver, base + "/no-store");
+            fetch(resolver, base + "/no-store");
+            check("no-store not cached", hits("/no-store") == 2
+                    && cache.lookup(base + "/no-store") == null);
+
+            fetch(resolver, base + "/vary");
+            check("Vary: Cookie not cached",
+                    cache.lookup(base + "/vary") == null);
+
+            boolean failed = false;
+            try {
+                fetch(resolver(cache, 1024), base + "/big");
+            } catch (IOException e) {
+                failed = true;
+            }
+            check("body over the size limit not cached", failed
+                    && cache.lookup(base + "/big") == null);
+
+            InputSource partial = resolver.resolveEntity(null,
+                    base + "/fresh-partial");
+            try (InputStream in = partial.getByteStream()) {
+                in.read();
+            }
+            check("body closed early not cached",
+                    cache.lookup(base + "/fresh-partial") == null);
+            check("no temporary files left", count(root.resolve("cache"),
+                    ".tmp") == 0);
+
+            Path file = root.resolve("not-a-directory");
+            Files.write(file, new byte[0]);
+            PrudentHttpEntityResolver broken = resolver(new HttpCache(
+                    file.resolve("cache"), -1), -1);
+            check("unwritable cache falls back to the network",
+                    Arrays.equals(BODY, fetch(broken, base + "/fresh-broken"))
+                            && Arrays.equals(BODY, fetch(broken,
+                                    base + "/fresh-broken"))
+                            && hits("/fresh-broken") == 2
+                            && broken.getCacheMisses() == 2);
+
+            HttpCache bounded = new HttpCache(root.resolve("bounded"), 50000);
+            PrudentHttpEntityResolver boundedResolver = resolver(bounded, -1);
+            for (int i = 0; i < 20; i++) {
+                fetch(boundedResolver, base + "/fresh-big" + i);
+            }
+            check("size bound evicts old entries",
+                    size(root.resolve("bounded")) <= 50000
+                            && bounded.lookup(base + "/fresh-big19") != null
+                            && bounded.lookup(base + "/fresh-big0") == null);
+        } finally {
+            server.stop(0);
+        }
+        System.out.println(failures == 0 ? "All passed." : failures
+                + " failed.");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    private static PrudentHttpEntityResolver resolver(HttpCache cache,
+            long sizeLimit) {
+        PrudentHttpEntityResolver resolver = new PrudentHttpEntityResolver(
+                sizeLimit, true, null);
+        resolver.setAllowHtml(true);
+        resolver.setUserAgent("HttpCacheTest");
+        resolver.setHttpCache(cache);
+        return resolver;
+    }
+
+    private static byte[] fetch(PrudentHttpEntityResolver resolver,
+            String url) throws Exception {
+        InputSource is = resolver.resolveEntity(null, url);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = is.getByteStream()) {
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static void respond(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        count(path);
+        byte[] body = BODY;
+        if (path.startsWith("/fresh")) {
+            exchange.getResponseHeaders().set("Cache-Control", "max-age=60");
+            if (path.startsWith("/fresh-big")) {
+                body = new byte[10000];
+            }
+        } else if ("/etag".equals(path)) {
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            exchange.getResponseHeaders().set("ETag", "\"v1\"");
+            if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst(
+                    "If-None-Match"))) {
+                notModified(exchange, path);
+                return;
+            }
+        } else if ("/last-modified".equals(path)) {
+            exchange.getResponseHeaders().set("Cache-Control", "max-age=0");
+            exchange.getResponseHeaders().set("Last-Modified",
+                    "Thu, 01 Jan 2015 00:00:00 GMT");
+            if (exchange.getRequestHeaders().getFirst("If-Modified-Since") != null) {
+                notModified(exchange, path);
+                return;
+            }
+        } else if ("/no-store".equals(path)) {
+            exchange.getResponseHeaders().set("Cache-Control", "no-store");
+        } else if ("/vary".equals(path)) {
+            exchange.getResponseHeaders().set("Cache-Control", "max-age=60");
+            exchange.getResponseHeaders().set("Vary", "Cookie");
+        } else if ("/redirect".equals(path)) {
+            exchange.getResponseHeaders().set("Location", "/fresh-target");
+            exchange.sendResponseHeaders(302, -1);
+            exchange.close();
+            return;
+        } else if ("/big".equals(path)) {
+            exchange.getResponseHeaders().set("Cache-Control", "max-age=60");
+            body = new byte[100000];
+        }
+        exchange.getResponseHeaders().set("Content-Type", "text/html");
+        // Without a length the size limit applies while the body is read.
+        exchange.sendResponseHeaders(200, "/big".equals(path) ? 0
+                : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void notModified(HttpExchange exchange, String path)
+            throws IOException {
+        count(path + " 304");
+        exchange.sendResponseHeaders(304, -1);
+        exchange.close();
+    }
+
+    private static synchronized void count(String key) {
+        Integer n = hits.get(key);
+        hits.put(key, n == null ? 1 : n + 1);
+    }
+
+    private static synchronized int hits(String key) {
+        Integer n = hits.get(key);
+        return n == null ? 0 : n;
+    }
+
+    private static int count(Path directory, String suffix)
+            throws IOException {
+        int n = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                if (file.getFileName().toString().endsWith(suffix)) {
+                    n++;
+                }
+            }
+        }
+        return n;
+    }
+
+    private static long size(Path directory) throws IOException {
+        long total = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                total += Files.size(file);
+            }
+        }
+        return total;
+    }
+
+    private static void check(String name, boolean passed) {
+        System.out.println((passed ? "PASS " : "FAIL ") + name);
+        if (!passed) {
+            failures++;
+        }
+    }
+}